@@ -0,0 +1,25 @@
+package com.ekyc.api.gateway.cache;
+
+import org.springframework.http.HttpHeaders;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * A buffered upstream response held by the gateway response cache.
+ * Only entity headers (content type, encoding, language) are kept.
+ */
+public record CachedResponse(
+        String ruleId,
+        String path,
+        int status,
+        HttpHeaders headers,
+        byte[] body,
+        String etag,
+        Instant storedAt,
+        Duration ttl) {
+
+    public int weight() {
+        return body.length + path.length() + 256;
+    }
+}
@@ -0,0 +1,140 @@
+package com.ekyc.api.gateway.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Size-bounded store behind ResponseCacheFilter.
+ * Caffeine's W-TinyLFU policy keeps the popular catalog entries when the byte budget is hit;
+ * each entry expires after the TTL of the rule that stored it.
+ */
+@Component
+public class GatewayResponseCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(GatewayResponseCache.class);
+
+    private final Cache<String, CachedResponse> cache;
+
+    public GatewayResponseCache(ResponseCacheProperties properties, MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(properties.getMaxSize().toBytes())
+                .weigher((String key, CachedResponse value) -> key.length() + value.weight())
+                .expireAfter(new RuleExpiry())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "gateway.response");
+    }
+
+    public CachedResponse get(String key) {
+        return cache.getIfPresent(key);
+    }
+
+    public void put(String key, CachedResponse response) {
+        cache.put(key, response);
+    }
+
+    public int invalidateRule(String ruleId) {
+        return invalidateIf(entry -> entry.ruleId().equals(ruleId));
+    }
+
+    public int invalidatePathPrefix(String prefix) {
+        return invalidateIf(entry -> entry.path().startsWith(prefix));
+    }
+
+    public int invalidateAll() {
+        int size = (int) cache.estimatedSize();
+        cache.invalidateAll();
+        return size;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("entries", cache.estimatedSize());
+        stats.put("weightedSize", cache.policy().eviction().map(e -> e.weightedSize().orElse(0L)).orElse(0L));
+        stats.put("hitRate", cache.stats().hitRate());
+        stats.put("hits", cache.stats().hitCount());
+        stats.put("misses", cache.stats().missCount());
+        stats.put("evictions", cache.stats().evictionCount());
+        return stats;
+    }
+
+    private int invalidateIf(Predicate<CachedResponse> predicate) {
+        int removed = 0;
+        for (Map.Entry<String, CachedResponse> entry : cache.asMap().entrySet()) {
+            if (predicate.test(entry.getValue()) && cache.asMap().remove(entry.getKey(), entry.getValue())) {
+                removed++;
+            }
+        }
+        if (removed > 0) {
+            logger.debug("Invalidated {} cached responses", removed);
+        }
+        return removed;
+    }
+
+    /**
+     * Strong validator: the quoted SHA-256 of the body, so identical bodies always get the same tag.
+     */
+    public static String etagFor(byte[] body) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(body);
+            return "\"" + Base64.getUrlEncoder().withoutPadding().encodeToString(digest) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Cache key for a request under a rule. Returns null when a tenant-scoped rule has no tenant.
+     * The Accept header is part of the key, so content negotiated upstream is never served to a
+     * client that asked for another representation.
+     */
+    public static String keyFor(ResponseCacheProperties.Rule rule, String tenantId, String accept, String path,
+                                String rawQuery) {
+        String scope = "*";
+        if (rule.getScope() == ResponseCacheProperties.Scope.TENANT) {
+            if (tenantId == null) {
+                return null;
+            }
+            scope = tenantId;
+        }
+        String representation = accept == null || accept.isBlank() ? "*/*" : accept.trim();
+        StringBuilder key = new StringBuilder(rule.getId().length() + scope.length() + representation.length()
+                + path.length() + 8)
+                .append(rule.getId()).append('|').append(scope).append('|').append(representation).append('|').append(path);
+        if (rawQuery != null && !rawQuery.isEmpty()) {
+            key.append('?').append(rawQuery);
+        }
+        return key.toString();
+    }
+
+    private static final class RuleExpiry implements Expiry<String, CachedResponse> {
+
+        @Override
+        public long expireAfterCreate(String key, CachedResponse value, long currentTime) {
+            return value.ttl().toNanos();
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, CachedResponse value, long currentTime, long currentDuration) {
+            return value.ttl().toNanos();
+        }
+
+        @Override
+        public long expireAfterRead(String key, CachedResponse value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
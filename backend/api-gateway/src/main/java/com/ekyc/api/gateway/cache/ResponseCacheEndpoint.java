@@ -0,0 +1,47 @@
+package com.ekyc.api.gateway.cache;
+
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * /actuator/responsecache - cache statistics and explicit invalidation.
+ * DELETE with ?rule=modules or ?prefix=/api/modules, or with no parameters to clear everything.
+ */
+@Component
+@Endpoint(id = "responsecache")
+public class ResponseCacheEndpoint {
+
+    private final GatewayResponseCache cache;
+    private final ResponseCacheProperties properties;
+
+    public ResponseCacheEndpoint(GatewayResponseCache cache, ResponseCacheProperties properties) {
+        this.cache = cache;
+        this.properties = properties;
+    }
+
+    @ReadOperation
+    public Map<String, Object> stats() {
+        Map<String, Object> result = new LinkedHashMap<>(cache.stats());
+        result.put("rules", properties.getRules().stream().map(ResponseCacheProperties.Rule::getId).toList());
+        return result;
+    }
+
+    @DeleteOperation
+    public Map<String, Object> invalidate(@Nullable String rule, @Nullable String prefix) {
+        int removed;
+        if (rule != null) {
+            removed = cache.invalidateRule(rule);
+        } else if (prefix != null) {
+            removed = cache.invalidatePathPrefix(prefix);
+        } else {
+            removed = cache.invalidateAll();
+        }
+        return Map.of("invalidated", removed);
+    }
+}
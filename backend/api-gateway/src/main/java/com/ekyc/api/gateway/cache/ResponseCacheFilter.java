@@ -0,0 +1,281 @@
+package com.ekyc.api.gateway.cache;
+
+import com.ekyc.api.gateway.ratelimit.RateLimitFilter;
+import com.ekyc.api.gateway.security.GatewayIdentity;
+import com.ekyc.api.gateway.support.RoutePathMatcher;
+import org.reactivestreams.Publisher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.core.Ordered;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.PathContainer;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Caches GET responses for the read-mostly routes listed under gateway.response-cache.rules.
+ *
+ * Every cached response carries a strong ETag and If-None-Match is answered with 304. Entries
+ * are keyed by the caller's Accept header as well as the path. They are invalidated when a
+ * mutating request on the rule's paths or invalidated-by paths succeeds, when an upstream
+ * response carries X-Gateway-Cache-Invalidate, or through the responsecache actuator endpoint
+ * (PLATFORM_ADMIN only, see SecurityConfig).
+ */
+@Component
+public class ResponseCacheFilter implements GlobalFilter, Ordered {
+
+    public static final int ORDER = RateLimitFilter.ORDER + 10;
+
+    /**
+     * Upstream response header: "*" drops everything cached for the responding route,
+     * otherwise a comma separated list of gateway path prefixes, e.g. "/api/modules".
+     */
+    public static final String INVALIDATE_HEADER = "X-Gateway-Cache-Invalidate";
+    public static final String CACHE_STATUS_HEADER = "X-Cache";
+
+    private static final Logger logger = LoggerFactory.getLogger(ResponseCacheFilter.class);
+    private static final List<String> STORED_HEADERS = List.of(
+            HttpHeaders.CONTENT_TYPE, HttpHeaders.CONTENT_ENCODING, HttpHeaders.CONTENT_LANGUAGE);
+
+    private final ResponseCacheProperties properties;
+    private final GatewayResponseCache cache;
+    private final List<CacheRule> rules = new ArrayList<>();
+
+    public ResponseCacheFilter(ResponseCacheProperties properties, GatewayResponseCache cache) {
+        this.properties = properties;
+        this.cache = cache;
+        for (ResponseCacheProperties.Rule rule : properties.getRules()) {
+            rules.add(new CacheRule(rule, new RoutePathMatcher(rule.getRouteId(), rule.getPaths()),
+                    rule.getInvalidatedBy().isEmpty() ? null : new RoutePathMatcher(rule.getRouteId(), rule.getInvalidatedBy())));
+            logger.info("Response cache rule {} on route {} {}: ttl={}, scope={}",
+                    rule.getId(), rule.getRouteId(), rule.getPaths(), rule.getTtl(), rule.getScope());
+        }
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        String routeId = RoutePathMatcher.routeId(exchange);
+        if (!properties.isEnabled() || routeId == null) {
+            return chain.filter(exchange);
+        }
+        registerInvalidationHook(exchange, routeId);
+
+        ServerHttpRequest request = exchange.getRequest();
+        PathContainer requestPath = request.getPath().pathWithinApplication();
+        HttpMethod method = request.getMethod();
+        if (HttpMethod.HEAD.equals(method) || HttpMethod.OPTIONS.equals(method)) {
+            return chain.filter(exchange);
+        }
+        if (!HttpMethod.GET.equals(method)) {
+            List<CacheRule> written = invalidatedBy(routeId, requestPath);
+            if (written.isEmpty()) {
+                return chain.filter(exchange);
+            }
+            // A successful write on a cached rule makes its entries stale
+            return chain.filter(exchange).then(Mono.fromRunnable(() -> {
+                HttpStatusCode status = exchange.getResponse().getStatusCode();
+                if (status != null && status.is2xxSuccessful()) {
+                    written.forEach(rule -> cache.invalidateRule(rule.config.getId()));
+                }
+            }));
+        }
+
+        CacheRule rule = match(routeId, requestPath);
+        if (rule == null) {
+            return chain.filter(exchange);
+        }
+
+        GatewayIdentity identity = exchange.getAttribute(GatewayIdentity.ATTRIBUTE);
+        String path = request.getPath().value();
+        String key = GatewayResponseCache.keyFor(rule.config, identity != null ? identity.tenantId() : null,
+                request.getHeaders().getFirst(HttpHeaders.ACCEPT), path, request.getURI().getRawQuery());
+        if (key == null) {
+            return chain.filter(exchange);
+        }
+
+        String cacheControl = request.getHeaders().getCacheControl();
+        if (cacheControl == null || !cacheControl.contains("no-cache")) {
+            CachedResponse hit = cache.get(key);
+            if (hit != null) {
+                return writeCached(exchange, hit);
+            }
+        }
+
+        CachingResponse response = new CachingResponse(exchange, rule.config, key, path);
+        return chain.filter(exchange.mutate().response(response).build());
+    }
+
+    @Override
+    public int getOrder() {
+        return ORDER;
+    }
+
+    private CacheRule match(String routeId, PathContainer path) {
+        for (CacheRule rule : rules) {
+            if (rule.matcher.matches(routeId, path)) {
+                return rule;
+            }
+        }
+        return null;
+    }
+
+    private List<CacheRule> invalidatedBy(String routeId, PathContainer path) {
+        List<CacheRule> matched = new ArrayList<>(1);
+        for (CacheRule rule : rules) {
+            if (rule.matcher.matches(routeId, path)
+                    || (rule.writeMatcher != null && rule.writeMatcher.matches(routeId, path))) {
+                matched.add(rule);
+            }
+        }
+        return matched;
+    }
+
+    private void registerInvalidationHook(ServerWebExchange exchange, String routeId) {
+        ServerHttpResponse response = exchange.getResponse();
+        response.beforeCommit(() -> {
+            List<String> values = response.getHeaders().remove(INVALIDATE_HEADER);
+            if (values != null) {
+                for (String value : values) {
+                    for (String target : value.split(",")) {
+                        invalidate(routeId, target.trim());
+                    }
+                }
+            }
+            return Mono.empty();
+        });
+    }
+
+    private void invalidate(String routeId, String target) {
+        if (target.isEmpty()) {
+            return;
+        }
+        if ("*".equals(target)) {
+            for (CacheRule rule : rules) {
+                if (routeId.equals(rule.config.getRouteId())) {
+                    cache.invalidateRule(rule.config.getId());
+                }
+            }
+        } else {
+            cache.invalidatePathPrefix(target);
+        }
+    }
+
+    private static Mono<Void> writeCached(ServerWebExchange exchange, CachedResponse hit) {
+        ServerHttpResponse response = exchange.getResponse();
+        HttpHeaders headers = response.getHeaders();
+        headers.putAll(hit.headers());
+        headers.setETag(hit.etag());
+        headers.set(CACHE_STATUS_HEADER, "HIT");
+        if (notModified(exchange.getRequest(), hit.etag())) {
+            response.setStatusCode(HttpStatus.NOT_MODIFIED);
+            headers.remove(HttpHeaders.CONTENT_TYPE);
+            return response.setComplete();
+        }
+        response.setStatusCode(HttpStatusCode.valueOf(hit.status()));
+        headers.setContentLength(hit.body().length);
+        return response.writeWith(Mono.fromSupplier(() -> response.bufferFactory().wrap(hit.body())));
+    }
+
+    private static boolean notModified(ServerHttpRequest request, String etag) {
+        List<String> ifNoneMatch = request.getHeaders().getIfNoneMatch();
+        for (String candidate : ifNoneMatch) {
+            if ("*".equals(candidate) || etag.equals(candidate) || etag.equals(stripWeak(candidate))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String stripWeak(String etag) {
+        return etag.startsWith("W/") ? etag.substring(2) : etag;
+    }
+
+    private static boolean isCacheable(HttpStatusCode status, HttpHeaders headers) {
+        if (status == null || status.value() != HttpStatus.OK.value()) {
+            return false;
+        }
+        // Already answered by the gateway, e.g. a stale fallback from RouteResilienceFilter
+        if (headers.containsKey(HttpHeaders.SET_COOKIE) || headers.containsKey(CACHE_STATUS_HEADER)) {
+            return false;
+        }
+        String cacheControl = headers.getCacheControl();
+        return cacheControl == null
+                || !(cacheControl.contains("no-store") || cacheControl.contains("private"));
+    }
+
+    private record CacheRule(ResponseCacheProperties.Rule config, RoutePathMatcher matcher, RoutePathMatcher writeMatcher) {
+    }
+
+    /**
+     * Buffers a cacheable upstream body, stores it and tags it with an ETag before writing it out.
+     */
+    private final class CachingResponse extends ServerHttpResponseDecorator {
+
+        private final ServerWebExchange exchange;
+        private final ResponseCacheProperties.Rule rule;
+        private final String key;
+        private final String path;
+
+        CachingResponse(ServerWebExchange exchange, ResponseCacheProperties.Rule rule, String key, String path) {
+            super(exchange.getResponse());
+            this.exchange = exchange;
+            this.rule = rule;
+            this.key = key;
+            this.path = path;
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            HttpHeaders headers = getHeaders();
+            long maxEntryBytes = properties.getMaxEntrySize().toBytes();
+            if (!isCacheable(getStatusCode(), headers) || headers.getContentLength() > maxEntryBytes) {
+                return super.writeWith(body);
+            }
+
+            return DataBufferUtils.join(body).flatMap(joined -> {
+                byte[] bytes = new byte[joined.readableByteCount()];
+                joined.read(bytes);
+                DataBufferUtils.release(joined);
+
+                String etag = GatewayResponseCache.etagFor(bytes);
+                headers.setETag(etag);
+                headers.set(CACHE_STATUS_HEADER, "MISS");
+                if (bytes.length <= maxEntryBytes) {
+                    HttpHeaders stored = new HttpHeaders();
+                    for (String name : STORED_HEADERS) {
+                        List<String> values = headers.get(name);
+                        if (values != null) {
+                            stored.put(name, values);
+                        }
+                    }
+                    cache.put(key, new CachedResponse(rule.getId(), path, getStatusCode().value(),
+                            HttpHeaders.readOnlyHttpHeaders(stored), bytes, etag, Instant.now(), rule.getTtl()));
+                }
+
+                if (notModified(exchange.getRequest(), etag)) {
+                    setStatusCode(HttpStatus.NOT_MODIFIED);
+                    headers.remove(HttpHeaders.CONTENT_TYPE);
+                    headers.remove(HttpHeaders.CONTENT_LENGTH);
+                    return setComplete();
+                }
+                headers.setContentLength(bytes.length);
+                return super.writeWith(Mono.just(bufferFactory().wrap(bytes)));
+            });
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.ekyc.api.gateway.cache;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Gateway response cache for read-mostly routes, bound from gateway.response-cache.
+ */
+@ConfigurationProperties(prefix = "gateway.response-cache")
+public class ResponseCacheProperties {
+
+    private boolean enabled = true;
+    private DataSize maxSize = DataSize.ofMegabytes(64);
+    private DataSize maxEntrySize = DataSize.ofKilobytes(512);
+    private List<Rule> rules = new ArrayList<>();
+
+    public boolean isEnabled() { return enabled; }
+    public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+    public DataSize getMaxSize() { return maxSize; }
+    public void setMaxSize(DataSize maxSize) { this.maxSize = maxSize; }
+
+    public DataSize getMaxEntrySize() { return maxEntrySize; }
+    public void setMaxEntrySize(DataSize maxEntrySize) { this.maxEntrySize = maxEntrySize; }
+
+    public List<Rule> getRules() { return rules; }
+    public void setRules(List<Rule> rules) { this.rules = rules; }
+
+    public enum Scope {
+        /** One entry shared by every caller */
+        GLOBAL,
+        /** Separate entries per tenant id from the JWT */
+        TENANT
+    }
+
+    /**
+     * GET responses on the given route and paths are cached for ttl. A successful write on those
+     * paths, or on invalidatedBy (e.g. POST /api/registry/roles/create), drops the rule's entries.
+     */
+    public static class Rule {
+        private String id;
+        private String routeId;
+        private List<String> paths = new ArrayList<>();
+        private List<String> invalidatedBy = new ArrayList<>();
+        private Duration ttl = Duration.ofMinutes(1);
+        private Scope scope = Scope.GLOBAL;
+
+        public String getId() { return id; }
+        public void setId(String id) { this.id = id; }
+
+        public String getRouteId() { return routeId; }
+        public void setRouteId(String routeId) { this.routeId = routeId; }
+
+        public List<String> getPaths() { return paths; }
+        public void setPaths(List<String> paths) { this.paths = paths; }
+
+        public List<String> getInvalidatedBy() { return invalidatedBy; }
+        public void setInvalidatedBy(List<String> invalidatedBy) { this.invalidatedBy = invalidatedBy; }
+
+        public Duration getTtl() { return ttl; }
+        public void setTtl(Duration ttl) { this.ttl = ttl; }
+
+        public Scope getScope() { return scope; }
+        public void setScope(Scope scope) { this.scope = scope; }
+    }
+}
@@ -0,0 +1,50 @@
+package com.ekyc.api.gateway.coalesce;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Single-flight coalescing of identical concurrent GETs, bound from gateway.coalescing.
+ */
+@ConfigurationProperties(prefix = "gateway.coalescing")
+public class CoalescingProperties {
+
+    private boolean enabled = true;
+    private int maxWaiters = 256;
+    private DataSize maxBodySize = DataSize.ofMegabytes(1);
+    private Duration maxWait = Duration.ofSeconds(10);
+    private List<Target> routes = new ArrayList<>();
+
+    public boolean isEnabled() { return enabled; }
+    public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+    public int getMaxWaiters() { return maxWaiters; }
+    public void setMaxWaiters(int maxWaiters) { this.maxWaiters = maxWaiters; }
+
+    public DataSize getMaxBodySize() { return maxBodySize; }
+    public void setMaxBodySize(DataSize maxBodySize) { this.maxBodySize = maxBodySize; }
+
+    public Duration getMaxWait() { return maxWait; }
+    public void setMaxWait(Duration maxWait) { this.maxWait = maxWait; }
+
+    public List<Target> getRoutes() { return routes; }
+    public void setRoutes(List<Target> routes) { this.routes = routes; }
+
+    /**
+     * A route, optionally narrowed to some paths, whose GETs may be coalesced.
+     */
+    public static class Target {
+        private String routeId;
+        private List<String> paths = new ArrayList<>();
+
+        public String getRouteId() { return routeId; }
+        public void setRouteId(String routeId) { this.routeId = routeId; }
+
+        public List<String> getPaths() { return paths; }
+        public void setPaths(List<String> paths) { this.paths = paths; }
+    }
+}
@@ -0,0 +1,217 @@
+package com.ekyc.api.gateway.coalesce;
+
+import com.ekyc.api.gateway.cache.ResponseCacheFilter;
+import com.ekyc.api.gateway.support.BufferedResponse;
+import com.ekyc.api.gateway.support.RequestKeys;
+import com.ekyc.api.gateway.support.RoutePathMatcher;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.reactivestreams.Publisher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.core.Ordered;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.PathContainer;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Single-flight for identical concurrent GETs.
+ *
+ * The first request for a key (method, path, query, caller identity, Accept and
+ * Accept-Encoding) goes upstream as the
+ * leader; requests arriving while it is in flight wait for its buffered response instead of
+ * making their own call. If the leader's response can't be shared (non-2xx, too large, error or
+ * cancelled), or the waiter cap is reached, waiters simply go upstream themselves.
+ */
+@Component
+public class RequestCoalescingFilter implements GlobalFilter, Ordered {
+
+    public static final int ORDER = ResponseCacheFilter.ORDER + 10;
+    public static final String COALESCED_HEADER = "X-Coalesced";
+
+    private static final Logger logger = LoggerFactory.getLogger(RequestCoalescingFilter.class);
+
+    private final CoalescingProperties properties;
+    private final List<Target> targets = new ArrayList<>();
+    private final ConcurrentHashMap<String, InFlight> inFlight = new ConcurrentHashMap<>();
+
+    public RequestCoalescingFilter(CoalescingProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        for (CoalescingProperties.Target target : properties.getRoutes()) {
+            targets.add(new Target(new RoutePathMatcher(target.getRouteId(), target.getPaths()), meterRegistry));
+            logger.info("Coalescing identical GETs on route {} {}", target.getRouteId(), target.getPaths());
+        }
+        Gauge.builder("gateway.coalescing.inflight", inFlight, ConcurrentHashMap::size)
+                .description("Distinct coalesced requests currently in flight")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        ServerHttpRequest request = exchange.getRequest();
+        if (!properties.isEnabled() || !HttpMethod.GET.equals(request.getMethod())) {
+            return chain.filter(exchange);
+        }
+        String routeId = RoutePathMatcher.routeId(exchange);
+        Target target = routeId != null ? match(routeId, request.getPath().pathWithinApplication()) : null;
+        if (target == null) {
+            return chain.filter(exchange);
+        }
+
+        return Mono.defer(() -> coalesce(exchange, chain, target));
+    }
+
+    @Override
+    public int getOrder() {
+        return ORDER;
+    }
+
+    private Mono<Void> coalesce(ServerWebExchange exchange, GatewayFilterChain chain, Target target) {
+        String key = keyFor(exchange);
+        InFlight flight = new InFlight();
+        InFlight existing = inFlight.putIfAbsent(key, flight);
+        if (existing == null) {
+            target.leaders.increment();
+            return lead(exchange, chain, key, flight);
+        }
+
+        if (existing.waiters.incrementAndGet() > properties.getMaxWaiters()) {
+            existing.waiters.decrementAndGet();
+            target.bypassed.increment();
+            return chain.filter(exchange);
+        }
+        target.followers.increment();
+        return existing.result.asMono()
+                .timeout(properties.getMaxWait(), Mono.empty())
+                .flatMap(response -> {
+                    exchange.getResponse().getHeaders().set(COALESCED_HEADER, "true");
+                    return response.writeTo(exchange.getResponse()).thenReturn(Boolean.TRUE);
+                })
+                .switchIfEmpty(Mono.defer(() -> chain.filter(exchange).thenReturn(Boolean.TRUE)))
+                .then();
+    }
+
+    private Mono<Void> lead(ServerWebExchange exchange, GatewayFilterChain chain, String key, InFlight flight) {
+        CapturingResponse response = new CapturingResponse(exchange.getResponse(), key, flight);
+        return chain.filter(exchange.mutate().response(response).build())
+                // Releases waiters if the body was never written (error, cancel, empty response)
+                .doFinally(signal -> complete(key, flight, null));
+    }
+
+    private void complete(String key, InFlight flight, BufferedResponse response) {
+        inFlight.remove(key, flight);
+        if (response != null) {
+            flight.result.tryEmitValue(response);
+        } else {
+            flight.result.tryEmitEmpty();
+        }
+    }
+
+    private Target match(String routeId, PathContainer path) {
+        for (Target target : targets) {
+            if (target.matcher.matches(routeId, path)) {
+                return target;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Requests asking for another representation or encoding must not share a response.
+     */
+    private static String keyFor(ServerWebExchange exchange) {
+        HttpHeaders headers = exchange.getRequest().getHeaders();
+        return exchange.getRequest().getMethod().name() + ' ' + RequestKeys.scoped(exchange)
+                + ' ' + String.join(",", headers.getOrEmpty(HttpHeaders.ACCEPT))
+                + ' ' + String.join(",", headers.getOrEmpty(HttpHeaders.ACCEPT_ENCODING));
+    }
+
+    private static final class InFlight {
+        private final Sinks.One<BufferedResponse> result = Sinks.one();
+        private final AtomicInteger waiters = new AtomicInteger();
+    }
+
+    private static final class Target {
+        private final RoutePathMatcher matcher;
+        private final Counter leaders;
+        private final Counter followers;
+        private final Counter bypassed;
+
+        Target(RoutePathMatcher matcher, MeterRegistry meterRegistry) {
+            this.matcher = matcher;
+            String route = matcher.getRouteId();
+            this.leaders = counter(meterRegistry, route, "leader");
+            this.followers = counter(meterRegistry, route, "follower");
+            this.bypassed = counter(meterRegistry, route, "bypassed");
+            Gauge.builder("gateway.coalescing.ratio", this, Target::ratio)
+                    .description("Share of coalescable requests served from another request's upstream call")
+                    .tag("route", route)
+                    .register(meterRegistry);
+        }
+
+        private double ratio() {
+            double total = leaders.count() + followers.count() + bypassed.count();
+            return total == 0 ? 0 : followers.count() / total;
+        }
+
+        private static Counter counter(MeterRegistry meterRegistry, String route, String role) {
+            return Counter.builder("gateway.coalescing.requests")
+                    .description("GETs eligible for coalescing by how they were served")
+                    .tag("route", route).tag("role", role)
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * Buffers the leader's upstream body, hands it to the waiters, then writes it to the leader's client.
+     */
+    private final class CapturingResponse extends ServerHttpResponseDecorator {
+
+        private final String key;
+        private final InFlight flight;
+
+        CapturingResponse(ServerHttpResponse delegate, String key, InFlight flight) {
+            super(delegate);
+            this.key = key;
+            this.flight = flight;
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            HttpStatusCode status = getStatusCode();
+            long maxBytes = properties.getMaxBodySize().toBytes();
+            if (status == null || !status.is2xxSuccessful() || getHeaders().getContentLength() > maxBytes) {
+                complete(key, flight, null);
+                return super.writeWith(body);
+            }
+            return DataBufferUtils.join(body).flatMap(joined -> {
+                byte[] bytes = new byte[joined.readableByteCount()];
+                joined.read(bytes);
+                DataBufferUtils.release(joined);
+
+                HttpHeaders headers = getHeaders();
+                complete(key, flight, bytes.length <= maxBytes ? BufferedResponse.capture(status, headers, bytes) : null);
+                headers.setContentLength(bytes.length);
+                return super.writeWith(Mono.just(bufferFactory().wrap(bytes)));
+            });
+        }
+    }
+}
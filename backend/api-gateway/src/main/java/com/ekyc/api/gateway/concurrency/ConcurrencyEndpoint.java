@@ -0,0 +1,26 @@
+package com.ekyc.api.gateway.concurrency;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * /actuator/concurrency - current adaptive limit, requests in flight and shed requests per route.
+ */
+@Component
+@Endpoint(id = "concurrency")
+public class ConcurrencyEndpoint {
+
+    private final ConcurrencyLimitFilter filter;
+
+    public ConcurrencyEndpoint(ConcurrencyLimitFilter filter) {
+        this.filter = filter;
+    }
+
+    @ReadOperation
+    public Map<String, Object> limits() {
+        return filter.snapshot();
+    }
+}
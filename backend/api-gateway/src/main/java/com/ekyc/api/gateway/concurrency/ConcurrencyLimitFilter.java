@@ -0,0 +1,163 @@
+package com.ekyc.api.gateway.concurrency;
+
+import com.ekyc.api.gateway.coalesce.RequestCoalescingFilter;
+import com.ekyc.api.gateway.resilience.RouteResilienceFilter;
+import com.ekyc.api.gateway.support.RoutePathMatcher;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.PathContainer;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Adaptive concurrency limit per upstream route, with priority load shedding.
+ *
+ * Each route listed under gateway.concurrency.routes admits at most its current limit of
+ * concurrent requests; the limit follows upstream round-trip times (see GradientLimit), so it
+ * drops as soon as a service starts queueing instead of waiting for timeouts. Lower priority
+ * requests only get a fraction of the limit and are shed first. Rejected requests get 503 with
+ * Retry-After: 1 without reaching the service.
+ *
+ * Runs after the response cache and coalescing, so hits and followers don't take a permit, and
+ * before RouteResilienceFilter, so its own rejections are not counted as breaker failures. In
+ * turn, requests that filter answered without calling upstream (open circuit, full bulkhead)
+ * are neither samples nor drops here: they say nothing about the service's latency.
+ */
+@Component
+public class ConcurrencyLimitFilter implements GlobalFilter, Ordered {
+
+    public static final int ORDER = RequestCoalescingFilter.ORDER + 5;
+
+    private static final Logger logger = LoggerFactory.getLogger(ConcurrencyLimitFilter.class);
+    private static final Set<Integer> DROPPED_STATUSES = Set.of(502, 503, 504);
+
+    private final ConcurrencyProperties properties;
+    private final Map<String, Guard> guards = new LinkedHashMap<>();
+    private final List<Rule> rules = new ArrayList<>();
+
+    public ConcurrencyLimitFilter(ConcurrencyProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        for (ConcurrencyProperties.Limit limit : properties.getRoutes()) {
+            guards.put(limit.getRouteId(), new Guard(new RouteLimiter(limit.getRouteId(), limit), meterRegistry));
+            logger.info("Adaptive concurrency limit on route {}: initial={}, min={}, max={}",
+                    limit.getRouteId(), limit.getInitialLimit(), limit.getMinLimit(), limit.getMaxLimit());
+        }
+        for (ConcurrencyProperties.PriorityRule rule : properties.getPriorities()) {
+            rules.add(new Rule(new RoutePathMatcher(rule.getRouteId(), rule.getPaths()), rule.getPriority()));
+        }
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        if (!properties.isEnabled()) {
+            return chain.filter(exchange);
+        }
+        String routeId = RoutePathMatcher.routeId(exchange);
+        Guard guard = routeId != null ? guards.get(routeId) : null;
+        if (guard == null) {
+            return chain.filter(exchange);
+        }
+
+        Priority priority = priorityOf(routeId, exchange.getRequest().getPath().pathWithinApplication());
+        if (!guard.limiter.tryAcquire(priority)) {
+            guard.rejected.get(priority).increment();
+            ServerHttpResponse response = exchange.getResponse();
+            response.setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+            response.getHeaders().set(HttpHeaders.RETRY_AFTER, "1");
+            return response.setComplete();
+        }
+
+        long start = System.nanoTime();
+        return chain.filter(exchange).doFinally(signal -> {
+            RouteResilienceFilter.Reason fallback = exchange.getAttribute(RouteResilienceFilter.FALLBACK_ATTR);
+            if (signal == SignalType.CANCEL
+                    || (fallback != null && fallback != RouteResilienceFilter.Reason.UPSTREAM_ERROR)) {
+                guard.limiter.releaseIgnored();
+                return;
+            }
+            HttpStatusCode status = exchange.getResponse().getStatusCode();
+            boolean dropped = signal == SignalType.ON_ERROR
+                    || fallback == RouteResilienceFilter.Reason.UPSTREAM_ERROR
+                    || (status != null && DROPPED_STATUSES.contains(status.value()));
+            guard.limiter.release(System.nanoTime() - start, dropped);
+        });
+    }
+
+    @Override
+    public int getOrder() {
+        return ORDER;
+    }
+
+    /**
+     * Current limit, requests in flight and rejections per priority for each limited route.
+     */
+    public Map<String, Object> snapshot() {
+        Map<String, Object> routes = new LinkedHashMap<>();
+        guards.forEach((routeId, guard) -> {
+            Map<String, Object> rejected = new LinkedHashMap<>();
+            guard.rejected.forEach((priority, counter) -> rejected.put(priority.name(), (long) counter.count()));
+            Map<String, Object> route = new LinkedHashMap<>();
+            route.put("limit", guard.limiter.getLimit());
+            route.put("inflight", guard.limiter.getInflight());
+            route.put("rejected", rejected);
+            routes.put(routeId, route);
+        });
+        return Map.of("enabled", properties.isEnabled(), "routes", routes);
+    }
+
+    Priority priorityOf(String routeId, PathContainer path) {
+        for (Rule rule : rules) {
+            if (rule.matcher.matches(routeId, path)) {
+                return rule.priority;
+            }
+        }
+        return properties.getDefaultPriority();
+    }
+
+    private record Rule(RoutePathMatcher matcher, Priority priority) {
+    }
+
+    private static final class Guard {
+        private final RouteLimiter limiter;
+        private final Map<Priority, Counter> rejected = new EnumMap<>(Priority.class);
+
+        Guard(RouteLimiter limiter, MeterRegistry meterRegistry) {
+            this.limiter = limiter;
+            String route = limiter.getRouteId();
+            Gauge.builder("gateway.concurrency.limit", limiter, RouteLimiter::getLimit)
+                    .description("Current adaptive concurrency limit per route")
+                    .tag("route", route)
+                    .register(meterRegistry);
+            Gauge.builder("gateway.concurrency.inflight", limiter, RouteLimiter::getInflight)
+                    .description("Requests in flight counted against the concurrency limit")
+                    .tag("route", route)
+                    .register(meterRegistry);
+            for (Priority priority : Priority.values()) {
+                rejected.put(priority, Counter.builder("gateway.concurrency.rejected")
+                        .description("Requests shed by the concurrency limiter")
+                        .tag("route", route).tag("priority", priority.name().toLowerCase(Locale.ROOT))
+                        .register(meterRegistry));
+            }
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.ekyc.api.gateway.concurrency;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Adaptive concurrency limits per route and request priorities, bound from gateway.concurrency.
+ */
+@ConfigurationProperties(prefix = "gateway.concurrency")
+public class ConcurrencyProperties {
+
+    private boolean enabled = true;
+    private Priority defaultPriority = Priority.NORMAL;
+    private List<Limit> routes = new ArrayList<>();
+    private List<PriorityRule> priorities = new ArrayList<>();
+
+    public boolean isEnabled() { return enabled; }
+    public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+    public Priority getDefaultPriority() { return defaultPriority; }
+    public void setDefaultPriority(Priority defaultPriority) { this.defaultPriority = defaultPriority; }
+
+    public List<Limit> getRoutes() { return routes; }
+    public void setRoutes(List<Limit> routes) { this.routes = routes; }
+
+    public List<PriorityRule> getPriorities() { return priorities; }
+    public void setPriorities(List<PriorityRule> priorities) { this.priorities = priorities; }
+
+    /**
+     * Gradient limit for one route. The limit moves between minLimit and maxLimit with the ratio
+     * of long-term to recent RTT; tolerance is how much RTT may grow before the limit shrinks.
+     */
+    public static class Limit {
+        private String routeId;
+        private int initialLimit = 20;
+        private int minLimit = 4;
+        private int maxLimit = 500;
+        private double tolerance = 1.5;
+        private double smoothing = 0.2;
+        /** Samples per limit update */
+        private int windowSize = 20;
+
+        public String getRouteId() { return routeId; }
+        public void setRouteId(String routeId) { this.routeId = routeId; }
+
+        public int getInitialLimit() { return initialLimit; }
+        public void setInitialLimit(int initialLimit) { this.initialLimit = initialLimit; }
+
+        public int getMinLimit() { return minLimit; }
+        public void setMinLimit(int minLimit) { this.minLimit = minLimit; }
+
+        public int getMaxLimit() { return maxLimit; }
+        public void setMaxLimit(int maxLimit) { this.maxLimit = maxLimit; }
+
+        public double getTolerance() { return tolerance; }
+        public void setTolerance(double tolerance) { this.tolerance = tolerance; }
+
+        public double getSmoothing() { return smoothing; }
+        public void setSmoothing(double smoothing) { this.smoothing = smoothing; }
+
+        public int getWindowSize() { return windowSize; }
+        public void setWindowSize(int windowSize) { this.windowSize = windowSize; }
+    }
+
+    /**
+     * Requests on the route (optionally narrowed to paths) get this priority. First match wins.
+     */
+    public static class PriorityRule {
+        private Priority priority = Priority.NORMAL;
+        private String routeId;
+        private List<String> paths = new ArrayList<>();
+
+        public Priority getPriority() { return priority; }
+        public void setPriority(Priority priority) { this.priority = priority; }
+
+        public String getRouteId() { return routeId; }
+        public void setRouteId(String routeId) { this.routeId = routeId; }
+
+        public List<String> getPaths() { return paths; }
+        public void setPaths(List<String> paths) { this.paths = paths; }
+    }
+}
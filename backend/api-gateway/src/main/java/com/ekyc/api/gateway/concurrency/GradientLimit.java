@@ -0,0 +1,85 @@
+package com.ekyc.api.gateway.concurrency;
+
+/**
+ * Gradient concurrency limit (after Netflix concurrency-limits' Gradient2).
+ *
+ * A long-term RTT average is compared with the RTT of the latest window of samples. While they
+ * agree the limit grows by a queue allowance of sqrt(limit); when recent RTT rises beyond
+ * tolerance x long-term RTT, the limit is scaled down in proportion. Dropped requests
+ * (errors, timeouts, 503) cut the limit by 10%. Windows where the service was not near its
+ * limit do not grow it, so an idle route doesn't drift up to maxLimit.
+ */
+final class GradientLimit {
+
+    private static final double LONG_WINDOW_WEIGHT = 2.0 / (600 + 1);
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+    private final double smoothing;
+    private final int windowSize;
+
+    private volatile int limit;
+    private double estimatedLimit;
+    private double longRttNanos;
+
+    private long windowSumNanos;
+    private int windowCount;
+    private int windowMaxInflight;
+    private boolean windowDropped;
+
+    GradientLimit(ConcurrencyProperties.Limit config) {
+        this.minLimit = config.getMinLimit();
+        this.maxLimit = config.getMaxLimit();
+        this.tolerance = config.getTolerance();
+        this.smoothing = config.getSmoothing();
+        this.windowSize = config.getWindowSize();
+        this.estimatedLimit = Math.max(minLimit, Math.min(maxLimit, config.getInitialLimit()));
+        this.limit = (int) estimatedLimit;
+    }
+
+    int getLimit() {
+        return limit;
+    }
+
+    synchronized void onSample(long rttNanos, int inflight, boolean dropped) {
+        windowSumNanos += rttNanos;
+        windowCount++;
+        windowMaxInflight = Math.max(windowMaxInflight, inflight);
+        windowDropped |= dropped;
+        if (windowCount < windowSize) {
+            return;
+        }
+
+        double shortRtt = (double) windowSumNanos / windowCount;
+        boolean appLimited = windowMaxInflight < estimatedLimit / 2;
+        boolean anyDropped = windowDropped;
+        windowSumNanos = 0;
+        windowCount = 0;
+        windowMaxInflight = 0;
+        windowDropped = false;
+
+        if (longRttNanos == 0) {
+            longRttNanos = shortRtt;
+        } else {
+            longRttNanos += (shortRtt - longRttNanos) * LONG_WINDOW_WEIGHT;
+        }
+        // Let the baseline follow a lasting improvement (e.g. after a slow dependency recovers)
+        if (longRttNanos / shortRtt > 2) {
+            longRttNanos *= 0.95;
+        }
+
+        double newLimit;
+        if (anyDropped) {
+            newLimit = estimatedLimit * 0.9;
+        } else if (appLimited && shortRtt <= longRttNanos * tolerance) {
+            return;
+        } else {
+            double gradient = Math.max(0.5, Math.min(1.0, tolerance * longRttNanos / shortRtt));
+            newLimit = estimatedLimit * gradient + Math.sqrt(estimatedLimit);
+            newLimit = estimatedLimit * (1 - smoothing) + newLimit * smoothing;
+        }
+        estimatedLimit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+        limit = (int) estimatedLimit;
+    }
+}
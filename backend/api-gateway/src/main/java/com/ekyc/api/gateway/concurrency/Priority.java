@@ -0,0 +1,27 @@
+package com.ekyc.api.gateway.concurrency;
+
+/**
+ * Request priority classes for load shedding. Each class may only use its share of a route's
+ * current concurrency limit, so as the limit shrinks LOW traffic is rejected first and
+ * CRITICAL traffic last.
+ */
+public enum Priority {
+
+    CRITICAL(1.0),
+    HIGH(0.9),
+    NORMAL(0.75),
+    LOW(0.5);
+
+    private final double share;
+
+    Priority(double share) {
+        this.share = share;
+    }
+
+    /**
+     * Concurrent requests this class may have in flight under the given limit (at least one).
+     */
+    public int allowance(int limit) {
+        return Math.max(1, (int) (limit * share));
+    }
+}
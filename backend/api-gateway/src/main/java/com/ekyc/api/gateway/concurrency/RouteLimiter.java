@@ -0,0 +1,60 @@
+package com.ekyc.api.gateway.concurrency;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Admission control for one route: counts requests in flight against the gradient limit and
+ * lets each priority class in only up to its share of that limit.
+ */
+final class RouteLimiter {
+
+    private final String routeId;
+    private final GradientLimit limit;
+    private final AtomicInteger inflight = new AtomicInteger();
+
+    RouteLimiter(String routeId, ConcurrencyProperties.Limit config) {
+        this.routeId = routeId;
+        this.limit = new GradientLimit(config);
+    }
+
+    String getRouteId() {
+        return routeId;
+    }
+
+    int getLimit() {
+        return limit.getLimit();
+    }
+
+    int getInflight() {
+        return inflight.get();
+    }
+
+    boolean tryAcquire(Priority priority) {
+        int allowance = priority.allowance(limit.getLimit());
+        while (true) {
+            int current = inflight.get();
+            if (current >= allowance) {
+                return false;
+            }
+            if (inflight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Releases a permit and feeds the request's round trip into the limit.
+     */
+    void release(long rttNanos, boolean dropped) {
+        int current = inflight.getAndDecrement();
+        limit.onSample(rttNanos, current, dropped);
+    }
+
+    /**
+     * Releases a permit without a sample, for requests cancelled by the client or answered
+     * without calling upstream.
+     */
+    void releaseIgnored() {
+        inflight.decrementAndGet();
+    }
+}
@@ -1,20 +1,22 @@
 package com.ekyc.api.gateway.config;
 
+import com.ekyc.api.gateway.views.TenantOverviewFilter;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.micrometer.tagged.TaggedBulkheadMetrics;
+import io.github.resilience4j.micrometer.tagged.TaggedCircuitBreakerMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.cloud.gateway.route.RouteLocator;
 import org.springframework.cloud.gateway.route.builder.RouteLocatorBuilder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.web.cors.CorsConfiguration;
-import org.springframework.web.cors.reactive.CorsWebFilter;
-import org.springframework.web.cors.reactive.UrlBasedCorsConfigurationSource;
-
-import java.util.Arrays;
+import org.springframework.http.HttpMethod;
 
 @Configuration
 public class GatewayConfig {
 
     @Bean
-    public RouteLocator customRouteLocator(RouteLocatorBuilder builder) {
+    public RouteLocator customRouteLocator(RouteLocatorBuilder builder, TenantOverviewFilter tenantOverviewFilter) {
         return builder.routes()
                 // Health check route - fixed to point to actuator
                 .route("health-check", r -> r.path("/health")
@@ -56,6 +58,11 @@ public class GatewayConfig {
                         .filters(f -> f.rewritePath("/api/keycloak-sync/(?<segment>.*)", "/${segment}"))
                         .uri("lb://keycloak-sync-service"))
                 
+                // Tenant admin console overview - answered by the gateway from parallel upstream calls
+                .route(TenantOverviewFilter.ROUTE_ID, r -> r.method(HttpMethod.GET).and().path(TenantOverviewFilter.PATH)
+                        .filters(f -> f.filter(tenantOverviewFilter))
+                        .uri("no://op"))
+                
                 // Eureka Server route for service discovery
                 .route("eureka", r -> r.path("/eureka/**")
                         .filters(f -> f.rewritePath("/eureka/(?<segment>.*)", "/${segment}"))
@@ -64,18 +71,21 @@ public class GatewayConfig {
                 .build();
     }
 
+    /**
+     * Circuit breakers and bulkheads are created per route by RouteResilienceFilter from
+     * gateway.resilience; their state and permits are published as resilience4j.* metrics.
+     */
     @Bean
-    public CorsWebFilter corsWebFilter() {
-        CorsConfiguration corsConfig = new CorsConfiguration();
-        corsConfig.setAllowedOriginPatterns(Arrays.asList("*"));
-        corsConfig.setAllowedMethods(Arrays.asList("GET", "POST", "PUT", "DELETE", "OPTIONS"));
-        corsConfig.setAllowedHeaders(Arrays.asList("*"));
-        corsConfig.setAllowCredentials(true);
-        corsConfig.setMaxAge(3600L);
-
-        UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
-        source.registerCorsConfiguration("/**", corsConfig);
+    public CircuitBreakerRegistry circuitBreakerRegistry(MeterRegistry meterRegistry) {
+        CircuitBreakerRegistry registry = CircuitBreakerRegistry.ofDefaults();
+        TaggedCircuitBreakerMetrics.ofCircuitBreakerRegistry(registry).bindTo(meterRegistry);
+        return registry;
+    }
 
-        return new CorsWebFilter(source);
+    @Bean
+    public BulkheadRegistry bulkheadRegistry(MeterRegistry meterRegistry) {
+        BulkheadRegistry registry = BulkheadRegistry.ofDefaults();
+        TaggedBulkheadMetrics.ofBulkheadRegistry(registry).bindTo(meterRegistry);
+        return registry;
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,304 @@
+package com.ekyc.api.gateway.idempotency;
+
+import com.ekyc.api.gateway.ratelimit.RateLimitFilter;
+import com.ekyc.api.gateway.support.BufferedResponse;
+import com.ekyc.api.gateway.support.RequestKeys;
+import com.ekyc.api.gateway.support.RoutePathMatcher;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.reactivestreams.Publisher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.core.Ordered;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.PathContainer;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpRequestDecorator;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Idempotency-Key support for the POST routes listed under gateway.idempotency.routes.
+ *
+ * The first request with a key goes upstream and its response is stored for the key. Retries
+ * with the same key get the stored response (Idempotent-Replayed: true) without reaching the
+ * service; duplicates arriving while the first is still running wait for it. Keys are scoped to
+ * route, caller and URL, and bound to a hash of the request body: reusing a key for a different
+ * payload is rejected with 422.
+ *
+ * 5xx, 408, 409, 425 and 429 responses are not stored, so the client can retry with the same key.
+ */
+@Component
+public class IdempotencyFilter implements GlobalFilter, Ordered {
+
+    public static final int ORDER = RateLimitFilter.ORDER + 5;
+    public static final String KEY_HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final Logger logger = LoggerFactory.getLogger(IdempotencyFilter.class);
+    private static final int MAX_KEY_LENGTH = 255;
+    private static final Set<Integer> RETRYABLE_STATUSES = Set.of(408, 409, 425, 429);
+
+    private final IdempotencyProperties properties;
+    private final IdempotencyStore store;
+    private final List<Target> targets = new ArrayList<>();
+
+    public IdempotencyFilter(IdempotencyProperties properties, IdempotencyStore store, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.store = store;
+        for (IdempotencyProperties.Target target : properties.getRoutes()) {
+            targets.add(new Target(new RoutePathMatcher(target.getRouteId(), target.getPaths()), meterRegistry));
+            logger.info("Idempotency-Key honoured on route {} {}", target.getRouteId(), target.getPaths());
+        }
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        ServerHttpRequest request = exchange.getRequest();
+        String idempotencyKey = request.getHeaders().getFirst(KEY_HEADER);
+        if (!properties.isEnabled() || idempotencyKey == null || !HttpMethod.POST.equals(request.getMethod())) {
+            return chain.filter(exchange);
+        }
+        String routeId = RoutePathMatcher.routeId(exchange);
+        Target target = routeId != null ? match(routeId, request.getPath().pathWithinApplication()) : null;
+        if (target == null) {
+            return chain.filter(exchange);
+        }
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+            return complete(exchange, HttpStatus.BAD_REQUEST);
+        }
+
+        String key = routeId + ' ' + RequestKeys.scoped(exchange) + ' ' + idempotencyKey;
+        return readBody(request).flatMap(body -> {
+            if (body.isEmpty()) {
+                return complete(exchange, HttpStatus.PAYLOAD_TOO_LARGE);
+            }
+            byte[] bytes = body.get();
+            return handle(withBody(exchange, bytes), chain, target, key, fingerprint(request, bytes));
+        });
+    }
+
+    @Override
+    public int getOrder() {
+        return ORDER;
+    }
+
+    private Mono<Void> handle(ServerWebExchange exchange, GatewayFilterChain chain, Target target,
+                              String key, String fingerprint) {
+        IdempotencyStore.Completed completed = store.completed(key);
+        if (completed != null) {
+            return replay(exchange, target, completed, fingerprint);
+        }
+
+        IdempotencyStore.InFlight flight = new IdempotencyStore.InFlight(fingerprint);
+        IdempotencyStore.InFlight existing = store.begin(key, flight);
+        if (existing == null) {
+            // A leader that finished since the lookup above stored its response before releasing
+            // the key, so it is visible now; replay it rather than call upstream a second time
+            completed = store.completed(key);
+            if (completed != null) {
+                store.finish(key, flight, null);
+                return replay(exchange, target, completed, fingerprint);
+            }
+            target.first.increment();
+            return lead(exchange, chain, key, flight);
+        }
+        if (!existing.fingerprint().equals(fingerprint)) {
+            target.mismatched.increment();
+            return complete(exchange, HttpStatus.UNPROCESSABLE_ENTITY);
+        }
+
+        target.waited.increment();
+        return existing.result()
+                .map(Optional::of)
+                .defaultIfEmpty(Optional.empty())
+                .timeout(properties.getMaxWait())
+                .onErrorResume(TimeoutException.class, e -> Mono.empty())
+                // No stored response: the first request failed, so one of the duplicates takes over
+                .flatMap(result -> (result.isPresent()
+                        ? replay(exchange, result.get())
+                        : handle(exchange, chain, target, key, fingerprint)).thenReturn(Boolean.TRUE))
+                .switchIfEmpty(Mono.defer(() -> {
+                    target.conflicts.increment();
+                    exchange.getResponse().getHeaders().set(HttpHeaders.RETRY_AFTER, "1");
+                    return complete(exchange, HttpStatus.CONFLICT).thenReturn(Boolean.TRUE);
+                }))
+                .then();
+    }
+
+    private Mono<Void> lead(ServerWebExchange exchange, GatewayFilterChain chain, String key,
+                            IdempotencyStore.InFlight flight) {
+        CapturingResponse response = new CapturingResponse(exchange.getResponse(), key, flight);
+        return chain.filter(exchange.mutate().response(response).build())
+                // Releases the key if no response was stored (error, cancel)
+                .doFinally(signal -> store.finish(key, flight, null));
+    }
+
+    private static Mono<Void> replay(ServerWebExchange exchange, Target target, IdempotencyStore.Completed completed,
+                                     String fingerprint) {
+        if (!completed.fingerprint().equals(fingerprint)) {
+            target.mismatched.increment();
+            return complete(exchange, HttpStatus.UNPROCESSABLE_ENTITY);
+        }
+        target.replayed.increment();
+        return replay(exchange, completed.response());
+    }
+
+    private static Mono<Void> replay(ServerWebExchange exchange, BufferedResponse response) {
+        exchange.getResponse().getHeaders().set(REPLAYED_HEADER, "true");
+        return response.writeTo(exchange.getResponse());
+    }
+
+    private static Mono<Void> complete(ServerWebExchange exchange, HttpStatus status) {
+        exchange.getResponse().setStatusCode(status);
+        return exchange.getResponse().setComplete();
+    }
+
+    private Mono<Optional<byte[]>> readBody(ServerHttpRequest request) {
+        return DataBufferUtils.join(request.getBody(), (int) properties.getMaxRequestSize().toBytes())
+                .map(joined -> {
+                    byte[] bytes = new byte[joined.readableByteCount()];
+                    joined.read(bytes);
+                    DataBufferUtils.release(joined);
+                    return Optional.of(bytes);
+                })
+                .defaultIfEmpty(Optional.of(new byte[0]))
+                .onErrorResume(DataBufferLimitException.class, e -> Mono.just(Optional.empty()));
+    }
+
+    private static ServerWebExchange withBody(ServerWebExchange exchange, byte[] body) {
+        ServerHttpRequest request = new ServerHttpRequestDecorator(exchange.getRequest()) {
+            @Override
+            public Flux<DataBuffer> getBody() {
+                return body.length == 0 ? Flux.empty()
+                        : Flux.defer(() -> Flux.just(exchange.getResponse().bufferFactory().wrap(body)));
+            }
+        };
+        return exchange.mutate().request(request).build();
+    }
+
+    private static String fingerprint(ServerHttpRequest request, byte[] body) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            String query = request.getURI().getRawQuery();
+            String contentType = request.getHeaders().getFirst(HttpHeaders.CONTENT_TYPE);
+            digest.update((request.getPath().value() + '?' + (query != null ? query : "") + '\n'
+                    + (contentType != null ? contentType : "") + '\n').getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest.digest(body));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static boolean isStorable(HttpStatusCode status) {
+        return status != null && (status.is2xxSuccessful()
+                || (status.is4xxClientError() && !RETRYABLE_STATUSES.contains(status.value())));
+    }
+
+    private Target match(String routeId, PathContainer path) {
+        for (Target target : targets) {
+            if (target.matcher.matches(routeId, path)) {
+                return target;
+            }
+        }
+        return null;
+    }
+
+    private static final class Target {
+        private final RoutePathMatcher matcher;
+        private final Counter first;
+        private final Counter replayed;
+        private final Counter waited;
+        private final Counter conflicts;
+        private final Counter mismatched;
+
+        Target(RoutePathMatcher matcher, MeterRegistry meterRegistry) {
+            this.matcher = matcher;
+            String route = matcher.getRouteId();
+            this.first = counter(meterRegistry, route, "first");
+            this.replayed = counter(meterRegistry, route, "replayed");
+            this.waited = counter(meterRegistry, route, "waited");
+            this.conflicts = counter(meterRegistry, route, "conflict");
+            this.mismatched = counter(meterRegistry, route, "mismatch");
+        }
+
+        private static Counter counter(MeterRegistry meterRegistry, String route, String outcome) {
+            return Counter.builder("gateway.idempotency.requests")
+                    .description("Requests carrying an Idempotency-Key by how they were handled")
+                    .tag("route", route).tag("outcome", outcome)
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * Stores the first request's response for its key, then writes it to the client.
+     */
+    private final class CapturingResponse extends ServerHttpResponseDecorator {
+
+        private final String key;
+        private final IdempotencyStore.InFlight flight;
+        private boolean captured;
+
+        CapturingResponse(ServerHttpResponse delegate, String key, IdempotencyStore.InFlight flight) {
+            super(delegate);
+            this.key = key;
+            this.flight = flight;
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            HttpStatusCode status = getStatusCode();
+            long maxBytes = properties.getMaxEntrySize().toBytes();
+            if (captured || !isStorable(status) || getHeaders().getContentLength() > maxBytes) {
+                return super.writeWith(body);
+            }
+            captured = true;
+            return DataBufferUtils.join(body)
+                    .map(joined -> {
+                        byte[] bytes = new byte[joined.readableByteCount()];
+                        joined.read(bytes);
+                        DataBufferUtils.release(joined);
+                        return bytes;
+                    })
+                    .defaultIfEmpty(new byte[0])
+                    .flatMap(bytes -> {
+                        HttpHeaders headers = getHeaders();
+                        store.finish(key, flight, bytes.length <= maxBytes ? BufferedResponse.capture(status, headers, bytes) : null);
+                        headers.setContentLength(bytes.length);
+                        return super.writeWith(Mono.just(bufferFactory().wrap(bytes)));
+                    });
+        }
+
+        @Override
+        public Mono<Void> setComplete() {
+            HttpStatusCode status = getStatusCode();
+            if (!captured && isStorable(status)) {
+                captured = true;
+                store.finish(key, flight, BufferedResponse.capture(status, getHeaders(), new byte[0]));
+            }
+            return super.setComplete();
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.ekyc.api.gateway.idempotency;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Idempotency-Key handling for POST routes, bound from gateway.idempotency.
+ */
+@ConfigurationProperties(prefix = "gateway.idempotency")
+public class IdempotencyProperties {
+
+    private boolean enabled = true;
+    /** How long a completed response is replayed for its key */
+    private Duration ttl = Duration.ofHours(1);
+    private DataSize maxSize = DataSize.ofMegabytes(16);
+    private DataSize maxEntrySize = DataSize.ofKilobytes(256);
+    /** Larger request bodies are rejected with 413 on idempotent routes */
+    private DataSize maxRequestSize = DataSize.ofKilobytes(256);
+    /** How long a duplicate waits for the first request before getting 409 */
+    private Duration maxWait = Duration.ofSeconds(30);
+    private List<Target> routes = new ArrayList<>();
+
+    public boolean isEnabled() { return enabled; }
+    public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+    public Duration getTtl() { return ttl; }
+    public void setTtl(Duration ttl) { this.ttl = ttl; }
+
+    public DataSize getMaxSize() { return maxSize; }
+    public void setMaxSize(DataSize maxSize) { this.maxSize = maxSize; }
+
+    public DataSize getMaxEntrySize() { return maxEntrySize; }
+    public void setMaxEntrySize(DataSize maxEntrySize) { this.maxEntrySize = maxEntrySize; }
+
+    public DataSize getMaxRequestSize() { return maxRequestSize; }
+    public void setMaxRequestSize(DataSize maxRequestSize) { this.maxRequestSize = maxRequestSize; }
+
+    public Duration getMaxWait() { return maxWait; }
+    public void setMaxWait(Duration maxWait) { this.maxWait = maxWait; }
+
+    public List<Target> getRoutes() { return routes; }
+    public void setRoutes(List<Target> routes) { this.routes = routes; }
+
+    /**
+     * A route, optionally narrowed to some paths, whose POSTs honour Idempotency-Key.
+     */
+    public static class Target {
+        private String routeId;
+        private List<String> paths = new ArrayList<>();
+
+        public String getRouteId() { return routeId; }
+        public void setRouteId(String routeId) { this.routeId = routeId; }
+
+        public List<String> getPaths() { return paths; }
+        public void setPaths(List<String> paths) { this.paths = paths; }
+    }
+}
@@ -0,0 +1,84 @@
+package com.ekyc.api.gateway.idempotency;
+
+import com.ekyc.api.gateway.support.BufferedResponse;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Responses per idempotency key. Completed responses live in a byte-bounded Caffeine cache until
+ * gateway.idempotency.ttl; requests still in flight are tracked separately so they are never
+ * evicted while duplicates wait on them.
+ */
+@Component
+public class IdempotencyStore {
+
+    private final Cache<String, Completed> completed;
+    private final ConcurrentHashMap<String, InFlight> inFlight = new ConcurrentHashMap<>();
+
+    public IdempotencyStore(IdempotencyProperties properties, MeterRegistry meterRegistry) {
+        this.completed = Caffeine.newBuilder()
+                .maximumWeight(properties.getMaxSize().toBytes())
+                .weigher((String key, Completed entry) -> key.length() + entry.response().body().length)
+                .expireAfterWrite(properties.getTtl())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, completed, "gateway.idempotency");
+        Gauge.builder("gateway.idempotency.inflight", inFlight, ConcurrentHashMap::size)
+                .description("Idempotent requests currently in flight")
+                .register(meterRegistry);
+    }
+
+    public Completed completed(String key) {
+        return completed.getIfPresent(key);
+    }
+
+    /**
+     * Registers a new in-flight request, or returns the one already running for the key.
+     */
+    public InFlight begin(String key, InFlight candidate) {
+        return inFlight.putIfAbsent(key, candidate);
+    }
+
+    /**
+     * Stores the response (if any) before releasing the key, so a retry never finds neither.
+     */
+    public void finish(String key, InFlight flight, BufferedResponse response) {
+        if (response != null) {
+            completed.put(key, new Completed(flight.fingerprint(), response));
+        }
+        inFlight.remove(key, flight);
+        if (response != null) {
+            flight.result.tryEmitValue(response);
+        } else {
+            flight.result.tryEmitEmpty();
+        }
+    }
+
+    public record Completed(String fingerprint, BufferedResponse response) {
+    }
+
+    public static final class InFlight {
+        private final String fingerprint;
+        private final Sinks.One<BufferedResponse> result = Sinks.one();
+
+        public InFlight(String fingerprint) {
+            this.fingerprint = fingerprint;
+        }
+
+        public String fingerprint() {
+            return fingerprint;
+        }
+
+        public Mono<BufferedResponse> result() {
+            return result.asMono();
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.ekyc.api.gateway.loadbalancer;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Load seen by the gateway for one upstream instance: a peak-sensitive EWMA of response latency,
+ * the number of outstanding requests and the consecutive error count used for ejection.
+ *
+ * The average jumps straight up to a slower sample and decays back towards faster ones over
+ * the decay time, so an instance that stalls is avoided immediately and recovers gradually.
+ */
+public final class InstanceStats {
+
+    /** Cost of an instance that has requests outstanding but has not answered any yet */
+    private static final double UNKNOWN_LATENCY_PENALTY = 1e12;
+
+    private final double decayNanos;
+    private final AtomicInteger outstanding = new AtomicInteger();
+
+    private volatile double ewmaNanos;
+    private volatile boolean ejected;
+    private volatile long ejectedUntilNanos;
+    private long lastSampleNanos;
+    private int consecutiveErrors;
+    private int ejections;
+
+    InstanceStats(long decayNanos) {
+        this.decayNanos = decayNanos;
+    }
+
+    void start() {
+        outstanding.incrementAndGet();
+    }
+
+    void cancelled() {
+        outstanding.decrementAndGet();
+    }
+
+    synchronized void success(long latencyNanos, long nowNanos) {
+        outstanding.decrementAndGet();
+        consecutiveErrors = 0;
+        if (ejections > 0 && !isEjected(nowNanos)) {
+            ejections = 0;
+        }
+        double ewma = ewmaNanos;
+        if (ewma == 0 || latencyNanos > ewma) {
+            ewmaNanos = latencyNanos;
+        } else {
+            double weight = Math.exp(-(nowNanos - lastSampleNanos) / decayNanos);
+            ewmaNanos = ewma * weight + latencyNanos * (1 - weight);
+        }
+        lastSampleNanos = nowNanos;
+    }
+
+    /**
+     * @return true if this error got the instance ejected
+     */
+    synchronized boolean failure(long nowNanos, int ejectAfter, long baseEjectionNanos, long maxEjectionNanos) {
+        outstanding.decrementAndGet();
+        if (++consecutiveErrors < ejectAfter || isEjected(nowNanos)) {
+            return false;
+        }
+        consecutiveErrors = 0;
+        ejections++;
+        ejectedUntilNanos = nowNanos + Math.min(baseEjectionNanos * ejections, maxEjectionNanos);
+        ejected = true;
+        return true;
+    }
+
+    boolean isEjected(long nowNanos) {
+        return ejected && ejectedUntilNanos - nowNanos > 0;
+    }
+
+    /**
+     * Expected wait for a new request on this instance; lower is better.
+     */
+    double cost() {
+        int active = outstanding.get();
+        double ewma = ewmaNanos;
+        if (ewma == 0) {
+            return active == 0 ? 0 : UNKNOWN_LATENCY_PENALTY + active;
+        }
+        return ewma * (active + 1);
+    }
+
+    public int outstanding() {
+        return outstanding.get();
+    }
+
+    public double latencyMillis() {
+        return ewmaNanos / 1_000_000d;
+    }
+}
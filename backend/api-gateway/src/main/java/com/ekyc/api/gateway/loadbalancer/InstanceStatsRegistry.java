@@ -0,0 +1,74 @@
+package com.ekyc.api.gateway.loadbalancer;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Shared per-instance stats, written by LoadBalancerFeedbackFilter and read by PeakEwmaLoadBalancer.
+ * Instances that disappear from discovery are dropped after gateway.load-balancer.stats-idle-timeout.
+ */
+@Component
+public class InstanceStatsRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(InstanceStatsRegistry.class);
+
+    private final LoadBalancingProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final Set<Integer> errorStatuses;
+    private final Cache<String, InstanceStats> stats;
+
+    public InstanceStatsRegistry(LoadBalancingProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        this.errorStatuses = Set.copyOf(properties.getErrorStatuses());
+        this.stats = Caffeine.newBuilder()
+                .expireAfterAccess(properties.getStatsIdleTimeout())
+                .build();
+        Gauge.builder("gateway.loadbalancer.ejected", this, InstanceStatsRegistry::ejectedCount)
+                .description("Upstream instances currently ejected for consecutive errors")
+                .register(meterRegistry);
+    }
+
+    public InstanceStats get(ServiceInstance instance) {
+        return stats.get(keyFor(instance), key -> new InstanceStats(properties.getDecayTime().toNanos()));
+    }
+
+    public boolean isErrorStatus(int status) {
+        return errorStatuses.contains(status);
+    }
+
+    void failure(ServiceInstance instance, InstanceStats instanceStats) {
+        long now = System.nanoTime();
+        boolean ejected = instanceStats.failure(now, properties.getConsecutiveErrors(),
+                properties.getBaseEjectionTime().toNanos(), properties.getMaxEjectionTime().toNanos());
+        if (ejected) {
+            String serviceId = instance.getServiceId().toLowerCase(Locale.ROOT);
+            logger.warn("Ejected {} {}:{} after {} consecutive errors", serviceId, instance.getHost(),
+                    instance.getPort(), properties.getConsecutiveErrors());
+            Counter.builder("gateway.loadbalancer.ejections")
+                    .description("Upstream instances ejected for consecutive errors")
+                    .tag("service", serviceId)
+                    .register(meterRegistry)
+                    .increment();
+        }
+    }
+
+    private double ejectedCount() {
+        long now = System.nanoTime();
+        return stats.asMap().values().stream().filter(s -> s.isEjected(now)).count();
+    }
+
+    static String keyFor(ServiceInstance instance) {
+        return instance.getServiceId().toLowerCase(Locale.ROOT) + '@' + instance.getHost() + ':' + instance.getPort();
+    }
+}
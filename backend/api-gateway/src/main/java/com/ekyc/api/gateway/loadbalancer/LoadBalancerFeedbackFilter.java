@@ -0,0 +1,58 @@
+package com.ekyc.api.gateway.loadbalancer;
+
+import com.ekyc.api.gateway.metrics.UpstreamTimingFilter;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+/**
+ * Feeds each upstream call's outcome back into the stats of the instance the load balancer picked:
+ * outstanding count while in flight, then time to response headers or an error.
+ */
+@Component
+public class LoadBalancerFeedbackFilter implements GlobalFilter, Ordered {
+
+    public static final int ORDER = UpstreamTimingFilter.ORDER + 1;
+
+    private final InstanceStatsRegistry statsRegistry;
+
+    public LoadBalancerFeedbackFilter(InstanceStatsRegistry statsRegistry) {
+        this.statsRegistry = statsRegistry;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        Response<ServiceInstance> response = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_LOADBALANCER_RESPONSE_ATTR);
+        if (response == null || !response.hasServer()) {
+            return chain.filter(exchange);
+        }
+        ServiceInstance instance = response.getServer();
+        InstanceStats stats = statsRegistry.get(instance);
+        stats.start();
+        long start = System.nanoTime();
+        return chain.filter(exchange)
+                .doOnSuccess(v -> {
+                    HttpStatusCode status = exchange.getResponse().getStatusCode();
+                    if (status != null && statsRegistry.isErrorStatus(status.value())) {
+                        statsRegistry.failure(instance, stats);
+                    } else {
+                        long now = System.nanoTime();
+                        stats.success(now - start, now);
+                    }
+                })
+                .doOnError(e -> statsRegistry.failure(instance, stats))
+                .doOnCancel(stats::cancelled);
+    }
+
+    @Override
+    public int getOrder() {
+        return ORDER;
+    }
+}
@@ -0,0 +1,15 @@
+package com.ekyc.api.gateway.loadbalancer;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cloud.loadbalancer.annotation.LoadBalancerClients;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Replaces round-robin with PeakEwmaLoadBalancer for every lb:// service.
+ * Set gateway.load-balancer.enabled=false to fall back to Spring Cloud's round-robin.
+ */
+@Configuration
+@ConditionalOnProperty(name = "gateway.load-balancer.enabled", havingValue = "true", matchIfMissing = true)
+@LoadBalancerClients(defaultConfiguration = PeakEwmaLoadBalancerConfiguration.class)
+public class LoadBalancingConfig {
+}
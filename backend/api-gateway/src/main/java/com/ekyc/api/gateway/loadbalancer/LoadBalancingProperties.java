@@ -0,0 +1,53 @@
+package com.ekyc.api.gateway.loadbalancer;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Latency-aware load balancing for lb:// routes, bound from gateway.load-balancer.
+ */
+@ConfigurationProperties(prefix = "gateway.load-balancer")
+public class LoadBalancingProperties {
+
+    private boolean enabled = true;
+    /** How quickly the latency average forgets old samples once latency drops */
+    private Duration decayTime = Duration.ofSeconds(10);
+    /** Errors in a row after which an instance is ejected */
+    private int consecutiveErrors = 5;
+    /** Ejection time, multiplied by the number of times the instance was ejected in a row */
+    private Duration baseEjectionTime = Duration.ofSeconds(30);
+    private Duration maxEjectionTime = Duration.ofMinutes(5);
+    /** Ejection is ignored while more than this share of a service's instances are ejected */
+    private int maxEjectionPercent = 50;
+    /** Upstream statuses counted as errors, in addition to connect errors and timeouts */
+    private List<Integer> errorStatuses = new ArrayList<>(List.of(502, 503, 504));
+    /** Stats of instances not picked for this long are dropped */
+    private Duration statsIdleTimeout = Duration.ofMinutes(15);
+
+    public boolean isEnabled() { return enabled; }
+    public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+    public Duration getDecayTime() { return decayTime; }
+    public void setDecayTime(Duration decayTime) { this.decayTime = decayTime; }
+
+    public int getConsecutiveErrors() { return consecutiveErrors; }
+    public void setConsecutiveErrors(int consecutiveErrors) { this.consecutiveErrors = consecutiveErrors; }
+
+    public Duration getBaseEjectionTime() { return baseEjectionTime; }
+    public void setBaseEjectionTime(Duration baseEjectionTime) { this.baseEjectionTime = baseEjectionTime; }
+
+    public Duration getMaxEjectionTime() { return maxEjectionTime; }
+    public void setMaxEjectionTime(Duration maxEjectionTime) { this.maxEjectionTime = maxEjectionTime; }
+
+    public int getMaxEjectionPercent() { return maxEjectionPercent; }
+    public void setMaxEjectionPercent(int maxEjectionPercent) { this.maxEjectionPercent = maxEjectionPercent; }
+
+    public List<Integer> getErrorStatuses() { return errorStatuses; }
+    public void setErrorStatuses(List<Integer> errorStatuses) { this.errorStatuses = errorStatuses; }
+
+    public Duration getStatsIdleTimeout() { return statsIdleTimeout; }
+    public void setStatsIdleTimeout(Duration statsIdleTimeout) { this.statsIdleTimeout = statsIdleTimeout; }
+}
@@ -0,0 +1,97 @@
+package com.ekyc.api.gateway.loadbalancer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.client.loadbalancer.EmptyResponse;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.loadbalancer.core.NoopServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.core.ReactorServiceInstanceLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.SelectedInstanceCallback;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Power of two choices over peak-EWMA latency x outstanding requests.
+ *
+ * Two distinct instances are sampled at random and the one with the lower expected wait wins,
+ * which keeps traffic off an instance that is stalled (GC, slow dependency) well before discovery
+ * notices. Instances ejected for consecutive errors are skipped unless too many of them are out.
+ */
+public class PeakEwmaLoadBalancer implements ReactorServiceInstanceLoadBalancer {
+
+    private static final Logger logger = LoggerFactory.getLogger(PeakEwmaLoadBalancer.class);
+
+    private final ObjectProvider<ServiceInstanceListSupplier> serviceInstanceListSupplierProvider;
+    private final String serviceId;
+    private final InstanceStatsRegistry statsRegistry;
+    private final int maxEjectionPercent;
+
+    public PeakEwmaLoadBalancer(ObjectProvider<ServiceInstanceListSupplier> serviceInstanceListSupplierProvider,
+                                String serviceId, InstanceStatsRegistry statsRegistry, int maxEjectionPercent) {
+        this.serviceInstanceListSupplierProvider = serviceInstanceListSupplierProvider;
+        this.serviceId = serviceId;
+        this.statsRegistry = statsRegistry;
+        this.maxEjectionPercent = maxEjectionPercent;
+    }
+
+    @Override
+    @SuppressWarnings("rawtypes")
+    public Mono<Response<ServiceInstance>> choose(Request request) {
+        ServiceInstanceListSupplier supplier = serviceInstanceListSupplierProvider.getIfAvailable(NoopServiceInstanceListSupplier::new);
+        return supplier.get(request).next().map(instances -> {
+            Response<ServiceInstance> response = select(instances);
+            if (supplier instanceof SelectedInstanceCallback callback && response.hasServer()) {
+                callback.selectedServiceInstance(response.getServer());
+            }
+            return response;
+        });
+    }
+
+    Response<ServiceInstance> select(List<ServiceInstance> instances) {
+        if (instances.isEmpty()) {
+            logger.warn("No servers available for service: {}", serviceId);
+            return new EmptyResponse();
+        }
+        List<ServiceInstance> candidates = available(instances, System.nanoTime());
+        int size = candidates.size();
+        if (size == 1) {
+            return new DefaultResponse(candidates.get(0));
+        }
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(size);
+        int second = random.nextInt(size - 1);
+        if (second >= first) {
+            second++;
+        }
+        ServiceInstance a = candidates.get(first);
+        ServiceInstance b = candidates.get(second);
+        return new DefaultResponse(statsRegistry.get(a).cost() <= statsRegistry.get(b).cost() ? a : b);
+    }
+
+    private List<ServiceInstance> available(List<ServiceInstance> instances, long now) {
+        List<ServiceInstance> healthy = null;
+        for (int i = 0; i < instances.size(); i++) {
+            boolean ejected = statsRegistry.get(instances.get(i)).isEjected(now);
+            if (ejected && healthy == null) {
+                healthy = new ArrayList<>(instances.subList(0, i));
+            } else if (!ejected && healthy != null) {
+                healthy.add(instances.get(i));
+            }
+        }
+        if (healthy == null) {
+            return instances;
+        }
+        int ejectedCount = instances.size() - healthy.size();
+        // Past the limit the remaining instances would take all the load; better to spread it
+        return healthy.isEmpty() || ejectedCount * 100 > instances.size() * maxEjectionPercent ? instances : healthy;
+    }
+}
@@ -0,0 +1,132 @@
+package com.ekyc.api.gateway.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per route and upstream instance latency, kept in HdrHistograms for the routelatency endpoint
+ * and mirrored into Micrometer timers (with percentile histograms) for Prometheus.
+ *
+ * Phases:
+ * total     - whole exchange, including streaming the response body to the client
+ * filters   - time spent in gateway filters before the upstream call starts
+ * upstream  - from sending the upstream request to receiving its response headers (first byte)
+ */
+@Component
+public class RouteLatencyRecorder {
+
+    public static final String NO_INSTANCE = "none";
+
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(5);
+
+    private final MeterRegistry meterRegistry;
+    private final ConcurrentHashMap<String, ConcurrentHashMap<String, RouteHistograms>> routes = new ConcurrentHashMap<>();
+
+    public RouteLatencyRecorder(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * @param upstreamNanos time to first upstream byte, or a negative value if no upstream call was made
+     */
+    public void record(String routeId, String instance, long totalNanos, long filterNanos, long upstreamNanos) {
+        ConcurrentHashMap<String, RouteHistograms> instances = routes.get(routeId);
+        if (instances == null) {
+            instances = routes.computeIfAbsent(routeId, id -> new ConcurrentHashMap<>());
+        }
+        RouteHistograms histograms = instances.get(instance);
+        if (histograms == null) {
+            histograms = instances.computeIfAbsent(instance, i -> new RouteHistograms(routeId, i));
+        }
+        histograms.total.record(totalNanos);
+        histograms.filters.record(filterNanos);
+        if (upstreamNanos >= 0) {
+            histograms.upstream.record(upstreamNanos);
+        }
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> result = new TreeMap<>();
+        routes.forEach((routeId, instances) -> {
+            Map<String, Object> byInstance = new TreeMap<>();
+            instances.forEach((instance, histograms) -> {
+                Map<String, Object> phases = new LinkedHashMap<>();
+                phases.put("total", histograms.total.summary());
+                phases.put("filters", histograms.filters.summary());
+                phases.put("upstream", histograms.upstream.summary());
+                byInstance.put(instance, phases);
+            });
+            result.put(routeId, byInstance);
+        });
+        return result;
+    }
+
+    public void reset() {
+        routes.values().forEach(instances -> instances.values().forEach(histograms -> {
+            histograms.total.histogram.reset();
+            histograms.filters.histogram.reset();
+            histograms.upstream.histogram.reset();
+        }));
+    }
+
+    private final class RouteHistograms {
+        private final Phase total;
+        private final Phase filters;
+        private final Phase upstream;
+
+        RouteHistograms(String routeId, String instance) {
+            this.total = new Phase(routeId, instance, "total");
+            this.filters = new Phase(routeId, instance, "filters");
+            this.upstream = new Phase(routeId, instance, "upstream");
+        }
+    }
+
+    private final class Phase {
+        private final Histogram histogram = new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, 2);
+        private final Timer timer;
+
+        Phase(String routeId, String instance, String phase) {
+            this.timer = Timer.builder("gateway.route.latency")
+                    .description("Gateway latency per route, upstream instance and phase")
+                    .tag("route", routeId)
+                    .tag("instance", instance)
+                    .tag("phase", phase)
+                    .publishPercentileHistogram()
+                    .minimumExpectedValue(Duration.ofMillis(1))
+                    .maximumExpectedValue(Duration.ofSeconds(30))
+                    .register(meterRegistry);
+        }
+
+        void record(long nanos) {
+            long micros = Math.min(Math.max(1, nanos / 1_000), HIGHEST_TRACKABLE_MICROS);
+            histogram.recordValue(micros);
+            timer.record(nanos, TimeUnit.NANOSECONDS);
+        }
+
+        Map<String, Object> summary() {
+            Histogram copy = histogram.copy();
+            Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("count", copy.getTotalCount());
+            summary.put("p50Ms", millis(copy.getValueAtPercentile(50)));
+            summary.put("p90Ms", millis(copy.getValueAtPercentile(90)));
+            summary.put("p99Ms", millis(copy.getValueAtPercentile(99)));
+            summary.put("p999Ms", millis(copy.getValueAtPercentile(99.9)));
+            summary.put("maxMs", millis(copy.getMaxValue()));
+            return summary;
+        }
+
+        private static double millis(long micros) {
+            return micros / 1_000d;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.ekyc.api.gateway.metrics;
+
+import com.ekyc.api.gateway.support.RoutePathMatcher;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+/**
+ * Outermost gateway filter: times the whole exchange and, together with the marks left by
+ * UpstreamTimingFilter, splits it into filter time and time to first upstream byte.
+ */
+@Component
+public class RouteTimingFilter implements GlobalFilter, Ordered {
+
+    public static final int ORDER = Ordered.HIGHEST_PRECEDENCE;
+
+    static final String UPSTREAM_START_ATTR = RouteTimingFilter.class.getName() + ".upstreamStart";
+    static final String UPSTREAM_END_ATTR = RouteTimingFilter.class.getName() + ".upstreamEnd";
+    static final String UPSTREAM_INSTANCE_ATTR = RouteTimingFilter.class.getName() + ".instance";
+
+    private final RouteLatencyRecorder recorder;
+
+    public RouteTimingFilter(RouteLatencyRecorder recorder) {
+        this.recorder = recorder;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        String routeId = RoutePathMatcher.routeId(exchange);
+        if (routeId == null) {
+            return chain.filter(exchange);
+        }
+        long start = System.nanoTime();
+        return chain.filter(exchange).doFinally(signal -> record(exchange, routeId, start));
+    }
+
+    @Override
+    public int getOrder() {
+        return ORDER;
+    }
+
+    private void record(ServerWebExchange exchange, String routeId, long start) {
+        long end = System.nanoTime();
+        Long upstreamStart = exchange.getAttribute(UPSTREAM_START_ATTR);
+        Long upstreamEnd = exchange.getAttribute(UPSTREAM_END_ATTR);
+        String instance = exchange.getAttributeOrDefault(UPSTREAM_INSTANCE_ATTR, RouteLatencyRecorder.NO_INSTANCE);
+
+        long filterNanos = (upstreamStart != null ? upstreamStart : end) - start;
+        long upstreamNanos = upstreamStart != null && upstreamEnd != null ? upstreamEnd - upstreamStart : -1;
+        recorder.record(routeId, instance, end - start, filterNanos, upstreamNanos);
+    }
+}
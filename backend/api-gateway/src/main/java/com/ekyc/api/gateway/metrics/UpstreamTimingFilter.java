@@ -0,0 +1,41 @@
+package com.ekyc.api.gateway.metrics;
+
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.filter.ReactiveLoadBalancerClientFilter;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+
+/**
+ * Runs after load balancing and just before the routing filter: records which upstream instance
+ * was picked, when the upstream request started and when its response headers arrived.
+ */
+@Component
+public class UpstreamTimingFilter implements GlobalFilter, Ordered {
+
+    public static final int ORDER = ReactiveLoadBalancerClientFilter.LOAD_BALANCER_CLIENT_FILTER_ORDER + 1;
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        URI requestUrl = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_REQUEST_URL_ATTR);
+        if (requestUrl != null && requestUrl.getHost() != null) {
+            exchange.getAttributes().put(RouteTimingFilter.UPSTREAM_INSTANCE_ATTR,
+                    requestUrl.getPort() > 0 ? requestUrl.getHost() + ":" + requestUrl.getPort() : requestUrl.getHost());
+        }
+        exchange.getAttributes().put(RouteTimingFilter.UPSTREAM_START_ATTR, System.nanoTime());
+        // The routing filter completes once upstream response headers are in; the body is
+        // streamed afterwards by NettyWriteResponseFilter.
+        return chain.filter(exchange)
+                .doOnSuccess(v -> exchange.getAttributes().put(RouteTimingFilter.UPSTREAM_END_ATTR, System.nanoTime()));
+    }
+
+    @Override
+    public int getOrder() {
+        return ORDER;
+    }
+}
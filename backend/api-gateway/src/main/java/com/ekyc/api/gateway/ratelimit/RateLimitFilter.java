@@ -0,0 +1,151 @@
+package com.ekyc.api.gateway.ratelimit;
+
+import com.ekyc.api.gateway.security.GatewayIdentity;
+import com.ekyc.api.gateway.security.JwtAuthenticationFilter;
+import com.ekyc.api.gateway.support.RoutePathMatcher;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.PathContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory rate limiting per route. Authenticated requests are bucketed by tenant id taken
+ * from the verified JWT, anonymous ones by client IP. Rejections get a 429 with Retry-After.
+ */
+@Component
+public class RateLimitFilter implements GlobalFilter, Ordered {
+
+    public static final int ORDER = JwtAuthenticationFilter.ORDER + 10;
+
+    private static final Logger logger = LoggerFactory.getLogger(RateLimitFilter.class);
+
+    private final RateLimitProperties properties;
+    private final Map<String, List<RouteLimiter>> limitersByRoute = new HashMap<>();
+
+    public RateLimitFilter(RateLimitProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        for (RateLimitProperties.Limit limit : properties.getLimits()) {
+            RouteLimiter limiter = new RouteLimiter(limit, meterRegistry);
+            limitersByRoute.computeIfAbsent(limit.getRouteId(), id -> new ArrayList<>()).add(limiter);
+            logger.info("Rate limit on route {} {}: capacity={}, refill={}/s",
+                    limit.getRouteId(), limit.getPaths(), limit.getCapacity(), limit.getRefillPerSecond());
+        }
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        if (!properties.isEnabled()) {
+            return chain.filter(exchange);
+        }
+        String routeId = RoutePathMatcher.routeId(exchange);
+        if (routeId == null) {
+            return chain.filter(exchange);
+        }
+        List<RouteLimiter> limiters = limitersByRoute.get(routeId);
+        if (limiters == null) {
+            return chain.filter(exchange);
+        }
+        RouteLimiter limiter = match(limiters, routeId, exchange.getRequest().getPath().pathWithinApplication());
+        if (limiter == null) {
+            return chain.filter(exchange);
+        }
+
+        GatewayIdentity identity = exchange.getAttribute(GatewayIdentity.ATTRIBUTE);
+        boolean byTenant = identity != null && identity.tenantId() != null;
+        String key = byTenant ? identity.tenantId() : clientIp(exchange);
+        if (key == null) {
+            return chain.filter(exchange);
+        }
+
+        long waitNanos = limiter.table.tryAcquire(key, System.nanoTime());
+        if (waitNanos == 0) {
+            return chain.filter(exchange);
+        }
+
+        (byTenant ? limiter.tenantRejections : limiter.ipRejections).increment();
+        long retryAfterSeconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + 999_999_999L));
+        exchange.getResponse().setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
+        exchange.getResponse().getHeaders().set(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds));
+        return exchange.getResponse().setComplete();
+    }
+
+    @Override
+    public int getOrder() {
+        return ORDER;
+    }
+
+    @Scheduled(fixedDelayString = "${gateway.rate-limit.eviction-interval-ms:60000}")
+    public void evictIdleBuckets() {
+        long now = System.nanoTime();
+        long idleNanos = properties.getIdleTimeout().toNanos();
+        for (List<RouteLimiter> limiters : limitersByRoute.values()) {
+            for (RouteLimiter limiter : limiters) {
+                int evicted = limiter.table.evictIdle(now, idleNanos);
+                if (evicted > 0) {
+                    logger.debug("Evicted {} idle rate-limit buckets for route {}", evicted, limiter.matcher.getRouteId());
+                }
+            }
+        }
+    }
+
+    private static RouteLimiter match(List<RouteLimiter> limiters, String routeId, PathContainer path) {
+        for (RouteLimiter limiter : limiters) {
+            if (limiter.matcher.matches(routeId, path)) {
+                return limiter;
+            }
+        }
+        return null;
+    }
+
+    private static String clientIp(ServerWebExchange exchange) {
+        InetSocketAddress remoteAddress = exchange.getRequest().getRemoteAddress();
+        if (remoteAddress == null || remoteAddress.getAddress() == null) {
+            return null;
+        }
+        return remoteAddress.getAddress().getHostAddress();
+    }
+
+    private static final class RouteLimiter {
+        private final RoutePathMatcher matcher;
+        private final TokenBucketTable table;
+        private final Counter tenantRejections;
+        private final Counter ipRejections;
+
+        RouteLimiter(RateLimitProperties.Limit limit, MeterRegistry meterRegistry) {
+            this.matcher = new RoutePathMatcher(limit.getRouteId(), limit.getPaths());
+            this.table = new TokenBucketTable(limit.getCapacity(), limit.getRefillPerSecond());
+            String routeId = limit.getRouteId();
+            String scope = matcher.describePaths();
+            this.tenantRejections = Counter.builder("gateway.ratelimit.rejected")
+                    .description("Requests rejected by the gateway rate limiter")
+                    .tag("route", routeId).tag("paths", scope).tag("key", "tenant")
+                    .register(meterRegistry);
+            this.ipRejections = Counter.builder("gateway.ratelimit.rejected")
+                    .description("Requests rejected by the gateway rate limiter")
+                    .tag("route", routeId).tag("paths", scope).tag("key", "ip")
+                    .register(meterRegistry);
+            Gauge.builder("gateway.ratelimit.buckets", table, TokenBucketTable::size)
+                    .description("Live rate-limit buckets")
+                    .tag("route", routeId).tag("paths", scope)
+                    .register(meterRegistry);
+        }
+    }
+}
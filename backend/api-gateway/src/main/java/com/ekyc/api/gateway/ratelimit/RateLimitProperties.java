@@ -0,0 +1,50 @@
+package com.ekyc.api.gateway.ratelimit;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Per-route rate limits, bound from gateway.rate-limit in application.yml.
+ */
+@ConfigurationProperties(prefix = "gateway.rate-limit")
+public class RateLimitProperties {
+
+    private boolean enabled = true;
+    private Duration idleTimeout = Duration.ofMinutes(10);
+    private List<Limit> limits = new ArrayList<>();
+
+    public boolean isEnabled() { return enabled; }
+    public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+    public Duration getIdleTimeout() { return idleTimeout; }
+    public void setIdleTimeout(Duration idleTimeout) { this.idleTimeout = idleTimeout; }
+
+    public List<Limit> getLimits() { return limits; }
+    public void setLimits(List<Limit> limits) { this.limits = limits; }
+
+    /**
+     * A bucket definition for one route, optionally narrowed to some of its paths.
+     * Authenticated callers are limited per tenant, anonymous callers per client IP.
+     */
+    public static class Limit {
+        private String routeId;
+        private List<String> paths = new ArrayList<>();
+        private int capacity = 100;
+        private double refillPerSecond = 50;
+
+        public String getRouteId() { return routeId; }
+        public void setRouteId(String routeId) { this.routeId = routeId; }
+
+        public List<String> getPaths() { return paths; }
+        public void setPaths(List<String> paths) { this.paths = paths; }
+
+        public int getCapacity() { return capacity; }
+        public void setCapacity(int capacity) { this.capacity = capacity; }
+
+        public double getRefillPerSecond() { return refillPerSecond; }
+        public void setRefillPerSecond(double refillPerSecond) { this.refillPerSecond = refillPerSecond; }
+    }
+}
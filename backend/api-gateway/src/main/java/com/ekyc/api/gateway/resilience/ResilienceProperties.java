@@ -0,0 +1,97 @@
+package com.ekyc.api.gateway.resilience;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Per-route circuit breakers and bulkheads, bound from gateway.resilience in application.yml.
+ */
+@ConfigurationProperties(prefix = "gateway.resilience")
+public class ResilienceProperties {
+
+    private boolean enabled = true;
+    private Stale stale = new Stale();
+    private List<Policy> routes = new ArrayList<>();
+
+    public boolean isEnabled() { return enabled; }
+    public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+    public Stale getStale() { return stale; }
+    public void setStale(Stale stale) { this.stale = stale; }
+
+    public List<Policy> getRoutes() { return routes; }
+    public void setRoutes(List<Policy> routes) { this.routes = routes; }
+
+    /**
+     * Last good GET responses kept for stale-while-error fallbacks.
+     */
+    public static class Stale {
+        private DataSize maxSize = DataSize.ofMegabytes(32);
+        private DataSize maxEntrySize = DataSize.ofKilobytes(512);
+        private Duration maxAge = Duration.ofMinutes(10);
+
+        public DataSize getMaxSize() { return maxSize; }
+        public void setMaxSize(DataSize maxSize) { this.maxSize = maxSize; }
+
+        public DataSize getMaxEntrySize() { return maxEntrySize; }
+        public void setMaxEntrySize(DataSize maxEntrySize) { this.maxEntrySize = maxEntrySize; }
+
+        public Duration getMaxAge() { return maxAge; }
+        public void setMaxAge(Duration maxAge) { this.maxAge = maxAge; }
+    }
+
+    /**
+     * Breaker and bulkhead settings for one route. Upstream responses with one of
+     * failureStatuses count as failures, as do connect errors and timeouts.
+     */
+    public static class Policy {
+        private String routeId;
+        private int maxConcurrentCalls = 64;
+        private float failureRateThreshold = 50;
+        private Duration slowCallThreshold = Duration.ofSeconds(2);
+        private float slowCallRateThreshold = 80;
+        private int slidingWindowSize = 20;
+        private int minimumNumberOfCalls = 10;
+        private Duration waitInOpenState = Duration.ofSeconds(15);
+        private int permittedCallsInHalfOpenState = 3;
+        private List<Integer> failureStatuses = new ArrayList<>(List.of(502, 503, 504));
+        private boolean staleFallback = false;
+
+        public String getRouteId() { return routeId; }
+        public void setRouteId(String routeId) { this.routeId = routeId; }
+
+        public int getMaxConcurrentCalls() { return maxConcurrentCalls; }
+        public void setMaxConcurrentCalls(int maxConcurrentCalls) { this.maxConcurrentCalls = maxConcurrentCalls; }
+
+        public float getFailureRateThreshold() { return failureRateThreshold; }
+        public void setFailureRateThreshold(float failureRateThreshold) { this.failureRateThreshold = failureRateThreshold; }
+
+        public Duration getSlowCallThreshold() { return slowCallThreshold; }
+        public void setSlowCallThreshold(Duration slowCallThreshold) { this.slowCallThreshold = slowCallThreshold; }
+
+        public float getSlowCallRateThreshold() { return slowCallRateThreshold; }
+        public void setSlowCallRateThreshold(float slowCallRateThreshold) { this.slowCallRateThreshold = slowCallRateThreshold; }
+
+        public int getSlidingWindowSize() { return slidingWindowSize; }
+        public void setSlidingWindowSize(int slidingWindowSize) { this.slidingWindowSize = slidingWindowSize; }
+
+        public int getMinimumNumberOfCalls() { return minimumNumberOfCalls; }
+        public void setMinimumNumberOfCalls(int minimumNumberOfCalls) { this.minimumNumberOfCalls = minimumNumberOfCalls; }
+
+        public Duration getWaitInOpenState() { return waitInOpenState; }
+        public void setWaitInOpenState(Duration waitInOpenState) { this.waitInOpenState = waitInOpenState; }
+
+        public int getPermittedCallsInHalfOpenState() { return permittedCallsInHalfOpenState; }
+        public void setPermittedCallsInHalfOpenState(int permittedCallsInHalfOpenState) { this.permittedCallsInHalfOpenState = permittedCallsInHalfOpenState; }
+
+        public List<Integer> getFailureStatuses() { return failureStatuses; }
+        public void setFailureStatuses(List<Integer> failureStatuses) { this.failureStatuses = failureStatuses; }
+
+        public boolean isStaleFallback() { return staleFallback; }
+        public void setStaleFallback(boolean staleFallback) { this.staleFallback = staleFallback; }
+    }
+}
@@ -0,0 +1,297 @@
+package com.ekyc.api.gateway.resilience;
+
+import com.ekyc.api.gateway.cache.ResponseCacheFilter;
+import com.ekyc.api.gateway.coalesce.RequestCoalescingFilter;
+import com.ekyc.api.gateway.support.BufferedResponse;
+import com.ekyc.api.gateway.support.RequestKeys;
+import com.ekyc.api.gateway.support.RoutePathMatcher;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.reactor.bulkhead.operator.BulkheadOperator;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.reactivestreams.Publisher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.core.Ordered;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Circuit breaker and bulkhead per downstream route, so a slow or failing service can only hold
+ * its own share of gateway connections.
+ *
+ * Requests rejected by an open circuit or a full bulkhead fail fast with 503 and Retry-After.
+ * On routes with stale-fallback, GET requests are instead answered from the last good response
+ * for the same caller and URL (X-Cache: STALE), which is also used when the upstream call
+ * errors or returns one of the route's failure statuses.
+ */
+@Component
+public class RouteResilienceFilter implements GlobalFilter, Ordered {
+
+    public static final int ORDER = RequestCoalescingFilter.ORDER + 10;
+
+    /**
+     * Exchange attribute holding the Reason when this filter answered the request itself (503 or
+     * a stale response) instead of passing on the upstream response.
+     */
+    public static final String FALLBACK_ATTR = RouteResilienceFilter.class.getName() + ".fallback";
+
+    private static final Logger logger = LoggerFactory.getLogger(RouteResilienceFilter.class);
+
+    private final ResilienceProperties properties;
+    private final StaleResponseStore staleStore;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, RouteGuard> guards = new HashMap<>();
+
+    public RouteResilienceFilter(ResilienceProperties properties, CircuitBreakerRegistry circuitBreakers,
+                                 BulkheadRegistry bulkheads, StaleResponseStore staleStore, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.staleStore = staleStore;
+        this.meterRegistry = meterRegistry;
+        for (ResilienceProperties.Policy policy : properties.getRoutes()) {
+            guards.put(policy.getRouteId(), new RouteGuard(policy, circuitBreakers, bulkheads));
+            logger.info("Circuit breaker on route {}: failureRate={}%, slowCall={}, maxConcurrent={}, staleFallback={}",
+                    policy.getRouteId(), policy.getFailureRateThreshold(), policy.getSlowCallThreshold(),
+                    policy.getMaxConcurrentCalls(), policy.isStaleFallback());
+        }
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        if (!properties.isEnabled()) {
+            return chain.filter(exchange);
+        }
+        String routeId = RoutePathMatcher.routeId(exchange);
+        RouteGuard guard = routeId != null ? guards.get(routeId) : null;
+        if (guard == null) {
+            return chain.filter(exchange);
+        }
+
+        String staleKey = guard.policy.isStaleFallback() && HttpMethod.GET.equals(exchange.getRequest().getMethod())
+                ? routeId + ' ' + RequestKeys.scoped(exchange) : null;
+        GuardedResponse guarded = staleKey != null ? new GuardedResponse(exchange, guard, staleKey) : null;
+        ServerWebExchange target = guarded != null ? exchange.mutate().response(guarded).build() : exchange;
+
+        return chain.filter(target)
+                .then(Mono.defer(() -> {
+                    HttpStatusCode status = guarded != null && guarded.upstreamStatus != null
+                            ? guarded.upstreamStatus : exchange.getResponse().getStatusCode();
+                    return status != null && guard.isFailure(status)
+                            ? Mono.<Void>error(new UpstreamFailure(status)) : Mono.<Void>empty();
+                }))
+                .transformDeferred(CircuitBreakerOperator.of(guard.circuitBreaker))
+                .transformDeferred(BulkheadOperator.of(guard.bulkhead))
+                // The failure response has already been written, it only had to be counted
+                .onErrorResume(UpstreamFailure.class, e -> Mono.empty())
+                .onErrorResume(CallNotPermittedException.class, e -> reject(exchange, guard, staleKey, Reason.CIRCUIT_OPEN))
+                .onErrorResume(BulkheadFullException.class, e -> reject(exchange, guard, staleKey, Reason.BULKHEAD_FULL))
+                .onErrorResume(e -> staleKey != null && !exchange.getResponse().isCommitted(), e -> {
+                    StaleResponseStore.Entry stale = staleStore.get(staleKey);
+                    if (stale == null) {
+                        return Mono.error(e);
+                    }
+                    guard.fallback(Reason.UPSTREAM_ERROR, true).increment();
+                    exchange.getAttributes().put(FALLBACK_ATTR, Reason.UPSTREAM_ERROR);
+                    return writeStale(exchange.getResponse(), stale);
+                });
+    }
+
+    @Override
+    public int getOrder() {
+        return ORDER;
+    }
+
+    private Mono<Void> reject(ServerWebExchange exchange, RouteGuard guard, String staleKey, Reason reason) {
+        StaleResponseStore.Entry stale = staleKey != null ? staleStore.get(staleKey) : null;
+        guard.fallback(reason, stale != null).increment();
+        exchange.getAttributes().put(FALLBACK_ATTR, reason);
+        ServerHttpResponse response = exchange.getResponse();
+        if (stale != null) {
+            return writeStale(response, stale);
+        }
+        long retryAfterSeconds = reason == Reason.CIRCUIT_OPEN
+                ? Math.max(1, guard.policy.getWaitInOpenState().toSeconds()) : 1;
+        response.setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+        response.getHeaders().set(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds));
+        return response.setComplete();
+    }
+
+    private static Mono<Void> writeStale(ServerHttpResponse response, StaleResponseStore.Entry stale) {
+        HttpHeaders headers = response.getHeaders();
+        headers.set(ResponseCacheFilter.CACHE_STATUS_HEADER, "STALE");
+        headers.set(HttpHeaders.AGE, Long.toString(Duration.between(stale.storedAt(), Instant.now()).toSeconds()));
+        return stale.response().writeTo(response);
+    }
+
+    private static boolean isStorable(HttpStatusCode status, HttpHeaders headers) {
+        if (status == null || status.value() != HttpStatus.OK.value() || headers.containsKey(HttpHeaders.SET_COOKIE)) {
+            return false;
+        }
+        String cacheControl = headers.getCacheControl();
+        return cacheControl == null || !cacheControl.contains("no-store");
+    }
+
+    public enum Reason {
+        /** Upstream not called */
+        CIRCUIT_OPEN,
+        /** Upstream not called */
+        BULKHEAD_FULL,
+        /** Upstream called and failed; a stale response was served */
+        UPSTREAM_ERROR;
+
+        String tag() {
+            return name().toLowerCase(Locale.ROOT).replace('_', '-');
+        }
+    }
+
+    /**
+     * Signals a failure status to the circuit breaker after the response was passed through.
+     */
+    private static final class UpstreamFailure extends RuntimeException {
+        UpstreamFailure(HttpStatusCode status) {
+            super("Upstream responded " + status.value(), null, false, false);
+        }
+    }
+
+    private final class RouteGuard {
+        private final ResilienceProperties.Policy policy;
+        private final CircuitBreaker circuitBreaker;
+        private final Bulkhead bulkhead;
+        private final Set<Integer> failureStatuses;
+        private final Map<Reason, Counter> staleFallbacks = new EnumMap<>(Reason.class);
+        private final Map<Reason, Counter> rejections = new EnumMap<>(Reason.class);
+
+        RouteGuard(ResilienceProperties.Policy policy, CircuitBreakerRegistry circuitBreakers, BulkheadRegistry bulkheads) {
+            this.policy = policy;
+            String routeId = policy.getRouteId();
+            this.failureStatuses = Set.copyOf(policy.getFailureStatuses());
+            this.circuitBreaker = circuitBreakers.circuitBreaker(routeId, CircuitBreakerConfig.custom()
+                    .slidingWindowType(CircuitBreakerConfig.SlidingWindowType.COUNT_BASED)
+                    .slidingWindowSize(policy.getSlidingWindowSize())
+                    .minimumNumberOfCalls(policy.getMinimumNumberOfCalls())
+                    .failureRateThreshold(policy.getFailureRateThreshold())
+                    .slowCallDurationThreshold(policy.getSlowCallThreshold())
+                    .slowCallRateThreshold(policy.getSlowCallRateThreshold())
+                    .waitDurationInOpenState(policy.getWaitInOpenState())
+                    .permittedNumberOfCallsInHalfOpenState(policy.getPermittedCallsInHalfOpenState())
+                    .build());
+            this.bulkhead = bulkheads.bulkhead(routeId, BulkheadConfig.custom()
+                    .maxConcurrentCalls(policy.getMaxConcurrentCalls())
+                    .maxWaitDuration(Duration.ZERO)
+                    .build());
+
+            circuitBreaker.getEventPublisher().onStateTransition(event -> {
+                CircuitBreaker.StateTransition transition = event.getStateTransition();
+                logger.warn("Circuit breaker for route {}: {} -> {}", routeId, transition.getFromState(), transition.getToState());
+                Counter.builder("gateway.circuitbreaker.transitions")
+                        .description("Circuit breaker state transitions per route")
+                        .tag("route", routeId)
+                        .tag("from", transition.getFromState().name().toLowerCase(Locale.ROOT))
+                        .tag("to", transition.getToState().name().toLowerCase(Locale.ROOT))
+                        .register(meterRegistry)
+                        .increment();
+            });
+
+            for (Reason reason : Reason.values()) {
+                staleFallbacks.put(reason, fallbackCounter(routeId, reason, "stale"));
+                rejections.put(reason, fallbackCounter(routeId, reason, "unavailable"));
+            }
+        }
+
+        boolean isFailure(HttpStatusCode status) {
+            return failureStatuses.contains(status.value());
+        }
+
+        Counter fallback(Reason reason, boolean stale) {
+            return (stale ? staleFallbacks : rejections).get(reason);
+        }
+
+        private Counter fallbackCounter(String routeId, Reason reason, String response) {
+            return Counter.builder("gateway.resilience.fallbacks")
+                    .description("Requests answered by the gateway instead of the upstream")
+                    .tag("route", routeId).tag("reason", reason.tag()).tag("response", response)
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * Keeps the last good GET body for the stale store and swaps failure responses for it.
+     */
+    private final class GuardedResponse extends ServerHttpResponseDecorator {
+
+        private final ServerWebExchange exchange;
+        private final RouteGuard guard;
+        private final String key;
+        private volatile HttpStatusCode upstreamStatus;
+
+        GuardedResponse(ServerWebExchange exchange, RouteGuard guard, String key) {
+            super(exchange.getResponse());
+            this.exchange = exchange;
+            this.guard = guard;
+            this.key = key;
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            HttpStatusCode status = getStatusCode();
+            upstreamStatus = status;
+            if (status != null && guard.isFailure(status)) {
+                StaleResponseStore.Entry stale = staleStore.get(key);
+                if (stale == null) {
+                    return super.writeWith(body);
+                }
+                guard.fallback(Reason.UPSTREAM_ERROR, true).increment();
+                // The stale response goes out as 200: callers must still see the upstream failure
+                exchange.getAttributes().put(FALLBACK_ATTR, Reason.UPSTREAM_ERROR);
+                return Flux.from(body)
+                        .doOnNext(DataBufferUtils::release)
+                        .then(Mono.defer(() -> writeStale(getDelegate(), stale)));
+            }
+
+            HttpHeaders headers = getHeaders();
+            long maxEntryBytes = properties.getStale().getMaxEntrySize().toBytes();
+            if (!isStorable(status, headers) || headers.getContentLength() > maxEntryBytes) {
+                return super.writeWith(body);
+            }
+            return DataBufferUtils.join(body).flatMap(joined -> {
+                byte[] bytes = new byte[joined.readableByteCount()];
+                joined.read(bytes);
+                DataBufferUtils.release(joined);
+
+                if (bytes.length <= maxEntryBytes) {
+                    staleStore.put(key, BufferedResponse.capture(status, headers, bytes));
+                }
+                headers.setContentLength(bytes.length);
+                return super.writeWith(Mono.just(bufferFactory().wrap(bytes)));
+            });
+        }
+    }
+}
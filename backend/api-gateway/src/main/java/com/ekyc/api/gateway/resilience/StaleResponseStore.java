@@ -0,0 +1,41 @@
+package com.ekyc.api.gateway.resilience;
+
+import com.ekyc.api.gateway.support.BufferedResponse;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+
+/**
+ * Last good GET response per route and request key, replayed when the upstream is failing or its
+ * circuit is open. Bounded by bytes and by gateway.resilience.stale.max-age.
+ */
+@Component
+public class StaleResponseStore {
+
+    private final Cache<String, Entry> cache;
+
+    public StaleResponseStore(ResilienceProperties properties, MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(properties.getStale().getMaxSize().toBytes())
+                .weigher((String key, Entry entry) -> key.length() + entry.response().body().length)
+                .expireAfterWrite(properties.getStale().getMaxAge())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "gateway.stale");
+    }
+
+    public Entry get(String key) {
+        return cache.getIfPresent(key);
+    }
+
+    public void put(String key, BufferedResponse response) {
+        cache.put(key, new Entry(response, Instant.now()));
+    }
+
+    public record Entry(BufferedResponse response, Instant storedAt) {
+    }
+}
@@ -0,0 +1,42 @@
+package com.ekyc.api.gateway.security;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.authorization.AuthorizationDecision;
+import org.springframework.security.authorization.ReactiveAuthorizationManager;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.web.server.authorization.AuthorizationContext;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+/**
+ * Grants access to callers whose bearer token verifies and carries gateway.admin-role.
+ * Actuator requests are not routed, so JwtAuthenticationFilter never sees them; this checks the
+ * token itself, with the same verifier, cache and revocation list.
+ */
+@Component
+public class AdminAccess implements ReactiveAuthorizationManager<AuthorizationContext> {
+
+    private static final String BEARER_PREFIX = "Bearer ";
+    private static final AuthorizationDecision DENIED = new AuthorizationDecision(false);
+
+    private final GatewayTokenVerifier tokenVerifier;
+    private final String adminRole;
+
+    public AdminAccess(GatewayTokenVerifier tokenVerifier,
+                       @Value("${gateway.admin-role:PLATFORM_ADMIN}") String adminRole) {
+        this.tokenVerifier = tokenVerifier;
+        this.adminRole = adminRole;
+    }
+
+    @Override
+    public Mono<AuthorizationDecision> check(Mono<Authentication> authentication, AuthorizationContext context) {
+        String authorization = context.getExchange().getRequest().getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+        if (authorization == null || !authorization.regionMatches(true, 0, BEARER_PREFIX, 0, BEARER_PREFIX.length())) {
+            return Mono.just(DENIED);
+        }
+        return tokenVerifier.verify(authorization.substring(BEARER_PREFIX.length()).trim())
+                .map(identity -> new AuthorizationDecision(adminRole.equals(identity.role())))
+                .onErrorReturn(DENIED);
+    }
+}
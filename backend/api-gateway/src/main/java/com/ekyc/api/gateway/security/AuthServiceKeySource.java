@@ -0,0 +1,161 @@
+package com.ekyc.api.gateway.security;
+
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jwt.SignedJWT;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.client.loadbalancer.reactive.ReactorLoadBalancerExchangeFilterFunction;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * auth-service's token verification keys, fetched from its JWKS endpoint and cached.
+ *
+ * The key set is refreshed in the background once it is older than refresh-interval, and
+ * immediately when a token names a kid we don't have yet (a key that was just rotated in), at
+ * most once per min-refresh-interval. Refreshes are conditional GETs (If-None-Match), so an
+ * unchanged key set costs a 304. If auth-service is unreachable the last known keys are kept.
+ */
+@Component
+public class AuthServiceKeySource {
+
+    private static final Logger logger = LoggerFactory.getLogger(AuthServiceKeySource.class);
+
+    private final WebClient webClient;
+    private final String jwksUri;
+    private final long refreshIntervalNanos;
+    private final long minRefreshIntervalNanos;
+    private final Duration timeout;
+    private final Counter updated;
+    private final Counter notModified;
+    private final Counter failed;
+    private final AtomicReference<Mono<Snapshot>> inFlight = new AtomicReference<>();
+
+    private volatile Snapshot snapshot = new Snapshot(new JWKSet(), null, 0, false);
+    private volatile long lastAttemptNanos;
+
+    @Autowired
+    public AuthServiceKeySource(WebClient.Builder webClientBuilder, ReactorLoadBalancerExchangeFilterFunction loadBalancer,
+                                @Value("${gateway.auth.jwks.uri:http://auth-service/api/auth/.well-known/jwks.json}") String jwksUri,
+                                @Value("${gateway.auth.jwks.refresh-interval:5m}") Duration refreshInterval,
+                                @Value("${gateway.auth.jwks.min-refresh-interval:30s}") Duration minRefreshInterval,
+                                @Value("${gateway.auth.jwks.timeout:2s}") Duration timeout,
+                                MeterRegistry meterRegistry) {
+        this(webClientBuilder.clone().filter(loadBalancer).build(), jwksUri, refreshInterval, minRefreshInterval,
+                timeout, meterRegistry);
+    }
+
+    AuthServiceKeySource(WebClient webClient, String jwksUri, Duration refreshInterval, Duration minRefreshInterval,
+                         Duration timeout, MeterRegistry meterRegistry) {
+        this.webClient = webClient;
+        this.jwksUri = jwksUri;
+        this.refreshIntervalNanos = refreshInterval.toNanos();
+        this.minRefreshIntervalNanos = minRefreshInterval.toNanos();
+        this.timeout = timeout;
+        this.updated = fetchCounter(meterRegistry, "updated");
+        this.notModified = fetchCounter(meterRegistry, "not-modified");
+        this.failed = fetchCounter(meterRegistry, "error");
+    }
+
+    /**
+     * Keys that may have signed the token: the one named by its kid, or all keys if it has none.
+     */
+    public Flux<JWK> keys(SignedJWT jwt) {
+        String kid = jwt.getHeader().getKeyID();
+        Snapshot current = snapshot;
+        long now = System.nanoTime();
+        boolean mayRefresh = !current.loaded() || now - lastAttemptNanos >= minRefreshIntervalNanos;
+
+        if (!current.loaded() || (kid != null && current.keys().getKeyByKeyId(kid) == null && mayRefresh)) {
+            return refresh().flatMapIterable(refreshed -> select(refreshed, kid));
+        }
+        if (mayRefresh && now - current.fetchedAtNanos() >= refreshIntervalNanos) {
+            refresh().subscribe();
+        }
+        return Flux.fromIterable(select(current, kid));
+    }
+
+    private Mono<Snapshot> refresh() {
+        Mono<Snapshot> existing = inFlight.get();
+        if (existing != null) {
+            return existing;
+        }
+        Mono<Snapshot> fetch = fetch().doFinally(signal -> inFlight.set(null)).cache();
+        return inFlight.compareAndSet(null, fetch) ? fetch : Mono.defer(() -> Mono.just(snapshot));
+    }
+
+    private Mono<Snapshot> fetch() {
+        return Mono.defer(() -> {
+            lastAttemptNanos = System.nanoTime();
+            Snapshot previous = snapshot;
+            return webClient.get()
+                    .uri(jwksUri)
+                    .headers(headers -> {
+                        if (previous.etag() != null) {
+                            headers.setIfNoneMatch(previous.etag());
+                        }
+                    })
+                    .exchangeToMono(response -> {
+                        if (response.statusCode().value() == HttpStatus.NOT_MODIFIED.value() && previous.loaded()) {
+                            notModified.increment();
+                            return response.releaseBody()
+                                    .thenReturn(new Snapshot(previous.keys(), previous.etag(), System.nanoTime(), true));
+                        }
+                        if (!response.statusCode().is2xxSuccessful()) {
+                            return response.createError();
+                        }
+                        String etag = response.headers().asHttpHeaders().getETag();
+                        return response.bodyToMono(String.class)
+                                .map(body -> {
+                                    try {
+                                        return new Snapshot(JWKSet.parse(body), etag, System.nanoTime(), true);
+                                    } catch (ParseException e) {
+                                        throw new IllegalStateException("Invalid JWKS from " + jwksUri, e);
+                                    }
+                                })
+                                .doOnNext(fetched -> {
+                                    updated.increment();
+                                    logger.info("Loaded auth-service signing keys {}", fetched.keys().getKeys().stream().map(JWK::getKeyID).toList());
+                                });
+                    })
+                    .timeout(timeout)
+                    .doOnNext(fetched -> snapshot = fetched)
+                    .onErrorResume(e -> {
+                        failed.increment();
+                        logger.warn("Could not refresh auth-service JWKS from {}: {}", jwksUri, e.toString());
+                        return Mono.just(previous);
+                    });
+        });
+    }
+
+    private static List<JWK> select(Snapshot snapshot, String kid) {
+        if (kid == null) {
+            return snapshot.keys().getKeys();
+        }
+        JWK key = snapshot.keys().getKeyByKeyId(kid);
+        return key != null ? List.of(key) : List.of();
+    }
+
+    private static Counter fetchCounter(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("gateway.auth.jwks.fetches")
+                .description("Fetches of auth-service's JWKS by outcome")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    private record Snapshot(JWKSet keys, String etag, long fetchedAtNanos, boolean loaded) {
+    }
+}
@@ -0,0 +1,34 @@
+package com.ekyc.api.gateway.security;
+
+import java.time.Instant;
+
+/**
+ * Identity resolved from a verified bearer token.
+ * Stored on the exchange and forwarded to downstream services as trusted headers.
+ * userId is always the application user id (auth.users.id): the userId claim of auth-service
+ * tokens, or of Keycloak tokens that carry one. A Keycloak token's sub is the Keycloak user id,
+ * not ours, so it is kept apart as keycloakId. tokenId is the token's jti, if it has one, used to
+ * check for revocation.
+ */
+public record GatewayIdentity(String userId, String keycloakId, String tenantId, String role, String subject,
+                              Instant expiresAt, String tokenId) {
+
+    public static final String ATTRIBUTE = GatewayIdentity.class.getName();
+
+    public static final String USER_ID_HEADER = "X-User-Id";
+    public static final String KEYCLOAK_ID_HEADER = "X-Keycloak-Id";
+    public static final String TENANT_ID_HEADER = "X-Tenant-Id";
+    public static final String ROLE_HEADER = "X-Role";
+
+    /**
+     * Stable id of the caller whatever issued the token, for keys that must not be shared
+     * between users.
+     */
+    public String principal() {
+        return userId != null ? userId : keycloakId;
+    }
+
+    public boolean isExpired(Instant now) {
+        return expiresAt != null && !now.isBefore(expiresAt);
+    }
+}
@@ -0,0 +1,265 @@
+package com.ekyc.api.gateway.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jwt.SignedJWT;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.oauth2.core.DelegatingOAuth2TokenValidator;
+import org.springframework.security.oauth2.core.OAuth2Error;
+import org.springframework.security.oauth2.core.OAuth2ErrorCodes;
+import org.springframework.security.oauth2.core.OAuth2TokenValidator;
+import org.springframework.security.oauth2.core.OAuth2TokenValidatorResult;
+import org.springframework.security.oauth2.jose.jws.MacAlgorithm;
+import org.springframework.security.oauth2.jose.jws.SignatureAlgorithm;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtValidators;
+import org.springframework.security.oauth2.jwt.NimbusReactiveJwtDecoder;
+import org.springframework.security.oauth2.jwt.ReactiveJwtDecoder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Verifies bearer tokens at the edge.
+ * Tokens issued by auth-service (iss = jwt.issuer) are ES256 and checked against its JWKS;
+ * HS* tokens are auth-service tokens checked with jwt.secret; everything else is treated
+ * as a Keycloak token and checked against the realm JWKS, and must carry the realm issuer
+ * (keycloak.issuer-uri) and name the platform client (keycloak.resource) as azp or in aud,
+ * so tokens Keycloak minted for other clients are refused. With jwt.algorithm ES256, HS* tokens are
+ * legacy and only accepted before jwt.legacy-accept-until (never if it is unset). Verified
+ * identities are cached by the SHA-256 of the token until the token expires or the configured TTL
+ * elapses, whichever is first; legacy identities are not cached so none outlives the cutoff.
+ * Revocation is checked on every call, cached or not.
+ */
+@Component
+public class GatewayTokenVerifier {
+
+    private static final Logger logger = LoggerFactory.getLogger(GatewayTokenVerifier.class);
+
+    private final ReactiveJwtDecoder hmacDecoder;
+    private final Instant hmacAcceptedUntil;
+    private final ReactiveJwtDecoder authServiceDecoder;
+    private final ReactiveJwtDecoder keycloakDecoder;
+    private final String authServiceIssuer;
+    private final TokenRevocations revocations;
+    private final Cache<String, GatewayIdentity> identityCache;
+
+    @Autowired
+    public GatewayTokenVerifier(
+            @Value("${jwt.secret}") String secret,
+            @Value("${jwt.algorithm:ES256}") String algorithm,
+            @Value("${jwt.legacy-accept-until:}") String legacyAcceptUntil,
+            @Value("${keycloak.auth-server-url:http://localhost:8080}") String keycloakUrl,
+            @Value("${keycloak.realm:ekyc}") String realm,
+            @Value("${keycloak.issuer-uri:}") String keycloakIssuer,
+            @Value("${keycloak.resource:ekyc-platform-client}") String keycloakClientId,
+            AuthServiceKeySource authServiceKeys,
+            @Value("${jwt.issuer:ekyc-auth-service}") String authServiceIssuer,
+            TokenRevocations revocations,
+            @Value("${gateway.auth.cache.max-size:100000}") long maxSize,
+            @Value("${gateway.auth.cache.ttl:5m}") Duration ttl) {
+        this(secret, algorithm, legacyAcceptUntil, keycloakUrl, realm, keycloakIssuer, keycloakClientId, WebClient.create(),
+                authServiceKeys, authServiceIssuer, revocations, maxSize, ttl);
+    }
+
+    GatewayTokenVerifier(String secret, String algorithm, String legacyAcceptUntil, String keycloakUrl, String realm,
+                         String keycloakIssuer, String keycloakClientId, WebClient keycloakClient,
+                         AuthServiceKeySource authServiceKeys, String authServiceIssuer, TokenRevocations revocations,
+                         long maxSize, Duration ttl) {
+        byte[] keyBytes = secret.getBytes(StandardCharsets.UTF_8);
+        MacAlgorithm macAlgorithm = macAlgorithmFor(keyBytes);
+        this.hmacDecoder = NimbusReactiveJwtDecoder
+                .withSecretKey(new SecretKeySpec(keyBytes, macAlgorithm.getName()))
+                .macAlgorithm(macAlgorithm)
+                .build();
+        this.hmacAcceptedUntil = hmacAcceptedUntil(algorithm, legacyAcceptUntil);
+        NimbusReactiveJwtDecoder authServiceDecoder = NimbusReactiveJwtDecoder
+                .withJwkSource(authServiceKeys::keys)
+                .jwsAlgorithm(SignatureAlgorithm.ES256)
+                .build();
+        authServiceDecoder.setJwtValidator(JwtValidators.createDefaultWithIssuer(authServiceIssuer));
+        this.authServiceDecoder = authServiceDecoder;
+        this.authServiceIssuer = authServiceIssuer;
+        this.revocations = revocations;
+        NimbusReactiveJwtDecoder keycloakDecoder = NimbusReactiveJwtDecoder
+                .withJwkSetUri(keycloakUrl + "/realms/" + realm + "/protocol/openid-connect/certs")
+                .webClient(keycloakClient)
+                .build();
+        // Keycloak issues tokens for its frontend URL, which may differ from the URL we reach it on
+        String realmIssuer = keycloakIssuer == null || keycloakIssuer.isBlank() ? keycloakUrl + "/realms/" + realm : keycloakIssuer;
+        keycloakDecoder.setJwtValidator(new DelegatingOAuth2TokenValidator<>(
+                JwtValidators.createDefaultWithIssuer(realmIssuer), issuedFor(keycloakClientId)));
+        this.keycloakDecoder = keycloakDecoder;
+        this.identityCache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new TokenExpiry(ttl))
+                .build();
+    }
+
+    /**
+     * Resolve the identity carried by a bearer token.
+     * Emits an error if the token is malformed, has a bad signature, is expired or was revoked.
+     */
+    public Mono<GatewayIdentity> verify(String token) {
+        String cacheKey = hash(token);
+        GatewayIdentity cached = identityCache.getIfPresent(cacheKey);
+        if (cached != null && !cached.isExpired(Instant.now())) {
+            return checkRevoked(cached);
+        }
+        return Mono.defer(() -> {
+                    ReactiveJwtDecoder decoder = decoderFor(token);
+                    Mono<GatewayIdentity> identity = decoder.decode(token)
+                            .map(jwt -> toIdentity(jwt, decoder == keycloakDecoder));
+                    if (decoder == hmacDecoder && hmacAcceptedUntil != null) {
+                        return identity;
+                    }
+                    return identity.doOnNext(verified -> identityCache.put(cacheKey, verified));
+                })
+                .flatMap(this::checkRevoked);
+    }
+
+    private Mono<GatewayIdentity> checkRevoked(GatewayIdentity identity) {
+        if (revocations.isRevoked(identity.tokenId(), identity.expiresAt())) {
+            return Mono.error(new BadJwtException("Token has been revoked"));
+        }
+        return Mono.just(identity);
+    }
+
+    private ReactiveJwtDecoder decoderFor(String token) {
+        try {
+            SignedJWT jwt = SignedJWT.parse(token);
+            if (JWSAlgorithm.Family.HMAC_SHA.contains(jwt.getHeader().getAlgorithm())) {
+                if (hmacAcceptedUntil != null && !Instant.now().isBefore(hmacAcceptedUntil)) {
+                    throw new BadJwtException("HMAC tokens are no longer accepted");
+                }
+                return hmacDecoder;
+            }
+            return authServiceIssuer.equals(jwt.getJWTClaimsSet().getIssuer()) ? authServiceDecoder : keycloakDecoder;
+        } catch (ParseException e) {
+            throw new BadJwtException("Malformed token", e);
+        }
+    }
+
+    private GatewayIdentity toIdentity(Jwt jwt, boolean keycloak) {
+        return new GatewayIdentity(
+                jwt.getClaimAsString("userId"),
+                keycloak ? jwt.getSubject() : null,
+                jwt.getClaimAsString("tenantId"),
+                resolveRole(jwt),
+                jwt.getSubject(),
+                jwt.getExpiresAt(),
+                jwt.getId());
+    }
+
+    private String resolveRole(Jwt jwt) {
+        if (jwt.hasClaim("role")) {
+            return jwt.getClaimAsString("role");
+        }
+        // Keycloak puts realm roles under realm_access.roles; skip the built-in ones
+        Map<String, Object> realmAccess = jwt.getClaimAsMap("realm_access");
+        if (realmAccess != null && realmAccess.get("roles") instanceof Collection<?> roles) {
+            for (Object role : roles) {
+                String name = String.valueOf(role);
+                if (!name.equals("offline_access") && !name.equals("uma_authorization")
+                        && !name.startsWith("default-roles-")) {
+                    return name;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Keycloak names the client a token was requested by in azp; audience mappers add clients to aud.
+     */
+    private static OAuth2TokenValidator<Jwt> issuedFor(String clientId) {
+        OAuth2Error error = new OAuth2Error(OAuth2ErrorCodes.INVALID_TOKEN, "Token was not issued for client " + clientId, null);
+        return jwt -> clientId.equals(jwt.getClaimAsString("azp"))
+                || (jwt.getAudience() != null && jwt.getAudience().contains(clientId))
+                ? OAuth2TokenValidatorResult.success()
+                : OAuth2TokenValidatorResult.failure(error);
+    }
+
+    /**
+     * Null when auth-service still signs HS256 (no cutoff); otherwise the end of the legacy window,
+     * or the epoch when there is none.
+     */
+    private static Instant hmacAcceptedUntil(String algorithm, String legacyAcceptUntil) {
+        if ("HS256".equalsIgnoreCase(algorithm)) {
+            return null;
+        }
+        if (legacyAcceptUntil == null || legacyAcceptUntil.isBlank()) {
+            return Instant.EPOCH;
+        }
+        Instant until = OffsetDateTime.parse(legacyAcceptUntil.trim()).toInstant();
+        logger.info("Accepting legacy HS256 tokens until {}", until);
+        return until;
+    }
+
+    /**
+     * Mirror jjwt's Keys.hmacShaKeyFor so we accept whatever JwtUtil signs with.
+     */
+    private static MacAlgorithm macAlgorithmFor(byte[] keyBytes) {
+        if (keyBytes.length >= 64) {
+            return MacAlgorithm.HS512;
+        }
+        if (keyBytes.length >= 48) {
+            return MacAlgorithm.HS384;
+        }
+        if (keyBytes.length >= 32) {
+            return MacAlgorithm.HS256;
+        }
+        logger.warn("jwt.secret is shorter than 256 bits; HS256 tokens from auth-service will not verify");
+        return MacAlgorithm.HS256;
+    }
+
+    private static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private record TokenExpiry(Duration maxTtl) implements Expiry<String, GatewayIdentity> {
+
+        @Override
+        public long expireAfterCreate(String key, GatewayIdentity identity, long currentTime) {
+            long ttlNanos = maxTtl.toNanos();
+            if (identity.expiresAt() != null) {
+                long untilExpiry = Duration.between(Instant.now(), identity.expiresAt()).toNanos();
+                ttlNanos = Math.max(0, Math.min(ttlNanos, untilExpiry));
+            }
+            return ttlNanos;
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, GatewayIdentity identity, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, identity, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, GatewayIdentity identity, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.ekyc.api.gateway.security;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Verifies the bearer token once at the edge and forwards the caller's identity
+ * as X-User-Id / X-Keycloak-Id / X-Tenant-Id / X-Role so downstream services don't re-parse
+ * the JWT. Identity headers supplied by the client are always stripped. Requests without a
+ * token pass through anonymously; requests with an invalid token get a 401, except on
+ * gateway.auth.public-paths (login, refresh), which are always anonymous so a client whose
+ * access token expired can still log in or refresh.
+ */
+@Component
+public class JwtAuthenticationFilter implements GlobalFilter, Ordered {
+
+    public static final int ORDER = Ordered.HIGHEST_PRECEDENCE + 100;
+
+    private static final Logger logger = LoggerFactory.getLogger(JwtAuthenticationFilter.class);
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    private final GatewayTokenVerifier tokenVerifier;
+    private final List<PathPattern> publicPaths;
+
+    public JwtAuthenticationFilter(GatewayTokenVerifier tokenVerifier,
+                                   @Value("${gateway.auth.public-paths:/api/auth/login,/api/auth/refresh,/api/auth/signup}")
+                                   List<String> publicPaths) {
+        this.tokenVerifier = tokenVerifier;
+        this.publicPaths = publicPaths.stream().map(PathPatternParser.defaultInstance::parse).toList();
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        String token = extractBearerToken(exchange.getRequest());
+        if (token == null || isPublic(exchange.getRequest())) {
+            return chain.filter(withIdentity(exchange, null));
+        }
+
+        return tokenVerifier.verify(token)
+                .map(Optional::of)
+                .onErrorResume(e -> {
+                    logger.debug("Rejecting bearer token for {}: {}", exchange.getRequest().getPath(), e.getMessage());
+                    return Mono.just(Optional.empty());
+                })
+                .flatMap(identity -> {
+                    if (identity.isEmpty()) {
+                        exchange.getResponse().setStatusCode(HttpStatus.UNAUTHORIZED);
+                        return exchange.getResponse().setComplete();
+                    }
+                    return chain.filter(withIdentity(exchange, identity.get()));
+                });
+    }
+
+    @Override
+    public int getOrder() {
+        return ORDER;
+    }
+
+    private boolean isPublic(ServerHttpRequest request) {
+        for (PathPattern pattern : publicPaths) {
+            if (pattern.matches(request.getPath().pathWithinApplication())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private ServerWebExchange withIdentity(ServerWebExchange exchange, GatewayIdentity identity) {
+        ServerHttpRequest request = exchange.getRequest().mutate().headers(headers -> {
+            headers.remove(GatewayIdentity.USER_ID_HEADER);
+            headers.remove(GatewayIdentity.KEYCLOAK_ID_HEADER);
+            headers.remove(GatewayIdentity.TENANT_ID_HEADER);
+            headers.remove(GatewayIdentity.ROLE_HEADER);
+            if (identity != null) {
+                setIfPresent(headers, GatewayIdentity.USER_ID_HEADER, identity.userId());
+                setIfPresent(headers, GatewayIdentity.KEYCLOAK_ID_HEADER, identity.keycloakId());
+                setIfPresent(headers, GatewayIdentity.TENANT_ID_HEADER, identity.tenantId());
+                setIfPresent(headers, GatewayIdentity.ROLE_HEADER, identity.role());
+            }
+        }).build();
+
+        if (identity != null) {
+            exchange.getAttributes().put(GatewayIdentity.ATTRIBUTE, identity);
+        }
+        return exchange.mutate().request(request).build();
+    }
+
+    private static void setIfPresent(HttpHeaders headers, String name, String value) {
+        if (value != null && !value.isBlank()) {
+            headers.set(name, value);
+        }
+    }
+
+    private static String extractBearerToken(ServerHttpRequest request) {
+        String authorization = request.getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+        if (authorization == null || !authorization.regionMatches(true, 0, BEARER_PREFIX, 0, BEARER_PREFIX.length())) {
+            return null;
+        }
+        String token = authorization.substring(BEARER_PREFIX.length()).trim();
+        return token.isEmpty() ? null : token;
+    }
+}
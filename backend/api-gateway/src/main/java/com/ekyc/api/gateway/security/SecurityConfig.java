@@ -2,20 +2,37 @@ package com.ekyc.api.gateway.security;
 
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
 import org.springframework.security.config.annotation.web.reactive.EnableWebFluxSecurity;
 import org.springframework.security.config.web.server.ServerHttpSecurity;
 import org.springframework.security.web.server.SecurityWebFilterChain;
+import org.springframework.security.web.server.authentication.HttpStatusServerEntryPoint;
 
 @Configuration
 @EnableWebFluxSecurity
 public class SecurityConfig {
 
+    /** auth-service profile cache invalidation, called by user-service directly. */
+    static final String[] INTERNAL_PATHS = {"/api/auth/profile/*/cache"};
+
+    // Token verification and identity propagation happen in JwtAuthenticationFilter;
+    // actuator writes (cache invalidation, metric resets) are for platform admins only, and
+    // service-to-service endpoints are not reachable through the gateway at all
     @Bean
-    public SecurityWebFilterChain securityWebFilterChain(ServerHttpSecurity http) {
+    public SecurityWebFilterChain securityWebFilterChain(ServerHttpSecurity http, AdminAccess adminAccess) {
         return http
             .csrf(ServerHttpSecurity.CsrfSpec::disable)
             .cors(ServerHttpSecurity.CorsSpec::disable)
-            .authorizeExchange(authz -> authz.anyExchange().permitAll())
+            .httpBasic(ServerHttpSecurity.HttpBasicSpec::disable)
+            .formLogin(ServerHttpSecurity.FormLoginSpec::disable)
+            .exceptionHandling(handling -> handling
+                .authenticationEntryPoint(new HttpStatusServerEntryPoint(HttpStatus.UNAUTHORIZED)))
+            .authorizeExchange(authz -> authz
+                .pathMatchers(HttpMethod.POST, "/actuator/**").access(adminAccess)
+                .pathMatchers(HttpMethod.DELETE, "/actuator/**").access(adminAccess)
+                .pathMatchers(INTERNAL_PATHS).denyAll()
+                .anyExchange().permitAll())
             .build();
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,112 @@
+package com.ekyc.api.gateway.security;
+
+import com.ekyc.common.util.RevocationFilter;
+import com.fasterxml.jackson.databind.JsonNode;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.client.loadbalancer.reactive.ReactorLoadBalancerExchangeFilterFunction;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Access tokens revoked by auth-service (logout, refresh token reuse).
+ *
+ * Revoked token ids are polled from auth-service's revocation feed into a RevocationFilter, so
+ * checking a token is a few bit reads and never a remote call. A revocation takes effect at the
+ * gateway within one poll interval. Positives are not confirmed: size the filter so its false
+ * positive rate is negligible (a false positive answers 401 and the client refreshes).
+ */
+@Component
+public class TokenRevocations {
+
+    private static final Logger logger = LoggerFactory.getLogger(TokenRevocations.class);
+
+    private final WebClient webClient;
+    private final String uri;
+    private final Duration timeout;
+    private final RevocationFilter filter;
+    private final Counter loaded;
+    private final Counter failed;
+    private final AtomicBoolean polling = new AtomicBoolean();
+
+    private volatile long cursor;
+
+    @Autowired
+    public TokenRevocations(WebClient.Builder webClientBuilder, ReactorLoadBalancerExchangeFilterFunction loadBalancer,
+                            @Value("${gateway.auth.revocations.uri:http://auth-service/api/auth/revocations}") String uri,
+                            @Value("${gateway.auth.revocations.token-lifetime:5m}") Duration tokenLifetime,
+                            @Value("${gateway.auth.revocations.expected-per-partition:10000}") int expectedPerPartition,
+                            @Value("${gateway.auth.revocations.false-positive-rate:1e-6}") double falsePositiveRate,
+                            @Value("${gateway.auth.revocations.timeout:2s}") Duration timeout,
+                            MeterRegistry meterRegistry) {
+        this(webClientBuilder.clone().filter(loadBalancer).build(), uri,
+                RevocationFilter.forLifetime(tokenLifetime, 2, expectedPerPartition, falsePositiveRate), timeout, meterRegistry);
+    }
+
+    TokenRevocations(WebClient webClient, String uri, RevocationFilter filter, Duration timeout, MeterRegistry meterRegistry) {
+        this.webClient = webClient;
+        this.uri = uri;
+        this.filter = filter;
+        this.timeout = timeout;
+        this.loaded = pollCounter(meterRegistry, "ok");
+        this.failed = pollCounter(meterRegistry, "error");
+        Gauge.builder("gateway.auth.revocations.live", filter, RevocationFilter::size)
+                .description("Revoked access tokens that have not expired yet")
+                .register(meterRegistry);
+    }
+
+    public boolean isRevoked(String tokenId, Instant expiresAt) {
+        return tokenId != null && expiresAt != null && filter.mightContain(tokenId, expiresAt.toEpochMilli());
+    }
+
+    @Scheduled(fixedDelayString = "${gateway.auth.revocations.poll-interval-ms:5000}")
+    public void poll() {
+        if (polling.compareAndSet(false, true)) {
+            fetch().doFinally(signal -> polling.set(false)).subscribe();
+        }
+    }
+
+    /**
+     * Load revocations made since the last successful poll; emits how many were loaded.
+     */
+    Mono<Integer> fetch() {
+        return webClient.get()
+                .uri(uri + "?since={since}", cursor)
+                .retrieve()
+                .bodyToMono(JsonNode.class)
+                .timeout(timeout)
+                .map(body -> {
+                    int count = 0;
+                    for (JsonNode revoked : body.path("revoked")) {
+                        filter.add(revoked.path("jti").asText(), revoked.path("exp").asLong());
+                        count++;
+                    }
+                    cursor = body.path("cursor").asLong(cursor);
+                    loaded.increment();
+                    return count;
+                })
+                .onErrorResume(e -> {
+                    failed.increment();
+                    logger.warn("Could not poll token revocations from {}: {}", uri, e.toString());
+                    return Mono.just(0);
+                });
+    }
+
+    private static Counter pollCounter(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("gateway.auth.revocations.polls")
+                .description("Polls of auth-service's token revocation feed by outcome")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+}
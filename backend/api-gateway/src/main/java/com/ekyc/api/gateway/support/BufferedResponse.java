@@ -0,0 +1,49 @@
+package com.ekyc.api.gateway.support;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * An upstream response held in memory so it can be replayed to other exchanges.
+ * Only headers produced by the upstream are kept; per-client headers (CORS, cookies,
+ * hop-by-hop) are dropped at capture time.
+ */
+public record BufferedResponse(int status, HttpHeaders headers, byte[] body) {
+
+    public static BufferedResponse capture(HttpStatusCode status, HttpHeaders source, byte[] body) {
+        HttpHeaders copy = new HttpHeaders();
+        for (Map.Entry<String, List<String>> header : source.entrySet()) {
+            if (isReplayable(header.getKey())) {
+                copy.put(header.getKey(), List.copyOf(header.getValue()));
+            }
+        }
+        return new BufferedResponse(status.value(), HttpHeaders.readOnlyHttpHeaders(copy), body);
+    }
+
+    /**
+     * Write this response to another exchange's response.
+     */
+    public Mono<Void> writeTo(ServerHttpResponse response) {
+        response.setStatusCode(HttpStatusCode.valueOf(status));
+        response.getHeaders().putAll(headers);
+        response.getHeaders().setContentLength(body.length);
+        return response.writeWith(Mono.fromSupplier(() -> response.bufferFactory().wrap(body)));
+    }
+
+    private static boolean isReplayable(String name) {
+        String lower = name.toLowerCase(Locale.ROOT);
+        return !(lower.startsWith("access-control-")
+                || lower.equals("vary")
+                || lower.equals("set-cookie")
+                || lower.equals("content-length")
+                || lower.equals("transfer-encoding")
+                || lower.equals("connection")
+                || lower.equals("keep-alive"));
+    }
+}
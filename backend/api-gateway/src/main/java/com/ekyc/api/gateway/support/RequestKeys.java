@@ -0,0 +1,26 @@
+package com.ekyc.api.gateway.support;
+
+import com.ekyc.api.gateway.security.GatewayIdentity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.web.server.ServerWebExchange;
+
+/**
+ * Keys for responses that may be replayed to other exchanges. The caller's tenant and user are
+ * part of the key so a response is only ever replayed to the identity it was produced for.
+ */
+public final class RequestKeys {
+
+    private RequestKeys() {
+    }
+
+    /**
+     * "tenant/user path?query", or "- path?query" for anonymous requests.
+     */
+    public static String scoped(ServerWebExchange exchange) {
+        ServerHttpRequest request = exchange.getRequest();
+        GatewayIdentity identity = exchange.getAttribute(GatewayIdentity.ATTRIBUTE);
+        String scope = identity == null ? "-" : identity.tenantId() + "/" + identity.principal();
+        String query = request.getURI().getRawQuery();
+        return scope + ' ' + request.getPath().value() + (query != null ? '?' + query : "");
+    }
+}
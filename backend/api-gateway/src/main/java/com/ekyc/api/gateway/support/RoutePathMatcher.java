@@ -0,0 +1,69 @@
+package com.ekyc.api.gateway.support;
+
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.http.server.PathContainer;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Matches an exchange against a route id and, optionally, a set of gateway path patterns.
+ * Paths are matched against the original request path, before any RewritePath filter.
+ */
+public final class RoutePathMatcher {
+
+    private final String routeId;
+    private final List<String> paths;
+    private final List<PathPattern> patterns = new ArrayList<>();
+
+    public RoutePathMatcher(String routeId, List<String> paths) {
+        this.routeId = routeId;
+        this.paths = paths == null ? List.of() : List.copyOf(paths);
+        for (String path : this.paths) {
+            patterns.add(PathPatternParser.defaultInstance.parse(path));
+        }
+    }
+
+    public String getRouteId() {
+        return routeId;
+    }
+
+    /**
+     * Short description used for logs and metric tags.
+     */
+    public String describePaths() {
+        return paths.isEmpty() ? "all" : String.join(",", paths);
+    }
+
+    public boolean matches(ServerWebExchange exchange) {
+        String currentRouteId = routeId(exchange);
+        return currentRouteId != null && matches(currentRouteId, exchange.getRequest().getPath().pathWithinApplication());
+    }
+
+    public boolean matches(String currentRouteId, PathContainer path) {
+        if (routeId != null && !routeId.equals(currentRouteId)) {
+            return false;
+        }
+        if (patterns.isEmpty()) {
+            return true;
+        }
+        for (PathPattern pattern : patterns) {
+            if (pattern.matches(path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Id of the route the exchange was matched to, or null for non-routed requests.
+     */
+    public static String routeId(ServerWebExchange exchange) {
+        Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+        return route != null ? route.getId() : null;
+    }
+}
@@ -0,0 +1,213 @@
+package com.ekyc.api.gateway.views;
+
+import com.ekyc.api.gateway.security.GatewayIdentity;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.NullNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cloud.client.loadbalancer.reactive.ReactorLoadBalancerExchangeFilterFunction;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Backend-for-frontend view for the tenant admin console.
+ *
+ * GET /api/views/tenant/{id}/overview calls tenant, subscription, user and role services
+ * concurrently and merges their answers into one document, so the page costs one round trip
+ * and the latency of the slowest leg. Each leg has its own timeout; a leg that fails or times
+ * out is returned as null, listed under "errors", and the document is flagged "partial".
+ *
+ * Callers must be authenticated and belong to the tenant, unless they are PLATFORM_ADMIN.
+ */
+@Component
+public class TenantOverviewFilter implements GatewayFilter {
+
+    public static final String ROUTE_ID = "tenant-overview";
+    public static final String PATH = "/api/views/tenant/{id}/overview";
+
+    private static final Logger logger = LoggerFactory.getLogger(TenantOverviewFilter.class);
+    private static final String PLATFORM_ADMIN = "PLATFORM_ADMIN";
+    private static final String TENANT_LEG = "tenant";
+    private static final List<String> FORWARDED_HEADERS = List.of(HttpHeaders.AUTHORIZATION,
+            GatewayIdentity.USER_ID_HEADER, GatewayIdentity.KEYCLOAK_ID_HEADER, GatewayIdentity.TENANT_ID_HEADER,
+            GatewayIdentity.ROLE_HEADER);
+
+    private static final List<Leg> LEGS = List.of(
+            new Leg(TENANT_LEG, "http://tenant-service/api/tenants/{id}"),
+            new Leg("subscriptions", "http://subscription-service/api/subscriptions/tenant/{id}"),
+            new Leg("users", "http://user-service/api/users/tenant/{id}"),
+            new Leg("roles", "http://registry-service/api/registry/roles/tenant/{id}"));
+
+    private final ViewsProperties properties;
+    private final WebClient webClient;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+
+    @Autowired
+    public TenantOverviewFilter(ViewsProperties properties, WebClient.Builder webClientBuilder,
+                                ReactorLoadBalancerExchangeFilterFunction loadBalancer,
+                                ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this(properties, webClientBuilder.clone()
+                .filter(loadBalancer)
+                .codecs(codecs -> codecs.defaultCodecs().maxInMemorySize((int) properties.getMaxLegBodySize().toBytes()))
+                .build(), objectMapper, meterRegistry);
+    }
+
+    TenantOverviewFilter(ViewsProperties properties, WebClient webClient, ObjectMapper objectMapper,
+                         MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.webClient = webClient;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        ServerHttpResponse response = exchange.getResponse();
+        UUID tenantId = parseTenantId(ServerWebExchangeUtils.getUriTemplateVariables(exchange).get("id"));
+        if (tenantId == null) {
+            response.setStatusCode(HttpStatus.BAD_REQUEST);
+            return response.setComplete();
+        }
+        GatewayIdentity identity = exchange.getAttribute(GatewayIdentity.ATTRIBUTE);
+        if (identity == null) {
+            response.setStatusCode(HttpStatus.UNAUTHORIZED);
+            return response.setComplete();
+        }
+        if (!tenantId.toString().equals(identity.tenantId()) && !PLATFORM_ADMIN.equals(identity.role())) {
+            response.setStatusCode(HttpStatus.FORBIDDEN);
+            return response.setComplete();
+        }
+
+        HttpHeaders forwarded = new HttpHeaders();
+        HttpHeaders incoming = exchange.getRequest().getHeaders();
+        for (String name : FORWARDED_HEADERS) {
+            List<String> values = incoming.get(name);
+            if (values != null) {
+                forwarded.put(name, values);
+            }
+        }
+
+        return Flux.fromIterable(LEGS)
+                .flatMap(leg -> call(leg, tenantId, forwarded))
+                .collectMap(LegResult::name)
+                .flatMap(results -> write(response, tenantId, results));
+    }
+
+    private Mono<LegResult> call(Leg leg, UUID tenantId, HttpHeaders forwarded) {
+        long start = System.nanoTime();
+        return webClient.get()
+                .uri(leg.uri(), tenantId)
+                .headers(headers -> headers.addAll(forwarded))
+                .retrieve()
+                .bodyToMono(JsonNode.class)
+                .timeout(properties.timeoutFor(leg.name()))
+                .map(body -> LegResult.ok(leg.name(), body))
+                .defaultIfEmpty(LegResult.ok(leg.name(), NullNode.getInstance()))
+                .onErrorResume(e -> Mono.just(LegResult.failed(leg.name(), e, properties.timeoutFor(leg.name()).toMillis())))
+                .doOnNext(result -> {
+                    if (result.error() != null) {
+                        logger.warn("Tenant overview leg {} failed for tenant {}: {}", leg.name(), tenantId, result.error());
+                    }
+                    Timer.builder("gateway.views.leg")
+                            .description("Upstream calls made by aggregated gateway views")
+                            .tag("view", ROUTE_ID).tag("leg", leg.name()).tag("outcome", result.outcome())
+                            .register(meterRegistry)
+                            .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                });
+    }
+
+    private Mono<Void> write(ServerHttpResponse response, UUID tenantId, Map<String, LegResult> results) {
+        ObjectNode document = objectMapper.createObjectNode();
+        document.put("tenantId", tenantId.toString());
+        ObjectNode errors = objectMapper.createObjectNode();
+        for (Leg leg : LEGS) {
+            LegResult result = results.get(leg.name());
+            document.set(leg.name(), result.error() == null ? result.body() : NullNode.getInstance());
+            if (result.error() != null) {
+                errors.put(leg.name(), result.error());
+            }
+        }
+        document.put("partial", !errors.isEmpty());
+        if (!errors.isEmpty()) {
+            document.set("errors", errors);
+        }
+
+        LegResult tenant = results.get(TENANT_LEG);
+        HttpStatus status = HttpStatus.OK;
+        if (tenant.upstreamStatus() == HttpStatus.NOT_FOUND.value()) {
+            status = HttpStatus.NOT_FOUND;
+        } else if (errors.size() == LEGS.size()) {
+            status = HttpStatus.BAD_GATEWAY;
+        }
+
+        HttpStatus responseStatus = status;
+        return Mono.fromCallable(() -> objectMapper.writeValueAsBytes(document)).flatMap(bytes -> {
+            response.setStatusCode(responseStatus);
+            response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+            response.getHeaders().setContentLength(bytes.length);
+            return response.writeWith(Mono.just(response.bufferFactory().wrap(bytes)));
+        });
+    }
+
+    private static UUID parseTenantId(String id) {
+        if (id == null) {
+            return null;
+        }
+        try {
+            return UUID.fromString(id);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private record Leg(String name, String uri) {
+    }
+
+    private record LegResult(String name, JsonNode body, String error, int upstreamStatus) {
+
+        static LegResult ok(String name, JsonNode body) {
+            return new LegResult(name, body, null, HttpStatus.OK.value());
+        }
+
+        static LegResult failed(String name, Throwable e, long timeoutMillis) {
+            if (e instanceof WebClientResponseException responseException) {
+                int status = responseException.getStatusCode().value();
+                return new LegResult(name, null, "upstream responded " + status, status);
+            }
+            if (e instanceof TimeoutException) {
+                return new LegResult(name, null, "timed out after " + timeoutMillis + "ms", 0);
+            }
+            return new LegResult(name, null, "unavailable", 0);
+        }
+
+        String outcome() {
+            if (error == null) {
+                return "ok";
+            }
+            return error.startsWith("timed out") ? "timeout" : "error";
+        }
+    }
+}
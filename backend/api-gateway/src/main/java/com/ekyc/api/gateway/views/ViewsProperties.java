@@ -0,0 +1,35 @@
+package com.ekyc.api.gateway.views;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Aggregated views served by the gateway, bound from gateway.views.
+ */
+@ConfigurationProperties(prefix = "gateway.views")
+public class ViewsProperties {
+
+    /** Timeout for an upstream call that has no entry in legTimeouts */
+    private Duration legTimeout = Duration.ofSeconds(2);
+    /** Per-leg overrides, keyed by leg name (tenant, subscriptions, users, roles) */
+    private Map<String, Duration> legTimeouts = new HashMap<>();
+    /** Largest upstream body a leg will buffer */
+    private DataSize maxLegBodySize = DataSize.ofMegabytes(2);
+
+    public Duration getLegTimeout() { return legTimeout; }
+    public void setLegTimeout(Duration legTimeout) { this.legTimeout = legTimeout; }
+
+    public Map<String, Duration> getLegTimeouts() { return legTimeouts; }
+    public void setLegTimeouts(Map<String, Duration> legTimeouts) { this.legTimeouts = legTimeouts; }
+
+    public DataSize getMaxLegBodySize() { return maxLegBodySize; }
+    public void setMaxLegBodySize(DataSize maxLegBodySize) { this.maxLegBodySize = maxLegBodySize; }
+
+    public Duration timeoutFor(String leg) {
+        return legTimeouts.getOrDefault(leg, legTimeout);
+    }
+}
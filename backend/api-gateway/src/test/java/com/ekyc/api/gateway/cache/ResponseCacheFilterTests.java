@@ -0,0 +1,147 @@
+package com.ekyc.api.gateway.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ResponseCacheFilterTests {
+
+	private final AtomicInteger upstreamCalls = new AtomicInteger();
+	private ResponseCacheFilter filter;
+
+	@BeforeEach
+	void setUp() {
+		ResponseCacheProperties.Rule rule = new ResponseCacheProperties.Rule();
+		rule.setId("modules");
+		rule.setRouteId("module-service");
+		rule.setPaths(List.of("/api/modules/**"));
+		rule.setTtl(Duration.ofMinutes(5));
+		ResponseCacheProperties.Rule roles = new ResponseCacheProperties.Rule();
+		roles.setId("registry-roles");
+		roles.setRouteId("registry-service");
+		roles.setPaths(List.of("/api/registry/roles"));
+		roles.setInvalidatedBy(List.of("/api/registry/roles/**"));
+		ResponseCacheProperties properties = new ResponseCacheProperties();
+		properties.setRules(List.of(rule, roles));
+		filter = new ResponseCacheFilter(properties, new GatewayResponseCache(properties, new SimpleMeterRegistry()));
+	}
+
+	@Test
+	void servesRepeatedGetFromCacheWithEtag() {
+		MockServerWebExchange first = exchange(MockServerHttpRequest.get("/api/modules/all"));
+		filter.filter(first, upstream("[{\"id\":1}]")).block();
+
+		MockServerWebExchange second = exchange(MockServerHttpRequest.get("/api/modules/all"));
+		filter.filter(second, upstream("[{\"id\":1}]")).block();
+
+		assertThat(upstreamCalls).hasValue(1);
+		assertThat(first.getResponse().getHeaders().getFirst(ResponseCacheFilter.CACHE_STATUS_HEADER)).isEqualTo("MISS");
+		assertThat(second.getResponse().getHeaders().getFirst(ResponseCacheFilter.CACHE_STATUS_HEADER)).isEqualTo("HIT");
+		assertThat(second.getResponse().getHeaders().getETag()).isEqualTo(first.getResponse().getHeaders().getETag());
+		assertThat(second.getResponse().getBodyAsString().block()).isEqualTo("[{\"id\":1}]");
+	}
+
+	@Test
+	void answersMatchingIfNoneMatchWith304() {
+		MockServerWebExchange first = exchange(MockServerHttpRequest.get("/api/modules/all"));
+		filter.filter(first, upstream("[]")).block();
+		String etag = first.getResponse().getHeaders().getETag();
+
+		MockServerWebExchange revalidate = exchange(MockServerHttpRequest.get("/api/modules/all")
+				.header(HttpHeaders.IF_NONE_MATCH, etag));
+		filter.filter(revalidate, upstream("[]")).block();
+
+		assertThat(revalidate.getResponse().getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+		assertThat(upstreamCalls).hasValue(1);
+	}
+
+	@Test
+	void successfulWriteInvalidatesRule() {
+		filter.filter(exchange(MockServerHttpRequest.get("/api/modules/all")), upstream("[]")).block();
+		filter.filter(exchange(MockServerHttpRequest.post("/api/modules/create")), upstream("{}")).block();
+		filter.filter(exchange(MockServerHttpRequest.get("/api/modules/all")), upstream("[]")).block();
+
+		assertThat(upstreamCalls).hasValue(3);
+	}
+
+	@Test
+	void writeOnInvalidatedByPathInvalidatesRule() {
+		filter.filter(exchange(MockServerHttpRequest.get("/api/registry/roles"), "registry-service"), upstream("[]")).block();
+		filter.filter(exchange(MockServerHttpRequest.post("/api/registry/roles/create"), "registry-service"), upstream("{}")).block();
+		MockServerWebExchange reread = exchange(MockServerHttpRequest.get("/api/registry/roles"), "registry-service");
+		filter.filter(reread, upstream("[{\"id\":1}]")).block();
+
+		assertThat(upstreamCalls).hasValue(3);
+		assertThat(reread.getResponse().getBodyAsString().block()).isEqualTo("[{\"id\":1}]");
+	}
+
+	@Test
+	void acceptHeaderIsPartOfTheKey() {
+		filter.filter(exchange(MockServerHttpRequest.get("/api/modules/all").accept(MediaType.APPLICATION_JSON)),
+				upstream("[]")).block();
+		MockServerWebExchange xml = exchange(MockServerHttpRequest.get("/api/modules/all").accept(MediaType.APPLICATION_XML));
+		filter.filter(xml, upstream("<modules/>")).block();
+
+		assertThat(upstreamCalls).hasValue(2);
+		assertThat(xml.getResponse().getBodyAsString().block()).isEqualTo("<modules/>");
+	}
+
+	@Test
+	void upstreamHeaderInvalidatesPathPrefix() {
+		filter.filter(exchange(MockServerHttpRequest.get("/api/modules/all")), upstream("[]")).block();
+
+		GatewayFilterChain invalidating = exchange -> {
+			upstreamCalls.incrementAndGet();
+			exchange.getResponse().getHeaders().set(ResponseCacheFilter.INVALIDATE_HEADER, "/api/modules");
+			return exchange.getResponse().setComplete();
+		};
+		MockServerWebExchange other = exchange(MockServerHttpRequest.get("/api/registry/roles"), "registry-service");
+		filter.filter(other, invalidating).block();
+		filter.filter(exchange(MockServerHttpRequest.get("/api/modules/all")), upstream("[]")).block();
+
+		assertThat(upstreamCalls).hasValue(3);
+		assertThat(other.getResponse().getHeaders().containsKey(ResponseCacheFilter.INVALIDATE_HEADER)).isFalse();
+	}
+
+	private GatewayFilterChain upstream(String body) {
+		return exchange -> {
+			upstreamCalls.incrementAndGet();
+			return write(exchange, body);
+		};
+	}
+
+	private static Mono<Void> write(ServerWebExchange exchange, String body) {
+		exchange.getResponse().setStatusCode(HttpStatus.OK);
+		exchange.getResponse().getHeaders().setContentType(MediaType.APPLICATION_JSON);
+		byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+		return exchange.getResponse().writeWith(Mono.just(exchange.getResponse().bufferFactory().wrap(bytes)));
+	}
+
+	private static MockServerWebExchange exchange(MockServerHttpRequest.BaseBuilder<?> request) {
+		return exchange(request, "module-service");
+	}
+
+	private static MockServerWebExchange exchange(MockServerHttpRequest.BaseBuilder<?> request, String routeId) {
+		MockServerWebExchange exchange = MockServerWebExchange.from(request);
+		Route route = Route.async().id(routeId).uri("lb://" + routeId).predicate(e -> true).build();
+		exchange.getAttributes().put(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR, route);
+		return exchange;
+	}
+}
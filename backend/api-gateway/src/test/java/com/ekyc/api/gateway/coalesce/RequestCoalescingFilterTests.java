@@ -0,0 +1,114 @@
+package com.ekyc.api.gateway.coalesce;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RequestCoalescingFilterTests {
+
+	private final AtomicInteger upstreamCalls = new AtomicInteger();
+	private RequestCoalescingFilter filter;
+
+	@BeforeEach
+	void setUp() {
+		CoalescingProperties.Target target = new CoalescingProperties.Target();
+		target.setRouteId("subscription-service");
+		CoalescingProperties properties = new CoalescingProperties();
+		properties.setRoutes(List.of(target));
+		filter = new RequestCoalescingFilter(properties, new SimpleMeterRegistry());
+	}
+
+	@Test
+	void concurrentIdenticalGetsShareOneUpstreamCall() {
+		MockServerWebExchange first = exchange("/api/subscriptions/all");
+		MockServerWebExchange second = exchange("/api/subscriptions/all");
+
+		Mono.when(filter.filter(first, slowUpstream(HttpStatus.OK, "[1,2,3]")),
+						filter.filter(second, slowUpstream(HttpStatus.OK, "[1,2,3]")))
+				.block(Duration.ofSeconds(5));
+
+		assertThat(upstreamCalls).hasValue(1);
+		assertThat(second.getResponse().getBodyAsString().block()).isEqualTo("[1,2,3]");
+		assertThat(second.getResponse().getHeaders().getFirst(RequestCoalescingFilter.COALESCED_HEADER)).isEqualTo("true");
+		assertThat(second.getResponse().getHeaders().getContentType()).isEqualTo(MediaType.APPLICATION_JSON);
+	}
+
+	@Test
+	void waitersGoUpstreamWhenLeaderResponseIsNotShareable() {
+		MockServerWebExchange first = exchange("/api/subscriptions/all");
+		MockServerWebExchange second = exchange("/api/subscriptions/all");
+
+		Mono.when(filter.filter(first, slowUpstream(HttpStatus.INTERNAL_SERVER_ERROR, "boom")),
+						filter.filter(second, slowUpstream(HttpStatus.INTERNAL_SERVER_ERROR, "boom")))
+				.block(Duration.ofSeconds(5));
+
+		assertThat(upstreamCalls).hasValue(2);
+	}
+
+	@Test
+	void differentQueriesAreNotCoalesced() {
+		Mono.when(filter.filter(exchange("/api/subscriptions/all?page=1"), slowUpstream(HttpStatus.OK, "[]")),
+						filter.filter(exchange("/api/subscriptions/all?page=2"), slowUpstream(HttpStatus.OK, "[]")))
+				.block(Duration.ofSeconds(5));
+
+		assertThat(upstreamCalls).hasValue(2);
+	}
+
+	@Test
+	void differentAcceptOrEncodingIsNotCoalesced() {
+		MockServerWebExchange json = exchange(MockServerHttpRequest.get("/api/subscriptions/all")
+				.header(HttpHeaders.ACCEPT, "application/json"));
+		MockServerWebExchange csv = exchange(MockServerHttpRequest.get("/api/subscriptions/all")
+				.header(HttpHeaders.ACCEPT, "text/csv"));
+		MockServerWebExchange gzip = exchange(MockServerHttpRequest.get("/api/subscriptions/all")
+				.header(HttpHeaders.ACCEPT, "application/json").header(HttpHeaders.ACCEPT_ENCODING, "gzip"));
+		MockServerWebExchange sameAsGzip = exchange(MockServerHttpRequest.get("/api/subscriptions/all")
+				.header(HttpHeaders.ACCEPT, "application/json").header(HttpHeaders.ACCEPT_ENCODING, "gzip"));
+
+		Mono.when(filter.filter(json, slowUpstream(HttpStatus.OK, "[]")), filter.filter(csv, slowUpstream(HttpStatus.OK, "[]")),
+						filter.filter(gzip, slowUpstream(HttpStatus.OK, "[]")),
+						filter.filter(sameAsGzip, slowUpstream(HttpStatus.OK, "[]")))
+				.block(Duration.ofSeconds(5));
+
+		assertThat(upstreamCalls).hasValue(3);
+		assertThat(sameAsGzip.getResponse().getHeaders().getFirst(RequestCoalescingFilter.COALESCED_HEADER)).isEqualTo("true");
+	}
+
+	private GatewayFilterChain slowUpstream(HttpStatus status, String body) {
+		return exchange -> Mono.delay(Duration.ofMillis(100)).then(Mono.defer(() -> {
+			upstreamCalls.incrementAndGet();
+			exchange.getResponse().setStatusCode(status);
+			exchange.getResponse().getHeaders().setContentType(MediaType.APPLICATION_JSON);
+			byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+			return exchange.getResponse().writeWith(Mono.just(exchange.getResponse().bufferFactory().wrap(bytes)));
+		}));
+	}
+
+	private static MockServerWebExchange exchange(String path) {
+		return exchange(MockServerHttpRequest.get(path));
+	}
+
+	private static MockServerWebExchange exchange(MockServerHttpRequest.BaseBuilder<?> request) {
+		MockServerWebExchange exchange = MockServerWebExchange.from(request);
+		Route route = Route.async().id("subscription-service").uri("lb://subscription-service")
+				.predicate(e -> true).build();
+		exchange.getAttributes().put(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR, route);
+		return exchange;
+	}
+}
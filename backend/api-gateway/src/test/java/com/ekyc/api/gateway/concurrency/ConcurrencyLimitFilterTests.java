@@ -0,0 +1,225 @@
+package com.ekyc.api.gateway.concurrency;
+
+import com.ekyc.api.gateway.resilience.ResilienceProperties;
+import com.ekyc.api.gateway.resilience.RouteResilienceFilter;
+import com.ekyc.api.gateway.resilience.StaleResponseStore;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ConcurrencyLimitFilterTests {
+
+	private static final long FAST = TimeUnit.MILLISECONDS.toNanos(10);
+	private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(200);
+
+	@Test
+	void limitGrowsWhileLatencyHoldsUnderLoad() {
+		RouteLimiter limiter = new RouteLimiter("auth", limit(20));
+
+		for (int i = 0; i < 10; i++) {
+			runBatch(limiter, FAST);
+		}
+
+		assertThat(limiter.getLimit()).isGreaterThan(20);
+		assertThat(limiter.getInflight()).isZero();
+	}
+
+	@Test
+	void limitShrinksWhenLatencyRises() {
+		RouteLimiter limiter = new RouteLimiter("auth", limit(20));
+		for (int i = 0; i < 5; i++) {
+			runBatch(limiter, FAST);
+		}
+		int warmLimit = limiter.getLimit();
+
+		for (int i = 0; i < 40; i++) {
+			runBatch(limiter, SLOW);
+		}
+
+		assertThat(limiter.getLimit()).isLessThan(warmLimit / 2).isGreaterThanOrEqualTo(4);
+	}
+
+	@Test
+	void idleRouteDoesNotGrowLimit() {
+		RouteLimiter limiter = new RouteLimiter("auth", limit(20));
+
+		for (int i = 0; i < 200; i++) {
+			assertThat(limiter.tryAcquire(Priority.NORMAL)).isTrue();
+			limiter.release(FAST, false);
+		}
+
+		assertThat(limiter.getLimit()).isEqualTo(20);
+	}
+
+	@Test
+	void lowPriorityIsShedBeforeCritical() {
+		RouteLimiter limiter = new RouteLimiter("keycloak-sync-service", limit(20));
+
+		assertThat(acquireAll(limiter, Priority.LOW)).isEqualTo(10);
+		assertThat(acquireAll(limiter, Priority.NORMAL)).isEqualTo(5);
+		assertThat(acquireAll(limiter, Priority.CRITICAL)).isEqualTo(5);
+		assertThat(limiter.tryAcquire(Priority.CRITICAL)).isFalse();
+	}
+
+	@Test
+	void saturatedRouteRejectsWith503() {
+		ConcurrencyProperties.Limit limit = limit(4);
+		limit.setRouteId("keycloak-sync-service");
+		ConcurrencyProperties.PriorityRule bulk = new ConcurrencyProperties.PriorityRule();
+		bulk.setRouteId("keycloak-sync-service");
+		bulk.setPriority(Priority.LOW);
+		bulk.setPaths(List.of("/api/keycloak-sync/users/bulk-sync"));
+		ConcurrencyProperties properties = new ConcurrencyProperties();
+		properties.setRoutes(List.of(limit));
+		properties.setPriorities(List.of(bulk));
+		SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+		ConcurrencyLimitFilter filter = new ConcurrencyLimitFilter(properties, meterRegistry);
+		GatewayFilterChain hanging = exchange -> Mono.never();
+
+		List<Disposable> held = new ArrayList<>();
+		for (int i = 0; i < 2; i++) {
+			held.add(filter.filter(exchange("/api/keycloak-sync/users/bulk-sync"), hanging).subscribe());
+		}
+		MockServerWebExchange shed = exchange("/api/keycloak-sync/users/bulk-sync");
+		filter.filter(shed, hanging).subscribe();
+		MockServerWebExchange admitted = exchange("/api/keycloak-sync/users/sync");
+		held.add(filter.filter(admitted, hanging).subscribe());
+
+		assertThat(shed.getResponse().getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+		assertThat(shed.getResponse().getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("1");
+		assertThat(admitted.getResponse().getStatusCode()).isNull();
+		assertThat(meterRegistry.get("gateway.concurrency.rejected")
+				.tags("route", "keycloak-sync-service", "priority", "low").counter().count()).isEqualTo(1);
+		assertThat(meterRegistry.get("gateway.concurrency.inflight").gauge().value()).isEqualTo(3);
+
+		held.forEach(Disposable::dispose);
+		assertThat(meterRegistry.get("gateway.concurrency.inflight").gauge().value()).isZero();
+	}
+
+	@Test
+	void openCircuitDoesNotShrinkLimit() {
+		ConcurrencyProperties.Limit limit = limit(20);
+		limit.setRouteId("keycloak-sync-service");
+		ConcurrencyProperties properties = new ConcurrencyProperties();
+		properties.setRoutes(List.of(limit));
+		SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+		ConcurrencyLimitFilter limiter = new ConcurrencyLimitFilter(properties, meterRegistry);
+
+		ResilienceProperties.Policy policy = new ResilienceProperties.Policy();
+		policy.setRouteId("keycloak-sync-service");
+		ResilienceProperties resilienceProperties = new ResilienceProperties();
+		resilienceProperties.setRoutes(List.of(policy));
+		CircuitBreakerRegistry circuitBreakers = CircuitBreakerRegistry.ofDefaults();
+		RouteResilienceFilter resilience = new RouteResilienceFilter(resilienceProperties, circuitBreakers,
+				BulkheadRegistry.ofDefaults(), new StaleResponseStore(resilienceProperties, meterRegistry), meterRegistry);
+		circuitBreakers.circuitBreaker("keycloak-sync-service").transitionToForcedOpenState();
+
+		AtomicInteger upstreamCalls = new AtomicInteger();
+		for (int i = 0; i < 100; i++) {
+			MockServerWebExchange exchange = exchange("/api/keycloak-sync/users/sync");
+			limiter.filter(exchange, e -> resilience.filter(e, upstream -> Mono.fromRunnable(upstreamCalls::incrementAndGet)))
+					.block();
+			assertThat(exchange.getResponse().getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+		}
+
+		assertThat(upstreamCalls).hasValue(0);
+		assertThat(meterRegistry.get("gateway.concurrency.limit").gauge().value()).isEqualTo(20);
+		assertThat(meterRegistry.get("gateway.concurrency.inflight").gauge().value()).isZero();
+	}
+
+	@Test
+	void staleResponseForFailedUpstreamCountsAsDrop() {
+		ConcurrencyProperties.Limit limit = limit(20);
+		limit.setRouteId("keycloak-sync-service");
+		limit.setWindowSize(1);
+		ConcurrencyProperties properties = new ConcurrencyProperties();
+		properties.setRoutes(List.of(limit));
+		SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+		ConcurrencyLimitFilter limiter = new ConcurrencyLimitFilter(properties, meterRegistry);
+
+		ResilienceProperties.Policy policy = new ResilienceProperties.Policy();
+		policy.setRouteId("keycloak-sync-service");
+		policy.setStaleFallback(true);
+		ResilienceProperties resilienceProperties = new ResilienceProperties();
+		resilienceProperties.setRoutes(List.of(policy));
+		RouteResilienceFilter resilience = new RouteResilienceFilter(resilienceProperties, CircuitBreakerRegistry.ofDefaults(),
+				BulkheadRegistry.ofDefaults(), new StaleResponseStore(resilienceProperties, meterRegistry), meterRegistry);
+
+		limiter.filter(get("/api/keycloak-sync/users/1"), e -> resilience.filter(e, upstream(HttpStatus.OK, "{\"id\":1}")))
+				.block();
+		assertThat(meterRegistry.get("gateway.concurrency.limit").gauge().value()).isEqualTo(20);
+
+		for (int i = 0; i < 3; i++) {
+			MockServerWebExchange exchange = get("/api/keycloak-sync/users/1");
+			limiter.filter(exchange, e -> resilience.filter(e, upstream(HttpStatus.SERVICE_UNAVAILABLE, "down"))).block();
+			assertThat(exchange.getResponse().getStatusCode()).isEqualTo(HttpStatus.OK);
+			assertThat(exchange.getResponse().getHeaders().getFirst("X-Cache")).isEqualTo("STALE");
+		}
+
+		// Each 503 is a drop, cutting the limit by 10%, though the client got the stale 200
+		assertThat(meterRegistry.get("gateway.concurrency.limit").gauge().value()).isEqualTo(14);
+		assertThat(meterRegistry.get("gateway.concurrency.inflight").gauge().value()).isZero();
+	}
+
+	private static GatewayFilterChain upstream(HttpStatus status, String body) {
+		return exchange -> {
+			exchange.getResponse().setStatusCode(status);
+			byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+			return exchange.getResponse().writeWith(Mono.just(exchange.getResponse().bufferFactory().wrap(bytes)));
+		};
+	}
+
+	private static void runBatch(RouteLimiter limiter, long rttNanos) {
+		int acquired = acquireAll(limiter, Priority.CRITICAL);
+		for (int i = 0; i < acquired; i++) {
+			limiter.release(rttNanos, false);
+		}
+	}
+
+	private static int acquireAll(RouteLimiter limiter, Priority priority) {
+		int acquired = 0;
+		while (limiter.tryAcquire(priority)) {
+			acquired++;
+		}
+		return acquired;
+	}
+
+	private static ConcurrencyProperties.Limit limit(int initialLimit) {
+		ConcurrencyProperties.Limit limit = new ConcurrencyProperties.Limit();
+		limit.setInitialLimit(initialLimit);
+		limit.setMinLimit(Math.min(4, initialLimit));
+		return limit;
+	}
+
+	private static MockServerWebExchange exchange(String path) {
+		return route(MockServerWebExchange.from(MockServerHttpRequest.post(path)));
+	}
+
+	private static MockServerWebExchange get(String path) {
+		return route(MockServerWebExchange.from(MockServerHttpRequest.get(path)));
+	}
+
+	private static MockServerWebExchange route(MockServerWebExchange exchange) {
+		exchange.getAttributes().put(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR, Route.async()
+				.id("keycloak-sync-service").uri("lb://keycloak-sync-service").predicate(e -> true).build());
+		return exchange;
+	}
+}
@@ -0,0 +1,146 @@
+package com.ekyc.api.gateway.idempotency;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IdempotencyFilterTests {
+
+	private static final String SIGNUP = "{\"email\":\"a@b.c\"}";
+
+	private final AtomicInteger upstreamCalls = new AtomicInteger();
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private IdempotencyProperties properties;
+	private IdempotencyFilter filter;
+
+	@BeforeEach
+	void setUp() {
+		IdempotencyProperties.Target target = new IdempotencyProperties.Target();
+		target.setRouteId("auth");
+		target.setPaths(List.of("/api/auth/signup"));
+		properties = new IdempotencyProperties();
+		properties.setRoutes(List.of(target));
+		filter = new IdempotencyFilter(properties, new IdempotencyStore(properties, meterRegistry), meterRegistry);
+	}
+
+	@Test
+	void retryIsReplayedWithoutCallingUpstream() {
+		MockServerWebExchange first = signup("key-1", SIGNUP);
+		filter.filter(first, upstream(HttpStatus.CREATED, Duration.ZERO)).block(Duration.ofSeconds(5));
+
+		MockServerWebExchange retry = signup("key-1", SIGNUP);
+		filter.filter(retry, upstream(HttpStatus.CREATED, Duration.ZERO)).block(Duration.ofSeconds(5));
+
+		assertThat(upstreamCalls).hasValue(1);
+		assertThat(retry.getResponse().getStatusCode()).isEqualTo(HttpStatus.CREATED);
+		assertThat(retry.getResponse().getBodyAsString().block()).isEqualTo("created " + SIGNUP);
+		assertThat(retry.getResponse().getHeaders().getFirst(IdempotencyFilter.REPLAYED_HEADER)).isEqualTo("true");
+	}
+
+	@Test
+	void concurrentDuplicateWaitsForFirstRequest() {
+		MockServerWebExchange first = signup("key-2", SIGNUP);
+		MockServerWebExchange duplicate = signup("key-2", SIGNUP);
+
+		Mono.when(filter.filter(first, upstream(HttpStatus.CREATED, Duration.ofMillis(100))),
+						filter.filter(duplicate, upstream(HttpStatus.CREATED, Duration.ofMillis(100))))
+				.block(Duration.ofSeconds(5));
+
+		assertThat(upstreamCalls).hasValue(1);
+		assertThat(duplicate.getResponse().getBodyAsString().block()).isEqualTo("created " + SIGNUP);
+	}
+
+	@Test
+	void retryRacingLeaderCompletionIsReplayed() {
+		// The retry's first lookup misses; the leader finishes and releases the key before the
+		// retry registers itself, so begin() succeeds although a response is already stored
+		AtomicBoolean staleLookup = new AtomicBoolean();
+		IdempotencyStore store = new IdempotencyStore(properties, meterRegistry) {
+			@Override
+			public Completed completed(String key) {
+				return staleLookup.getAndSet(false) ? null : super.completed(key);
+			}
+		};
+		filter = new IdempotencyFilter(properties, store, meterRegistry);
+
+		filter.filter(signup("key-5", SIGNUP), upstream(HttpStatus.CREATED, Duration.ZERO)).block(Duration.ofSeconds(5));
+
+		staleLookup.set(true);
+		MockServerWebExchange retry = signup("key-5", SIGNUP);
+		filter.filter(retry, upstream(HttpStatus.CREATED, Duration.ZERO)).block(Duration.ofSeconds(5));
+
+		assertThat(upstreamCalls).hasValue(1);
+		assertThat(retry.getResponse().getHeaders().getFirst(IdempotencyFilter.REPLAYED_HEADER)).isEqualTo("true");
+		assertThat(retry.getResponse().getBodyAsString().block()).isEqualTo("created " + SIGNUP);
+
+		// The retry released the key it took, so later retries replay as usual
+		MockServerWebExchange later = signup("key-5", SIGNUP);
+		filter.filter(later, upstream(HttpStatus.CREATED, Duration.ZERO)).block(Duration.ofSeconds(5));
+		assertThat(upstreamCalls).hasValue(1);
+	}
+
+	@Test
+	void keyReusedWithDifferentPayloadIsRejected() {
+		filter.filter(signup("key-3", SIGNUP), upstream(HttpStatus.CREATED, Duration.ZERO)).block(Duration.ofSeconds(5));
+
+		MockServerWebExchange reused = signup("key-3", "{\"email\":\"other@b.c\"}");
+		filter.filter(reused, upstream(HttpStatus.CREATED, Duration.ZERO)).block(Duration.ofSeconds(5));
+
+		assertThat(upstreamCalls).hasValue(1);
+		assertThat(reused.getResponse().getStatusCode()).isEqualTo(HttpStatus.UNPROCESSABLE_ENTITY);
+	}
+
+	@Test
+	void serverErrorsAreNotStored() {
+		filter.filter(signup("key-4", SIGNUP), upstream(HttpStatus.BAD_GATEWAY, Duration.ZERO)).block(Duration.ofSeconds(5));
+		MockServerWebExchange retry = signup("key-4", SIGNUP);
+		filter.filter(retry, upstream(HttpStatus.CREATED, Duration.ZERO)).block(Duration.ofSeconds(5));
+
+		assertThat(upstreamCalls).hasValue(2);
+		assertThat(retry.getResponse().getStatusCode()).isEqualTo(HttpStatus.CREATED);
+	}
+
+	/**
+	 * Echoes the request body so the test can tell it was forwarded intact.
+	 */
+	private GatewayFilterChain upstream(HttpStatus status, Duration delay) {
+		return exchange -> Mono.delay(delay)
+				.then(DataBufferUtils.join(exchange.getRequest().getBody()))
+				.flatMap(body -> {
+					upstreamCalls.incrementAndGet();
+					String echoed = "created " + body.toString(StandardCharsets.UTF_8);
+					DataBufferUtils.release(body);
+					exchange.getResponse().setStatusCode(status);
+					exchange.getResponse().getHeaders().setContentType(MediaType.APPLICATION_JSON);
+					byte[] bytes = echoed.getBytes(StandardCharsets.UTF_8);
+					return exchange.getResponse().writeWith(Mono.just(exchange.getResponse().bufferFactory().wrap(bytes)));
+				});
+	}
+
+	private static MockServerWebExchange signup(String key, String body) {
+		MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.post("/api/auth/signup")
+				.header(IdempotencyFilter.KEY_HEADER, key)
+				.contentType(MediaType.APPLICATION_JSON)
+				.body(body));
+		Route route = Route.async().id("auth").uri("lb://auth-service").predicate(e -> true).build();
+		exchange.getAttributes().put(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR, route);
+		return exchange;
+	}
+}
@@ -0,0 +1,96 @@
+package com.ekyc.api.gateway.loadbalancer;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PeakEwmaLoadBalancerTests {
+
+	private final ServiceInstance fast = instance("10.0.0.1");
+	private final ServiceInstance slow = instance("10.0.0.2");
+	private final List<ServiceInstance> instances = List.of(fast, slow);
+
+	private InstanceStatsRegistry registry;
+	private PeakEwmaLoadBalancer loadBalancer;
+
+	@BeforeEach
+	void setUp() {
+		LoadBalancingProperties properties = new LoadBalancingProperties();
+		properties.setConsecutiveErrors(3);
+		properties.setBaseEjectionTime(Duration.ofMinutes(1));
+		registry = new InstanceStatsRegistry(properties, new SimpleMeterRegistry());
+		loadBalancer = new PeakEwmaLoadBalancer(null, "user-service", registry, 100);
+	}
+
+	@Test
+	void prefersInstanceWithLowerLatency() {
+		long now = System.nanoTime();
+		respond(fast, TimeUnit.MILLISECONDS.toNanos(5), now);
+		respond(slow, TimeUnit.MILLISECONDS.toNanos(800), now);
+
+		for (int i = 0; i < 100; i++) {
+			assertThat(loadBalancer.select(instances).getServer()).isEqualTo(fast);
+		}
+	}
+
+	@Test
+	void outstandingRequestsOffsetLowerLatency() {
+		long now = System.nanoTime();
+		respond(fast, TimeUnit.MILLISECONDS.toNanos(5), now);
+		respond(slow, TimeUnit.MILLISECONDS.toNanos(20), now);
+		for (int i = 0; i < 10; i++) {
+			registry.get(fast).start();
+		}
+
+		assertThat(loadBalancer.select(instances).getServer()).isEqualTo(slow);
+	}
+
+	@Test
+	void ejectsInstanceAfterConsecutiveErrors() {
+		long now = System.nanoTime();
+		respond(slow, TimeUnit.MILLISECONDS.toNanos(800), now);
+		InstanceStats failing = registry.get(fast);
+		for (int i = 0; i < 3; i++) {
+			failing.start();
+			registry.failure(fast, failing);
+		}
+
+		assertThat(failing.isEjected(System.nanoTime())).isTrue();
+		for (int i = 0; i < 100; i++) {
+			assertThat(loadBalancer.select(instances).getServer()).isEqualTo(slow);
+		}
+	}
+
+	@Test
+	void peakLatencyDecaysBackAfterRecovery() {
+		InstanceStats stats = new InstanceStats(TimeUnit.SECONDS.toNanos(10));
+		long now = 0;
+		stats.start();
+		stats.success(TimeUnit.MILLISECONDS.toNanos(10), now);
+		stats.start();
+		stats.success(TimeUnit.MILLISECONDS.toNanos(500), now += TimeUnit.SECONDS.toNanos(1));
+		assertThat(stats.latencyMillis()).isEqualTo(500);
+
+		stats.start();
+		stats.success(TimeUnit.MILLISECONDS.toNanos(10), now + TimeUnit.SECONDS.toNanos(30));
+		assertThat(stats.latencyMillis()).isLessThan(50);
+	}
+
+	private void respond(ServiceInstance instance, long latencyNanos, long now) {
+		InstanceStats stats = registry.get(instance);
+		stats.start();
+		stats.success(latencyNanos, now);
+	}
+
+	private static ServiceInstance instance(String host) {
+		return new DefaultServiceInstance("user-service-" + host, "user-service", host, 9082, false);
+	}
+}
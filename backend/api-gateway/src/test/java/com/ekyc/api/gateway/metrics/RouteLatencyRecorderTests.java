@@ -0,0 +1,45 @@
+package com.ekyc.api.gateway.metrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RouteLatencyRecorderTests {
+
+	@Test
+	@SuppressWarnings("unchecked")
+	void splitsLatencyByRouteInstanceAndPhase() {
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		RouteLatencyRecorder recorder = new RouteLatencyRecorder(registry);
+
+		recorder.record("auth", "10.0.0.1:9081", ms(12), ms(2), ms(9));
+		recorder.record("auth", "10.0.0.1:9081", ms(14), ms(2), ms(11));
+		// Served by the gateway itself (cache hit, 429): no upstream phase
+		recorder.record("auth", RouteLatencyRecorder.NO_INSTANCE, ms(1), ms(1), -1);
+
+		Map<String, Object> auth = (Map<String, Object>) recorder.snapshot().get("auth");
+		Map<String, Map<String, Object>> instance = (Map<String, Map<String, Object>>) auth.get("10.0.0.1:9081");
+		assertThat(instance.get("total").get("count")).isEqualTo(2L);
+		assertThat((double) instance.get("upstream").get("maxMs")).isBetween(10.9, 11.1);
+
+		Map<String, Map<String, Object>> local = (Map<String, Map<String, Object>>) auth.get(RouteLatencyRecorder.NO_INSTANCE);
+		assertThat(local.get("upstream").get("count")).isEqualTo(0L);
+
+		assertThat(registry.get("gateway.route.latency")
+				.tags("route", "auth", "instance", "10.0.0.1:9081", "phase", "upstream")
+				.timer().count()).isEqualTo(2);
+
+		recorder.reset();
+		auth = (Map<String, Object>) recorder.snapshot().get("auth");
+		instance = (Map<String, Map<String, Object>>) auth.get("10.0.0.1:9081");
+		assertThat(instance.get("total").get("count")).isEqualTo(0L);
+	}
+
+	private static long ms(long millis) {
+		return TimeUnit.MILLISECONDS.toNanos(millis);
+	}
+}
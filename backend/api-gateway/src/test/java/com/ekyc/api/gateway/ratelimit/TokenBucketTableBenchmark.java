@@ -0,0 +1,92 @@
+package com.ekyc.api.gateway.ratelimit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hot-path cost of TokenBucketTable.tryAcquire as thread count grows.
+ * Per-op time should stay flat from 1 to 64 threads; run with -prof gc to confirm
+ * gc.alloc.rate.norm is ~0 B/op once buckets exist.
+ *
+ * mvn -Pbenchmark test-compile exec:exec -Dbenchmark=TokenBucketTableBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TokenBucketTableBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Table {
+        @Param({"16", "10000"})
+        int tenants;
+
+        TokenBucketTable table;
+        String[] keys;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            // Generous limits so the benchmark measures the admit path, not rejections
+            table = new TokenBucketTable(1_000_000, 1_000_000_000d);
+            keys = new String[tenants];
+            for (int i = 0; i < tenants; i++) {
+                keys[i] = "tenant-" + i;
+                table.tryAcquire(keys[i], System.nanoTime());
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            next = ThreadLocalRandom.current().nextInt(1 << 16);
+        }
+    }
+
+    private static long acquire(Table t, Cursor c) {
+        String key = t.keys[(c.next++ & Integer.MAX_VALUE) % t.keys.length];
+        return t.table.tryAcquire(key, System.nanoTime());
+    }
+
+    @Benchmark
+    @Threads(1)
+    public long threads01(Table t, Cursor c) {
+        return acquire(t, c);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public long threads04(Table t, Cursor c) {
+        return acquire(t, c);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public long threads16(Table t, Cursor c) {
+        return acquire(t, c);
+    }
+
+    @Benchmark
+    @Threads(64)
+    public long threads64(Table t, Cursor c) {
+        return acquire(t, c);
+    }
+}
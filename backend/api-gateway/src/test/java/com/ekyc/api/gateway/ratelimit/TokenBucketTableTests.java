@@ -0,0 +1,43 @@
+package com.ekyc.api.gateway.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TokenBucketTableTests {
+
+	@Test
+	void admitsBurstThenRejectsUntilRefill() {
+		TokenBucketTable table = new TokenBucketTable(3, 1);
+		long now = 1_000_000_000L;
+
+		assertThat(table.tryAcquire("tenant-a", now)).isZero();
+		assertThat(table.tryAcquire("tenant-a", now)).isZero();
+		assertThat(table.tryAcquire("tenant-a", now)).isZero();
+
+		long wait = table.tryAcquire("tenant-a", now);
+		assertThat(wait).isEqualTo(TimeUnit.SECONDS.toNanos(1));
+
+		// Other keys have their own bucket
+		assertThat(table.tryAcquire("tenant-b", now)).isZero();
+
+		// One token back after one second
+		assertThat(table.tryAcquire("tenant-a", now + wait)).isZero();
+		assertThat(table.tryAcquire("tenant-a", now + wait)).isPositive();
+	}
+
+	@Test
+	void evictsOnlyIdleBuckets() {
+		TokenBucketTable table = new TokenBucketTable(1, 1);
+		long now = 1_000_000_000L;
+		table.tryAcquire("idle", now);
+		table.tryAcquire("busy", now + TimeUnit.MINUTES.toNanos(10));
+
+		int evicted = table.evictIdle(now + TimeUnit.MINUTES.toNanos(10), TimeUnit.MINUTES.toNanos(5));
+
+		assertThat(evicted).isEqualTo(1);
+		assertThat(table.size()).isEqualTo(1);
+	}
+}
@@ -0,0 +1,119 @@
+package com.ekyc.api.gateway.resilience;
+
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RouteResilienceFilterTests {
+
+	private final AtomicInteger upstreamCalls = new AtomicInteger();
+	private SimpleMeterRegistry meterRegistry;
+	private RouteResilienceFilter filter;
+
+	@BeforeEach
+	void setUp() {
+		ResilienceProperties.Policy policy = new ResilienceProperties.Policy();
+		policy.setRouteId("user-management");
+		policy.setSlidingWindowSize(2);
+		policy.setMinimumNumberOfCalls(2);
+		policy.setMaxConcurrentCalls(1);
+		policy.setWaitInOpenState(Duration.ofSeconds(30));
+		policy.setStaleFallback(true);
+		ResilienceProperties properties = new ResilienceProperties();
+		properties.setRoutes(List.of(policy));
+		meterRegistry = new SimpleMeterRegistry();
+		filter = new RouteResilienceFilter(properties, CircuitBreakerRegistry.ofDefaults(), BulkheadRegistry.ofDefaults(),
+				new StaleResponseStore(properties, meterRegistry), meterRegistry);
+	}
+
+	@Test
+	void openCircuitFailsFastWith503() {
+		run(exchange("/api/users/1"), upstream(HttpStatus.BAD_GATEWAY, "down"));
+		run(exchange("/api/users/2"), upstream(HttpStatus.BAD_GATEWAY, "down"));
+
+		MockServerWebExchange rejected = exchange("/api/users/3");
+		run(rejected, upstream(HttpStatus.OK, "{}"));
+
+		assertThat(upstreamCalls).hasValue(2);
+		assertThat(rejected.getResponse().getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+		assertThat(rejected.getResponse().getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("30");
+		assertThat(meterRegistry.get("gateway.circuitbreaker.transitions")
+				.tags("route", "user-management", "from", "closed", "to", "open").counter().count()).isEqualTo(1);
+	}
+
+	@Test
+	void failingAndOpenCircuitServeLastGoodResponse() {
+		run(exchange("/api/users/1"), upstream(HttpStatus.OK, "{\"id\":1}"));
+
+		MockServerWebExchange failed = exchange("/api/users/1");
+		run(failed, upstream(HttpStatus.SERVICE_UNAVAILABLE, "down"));
+		assertThat(failed.getResponse().getStatusCode()).isEqualTo(HttpStatus.OK);
+		assertThat(failed.getResponse().getBodyAsString().block()).isEqualTo("{\"id\":1}");
+		assertThat(failed.getResponse().getHeaders().getFirst("X-Cache")).isEqualTo("STALE");
+
+		// One failure in a window of two opens the circuit: served stale without calling upstream
+		MockServerWebExchange open = exchange("/api/users/1");
+		run(open, upstream(HttpStatus.OK, "{\"id\":1}"));
+		assertThat(upstreamCalls).hasValue(2);
+		assertThat(open.getResponse().getStatusCode()).isEqualTo(HttpStatus.OK);
+		assertThat(open.getResponse().getBodyAsString().block()).isEqualTo("{\"id\":1}");
+		assertThat(open.getResponse().getHeaders().getContentType()).isEqualTo(MediaType.APPLICATION_JSON);
+	}
+
+	@Test
+	void fullBulkheadRejectsConcurrentCall() {
+		MockServerWebExchange first = exchange("/api/users/1");
+		MockServerWebExchange second = exchange("/api/users/2");
+
+		Mono.when(filter.filter(first, slowUpstream()), filter.filter(second, slowUpstream()))
+				.block(Duration.ofSeconds(5));
+
+		assertThat(upstreamCalls).hasValue(1);
+		assertThat(second.getResponse().getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+	}
+
+	private void run(MockServerWebExchange exchange, GatewayFilterChain chain) {
+		filter.filter(exchange, chain).block(Duration.ofSeconds(5));
+	}
+
+	private GatewayFilterChain upstream(HttpStatus status, String body) {
+		return exchange -> Mono.defer(() -> {
+			upstreamCalls.incrementAndGet();
+			exchange.getResponse().setStatusCode(status);
+			exchange.getResponse().getHeaders().setContentType(MediaType.APPLICATION_JSON);
+			byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+			return exchange.getResponse().writeWith(Mono.just(exchange.getResponse().bufferFactory().wrap(bytes)));
+		});
+	}
+
+	private GatewayFilterChain slowUpstream() {
+		GatewayFilterChain upstream = upstream(HttpStatus.OK, "{}");
+		return exchange -> Mono.delay(Duration.ofMillis(100)).then(upstream.filter(exchange));
+	}
+
+	private static MockServerWebExchange exchange(String path) {
+		MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get(path));
+		Route route = Route.async().id("user-management").uri("lb://user-service")
+				.predicate(e -> true).build();
+		exchange.getAttributes().put(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR, route);
+		return exchange;
+	}
+}
@@ -0,0 +1,34 @@
+package com.ekyc.api.gateway.security;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+@SpringBootTest
+@AutoConfigureWebTestClient
+class ActuatorAccessTests {
+
+	@Autowired
+	private WebTestClient client;
+
+	@Test
+	void cacheStatsAreReadable() {
+		client.get().uri("/actuator/responsecache").exchange().expectStatus().isOk();
+	}
+
+	@Test
+	void cacheInvalidationNeedsAdminToken() {
+		client.delete().uri("/actuator/responsecache").exchange().expectStatus().isUnauthorized();
+		client.delete().uri("/actuator/responsecache")
+				.header("Authorization", "Bearer not-a-token")
+				.exchange()
+				.expectStatus().isUnauthorized();
+	}
+
+	@Test
+	void internalEndpointsAreNotRouted() {
+		client.delete().uri("/api/auth/profile/admin@example.com/cache").exchange().expectStatus().isUnauthorized();
+	}
+}
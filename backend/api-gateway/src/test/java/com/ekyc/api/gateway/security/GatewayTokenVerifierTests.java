@@ -0,0 +1,281 @@
+package com.ekyc.api.gateway.security;
+
+import com.ekyc.common.util.RevocationFilter;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.JWSSigner;
+import com.nimbusds.jose.crypto.ECDSASigner;
+import com.nimbusds.jose.crypto.MACSigner;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.jwk.Curve;
+import com.nimbusds.jose.jwk.ECKey;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.ECKeyGenerator;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GatewayTokenVerifierTests {
+
+	private static final String SECRET = "mySuperSecretKeyWhichShouldBeOverridden";
+	private static final String ISSUER = "ekyc-auth-service";
+	private static final String JWKS_ETAG = "\"v1\"";
+	private static final String KEYCLOAK_ISSUER = "http://keycloak/realms/ekyc";
+	private static final String KEYCLOAK_CLIENT = "ekyc-platform-client";
+
+	private final ECKey signingKey = generateKey("es256-1");
+	private final RSAKey realmKey = generateRealmKey();
+	private final List<ClientRequest> jwksRequests = new ArrayList<>();
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final List<String> revokedFeed = new ArrayList<>();
+
+	private final TokenRevocations revocations = new TokenRevocations(revocationServer(), "http://auth-service/api/auth/revocations",
+			RevocationFilter.forLifetime(Duration.ofMinutes(5), 2, 1000, 1e-6), Duration.ofSeconds(2), meterRegistry);
+
+	private final GatewayTokenVerifier verifier = verifier("ES256", OffsetDateTime.now().plusHours(1).toString());
+
+	@Test
+	void resolvesIdentityFromLegacyTokenInsideWindow() throws Exception {
+		String token = sign(SECRET, Instant.now().plusSeconds(300));
+
+		StepVerifier.create(verifier.verify(token))
+				.assertNext(identity -> {
+					assertThat(identity.userId()).isEqualTo("11111111-1111-1111-1111-111111111111");
+					assertThat(identity.tenantId()).isEqualTo("22222222-2222-2222-2222-222222222222");
+					assertThat(identity.role()).isEqualTo("TENANT_ADMIN");
+					assertThat(identity.subject()).isEqualTo("admin@example.com");
+				})
+				.verifyComplete();
+
+		StepVerifier.create(verifier.verify(token)).expectNextCount(1).verifyComplete();
+	}
+
+	@Test
+	void rejectsLegacyTokenWithoutOptIn() throws Exception {
+		String token = sign(SECRET, Instant.now().plusSeconds(300));
+
+		StepVerifier.create(verifier("ES256", "").verify(token)).expectError(BadJwtException.class).verify();
+	}
+
+	@Test
+	void rejectsLegacyTokenAfterCutoff() throws Exception {
+		GatewayTokenVerifier closing = verifier("ES256", OffsetDateTime.now().plusSeconds(1).toString());
+		String token = sign(SECRET, Instant.now().plusSeconds(300));
+		StepVerifier.create(closing.verify(token)).expectNextCount(1).verifyComplete();
+
+		Thread.sleep(1100);
+
+		// Not served from the identity cache once the window has closed
+		StepVerifier.create(closing.verify(token)).expectError(BadJwtException.class).verify();
+	}
+
+	@Test
+	void acceptsHs256TokensWhileAuthServiceSignsWithHs256() throws Exception {
+		String token = sign(SECRET, Instant.now().plusSeconds(300));
+
+		StepVerifier.create(verifier("HS256", "").verify(token)).expectNextCount(1).verifyComplete();
+	}
+
+	@Test
+	void rejectsTokenSignedWithAnotherSecret() throws Exception {
+		String token = sign("anotherSecretKeyThatIsAlsoLongEnough!!", Instant.now().plusSeconds(300));
+
+		StepVerifier.create(verifier.verify(token)).expectError().verify();
+	}
+
+	@Test
+	void rejectsExpiredToken() throws Exception {
+		String token = sign(SECRET, Instant.now().minusSeconds(600));
+
+		StepVerifier.create(verifier.verify(token)).expectError().verify();
+	}
+
+	@Test
+	void verifiesEs256TokenAgainstCachedJwks() throws Exception {
+		StepVerifier.create(verifier.verify(signEs256(signingKey, Instant.now().plusSeconds(300))))
+				.assertNext(identity -> assertThat(identity.role()).isEqualTo("TENANT_ADMIN"))
+				.verifyComplete();
+		assertThat(jwksRequests).hasSize(1);
+
+		// Unknown kid: conditional refresh answered 304, so the token is rejected without a re-download
+		StepVerifier.create(verifier.verify(signEs256(generateKey("es256-2"), Instant.now().plusSeconds(300))))
+				.expectError()
+				.verify();
+		assertThat(jwksRequests).hasSize(2);
+		assertThat(jwksRequests.get(1).headers().getIfNoneMatch()).containsExactly(JWKS_ETAG);
+		assertThat(meterRegistry.get("gateway.auth.jwks.fetches").tag("outcome", "not-modified").counter().count())
+				.isEqualTo(1);
+	}
+
+	@Test
+	void rejectsCachedTokenOnceRevoked() throws Exception {
+		Instant expiresAt = Instant.now().plusSeconds(300);
+		String tokenId = UUID.randomUUID().toString();
+		String token = signEs256(signingKey, tokenId, expiresAt);
+		StepVerifier.create(verifier.verify(token)).expectNextCount(1).verifyComplete();
+
+		revokedFeed.add("{\"jti\":\"" + tokenId + "\",\"exp\":" + expiresAt.toEpochMilli() + "}");
+		StepVerifier.create(revocations.fetch()).expectNext(1).verifyComplete();
+
+		StepVerifier.create(verifier.verify(token)).expectError().verify();
+		// Other tokens of the same user are unaffected
+		StepVerifier.create(verifier.verify(signEs256(signingKey, UUID.randomUUID().toString(), expiresAt)))
+				.expectNextCount(1)
+				.verifyComplete();
+	}
+
+	@Test
+	void acceptsKeycloakTokenOfTheRealmForThePlatformClient() throws Exception {
+		String token = signKeycloak(KEYCLOAK_ISSUER, KEYCLOAK_CLIENT, "account");
+
+		StepVerifier.create(verifier.verify(token))
+				.assertNext(identity -> {
+					assertThat(identity.keycloakId()).isEqualTo("kc-123");
+					assertThat(identity.role()).isEqualTo("TENANT_USER");
+				})
+				.verifyComplete();
+	}
+
+	@Test
+	void acceptsKeycloakTokenWithThePlatformClientInTheAudience() throws Exception {
+		String token = signKeycloak(KEYCLOAK_ISSUER, "ekyc-frontend", KEYCLOAK_CLIENT);
+
+		StepVerifier.create(verifier.verify(token)).expectNextCount(1).verifyComplete();
+	}
+
+	@Test
+	void rejectsKeycloakTokenOfAnotherRealm() throws Exception {
+		String token = signKeycloak("http://keycloak/realms/master", KEYCLOAK_CLIENT, "account");
+
+		StepVerifier.create(verifier.verify(token)).expectError(BadJwtException.class).verify();
+	}
+
+	@Test
+	void rejectsKeycloakTokenIssuedForAnotherClient() throws Exception {
+		String token = signKeycloak(KEYCLOAK_ISSUER, "admin-cli", "account");
+
+		StepVerifier.create(verifier.verify(token)).expectError(BadJwtException.class).verify();
+	}
+
+	private GatewayTokenVerifier verifier(String algorithm, String legacyAcceptUntil) {
+		return new GatewayTokenVerifier(SECRET, algorithm, legacyAcceptUntil, "http://keycloak", "ekyc", "", KEYCLOAK_CLIENT,
+				keycloakServer(), new AuthServiceKeySource(jwksServer(), "http://auth-service/api/auth/.well-known/jwks.json",
+						Duration.ofMinutes(5), Duration.ZERO, Duration.ofSeconds(2), meterRegistry),
+				ISSUER, revocations, 100, Duration.ofMinutes(5));
+	}
+
+	private WebClient revocationServer() {
+		return WebClient.builder().exchangeFunction(request -> Mono.just(ClientResponse.create(HttpStatus.OK)
+				.header(HttpHeaders.CONTENT_TYPE, "application/json")
+				.body("{\"cursor\":" + System.currentTimeMillis() + ",\"revoked\":[" + String.join(",", revokedFeed) + "]}")
+				.build())).build();
+	}
+
+	private WebClient jwksServer() {
+		return WebClient.builder().exchangeFunction(request -> {
+			jwksRequests.add(request);
+			if (request.headers().getIfNoneMatch().contains(JWKS_ETAG)) {
+				return Mono.just(ClientResponse.create(HttpStatus.NOT_MODIFIED).build());
+			}
+			return Mono.just(ClientResponse.create(HttpStatus.OK)
+					.header(HttpHeaders.CONTENT_TYPE, "application/jwk-set+json")
+					.header(HttpHeaders.ETAG, JWKS_ETAG)
+					.body(new JWKSet(signingKey.toPublicJWK()).toString())
+					.build());
+		}).build();
+	}
+
+	private WebClient keycloakServer() {
+		return WebClient.builder().exchangeFunction(request -> Mono.just(ClientResponse.create(HttpStatus.OK)
+				.header(HttpHeaders.CONTENT_TYPE, "application/json")
+				.body(new JWKSet(realmKey.toPublicJWK()).toString())
+				.build())).build();
+	}
+
+	private String signKeycloak(String issuer, String authorizedParty, String audience) throws Exception {
+		JWTClaimsSet claims = new JWTClaimsSet.Builder()
+				.issuer(issuer)
+				.subject("kc-123")
+				.audience(audience)
+				.claim("azp", authorizedParty)
+				.claim("realm_access", Map.of("roles", List.of("default-roles-ekyc", "TENANT_USER")))
+				.issueTime(new Date())
+				.expirationTime(Date.from(Instant.now().plusSeconds(300)))
+				.build();
+		SignedJWT jwt = new SignedJWT(new JWSHeader.Builder(JWSAlgorithm.RS256).keyID(realmKey.getKeyID()).build(), claims);
+		jwt.sign(new RSASSASigner(realmKey));
+		return jwt.serialize();
+	}
+
+	private static RSAKey generateRealmKey() {
+		try {
+			return new RSAKeyGenerator(2048).keyID("realm-1").generate();
+		} catch (Exception e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static ECKey generateKey(String kid) {
+		try {
+			return new ECKeyGenerator(Curve.P_256).keyID(kid).generate();
+		} catch (Exception e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static String sign(String secret, Instant expiresAt) throws Exception {
+		return sign(new JWSHeader(JWSAlgorithm.HS256), new MACSigner(secret.getBytes(StandardCharsets.UTF_8)), null, expiresAt);
+	}
+
+	private static String signEs256(ECKey key, Instant expiresAt) throws Exception {
+		return signEs256(key, null, expiresAt);
+	}
+
+	private static String signEs256(ECKey key, String tokenId, Instant expiresAt) throws Exception {
+		return sign(new JWSHeader.Builder(JWSAlgorithm.ES256).keyID(key.getKeyID()).build(), new ECDSASigner(key), ISSUER,
+				tokenId, expiresAt);
+	}
+
+	private static String sign(JWSHeader header, JWSSigner signer, String issuer, Instant expiresAt) throws Exception {
+		return sign(header, signer, issuer, null, expiresAt);
+	}
+
+	private static String sign(JWSHeader header, JWSSigner signer, String issuer, String tokenId, Instant expiresAt) throws Exception {
+		JWTClaimsSet claims = new JWTClaimsSet.Builder()
+				.jwtID(tokenId)
+				.issuer(issuer)
+				.subject("admin@example.com")
+				.claim("userId", "11111111-1111-1111-1111-111111111111")
+				.claim("tenantId", "22222222-2222-2222-2222-222222222222")
+				.claim("role", "TENANT_ADMIN")
+				.issueTime(new Date())
+				.expirationTime(Date.from(expiresAt))
+				.build();
+		SignedJWT jwt = new SignedJWT(header, claims);
+		jwt.sign(signer);
+		return jwt.serialize();
+	}
+}
@@ -0,0 +1,129 @@
+package com.ekyc.api.gateway.security;
+
+import com.ekyc.common.util.RevocationFilter;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.ECDSASigner;
+import com.nimbusds.jose.jwk.Curve;
+import com.nimbusds.jose.jwk.ECKey;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.gen.ECKeyGenerator;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JwtAuthenticationFilterTests {
+
+	private static final String ISSUER = "ekyc-auth-service";
+	private static final String USER_ID = "11111111-1111-1111-1111-111111111111";
+
+	private final ECKey signingKey = generateKey();
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final AtomicReference<ServerHttpRequest> forwarded = new AtomicReference<>();
+
+	private final JwtAuthenticationFilter filter = new JwtAuthenticationFilter(new GatewayTokenVerifier(
+			"mySuperSecretKeyWhichShouldBeOverridden", "ES256", "", "http://localhost:0", "ekyc", "", "ekyc-platform-client",
+			new AuthServiceKeySource(jwksServer(), "http://auth-service/api/auth/.well-known/jwks.json",
+					Duration.ofMinutes(5), Duration.ZERO, Duration.ofSeconds(2), meterRegistry),
+			ISSUER, new TokenRevocations(WebClient.create(), "http://auth-service/api/auth/revocations",
+					RevocationFilter.forLifetime(Duration.ofMinutes(5), 2, 1000, 1e-6), Duration.ofSeconds(2), meterRegistry),
+			100, Duration.ofMinutes(5)),
+			List.of("/api/auth/login", "/api/auth/refresh"));
+
+	@Test
+	void forwardsIdentityOfValidToken() {
+		MockServerWebExchange exchange = exchange("/api/users", sign(Instant.now().plusSeconds(300)));
+
+		filter.filter(exchange, upstream()).block(Duration.ofSeconds(5));
+
+		assertThat(forwarded.get().getHeaders().getFirst(GatewayIdentity.USER_ID_HEADER)).isEqualTo(USER_ID);
+		assertThat(forwarded.get().getHeaders().containsKey(GatewayIdentity.KEYCLOAK_ID_HEADER)).isFalse();
+	}
+
+	@Test
+	void expiredTokenIsRejectedOnProtectedPath() {
+		MockServerWebExchange exchange = exchange("/api/users", sign(Instant.now().minusSeconds(60)));
+
+		filter.filter(exchange, upstream()).block(Duration.ofSeconds(5));
+
+		assertThat(exchange.getResponse().getStatusCode()).isEqualTo(HttpStatus.UNAUTHORIZED);
+		assertThat(forwarded.get()).isNull();
+	}
+
+	@Test
+	void expiredTokenDoesNotBlockRefresh() {
+		MockServerWebExchange exchange = exchange("/api/auth/refresh", sign(Instant.now().minusSeconds(60)));
+
+		filter.filter(exchange, upstream()).block(Duration.ofSeconds(5));
+
+		assertThat(exchange.getResponse().getStatusCode()).isNotEqualTo(HttpStatus.UNAUTHORIZED);
+		assertThat(forwarded.get()).isNotNull();
+		// Public paths are anonymous: spoofed identity headers are stripped, none are added
+		assertThat(forwarded.get().getHeaders().containsKey(GatewayIdentity.USER_ID_HEADER)).isFalse();
+		assertThat(exchange.getAttributes()).doesNotContainKey(GatewayIdentity.ATTRIBUTE);
+	}
+
+	private GatewayFilterChain upstream() {
+		return exchange -> {
+			forwarded.set(exchange.getRequest());
+			return Mono.empty();
+		};
+	}
+
+	private static MockServerWebExchange exchange(String path, String token) {
+		return MockServerWebExchange.from(MockServerHttpRequest.post(path)
+				.header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+				.header(GatewayIdentity.USER_ID_HEADER, "spoofed"));
+	}
+
+	private WebClient jwksServer() {
+		return WebClient.builder().exchangeFunction(request -> Mono.just(ClientResponse.create(HttpStatus.OK)
+				.header(HttpHeaders.CONTENT_TYPE, "application/jwk-set+json")
+				.body(new JWKSet(signingKey.toPublicJWK()).toString())
+				.build())).build();
+	}
+
+	private String sign(Instant expiresAt) {
+		try {
+			JWTClaimsSet claims = new JWTClaimsSet.Builder()
+					.issuer(ISSUER)
+					.subject("admin@example.com")
+					.claim("userId", USER_ID)
+					.claim("role", "TENANT_ADMIN")
+					.issueTime(Date.from(expiresAt.minusSeconds(300)))
+					.expirationTime(Date.from(expiresAt))
+					.build();
+			SignedJWT jwt = new SignedJWT(new JWSHeader.Builder(JWSAlgorithm.ES256).keyID(signingKey.getKeyID()).build(), claims);
+			jwt.sign(new ECDSASigner(signingKey));
+			return jwt.serialize();
+		} catch (Exception e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static ECKey generateKey() {
+		try {
+			return new ECKeyGenerator(Curve.P_256).keyID("es256-1").generate();
+		} catch (Exception e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
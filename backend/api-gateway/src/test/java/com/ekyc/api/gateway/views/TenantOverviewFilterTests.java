@@ -0,0 +1,108 @@
+package com.ekyc.api.gateway.views;
+
+import com.ekyc.api.gateway.security.GatewayIdentity;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TenantOverviewFilterTests {
+
+	private static final String TENANT_ID = "7b1c9d2e-4f3a-4b5c-8d6e-0a1b2c3d4e5f";
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+	private TenantOverviewFilter filter;
+
+	@BeforeEach
+	void setUp() {
+		ViewsProperties properties = new ViewsProperties();
+		properties.setLegTimeout(Duration.ofMillis(300));
+		WebClient webClient = WebClient.builder().exchangeFunction(request -> {
+			String path = request.url().getPath();
+			if (path.startsWith("/api/tenants/")) {
+				return json("{\"id\":\"" + TENANT_ID + "\",\"name\":\"Acme\"}", Duration.ofMillis(200));
+			}
+			if (path.startsWith("/api/subscriptions/tenant/")) {
+				return json("[{\"moduleId\":\"kyc\"}]", Duration.ofMillis(200));
+			}
+			if (path.startsWith("/api/users/tenant/")) {
+				return json("[]", Duration.ofSeconds(5));
+			}
+			return Mono.just(ClientResponse.create(HttpStatus.INTERNAL_SERVER_ERROR).build());
+		}).build();
+		filter = new TenantOverviewFilter(properties, webClient, objectMapper, new SimpleMeterRegistry());
+	}
+
+	@Test
+	void mergesLegsConcurrentlyAndReportsFailedOnes() throws Exception {
+		MockServerWebExchange exchange = exchange(TENANT_ID, new GatewayIdentity("u1", null, TENANT_ID, "PLATFORM_TENANT_ADMIN", "u1", null, null));
+
+		long start = System.nanoTime();
+		filter.filter(exchange, e -> Mono.empty()).block(Duration.ofSeconds(5));
+		Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+
+		// Bounded by the slowest leg (users, cut at its 300ms timeout), not the sum
+		assertThat(elapsed).isLessThan(Duration.ofMillis(700));
+		assertThat(exchange.getResponse().getStatusCode()).isEqualTo(HttpStatus.OK);
+		JsonNode body = objectMapper.readTree(exchange.getResponse().getBodyAsString().block());
+		assertThat(body.get("tenant").get("name").asText()).isEqualTo("Acme");
+		assertThat(body.get("subscriptions").size()).isEqualTo(1);
+		assertThat(body.get("users").isNull()).isTrue();
+		assertThat(body.get("roles").isNull()).isTrue();
+		assertThat(body.get("partial").asBoolean()).isTrue();
+		assertThat(body.get("errors").get("users").asText()).isEqualTo("timed out after 300ms");
+		assertThat(body.get("errors").get("roles").asText()).isEqualTo("upstream responded 500");
+	}
+
+	@Test
+	void rejectsCallersFromOtherTenants() {
+		MockServerWebExchange exchange = exchange(TENANT_ID,
+				new GatewayIdentity("u2", null, UUID.randomUUID().toString(), "PLATFORM_TENANT_ADMIN", "u2", null, null));
+
+		filter.filter(exchange, e -> Mono.empty()).block(Duration.ofSeconds(5));
+
+		assertThat(exchange.getResponse().getStatusCode()).isEqualTo(HttpStatus.FORBIDDEN);
+	}
+
+	@Test
+	void requiresAuthentication() {
+		MockServerWebExchange exchange = exchange(TENANT_ID, null);
+
+		filter.filter(exchange, e -> Mono.empty()).block(Duration.ofSeconds(5));
+
+		assertThat(exchange.getResponse().getStatusCode()).isEqualTo(HttpStatus.UNAUTHORIZED);
+	}
+
+	private static Mono<ClientResponse> json(String body, Duration delay) {
+		return Mono.delay(delay).thenReturn(ClientResponse.create(HttpStatus.OK)
+				.header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+				.body(body)
+				.build());
+	}
+
+	private static MockServerWebExchange exchange(String tenantId, GatewayIdentity identity) {
+		MockServerWebExchange exchange = MockServerWebExchange.from(
+				MockServerHttpRequest.get("/api/views/tenant/" + tenantId + "/overview"));
+		ServerWebExchangeUtils.putUriTemplateVariables(exchange, Map.of("id", tenantId));
+		if (identity != null) {
+			exchange.getAttributes().put(GatewayIdentity.ATTRIBUTE, identity);
+		}
+		return exchange;
+	}
+}
@@ -0,0 +1,139 @@
+package com.ekyc.authservice.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Token signing, bound from jwt.*.
+ *
+ * With algorithm ES256 (default) tokens are signed with EC key pairs kept in auth.signing_keys,
+ * rotated on the rotation schedule and published at /api/auth/.well-known/jwks.json.
+ *
+ * With algorithm HS256 tokens are signed with secret and carry key-id as their kid header. To
+ * rotate, move the current id/secret to previous-keys and set a new pair: tokens signed with a
+ * previous key keep verifying until they expire, then the old key can be dropped.
+ *
+ * After switching from HS256 to ES256, HMAC tokens still in circulation are only accepted if
+ * legacy-accept-until is set, and only until then: set it to the switch time plus the old
+ * token lifetime. secret is shared with the gateway and has a public default, so accepting it
+ * for longer would let anyone who holds it mint tokens.
+ *
+ * Access tokens are short-lived (expiration); clients renew them with the rotating refresh token
+ * returned at login, which lives for refresh.ttl.
+ */
+@ConfigurationProperties(prefix = "jwt")
+public class JwtProperties {
+  private String algorithm = "ES256";
+  private String issuer = "ekyc-auth-service";
+  private String secret;
+  private String keyId = "k1";
+  /** Access token lifetime in seconds */
+  private long expiration = 300;
+  private List<Key> previousKeys = new ArrayList<>();
+  /** Encrypts stored private keys; required with ES256, and must differ from secret */
+  private String keyEncryptionSecret;
+  private Rotation rotation = new Rotation();
+  /** Cache-Control max-age of the JWKS */
+  private Duration jwksMaxAge = Duration.ofMinutes(5);
+  private Refresh refresh = new Refresh();
+  private Revocation revocation = new Revocation();
+  /** ES256 mode only: HMAC tokens are rejected from this instant; null rejects them outright */
+  private OffsetDateTime legacyAcceptUntil;
+
+  public String getAlgorithm() { return algorithm; }
+  public void setAlgorithm(String algorithm) { this.algorithm = algorithm; }
+
+  public String getIssuer() { return issuer; }
+  public void setIssuer(String issuer) { this.issuer = issuer; }
+
+  public String getSecret() { return secret; }
+  public void setSecret(String secret) { this.secret = secret; }
+
+  public String getKeyId() { return keyId; }
+  public void setKeyId(String keyId) { this.keyId = keyId; }
+
+  public long getExpiration() { return expiration; }
+  public void setExpiration(long expiration) { this.expiration = expiration; }
+
+  public List<Key> getPreviousKeys() { return previousKeys; }
+  public void setPreviousKeys(List<Key> previousKeys) { this.previousKeys = previousKeys; }
+
+  public String getKeyEncryptionSecret() { return keyEncryptionSecret; }
+  public void setKeyEncryptionSecret(String keyEncryptionSecret) { this.keyEncryptionSecret = keyEncryptionSecret; }
+
+  public Rotation getRotation() { return rotation; }
+  public void setRotation(Rotation rotation) { this.rotation = rotation; }
+
+  public Duration getJwksMaxAge() { return jwksMaxAge; }
+  public void setJwksMaxAge(Duration jwksMaxAge) { this.jwksMaxAge = jwksMaxAge; }
+
+  public Refresh getRefresh() { return refresh; }
+  public void setRefresh(Refresh refresh) { this.refresh = refresh; }
+
+  public Revocation getRevocation() { return revocation; }
+  public void setRevocation(Revocation revocation) { this.revocation = revocation; }
+
+  public OffsetDateTime getLegacyAcceptUntil() { return legacyAcceptUntil; }
+  public void setLegacyAcceptUntil(OffsetDateTime legacyAcceptUntil) { this.legacyAcceptUntil = legacyAcceptUntil; }
+
+  /**
+   * A new key is published publishAhead before it starts signing, so verifiers pick it up on
+   * their regular JWKS refresh; publishAhead should exceed jwks-max-age. A retired key stays
+   * published for the token lifetime plus grace.
+   */
+  public static class Rotation {
+    private Duration interval = Duration.ofDays(30);
+    private Duration publishAhead = Duration.ofMinutes(15);
+    private Duration grace = Duration.ofHours(1);
+
+    public Duration getInterval() { return interval; }
+    public void setInterval(Duration interval) { this.interval = interval; }
+
+    public Duration getPublishAhead() { return publishAhead; }
+    public void setPublishAhead(Duration publishAhead) { this.publishAhead = publishAhead; }
+
+    public Duration getGrace() { return grace; }
+    public void setGrace(Duration grace) { this.grace = grace; }
+  }
+
+  public static class Refresh {
+    private Duration ttl = Duration.ofDays(30);
+
+    public Duration getTtl() { return ttl; }
+    public void setTtl(Duration ttl) { this.ttl = ttl; }
+  }
+
+  /**
+   * Sizing of the in-memory filter of revoked access token ids. Revocations are kept for one
+   * access token lifetime, split into partitions-per-lifetime partitions.
+   */
+  public static class Revocation {
+    private int partitionsPerLifetime = 2;
+    private int expectedPerPartition = 10000;
+    private double falsePositiveRate = 1e-6;
+
+    public int getPartitionsPerLifetime() { return partitionsPerLifetime; }
+    public void setPartitionsPerLifetime(int partitionsPerLifetime) { this.partitionsPerLifetime = partitionsPerLifetime; }
+
+    public int getExpectedPerPartition() { return expectedPerPartition; }
+    public void setExpectedPerPartition(int expectedPerPartition) { this.expectedPerPartition = expectedPerPartition; }
+
+    public double getFalsePositiveRate() { return falsePositiveRate; }
+    public void setFalsePositiveRate(double falsePositiveRate) { this.falsePositiveRate = falsePositiveRate; }
+  }
+
+  public static class Key {
+    private String id;
+    private String secret;
+
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+
+    public String getSecret() { return secret; }
+    public void setSecret(String secret) { this.secret = secret; }
+  }
+}
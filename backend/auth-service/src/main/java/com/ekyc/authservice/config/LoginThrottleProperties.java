@@ -0,0 +1,55 @@
+package com.ekyc.authservice.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Brute-force protection for /api/auth/login, bound from login.throttle.*.
+ *
+ * Failed logins are counted per email and per client IP over a sliding window. Once either
+ * count reaches its threshold, logins for that key are refused for backoff-base, doubling with
+ * each further lockout up to backoff-max. A successful login clears the email's count.
+ */
+@ConfigurationProperties(prefix = "login.throttle")
+public class LoginThrottleProperties {
+  private boolean enabled = true;
+  private Duration window = Duration.ofMinutes(15);
+  /** Buckets the window is split into; more buckets slide more smoothly */
+  private int buckets = 15;
+  private int maxFailuresPerEmail = 5;
+  private int maxFailuresPerIp = 20;
+  private Duration backoffBase = Duration.ofSeconds(15);
+  private Duration backoffMax = Duration.ofMinutes(15);
+  /** Keys tracked per dimension; least valuable keys are evicted beyond this */
+  private long maxKeys = 100_000;
+  /** Take the client IP from the last X-Forwarded-For entry (added by the gateway) */
+  private boolean trustForwardedFor = true;
+
+  public boolean isEnabled() { return enabled; }
+  public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+  public Duration getWindow() { return window; }
+  public void setWindow(Duration window) { this.window = window; }
+
+  public int getBuckets() { return buckets; }
+  public void setBuckets(int buckets) { this.buckets = buckets; }
+
+  public int getMaxFailuresPerEmail() { return maxFailuresPerEmail; }
+  public void setMaxFailuresPerEmail(int maxFailuresPerEmail) { this.maxFailuresPerEmail = maxFailuresPerEmail; }
+
+  public int getMaxFailuresPerIp() { return maxFailuresPerIp; }
+  public void setMaxFailuresPerIp(int maxFailuresPerIp) { this.maxFailuresPerIp = maxFailuresPerIp; }
+
+  public Duration getBackoffBase() { return backoffBase; }
+  public void setBackoffBase(Duration backoffBase) { this.backoffBase = backoffBase; }
+
+  public Duration getBackoffMax() { return backoffMax; }
+  public void setBackoffMax(Duration backoffMax) { this.backoffMax = backoffMax; }
+
+  public long getMaxKeys() { return maxKeys; }
+  public void setMaxKeys(long maxKeys) { this.maxKeys = maxKeys; }
+
+  public boolean isTrustForwardedFor() { return trustForwardedFor; }
+  public void setTrustForwardedFor(boolean trustForwardedFor) { this.trustForwardedFor = trustForwardedFor; }
+}
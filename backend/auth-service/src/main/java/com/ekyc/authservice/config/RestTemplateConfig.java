@@ -1,14 +1,27 @@
 package com.ekyc.authservice.config;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.client.RestTemplate;
 
+import java.time.Duration;
+
 @Configuration
 public class RestTemplateConfig {
 
+    /**
+     * Shared by the Keycloak and user-service calls; bounded so that a hung peer can't hold a
+     * login, a refresh or the JWKS fetch (and everyone waiting on it) indefinitely.
+     */
     @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
+    public RestTemplate restTemplate(RestTemplateBuilder builder,
+                                     @Value("${http.client.connect-timeout:2s}") Duration connectTimeout,
+                                     @Value("${http.client.read-timeout:5s}") Duration readTimeout) {
+        return builder
+                .connectTimeout(connectTimeout)
+                .readTimeout(readTimeout)
+                .build();
     }
-} 
\ No newline at end of file
+}
@@ -2,8 +2,15 @@ package com.ekyc.authservice.controller;
 
 import com.ekyc.authservice.dto.AuthResponse;
 import com.ekyc.authservice.dto.LoginRequest;
+import com.ekyc.authservice.dto.RefreshRequest;
 import com.ekyc.authservice.dto.SignupRequest;
+import com.ekyc.authservice.config.LoginThrottleProperties;
 import com.ekyc.authservice.service.AuthService;
+import com.ekyc.authservice.service.LoginThrottledException;
+import com.ekyc.common.exception.InvalidCredentialsException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -16,23 +23,55 @@ import org.springframework.web.bind.annotation.ExceptionHandler;
 @RequestMapping("/api/auth")
 public class AuthController {
   private final AuthService service;
+  private final LoginThrottleProperties throttleProperties;
   private static final Logger logger = LoggerFactory.getLogger(AuthController.class);
   
-  public AuthController(AuthService service) { this.service = service; }
+  public AuthController(AuthService service, LoginThrottleProperties throttleProperties) {
+    this.service = service;
+    this.throttleProperties = throttleProperties;
+  }
 
   @PostMapping("/login")
-  public ResponseEntity<AuthResponse> login(@Valid @RequestBody LoginRequest req) {
+  public ResponseEntity<AuthResponse> login(@Valid @RequestBody LoginRequest req, HttpServletRequest request) {
     try {
       logger.info("Login request received for email: {}", req.getEmail());
-      AuthResponse response = service.login(req);
+      AuthResponse response = service.login(req, clientIp(request));
       logger.info("Login successful for email: {}", req.getEmail());
       return ResponseEntity.ok(response);
+    } catch (LoginThrottledException e) {
+      logger.warn("Login throttled for email {}: retry in {}s", req.getEmail(), e.getRetryAfterSeconds());
+      return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+        .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+        .build();
+    } catch (InvalidCredentialsException e) {
+      return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
     } catch (Exception e) {
       logger.error("Login error for email {}: {}", req.getEmail(), e.getMessage(), e);
       return ResponseEntity.badRequest().build();
     }
   }
 
+  @PostMapping("/refresh")
+  public ResponseEntity<AuthResponse> refresh(@Valid @RequestBody RefreshRequest req) {
+    try {
+      return ResponseEntity.ok(service.refresh(req));
+    } catch (InvalidCredentialsException e) {
+      logger.info("Refresh rejected: {}", e.getMessage());
+      return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+    } catch (IllegalStateException e) {
+      logger.warn("Refresh failed: {}", e.getMessage());
+      return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+    }
+  }
+
+  @PostMapping("/logout")
+  public ResponseEntity<Void> logout(@RequestBody(required = false) RefreshRequest req,
+                                     @RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorization) {
+    String accessToken = authorization != null && authorization.startsWith("Bearer ") ? authorization.substring(7) : null;
+    service.logout(req != null ? req.getRefreshToken() : null, accessToken);
+    return ResponseEntity.noContent().build();
+  }
+
   @GetMapping("/test")
   public ResponseEntity<String> test() {
     logger.info("Test endpoint called");
@@ -50,19 +89,42 @@ public class AuthController {
     }
   }
 
+  /**
+   * Cached profile. Carries no token; tokens are only issued by login, signup and refresh.
+   */
   @GetMapping("/profile/{email}")
   public ResponseEntity<AuthResponse> getUserProfile(@PathVariable String email) {
     try {
-      logger.info("Profile request received for email: {}", email);
+      logger.debug("Profile request received for email: {}", email);
       AuthResponse response = service.getUserProfile(email);
-      logger.info("Profile retrieved successfully for email: {}", email);
       return ResponseEntity.ok(response);
     } catch (Exception e) {
       logger.error("Profile error for email {}: {}", email, e.getMessage(), e);
       return ResponseEntity.notFound().build();
     }
   }
+
+  /**
+   * Internal: called by user-service directly. The gateway denies it to outside callers.
+   */
+  @DeleteMapping("/profile/{email}/cache")
+  public ResponseEntity<Void> invalidateProfile(@PathVariable String email) {
+    service.invalidateProfile(email);
+    return ResponseEntity.noContent().build();
+  }
   
+  /**
+   * The gateway appends the caller's address to X-Forwarded-For, so its last entry is the one a
+   * client cannot forge.
+   */
+  private String clientIp(HttpServletRequest request) {
+    String forwardedFor = throttleProperties.isTrustForwardedFor() ? request.getHeader("X-Forwarded-For") : null;
+    if (forwardedFor != null && !forwardedFor.isBlank()) {
+      return forwardedFor.substring(forwardedFor.lastIndexOf(',') + 1).trim();
+    }
+    return request.getRemoteAddr();
+  }
+
   @ExceptionHandler(MethodArgumentNotValidException.class)
   public ResponseEntity<String> handleValidationExceptions(MethodArgumentNotValidException ex) {
     logger.error("Validation error: {}", ex.getMessage());
@@ -0,0 +1,38 @@
+package com.ekyc.authservice.controller;
+
+import com.ekyc.authservice.dto.IntrospectionResponse;
+import com.ekyc.authservice.service.IntrospectionService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Token introspection for internal services (RFC 7662 style): they post the token they received,
+ * ours or Keycloak's, and get back our user id, tenant and role.
+ */
+@RestController
+@RequestMapping("/api/auth/introspect")
+public class IntrospectionController {
+  private final IntrospectionService introspection;
+
+  public IntrospectionController(IntrospectionService introspection) {
+    this.introspection = introspection;
+  }
+
+  /**
+   * @param token the token to introspect (form parameter); defaults to the request's bearer token
+   * @return 200 with active=false for invalid, expired or revoked tokens
+   */
+  @PostMapping
+  public ResponseEntity<IntrospectionResponse> introspect(@RequestParam(required = false) String token,
+                                                          @RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorization) {
+    if (token == null && authorization != null && authorization.startsWith("Bearer ")) {
+      token = authorization.substring(7);
+    }
+    return ResponseEntity.ok(introspection.introspect(token));
+  }
+}
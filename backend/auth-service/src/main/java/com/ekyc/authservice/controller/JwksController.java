@@ -0,0 +1,36 @@
+package com.ekyc.authservice.controller;
+
+import com.ekyc.authservice.config.JwtProperties;
+import com.ekyc.authservice.service.SigningKeyService;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Public token verification keys. Responses carry an ETag, so verifiers refresh with
+ * If-None-Match and get 304 until the key set changes.
+ */
+@RestController
+@RequestMapping("/api/auth/.well-known")
+public class JwksController {
+  private final SigningKeyService signingKeys;
+  private final JwtProperties properties;
+
+  public JwksController(SigningKeyService signingKeys, JwtProperties properties) {
+    this.signingKeys = signingKeys;
+    this.properties = properties;
+  }
+
+  @GetMapping("/jwks.json")
+  public ResponseEntity<String> jwks() {
+    SigningKeyService.KeySet keySet = signingKeys.keySet();
+    return ResponseEntity.ok()
+      .contentType(MediaType.parseMediaType("application/jwk-set+json"))
+      .cacheControl(CacheControl.maxAge(properties.getJwksMaxAge()).cachePublic())
+      .eTag(keySet.etag())
+      .body(keySet.jwks());
+  }
+}
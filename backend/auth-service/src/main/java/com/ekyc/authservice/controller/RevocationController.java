@@ -0,0 +1,43 @@
+package com.ekyc.authservice.controller;
+
+import com.ekyc.authservice.entity.RevokedToken;
+import com.ekyc.authservice.service.TokenRevocationService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Feed of revoked access token ids for verifiers outside auth-service (the gateway). Callers
+ * poll with the cursor of the previous response and load the ids into their own filter.
+ */
+@RestController
+@RequestMapping("/api/auth/revocations")
+public class RevocationController {
+  private final TokenRevocationService revocations;
+
+  public RevocationController(TokenRevocationService revocations) {
+    this.revocations = revocations;
+  }
+
+  /**
+   * @param since cursor (epoch millis) returned by the previous poll; 0 for all live revocations
+   */
+  @GetMapping
+  public ResponseEntity<Map<String, Object>> revokedSince(@RequestParam(defaultValue = "0") long since) {
+    long cursor = System.currentTimeMillis();
+    List<Map<String, Object>> revoked = new ArrayList<>();
+    for (RevokedToken token : revocations.revokedSince(OffsetDateTime.ofInstant(Instant.ofEpochMilli(since), ZoneOffset.UTC))) {
+      revoked.add(Map.of("jti", token.getJti(), "exp", token.getExpiresAt().toInstant().toEpochMilli()));
+    }
+    return ResponseEntity.ok(Map.of("cursor", cursor, "revoked", revoked));
+  }
+}
@@ -4,6 +4,8 @@ import java.util.UUID;
 
 public class AuthResponse {
   private String token;
+  private String refreshToken;
+  private Long expiresIn;
   private UUID userId;
   private String email;
   private String firstname;
@@ -27,6 +29,10 @@ public class AuthResponse {
   }
 
   public String getToken() { return token; }
+  public String getRefreshToken() { return refreshToken; }
+  public void setRefreshToken(String refreshToken) { this.refreshToken = refreshToken; }
+  public Long getExpiresIn() { return expiresIn; }
+  public void setExpiresIn(Long expiresIn) { this.expiresIn = expiresIn; }
   public UUID getUserId() { return userId; }
   public String getEmail() { return email; }
   public String getFirstname() { return firstname; }
@@ -0,0 +1,53 @@
+package com.ekyc.authservice.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.UUID;
+
+/**
+ * Normalized principal of a token, whichever issued it. Only active is set for tokens that are
+ * invalid, expired or revoked.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class IntrospectionResponse {
+  private static final IntrospectionResponse INACTIVE = new IntrospectionResponse(false);
+
+  private final boolean active;
+  private UUID userId;
+  private UUID tenantId;
+  private String role;
+  private String email;
+  private String keycloakId;
+  /** auth-service or keycloak */
+  private String issuer;
+  private String jti;
+  /** Expiry in epoch seconds */
+  private Long exp;
+
+  private IntrospectionResponse(boolean active) { this.active = active; }
+
+  public static IntrospectionResponse inactive() { return INACTIVE; }
+
+  public static IntrospectionResponse active(String issuer, UUID userId, UUID tenantId, String role, String email) {
+    IntrospectionResponse response = new IntrospectionResponse(true);
+    response.issuer = issuer;
+    response.userId = userId;
+    response.tenantId = tenantId;
+    response.role = role;
+    response.email = email;
+    return response;
+  }
+
+  public boolean isActive() { return active; }
+  public UUID getUserId() { return userId; }
+  public UUID getTenantId() { return tenantId; }
+  public String getRole() { return role; }
+  public String getEmail() { return email; }
+  public String getKeycloakId() { return keycloakId; }
+  public void setKeycloakId(String keycloakId) { this.keycloakId = keycloakId; }
+  public String getIssuer() { return issuer; }
+  public String getJti() { return jti; }
+  public void setJti(String jti) { this.jti = jti; }
+  public Long getExp() { return exp; }
+  public void setExp(Long exp) { this.exp = exp; }
+}
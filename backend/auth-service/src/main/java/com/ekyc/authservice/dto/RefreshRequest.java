@@ -0,0 +1,11 @@
+package com.ekyc.authservice.dto;
+
+import jakarta.validation.constraints.NotBlank;
+
+public class RefreshRequest {
+  @NotBlank
+  private String refreshToken;
+
+  public String getRefreshToken() { return refreshToken; }
+  public void setRefreshToken(String refreshToken) { this.refreshToken = refreshToken; }
+}
@@ -0,0 +1,86 @@
+package com.ekyc.authservice.entity;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.GenericGenerator;
+
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+/**
+ * Refresh token, stored as the SHA-256 of the token handed to the client.
+ *
+ * Refresh tokens are single use: each refresh marks the presented token used (revokedAt) and
+ * issues a new one in the same family. Presenting a used token again means it was copied, so the
+ * whole family is revoked. The claims are those of the access token issued with it; a refresh
+ * mints from the user's current profile instead.
+ */
+@Entity
+@Table(name = "refresh_tokens", schema = "auth", indexes = @Index(name = "idx_refresh_tokens_family", columnList = "family_id"))
+public class RefreshToken {
+  @Id
+  @GeneratedValue(generator = "UUID")
+  @GenericGenerator(name = "UUID", strategy = "org.hibernate.id.UUIDGenerator")
+  private UUID id;
+
+  @Column(name = "token_hash", nullable = false, unique = true)
+  private String tokenHash;
+
+  @Column(name = "family_id", nullable = false)
+  private UUID familyId;
+
+  @Column(nullable = false)
+  private String subject;
+
+  @Column(name = "user_id")
+  private String userId;
+
+  private String email;
+
+  private String role;
+
+  @Column(name = "tenant_id")
+  private String tenantId;
+
+  /** jti and expiry of the access token issued with this refresh token, revoked with the family */
+  @Column(name = "access_token_id")
+  private String accessTokenId;
+
+  @Column(name = "access_expires_at")
+  private OffsetDateTime accessExpiresAt;
+
+  @Column(name = "created_at", nullable = false)
+  private OffsetDateTime createdAt = OffsetDateTime.now();
+
+  @Column(name = "expires_at", nullable = false)
+  private OffsetDateTime expiresAt;
+
+  @Column(name = "revoked_at")
+  private OffsetDateTime revokedAt;
+
+  public UUID getId() { return id; }
+  public void setId(UUID id) { this.id = id; }
+  public String getTokenHash() { return tokenHash; }
+  public void setTokenHash(String tokenHash) { this.tokenHash = tokenHash; }
+  public UUID getFamilyId() { return familyId; }
+  public void setFamilyId(UUID familyId) { this.familyId = familyId; }
+  public String getSubject() { return subject; }
+  public void setSubject(String subject) { this.subject = subject; }
+  public String getUserId() { return userId; }
+  public void setUserId(String userId) { this.userId = userId; }
+  public String getEmail() { return email; }
+  public void setEmail(String email) { this.email = email; }
+  public String getRole() { return role; }
+  public void setRole(String role) { this.role = role; }
+  public String getTenantId() { return tenantId; }
+  public void setTenantId(String tenantId) { this.tenantId = tenantId; }
+  public String getAccessTokenId() { return accessTokenId; }
+  public void setAccessTokenId(String accessTokenId) { this.accessTokenId = accessTokenId; }
+  public OffsetDateTime getAccessExpiresAt() { return accessExpiresAt; }
+  public void setAccessExpiresAt(OffsetDateTime accessExpiresAt) { this.accessExpiresAt = accessExpiresAt; }
+  public OffsetDateTime getCreatedAt() { return createdAt; }
+  public void setCreatedAt(OffsetDateTime createdAt) { this.createdAt = createdAt; }
+  public OffsetDateTime getExpiresAt() { return expiresAt; }
+  public void setExpiresAt(OffsetDateTime expiresAt) { this.expiresAt = expiresAt; }
+  public OffsetDateTime getRevokedAt() { return revokedAt; }
+  public void setRevokedAt(OffsetDateTime revokedAt) { this.revokedAt = revokedAt; }
+}
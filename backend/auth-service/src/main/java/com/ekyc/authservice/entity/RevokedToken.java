@@ -0,0 +1,37 @@
+package com.ekyc.authservice.entity;
+
+import jakarta.persistence.*;
+
+import java.time.OffsetDateTime;
+
+/**
+ * Revoked access token id. Kept until the token would have expired anyway; every instance (and
+ * the gateway) loads new rows into its in-memory revocation filter.
+ */
+@Entity
+@Table(name = "revoked_tokens", schema = "auth", indexes = @Index(name = "idx_revoked_tokens_revoked_at", columnList = "revoked_at"))
+public class RevokedToken {
+  @Id
+  private String jti;
+
+  @Column(name = "expires_at", nullable = false)
+  private OffsetDateTime expiresAt;
+
+  @Column(name = "revoked_at", nullable = false)
+  private OffsetDateTime revokedAt = OffsetDateTime.now();
+
+  public RevokedToken() {
+  }
+
+  public RevokedToken(String jti, OffsetDateTime expiresAt) {
+    this.jti = jti;
+    this.expiresAt = expiresAt;
+  }
+
+  public String getJti() { return jti; }
+  public void setJti(String jti) { this.jti = jti; }
+  public OffsetDateTime getExpiresAt() { return expiresAt; }
+  public void setExpiresAt(OffsetDateTime expiresAt) { this.expiresAt = expiresAt; }
+  public OffsetDateTime getRevokedAt() { return revokedAt; }
+  public void setRevokedAt(OffsetDateTime revokedAt) { this.revokedAt = revokedAt; }
+}
@@ -0,0 +1,66 @@
+package com.ekyc.authservice.entity;
+
+import jakarta.persistence.*;
+import org.springframework.data.domain.Persistable;
+
+import java.time.OffsetDateTime;
+
+/**
+ * Token signing key pair. The private key is stored AES-GCM encrypted.
+ *
+ * Lifecycle: published in the JWKS from creation, used for signing from activatesAt until the
+ * next key activates, and removed once expiresAt passes (tokens it signed have all expired).
+ */
+@Entity
+@Table(name = "signing_keys", schema = "auth")
+public class SigningKey implements Persistable<String> {
+  @Id
+  private String kid;
+
+  @Column(nullable = false)
+  private String algorithm;
+
+  @Column(name = "public_key", nullable = false)
+  private byte[] publicKey;
+
+  @Column(name = "private_key", nullable = false)
+  private byte[] privateKey;
+
+  @Column(name = "created_at", nullable = false)
+  private OffsetDateTime createdAt = OffsetDateTime.now();
+
+  @Column(name = "activates_at", nullable = false)
+  private OffsetDateTime activatesAt;
+
+  @Column(name = "expires_at")
+  private OffsetDateTime expiresAt;
+
+  // Always insert: instances racing to create the same kid must conflict, not overwrite
+  @Transient
+  private boolean isNew = true;
+
+  @PostLoad
+  @PostPersist
+  void markNotNew() { this.isNew = false; }
+
+  @Override
+  public String getId() { return kid; }
+
+  @Override
+  public boolean isNew() { return isNew; }
+
+  public String getKid() { return kid; }
+  public void setKid(String kid) { this.kid = kid; }
+  public String getAlgorithm() { return algorithm; }
+  public void setAlgorithm(String algorithm) { this.algorithm = algorithm; }
+  public byte[] getPublicKey() { return publicKey; }
+  public void setPublicKey(byte[] publicKey) { this.publicKey = publicKey; }
+  public byte[] getPrivateKey() { return privateKey; }
+  public void setPrivateKey(byte[] privateKey) { this.privateKey = privateKey; }
+  public OffsetDateTime getCreatedAt() { return createdAt; }
+  public void setCreatedAt(OffsetDateTime createdAt) { this.createdAt = createdAt; }
+  public OffsetDateTime getActivatesAt() { return activatesAt; }
+  public void setActivatesAt(OffsetDateTime activatesAt) { this.activatesAt = activatesAt; }
+  public OffsetDateTime getExpiresAt() { return expiresAt; }
+  public void setExpiresAt(OffsetDateTime expiresAt) { this.expiresAt = expiresAt; }
+}
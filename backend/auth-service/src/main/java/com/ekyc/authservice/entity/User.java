@@ -9,7 +9,7 @@ import java.time.OffsetDateTime;
 import java.util.UUID;
 
 @Entity
-@Table(name = "users", schema = "auth")
+@Table(name = "users", schema = "auth", indexes = @Index(name = "idx_users_keycloak_id", columnList = "keycloak_id"))
 public class User {
   @Id
   @GeneratedValue(generator = "UUID")
@@ -43,6 +43,9 @@ public class User {
 
   private String status = "active";
 
+  @Column(name = "keycloak_id")
+  private String keycloakId;
+
   @Column(name = "last_login")
   private OffsetDateTime lastLogin;
 
@@ -76,6 +79,8 @@ public class User {
   public void setTenantId(UUID tenantId) { this.tenantId = tenantId; }
   public String getStatus() { return status; }
   public void setStatus(String status) { this.status = status; }
+  public String getKeycloakId() { return keycloakId; }
+  public void setKeycloakId(String keycloakId) { this.keycloakId = keycloakId; }
   public OffsetDateTime getLastLogin() { return lastLogin; }
   public void setLastLogin(OffsetDateTime lastLogin) { this.lastLogin = lastLogin; }
   public OffsetDateTime getCreatedAt() { return createdAt; }
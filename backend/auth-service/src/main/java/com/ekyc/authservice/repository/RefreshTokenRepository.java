@@ -0,0 +1,34 @@
+package com.ekyc.authservice.repository;
+
+import com.ekyc.authservice.entity.RefreshToken;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+public interface RefreshTokenRepository extends JpaRepository<RefreshToken, UUID> {
+  Optional<RefreshToken> findByTokenHash(String tokenHash);
+
+  List<RefreshToken> findByFamilyId(UUID familyId);
+
+  /**
+   * Mark a token used; returns 0 if it already was, so of two concurrent refreshes only one wins.
+   */
+  @Modifying
+  @Query("update RefreshToken t set t.revokedAt = :now where t.id = :id and t.revokedAt is null")
+  int markUsed(UUID id, OffsetDateTime now);
+
+  @Modifying
+  @Query("update RefreshToken t set t.revokedAt = :now where t.familyId = :familyId and t.revokedAt is null")
+  int revokeFamily(UUID familyId, OffsetDateTime now);
+
+  @Modifying
+  @Transactional
+  @Query("delete from RefreshToken t where t.expiresAt < :now")
+  int deleteExpired(OffsetDateTime now);
+}
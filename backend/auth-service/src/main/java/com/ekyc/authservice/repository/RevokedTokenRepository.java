@@ -0,0 +1,19 @@
+package com.ekyc.authservice.repository;
+
+import com.ekyc.authservice.entity.RevokedToken;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+
+public interface RevokedTokenRepository extends JpaRepository<RevokedToken, String> {
+  List<RevokedToken> findByRevokedAtAfterAndExpiresAtAfter(OffsetDateTime revokedAfter, OffsetDateTime expiresAfter);
+
+  @Modifying
+  @Transactional
+  @Query("delete from RevokedToken t where t.expiresAt < :now")
+  int deleteExpired(OffsetDateTime now);
+}
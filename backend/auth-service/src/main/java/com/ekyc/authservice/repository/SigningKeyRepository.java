@@ -0,0 +1,16 @@
+package com.ekyc.authservice.repository;
+
+import com.ekyc.authservice.entity.SigningKey;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.OffsetDateTime;
+
+public interface SigningKeyRepository extends JpaRepository<SigningKey, String> {
+  @Modifying
+  @Transactional
+  @Query("delete from SigningKey k where k.expiresAt is not null and k.expiresAt < :now")
+  int deleteExpired(OffsetDateTime now);
+}
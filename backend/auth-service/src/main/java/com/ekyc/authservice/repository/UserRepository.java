@@ -9,4 +9,17 @@ import java.util.UUID;
 public interface UserRepository extends JpaRepository<User, UUID> {
   Optional<User> findByEmail(String email);
   Optional<User> findByEmailAndStatus(String email, String status);
+
+  /**
+   * The columns introspection needs, in one indexed lookup.
+   */
+  Optional<PrincipalView> findPrincipalByKeycloakId(String keycloakId);
+
+  interface PrincipalView {
+    UUID getId();
+    UUID getTenantId();
+    String getRole();
+    String getEmail();
+    String getStatus();
+  }
 }
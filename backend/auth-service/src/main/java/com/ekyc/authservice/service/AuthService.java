@@ -2,11 +2,14 @@ package com.ekyc.authservice.service;
 
 import com.ekyc.authservice.dto.AuthResponse;
 import com.ekyc.authservice.dto.LoginRequest;
+import com.ekyc.authservice.dto.RefreshRequest;
 import com.ekyc.authservice.dto.SignupRequest;
+import com.ekyc.authservice.entity.RefreshToken;
 import com.ekyc.authservice.entity.User;
 import com.ekyc.authservice.repository.UserRepository;
 import com.ekyc.authservice.util.JwtUtil;
 import com.ekyc.common.dto.UserSyncRequest;
+import com.ekyc.common.exception.InvalidCredentialsException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.slf4j.Logger;
@@ -22,54 +25,75 @@ public class AuthService {
   private final JwtUtil jwtUtil;
   private final UserServiceClient userServiceClient;
   private final KeycloakAuthService keycloakAuthService;
+  private final RefreshTokenService refreshTokens;
+  private final TokenRevocationService revocations;
+  private final LoginThrottle loginThrottle;
+  private final ProfileCache profileCache;
+  private final IntrospectionService introspection;
   private static final Logger logger = LoggerFactory.getLogger(AuthService.class);
 
-  public AuthService(UserRepository repo, PasswordEncoder enc, JwtUtil jwt, UserServiceClient userServiceClient, KeycloakAuthService keycloakAuthService) {
+  public AuthService(UserRepository repo, PasswordEncoder enc, JwtUtil jwt, UserServiceClient userServiceClient, KeycloakAuthService keycloakAuthService,
+                     RefreshTokenService refreshTokens, TokenRevocationService revocations, LoginThrottle loginThrottle,
+                     ProfileCache profileCache, IntrospectionService introspection) {
     this.repo = repo;
     this.passwordEncoder = enc;
     this.jwtUtil = jwt;
     this.userServiceClient = userServiceClient;
     this.keycloakAuthService = keycloakAuthService;
+    this.refreshTokens = refreshTokens;
+    this.revocations = revocations;
+    this.loginThrottle = loginThrottle;
+    this.profileCache = profileCache;
+    this.introspection = introspection;
   }
 
-  public AuthResponse login(LoginRequest req) {
+  /**
+   * @param clientIp address the attempt came from, for brute-force throttling (may be null)
+   * @throws LoginThrottledException if the email or client IP has failed too often; checked
+   *         before either credential store is asked
+   * @throws InvalidCredentialsException if neither user-service nor Keycloak accepts the password
+   */
+  public AuthResponse login(LoginRequest req, String clientIp) {
+    loginThrottle.check(req.getEmail(), clientIp);
     try {
       logger.info("Login attempt for email: {}", req.getEmail());
       
-      // First try user service authentication
+      // First try user service authentication (credentials and profile in one call)
       try {
-        if (userServiceClient.validateUserCredentials(req.getEmail(), req.getPassword())) {
-          // Get user details from user service
-          UserSyncRequest userSyncRequest = userServiceClient.findUserByEmail(req.getEmail());
-          if (userSyncRequest != null) {
-            String token = jwtUtil.generateToken(userSyncRequest);
-            logger.info("Login successful via user service for user: {}", req.getEmail());
-            
-            AuthResponse response = new AuthResponse(
-              token, 
-              userSyncRequest.getUserId(), 
-              userSyncRequest.getEmail(), 
-              userSyncRequest.getFirstName(), 
-              userSyncRequest.getLastName(), 
-              userSyncRequest.getRole(), 
-              userSyncRequest.getTenantId()
-            );
-            
-            // Set additional user profile information
-            response.setKeycloakId(userSyncRequest.getKeycloakId());
-            response.setStatus(userSyncRequest.getStatus());
-            response.setDateOfBirth(userSyncRequest.getDateOfBirth());
-            response.setCountry(userSyncRequest.getCountry());
-            response.setPhone(userSyncRequest.getPhone());
-            
-            logger.info("AuthResponse created via user service: token={}, userId={}, email={}, role={}", 
-              token != null ? "present" : "null", 
-              userSyncRequest.getUserId(), 
-              userSyncRequest.getEmail(), 
-              userSyncRequest.getRole());
-            
-            return response;
-          }
+        UserSyncRequest userSyncRequest = userServiceClient.authenticate(req.getEmail(), req.getPassword());
+        if (userSyncRequest != null) {
+          RefreshTokenService.Tokens tokens = refreshTokens.issue(userSyncRequest);
+          String token = tokens.accessToken();
+          logger.info("Login successful via user service for user: {}", req.getEmail());
+          
+          AuthResponse response = new AuthResponse(
+            token, 
+            userSyncRequest.getUserId(), 
+            userSyncRequest.getEmail(), 
+            userSyncRequest.getFirstName(), 
+            userSyncRequest.getLastName(), 
+            userSyncRequest.getRole(), 
+            userSyncRequest.getTenantId()
+          );
+          
+          // Set additional user profile information
+          response.setKeycloakId(userSyncRequest.getKeycloakId());
+          response.setStatus(userSyncRequest.getStatus());
+          response.setDateOfBirth(userSyncRequest.getDateOfBirth());
+          response.setCountry(userSyncRequest.getCountry());
+          response.setPhone(userSyncRequest.getPhone());
+          response.setRefreshToken(tokens.refreshToken());
+          response.setExpiresIn(tokens.expiresIn());
+          loginThrottle.recordSuccess(req.getEmail());
+          profileCache.put(userSyncRequest);
+          
+          logger.info("AuthResponse created via user service: token={}, userId={}, email={}, role={}", 
+            token != null ? "present" : "null", 
+            userSyncRequest.getUserId(), 
+            userSyncRequest.getEmail(), 
+            userSyncRequest.getRole());
+          
+          return response;
         }
       } catch (Exception e) {
         logger.warn("User service authentication failed, trying Keycloak: {}", e.getMessage());
@@ -79,26 +103,30 @@ public class AuthService {
       logger.info("Trying Keycloak authentication for user: {}", req.getEmail());
       AuthResponse keycloakResponse = keycloakAuthService.authenticateWithKeycloak(req.getEmail(), req.getPassword());
       logger.info("Login successful via Keycloak for user: {}", req.getEmail());
+      loginThrottle.recordSuccess(req.getEmail());
       return keycloakResponse;
       
+    } catch (InvalidCredentialsException e) {
+      loginThrottle.recordFailure(req.getEmail(), clientIp);
+      logger.info("Invalid credentials for email: {}", req.getEmail());
+      throw e;
     } catch (Exception e) {
       logger.error("Login error for email {}: {}", req.getEmail(), e.getMessage(), e);
       throw new RuntimeException("Login failed: " + e.getMessage());
     }
   }
   
+  /**
+   * Profile of the user, from the profile cache or user-service. The response carries no token.
+   */
   public AuthResponse getUserProfile(String email) {
     try {
-      logger.info("Getting user profile for email: {}", email);
+      logger.debug("Getting user profile for email: {}", email);
       
-      // Get user details from user service
-      UserSyncRequest userSyncRequest = userServiceClient.findUserByEmail(email);
+      UserSyncRequest userSyncRequest = profileCache.get(email, userServiceClient::findUserByEmail);
       if (userSyncRequest != null) {
-        String token = jwtUtil.generateToken(userSyncRequest);
-        logger.info("Profile retrieved successfully for user: {}", email);
-        
         AuthResponse response = new AuthResponse(
-          token, 
+          null, 
           userSyncRequest.getUserId(), 
           userSyncRequest.getEmail(), 
           userSyncRequest.getFirstName(), 
@@ -126,6 +154,14 @@ public class AuthService {
     }
   }
 
+  /**
+   * Drop the cached profile and introspection results; user-service calls this when it changes the user.
+   */
+  public void invalidateProfile(String email) {
+    profileCache.invalidate(email);
+    introspection.invalidateUser(email);
+  }
+
   public AuthResponse signup(SignupRequest req) {
     // Note: User existence check is handled by user-service
 
@@ -163,10 +199,12 @@ public class AuthService {
         // Note: We don't create a local copy in auth-service anymore since user-service handles database storage
         // The user-service is the authoritative source for user data
         
-        String token = jwtUtil.generateToken(createdUser);
-        AuthResponse response = new AuthResponse(token, createdUser.getUserId(), createdUser.getEmail(), 
+        RefreshTokenService.Tokens tokens = refreshTokens.issue(createdUser);
+        AuthResponse response = new AuthResponse(tokens.accessToken(), createdUser.getUserId(), createdUser.getEmail(), 
                               createdUser.getFirstName(), createdUser.getLastName(), 
                               createdUser.getRole(), createdUser.getTenantId());
+        response.setRefreshToken(tokens.refreshToken());
+        response.setExpiresIn(tokens.expiresIn());
         
         // Set additional user profile information
         response.setKeycloakId(createdUser.getKeycloakId());
@@ -185,4 +223,30 @@ public class AuthService {
       throw new RuntimeException("Failed to create user: " + e.getMessage());
     }
   }
+
+  /**
+   * Exchange a refresh token for a new access/refresh pair.
+   */
+  public AuthResponse refresh(RefreshRequest req) {
+    RefreshTokenService.Tokens tokens = refreshTokens.refresh(req.getRefreshToken());
+    RefreshToken claims = tokens.claims();
+    AuthResponse response = new AuthResponse(tokens.accessToken(),
+      claims.getUserId() != null ? UUID.fromString(claims.getUserId()) : null,
+      claims.getEmail(), null, null, claims.getRole(),
+      claims.getTenantId() != null ? UUID.fromString(claims.getTenantId()) : null);
+    response.setRefreshToken(tokens.refreshToken());
+    response.setExpiresIn(tokens.expiresIn());
+    return response;
+  }
+
+  /**
+   * End the session of the refresh token and revoke the presented access token, if any.
+   */
+  public void logout(String refreshToken, String accessToken) {
+    refreshTokens.revoke(refreshToken);
+    if (accessToken != null) {
+      jwtUtil.verify(accessToken).ifPresent(claims -> revocations.revoke(claims.getId(),
+        claims.getExpiration() != null ? claims.getExpiration().toInstant() : null));
+    }
+  }
 }
@@ -0,0 +1,180 @@
+package com.ekyc.authservice.service;
+
+import com.ekyc.authservice.dto.IntrospectionResponse;
+import com.ekyc.authservice.repository.UserRepository;
+import com.ekyc.authservice.util.JwtUtil;
+import com.ekyc.common.dto.UserSyncRequest;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Resolves a bearer token, ours or Keycloak's, to our user id, tenant and role.
+ *
+ * Our tokens carry the principal in their claims. For Keycloak tokens the user is looked up once
+ * by keycloak_id (the sub claim); users without a local row fall back to the token's attribute
+ * claims. Active results are cached under a SHA-256 of the token until the token expires, so a
+ * repeated introspection is a hash and a map read; revocation of our tokens is still checked on
+ * every hit. Invalid tokens are not cached. Keycloak results depend on the user's row, not just
+ * the token, so they are kept for at most introspection.cache.keycloak-ttl and dropped when
+ * user-service reports a change to the user (invalidateUser).
+ */
+@Service
+public class IntrospectionService {
+  private static final Logger logger = LoggerFactory.getLogger(IntrospectionService.class);
+
+  static final String ISSUER_AUTH_SERVICE = "auth-service";
+  static final String ISSUER_KEYCLOAK = "keycloak";
+
+  private final JwtUtil jwtUtil;
+  private final KeycloakTokenVerifier keycloakTokenVerifier;
+  private final UserRepository users;
+  private final TokenRevocationService revocations;
+  private final Cache<String, IntrospectionResponse> results;
+
+  public IntrospectionService(JwtUtil jwtUtil, KeycloakTokenVerifier keycloakTokenVerifier, UserRepository users,
+                              TokenRevocationService revocations,
+                              @Value("${introspection.cache.max-size:50000}") long maxSize,
+                              @Value("${introspection.cache.keycloak-ttl:30s}") Duration keycloakTtl,
+                              MeterRegistry meterRegistry) {
+    this.jwtUtil = jwtUtil;
+    this.keycloakTokenVerifier = keycloakTokenVerifier;
+    this.users = users;
+    this.revocations = revocations;
+    this.results = Caffeine.newBuilder()
+      .maximumSize(maxSize)
+      .expireAfter(new UntilTokenExpiry(keycloakTtl.toNanos()))
+      .recordStats()
+      .build();
+    CaffeineCacheMetrics.monitor(meterRegistry, results, "auth.introspection");
+  }
+
+  public IntrospectionResponse introspect(String token) {
+    if (token == null || token.isBlank()) {
+      return IntrospectionResponse.inactive();
+    }
+    String key = key(token);
+    IntrospectionResponse cached = results.getIfPresent(key);
+    if (cached != null) {
+      if (cached.getExp() * 1000 <= System.currentTimeMillis() || isRevoked(cached)) {
+        results.invalidate(key);
+        return IntrospectionResponse.inactive();
+      }
+      return cached;
+    }
+    IntrospectionResponse resolved = resolve(token);
+    if (resolved.isActive() && resolved.getExp() != null) {
+      results.put(key, resolved);
+    }
+    return resolved;
+  }
+
+  /**
+   * Drop the cached Keycloak results of a user whose row changed (deactivated, role or tenant
+   * changed). Our own tokens carry their claims and are left alone.
+   */
+  public void invalidateUser(String email) {
+    if (email != null) {
+      results.asMap().values().removeIf(response ->
+        ISSUER_KEYCLOAK.equals(response.getIssuer()) && email.equalsIgnoreCase(response.getEmail()));
+    }
+  }
+
+  private IntrospectionResponse resolve(String token) {
+    Claims ours = jwtUtil.verify(token).orElse(null);
+    if (ours != null) {
+      IntrospectionResponse response = IntrospectionResponse.active(ISSUER_AUTH_SERVICE,
+        parseUuid(ours.get("userId", String.class)), parseUuid(ours.get("tenantId", String.class)),
+        ours.get("role", String.class), ours.get("email", String.class));
+      response.setJti(ours.getId());
+      response.setExp(expiry(ours));
+      return response;
+    }
+
+    Claims keycloak;
+    try {
+      keycloak = keycloakTokenVerifier.verify(token);
+    } catch (JwtException | IllegalArgumentException e) {
+      logger.debug("Introspected token is not valid: {}", e.getMessage());
+      return IntrospectionResponse.inactive();
+    }
+    IntrospectionResponse response = users.findPrincipalByKeycloakId(keycloak.getSubject())
+      .map(user -> "active".equalsIgnoreCase(user.getStatus())
+        ? IntrospectionResponse.active(ISSUER_KEYCLOAK, user.getId(), user.getTenantId(), user.getRole(), user.getEmail())
+        : IntrospectionResponse.inactive())
+      .orElseGet(() -> {
+        UserSyncRequest claims = KeycloakAuthService.toUserInfo(keycloak);
+        return IntrospectionResponse.active(ISSUER_KEYCLOAK, claims.getUserId(), claims.getTenantId(),
+          claims.getRole(), claims.getEmail());
+      });
+    if (response.isActive()) {
+      response.setKeycloakId(keycloak.getSubject());
+      response.setJti(keycloak.getId());
+      response.setExp(expiry(keycloak));
+    }
+    return response;
+  }
+
+  private boolean isRevoked(IntrospectionResponse response) {
+    return ISSUER_AUTH_SERVICE.equals(response.getIssuer())
+      && revocations.isRevoked(response.getJti(), Instant.ofEpochSecond(response.getExp()));
+  }
+
+  private static Long expiry(Claims claims) {
+    return claims.getExpiration() != null ? claims.getExpiration().toInstant().getEpochSecond() : null;
+  }
+
+  private static UUID parseUuid(String value) {
+    try {
+      return value != null ? UUID.fromString(value) : null;
+    } catch (IllegalArgumentException e) {
+      return null;
+    }
+  }
+
+  private static String key(String token) {
+    try {
+      byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+      return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 not available", e);
+    }
+  }
+
+  /**
+   * Keep each result until its token expires, and Keycloak results for at most keycloakTtlNanos.
+   */
+  private record UntilTokenExpiry(long keycloakTtlNanos) implements Expiry<String, IntrospectionResponse> {
+    @Override
+    public long expireAfterCreate(String key, IntrospectionResponse value, long currentTime) {
+      long nanos = Math.max(0, value.getExp() * 1000 - System.currentTimeMillis()) * 1_000_000;
+      return ISSUER_KEYCLOAK.equals(value.getIssuer()) ? Math.min(nanos, keycloakTtlNanos) : nanos;
+    }
+
+    @Override
+    public long expireAfterUpdate(String key, IntrospectionResponse value, long currentTime, long currentDuration) {
+      return expireAfterCreate(key, value, currentTime);
+    }
+
+    @Override
+    public long expireAfterRead(String key, IntrospectionResponse value, long currentTime, long currentDuration) {
+      return currentDuration;
+    }
+  }
+}
@@ -2,15 +2,19 @@ package com.ekyc.authservice.service;
 
 import com.ekyc.authservice.dto.AuthResponse;
 import com.ekyc.common.dto.UserSyncRequest;
+import com.ekyc.common.exception.InvalidCredentialsException;
+import io.jsonwebtoken.Claims;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Collection;
 import java.util.Map;
 import java.util.UUID;
 
@@ -19,7 +23,10 @@ public class KeycloakAuthService {
     
     private static final Logger logger = LoggerFactory.getLogger(KeycloakAuthService.class);
     
+    private static final String DEFAULT_ROLE = "PLATFORM_USER";
+    
     private final RestTemplate restTemplate;
+    private final KeycloakTokenVerifier keycloakTokenVerifier;
     
     @Value("${keycloak.auth-server-url:http://localhost:8080}")
     private String keycloakUrl;
@@ -33,8 +40,9 @@ public class KeycloakAuthService {
     @Value("${keycloak.credentials.secret:emT3O4n4T5sfjuxM1cScYM8RS6bZZoE7}")
     private String clientSecret;
     
-    public KeycloakAuthService(RestTemplate restTemplate) {
+    public KeycloakAuthService(RestTemplate restTemplate, KeycloakTokenVerifier keycloakTokenVerifier) {
         this.restTemplate = restTemplate;
+        this.keycloakTokenVerifier = keycloakTokenVerifier;
     }
     
     public AuthResponse authenticateWithKeycloak(String email, String password) {
@@ -64,8 +72,8 @@ public class KeycloakAuthService {
                 if (accessToken != null) {
                     logger.info("Keycloak authentication successful for user: {}", email);
                     
-                    // Get user info from Keycloak
-                    UserSyncRequest userInfo = getUserInfoFromKeycloak(accessToken);
+                    // The profile is in the token itself: verify it locally instead of calling userinfo
+                    UserSyncRequest userInfo = toUserInfo(keycloakTokenVerifier.verify(accessToken));
                     
                     // Create AuthResponse with Keycloak token
                     AuthResponse authResponse = new AuthResponse(
@@ -92,44 +100,56 @@ public class KeycloakAuthService {
             logger.error("Keycloak authentication failed for user: {}", email);
             throw new RuntimeException("Invalid credentials");
             
+        } catch (HttpClientErrorException.Unauthorized | HttpClientErrorException.BadRequest e) {
+            // invalid_grant: wrong password, unknown or disabled user
+            logger.info("Keycloak rejected credentials for user: {}", email);
+            throw new InvalidCredentialsException();
         } catch (Exception e) {
             logger.error("Error authenticating with Keycloak for user {}: {}", email, e.getMessage(), e);
             throw new RuntimeException("Authentication failed: " + e.getMessage());
         }
     }
     
-    private UserSyncRequest getUserInfoFromKeycloak(String accessToken) {
-        try {
-            String userInfoUrl = keycloakUrl + "/realms/" + realm + "/protocol/openid-connect/userinfo";
-            
-            HttpHeaders headers = new HttpHeaders();
-            headers.setBearerAuth(accessToken);
-            
-            HttpEntity<Void> request = new HttpEntity<>(headers);
-            
-            ResponseEntity<Map> response = restTemplate.exchange(userInfoUrl, HttpMethod.GET, request, Map.class);
-            
-            if (response.getStatusCode() == HttpStatus.OK && response.getBody() != null) {
-                Map userInfo = response.getBody();
-                
-                UserSyncRequest userSyncRequest = new UserSyncRequest();
-                userSyncRequest.setEmail((String) userInfo.get("email"));
-                userSyncRequest.setFirstName((String) userInfo.get("given_name"));
-                userSyncRequest.setLastName((String) userInfo.get("family_name"));
-                userSyncRequest.setKeycloakId((String) userInfo.get("sub"));
-                
-                // Set default values for missing fields
-                userSyncRequest.setRole("PLATFORM_USER");
-                userSyncRequest.setStatus("active");
-                
-                return userSyncRequest;
+    /**
+     * Map the claims of a verified Keycloak access token. tenantId and app_user_id are user
+     * attributes, present when the realm has mappers for them.
+     */
+    static UserSyncRequest toUserInfo(Claims claims) {
+        UserSyncRequest userSyncRequest = new UserSyncRequest();
+        userSyncRequest.setEmail(claims.get("email", String.class));
+        userSyncRequest.setFirstName(claims.get("given_name", String.class));
+        userSyncRequest.setLastName(claims.get("family_name", String.class));
+        userSyncRequest.setKeycloakId(claims.getSubject());
+        userSyncRequest.setUserId(parseUuid(claims.get("app_user_id")));
+        userSyncRequest.setTenantId(parseUuid(claims.get("tenantId")));
+        userSyncRequest.setRole(realmRole(claims));
+        userSyncRequest.setStatus("active");
+        return userSyncRequest;
+    }
+    
+    /**
+     * First realm role that isn't one of Keycloak's built-in ones.
+     */
+    private static String realmRole(Claims claims) {
+        if (claims.get("realm_access") instanceof Map<?, ?> realmAccess && realmAccess.get("roles") instanceof Collection<?> roles) {
+            for (Object role : roles) {
+                String name = String.valueOf(role);
+                if (!name.equals("offline_access") && !name.equals("uma_authorization") && !name.startsWith("default-roles-")) {
+                    return name;
+                }
             }
-            
-            throw new RuntimeException("Failed to get user info from Keycloak");
-            
-        } catch (Exception e) {
-            logger.error("Error getting user info from Keycloak: {}", e.getMessage(), e);
-            throw new RuntimeException("Failed to get user info: " + e.getMessage());
+        }
+        return DEFAULT_ROLE;
+    }
+    
+    private static UUID parseUuid(Object value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return UUID.fromString(String.valueOf(value));
+        } catch (IllegalArgumentException e) {
+            return null;
         }
     }
-} 
\ No newline at end of file
+}
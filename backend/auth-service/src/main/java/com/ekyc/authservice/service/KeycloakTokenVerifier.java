@@ -0,0 +1,147 @@
+package com.ekyc.authservice.service;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.LocatorAdapter;
+import io.jsonwebtoken.UnsupportedJwtException;
+import io.jsonwebtoken.security.Jwk;
+import io.jsonwebtoken.security.Jwks;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestTemplate;
+
+import java.security.Key;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * Verifies Keycloak access tokens locally against the realm's JWKS.
+ *
+ * The realm keys are fetched once and cached; they are re-fetched when older than
+ * keycloak.jwks.refresh-interval, and when a token names a kid we don't know (Keycloak rotated
+ * its keys), at most once per keycloak.jwks.min-refresh-interval. If Keycloak can't be reached
+ * the cached keys are kept; before the first successful fetch, tokens are rejected until the
+ * next attempt is due rather than each one waiting on Keycloak.
+ */
+@Service
+public class KeycloakTokenVerifier {
+
+    private static final Logger logger = LoggerFactory.getLogger(KeycloakTokenVerifier.class);
+
+    private final RestTemplate restTemplate;
+    private final String certsUrl;
+    private final String issuerSuffix;
+    private final long refreshIntervalNanos;
+    private final long minRefreshIntervalNanos;
+    private final JwtParser parser;
+    private final LongSupplier nanoTime;
+    private final Object refreshLock = new Object();
+
+    private volatile Map<String, Key> keys = Map.of();
+    private volatile long fetchedAtNanos;
+    private volatile long lastAttemptNanos;
+
+    public KeycloakTokenVerifier(RestTemplate restTemplate,
+                                 @Value("${keycloak.auth-server-url:http://localhost:8080}") String keycloakUrl,
+                                 @Value("${keycloak.realm:ekyc}") String realm,
+                                 @Value("${keycloak.jwks.refresh-interval:1h}") Duration refreshInterval,
+                                 @Value("${keycloak.jwks.min-refresh-interval:30s}") Duration minRefreshInterval) {
+        this(restTemplate, keycloakUrl, realm, refreshInterval, minRefreshInterval, System::nanoTime);
+    }
+
+    KeycloakTokenVerifier(RestTemplate restTemplate, String keycloakUrl, String realm, Duration refreshInterval,
+                          Duration minRefreshInterval, LongSupplier nanoTime) {
+        this.restTemplate = restTemplate;
+        this.certsUrl = keycloakUrl + "/realms/" + realm + "/protocol/openid-connect/certs";
+        // Keycloak issues tokens for its frontend URL, which may differ from the URL we reach it on
+        this.issuerSuffix = "/realms/" + realm;
+        this.refreshIntervalNanos = refreshInterval.toNanos();
+        this.minRefreshIntervalNanos = minRefreshInterval.toNanos();
+        this.parser = Jwts.parser().keyLocator(new RealmKeyLocator()).build();
+        this.nanoTime = nanoTime;
+        // The first fetch is due at once
+        this.lastAttemptNanos = nanoTime.getAsLong() - minRefreshIntervalNanos;
+    }
+
+    /**
+     * Verify signature, expiry and realm, and return the claims.
+     *
+     * @throws io.jsonwebtoken.JwtException if the token is invalid
+     */
+    public Claims verify(String token) {
+        Claims claims = parser.parseSignedClaims(token).getPayload();
+        if (claims.getIssuer() == null || !claims.getIssuer().endsWith(issuerSuffix)) {
+            throw new UnsupportedJwtException("Token was not issued by realm " + issuerSuffix);
+        }
+        return claims;
+    }
+
+    private Key keyFor(String kid) {
+        Map<String, Key> current = keys;
+        long now = nanoTime.getAsLong();
+        if (current.isEmpty() || (now - fetchedAtNanos >= refreshIntervalNanos) || (kid != null && !current.containsKey(kid))) {
+            current = refresh();
+        }
+        Key key = kid != null ? current.get(kid) : (current.size() == 1 ? current.values().iterator().next() : null);
+        if (key == null) {
+            throw new UnsupportedJwtException("Unknown Keycloak signing key: " + kid);
+        }
+        return key;
+    }
+
+    private Map<String, Key> refresh() {
+        synchronized (refreshLock) {
+            long now = nanoTime.getAsLong();
+            if (now - lastAttemptNanos < minRefreshIntervalNanos) {
+                return keys;
+            }
+            lastAttemptNanos = now;
+            try {
+                Map<?, ?> document = restTemplate.getForObject(certsUrl, Map.class);
+                Map<String, Key> fetched = new HashMap<>();
+                if (document != null && document.get("keys") instanceof List<?> entries) {
+                    for (Object entry : entries) {
+                        if (entry instanceof Map<?, ?> jwk && !"enc".equals(jwk.get("use"))) {
+                            add(fetched, jwk);
+                        }
+                    }
+                }
+                if (!fetched.isEmpty()) {
+                    if (!fetched.keySet().equals(keys.keySet())) {
+                        logger.info("Loaded Keycloak realm signing keys {}", fetched.keySet());
+                    }
+                    keys = Map.copyOf(fetched);
+                    fetchedAtNanos = now;
+                }
+            } catch (Exception e) {
+                logger.warn("Could not fetch Keycloak JWKS from {}: {}", certsUrl, e.toString());
+            }
+            return keys;
+        }
+    }
+
+    private static void add(Map<String, Key> keys, Map<?, ?> json) {
+        try {
+            Map<String, Object> values = new HashMap<>();
+            json.forEach((name, value) -> values.put(String.valueOf(name), value));
+            Jwk<?> jwk = Jwks.builder().add(values).build();
+            keys.put(jwk.getId(), jwk.toKey());
+        } catch (RuntimeException e) {
+            logger.debug("Skipping unsupported Keycloak JWK {}: {}", json.get("kid"), e.getMessage());
+        }
+    }
+
+    private final class RealmKeyLocator extends LocatorAdapter<Key> {
+        @Override
+        protected Key locate(JwsHeader header) {
+            return keyFor(header.getKeyId());
+        }
+    }
+}
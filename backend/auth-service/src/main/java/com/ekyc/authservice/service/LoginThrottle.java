@@ -0,0 +1,171 @@
+package com.ekyc.authservice.service;
+
+import com.ekyc.authservice.config.LoginThrottleProperties;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Counts failed logins per email and per client IP and refuses further attempts once a key has
+ * failed too often, before any password is hashed or any remote service is called.
+ *
+ * Each key keeps a ring of per-bucket failure counts covering login.throttle.window, so old
+ * failures age out bucket by bucket. Reaching the threshold locks the key for backoff-base,
+ * doubled for every lockout since the key was last clean, up to backoff-max. Keys live in
+ * size-bounded Caffeine caches, so a flood of distinct emails or addresses cannot grow memory
+ * past max-keys per dimension.
+ */
+@Service
+public class LoginThrottle {
+  private static final Logger logger = LoggerFactory.getLogger(LoginThrottle.class);
+
+  private final LoginThrottleProperties properties;
+  private final long bucketMillis;
+  private final int buckets;
+  private final Cache<String, FailureWindow> byEmail;
+  private final Cache<String, FailureWindow> byIp;
+  private final Counter emailRejections;
+  private final Counter ipRejections;
+
+  public LoginThrottle(LoginThrottleProperties properties, MeterRegistry meterRegistry) {
+    this.properties = properties;
+    this.buckets = Math.max(1, properties.getBuckets());
+    this.bucketMillis = Math.max(1, properties.getWindow().toMillis() / buckets);
+    Duration idle = properties.getWindow().compareTo(properties.getBackoffMax()) >= 0 ? properties.getWindow() : properties.getBackoffMax();
+    this.byEmail = Caffeine.newBuilder().maximumSize(properties.getMaxKeys()).expireAfterAccess(idle).build();
+    this.byIp = Caffeine.newBuilder().maximumSize(properties.getMaxKeys()).expireAfterAccess(idle).build();
+    this.emailRejections = rejections(meterRegistry, "email");
+    this.ipRejections = rejections(meterRegistry, "ip");
+  }
+
+  /**
+   * Refuse the attempt if the email or the client IP is locked out.
+   *
+   * @throws LoginThrottledException with the seconds until the earliest retry
+   */
+  public void check(String email, String ip) {
+    check(email, ip, System.currentTimeMillis());
+  }
+
+  void check(String email, String ip, long now) {
+    if (!properties.isEnabled()) {
+      return;
+    }
+    long emailWait = remaining(byEmail, normalize(email), now);
+    long ipWait = remaining(byIp, ip, now);
+    if (emailWait > 0 || ipWait > 0) {
+      (emailWait >= ipWait ? emailRejections : ipRejections).increment();
+      throw new LoginThrottledException(Math.max(1, (Math.max(emailWait, ipWait) + 999) / 1000));
+    }
+  }
+
+  /**
+   * Count a failed attempt (wrong credentials) against the email and the client IP.
+   */
+  public void recordFailure(String email, String ip) {
+    recordFailure(email, ip, System.currentTimeMillis());
+  }
+
+  void recordFailure(String email, String ip, long now) {
+    if (!properties.isEnabled()) {
+      return;
+    }
+    String key = normalize(email);
+    if (key != null && byEmail.get(key, k -> new FailureWindow(buckets)).fail(now, properties.getMaxFailuresPerEmail())) {
+      logger.warn("Too many failed logins for {}, locked out", key);
+    }
+    if (ip != null && byIp.get(ip, k -> new FailureWindow(buckets)).fail(now, properties.getMaxFailuresPerIp())) {
+      logger.warn("Too many failed logins from {}, locked out", ip);
+    }
+  }
+
+  /**
+   * A successful login clears the email's failures; the IP's are kept, so one valid account
+   * cannot be used to reset the count of an address spraying others.
+   */
+  public void recordSuccess(String email) {
+    String key = normalize(email);
+    if (properties.isEnabled() && key != null) {
+      byEmail.invalidate(key);
+    }
+  }
+
+  private static long remaining(Cache<String, FailureWindow> cache, String key, long now) {
+    FailureWindow window = key != null ? cache.getIfPresent(key) : null;
+    return window != null ? window.blockedFor(now) : 0;
+  }
+
+  private static String normalize(String email) {
+    return email != null ? email.trim().toLowerCase(Locale.ROOT) : null;
+  }
+
+  private static Counter rejections(MeterRegistry meterRegistry, String key) {
+    return Counter.builder("auth.login.throttled")
+      .description("Login attempts refused because the email or client IP is locked out")
+      .tag("key", key)
+      .register(meterRegistry);
+  }
+
+  /**
+   * Failures of one key over the sliding window, one slot per bucket.
+   */
+  private final class FailureWindow {
+    private final int[] counts;
+    private long newestBucket = Long.MIN_VALUE;
+    private int lockouts;
+    private long blockedUntil;
+
+    FailureWindow(int buckets) {
+      this.counts = new int[buckets];
+    }
+
+    synchronized long blockedFor(long now) {
+      return Math.max(0, blockedUntil - now);
+    }
+
+    /**
+     * Record a failure; returns true when it locks the key out.
+     */
+    synchronized boolean fail(long now, int threshold) {
+      long bucket = now / bucketMillis;
+      advance(bucket, now);
+      counts[(int) (bucket % counts.length)]++;
+      int total = 0;
+      for (int count : counts) {
+        total += count;
+      }
+      if (total < threshold || now < blockedUntil) {
+        return false;
+      }
+      long backoff = properties.getBackoffBase().toMillis() << Math.min(lockouts, 20);
+      blockedUntil = now + Math.min(backoff, properties.getBackoffMax().toMillis());
+      lockouts++;
+      // Start counting afresh, so the next lockout takes another full threshold of failures
+      Arrays.fill(counts, 0);
+      return true;
+    }
+
+    private void advance(long bucket, long now) {
+      if (newestBucket == Long.MIN_VALUE || bucket - newestBucket >= counts.length) {
+        Arrays.fill(counts, 0);
+        if (newestBucket != Long.MIN_VALUE && now - blockedUntil >= properties.getWindow().toMillis()) {
+          // A whole clean window since the last lockout: forgive earlier lockouts
+          lockouts = 0;
+        }
+      } else {
+        for (long b = newestBucket + 1; b <= bucket; b++) {
+          counts[(int) (b % counts.length)] = 0;
+        }
+      }
+      newestBucket = Math.max(newestBucket, bucket);
+    }
+  }
+}
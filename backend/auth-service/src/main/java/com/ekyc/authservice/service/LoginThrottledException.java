@@ -0,0 +1,18 @@
+package com.ekyc.authservice.service;
+
+import com.ekyc.common.constants.MessageCodes;
+import com.ekyc.common.exception.SaaSPlatformException;
+
+/**
+ * Too many failed logins for the email or client IP; retry after retryAfterSeconds.
+ */
+public class LoginThrottledException extends SaaSPlatformException {
+  private final long retryAfterSeconds;
+
+  public LoginThrottledException(long retryAfterSeconds) {
+    super(MessageCodes.ERROR_RATE_LIMIT_EXCEEDED, "Too many failed login attempts, retry in " + retryAfterSeconds + "s");
+    this.retryAfterSeconds = retryAfterSeconds;
+  }
+
+  public long getRetryAfterSeconds() { return retryAfterSeconds; }
+}
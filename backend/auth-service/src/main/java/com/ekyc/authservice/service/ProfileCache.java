@@ -0,0 +1,68 @@
+package com.ekyc.authservice.service;
+
+import com.ekyc.common.dto.UserSyncRequest;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.function.Function;
+
+/**
+ * Short-lived cache of user-service profiles by email, for /api/auth/profile/{email}.
+ *
+ * Entries expire after profile.cache.ttl, and user-service invalidates an email when it changes
+ * the user. Profiles returned by a login refresh the entry. Unknown emails are not cached. Hits,
+ * misses and evictions are published as the cache.* meters tagged cache=auth.profiles.
+ */
+@Service
+public class ProfileCache {
+  private final Cache<String, UserSyncRequest> profiles;
+
+  public ProfileCache(@Value("${profile.cache.ttl:30s}") Duration ttl,
+                      @Value("${profile.cache.max-size:10000}") long maxSize,
+                      MeterRegistry meterRegistry) {
+    this.profiles = Caffeine.newBuilder()
+      .expireAfterWrite(ttl)
+      .maximumSize(maxSize)
+      .recordStats()
+      .build();
+    CaffeineCacheMetrics.monitor(meterRegistry, profiles, "auth.profiles");
+  }
+
+  /**
+   * The cached profile, or the one loaded (concurrent misses for an email share one load).
+   * Returns null, uncached, when the loader finds no user.
+   */
+  public UserSyncRequest get(String email, Function<String, UserSyncRequest> loader) {
+    return profiles.get(key(email), key -> strip(loader.apply(email)));
+  }
+
+  public void put(UserSyncRequest profile) {
+    if (profile != null && profile.getEmail() != null) {
+      profiles.put(key(profile.getEmail()), strip(profile));
+    }
+  }
+
+  public void invalidate(String email) {
+    profiles.invalidate(key(email));
+  }
+
+  private static String key(String email) {
+    return email.trim().toLowerCase(Locale.ROOT);
+  }
+
+  /**
+   * Never keep credentials around: the profile endpoints don't return them anyway.
+   */
+  private static UserSyncRequest strip(UserSyncRequest profile) {
+    if (profile != null) {
+      profile.setPasswordHash(null);
+    }
+    return profile;
+  }
+}
@@ -0,0 +1,198 @@
+package com.ekyc.authservice.service;
+
+import com.ekyc.authservice.config.JwtProperties;
+import com.ekyc.authservice.entity.RefreshToken;
+import com.ekyc.authservice.repository.RefreshTokenRepository;
+import com.ekyc.authservice.util.TokenEngine;
+import com.ekyc.common.dto.UserSyncRequest;
+import com.ekyc.common.exception.InvalidCredentialsException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Issues access/refresh token pairs and rotates them on refresh.
+ *
+ * A refresh is one indexed lookup, one conditional update and one insert, with no password check.
+ * The user is re-read through the ProfileCache (user-service evicts it on every change), so the new
+ * access token carries the current role and tenant, and the family is revoked once the user is
+ * deleted or no longer active. Reusing a refresh token revokes its family, including the access
+ * tokens issued with it. The user-service call on a cache miss is made before the transaction, so
+ * it doesn't hold a database connection.
+ */
+@Service
+public class RefreshTokenService {
+  private static final Logger logger = LoggerFactory.getLogger(RefreshTokenService.class);
+  private static final int TOKEN_BYTES = 32;
+
+  private final RefreshTokenRepository repository;
+  private final SigningKeyService signingKeys;
+  private final TokenRevocationService revocations;
+  private final JwtProperties properties;
+  private final ProfileCache profiles;
+  private final UserServiceClient userService;
+  private final TransactionTemplate transactionTemplate;
+  private final SecureRandom random = new SecureRandom();
+
+  public RefreshTokenService(RefreshTokenRepository repository, SigningKeyService signingKeys,
+                             TokenRevocationService revocations, JwtProperties properties,
+                             ProfileCache profiles, UserServiceClient userService,
+                             PlatformTransactionManager transactionManager) {
+    this.repository = repository;
+    this.signingKeys = signingKeys;
+    this.revocations = revocations;
+    this.properties = properties;
+    this.profiles = profiles;
+    this.userService = userService;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+  }
+
+  /**
+   * Start a new session (token family) for a user who just logged in or signed up.
+   */
+  @Transactional
+  public Tokens issue(UserSyncRequest user) {
+    RefreshToken claims = new RefreshToken();
+    claims.setFamilyId(UUID.randomUUID());
+    claims.setSubject(user.getEmail());
+    claims.setUserId(user.getUserId() != null ? user.getUserId().toString() : null);
+    claims.setEmail(user.getEmail());
+    copyClaims(user, claims);
+    return issue(claims, OffsetDateTime.now(ZoneOffset.UTC));
+  }
+
+  /**
+   * Exchange a refresh token for a new pair minted from the user's current profile; the presented
+   * token can't be used again.
+   *
+   * @throws InvalidCredentialsException if the token is unknown, expired, or was already used, or
+   *         the user was deleted or deactivated (the session is revoked then)
+   * @throws IllegalStateException if user-service can't be asked; the token stays usable
+   */
+  public Tokens refresh(String presented) {
+    OffsetDateTime now = OffsetDateTime.now(ZoneOffset.UTC);
+    RefreshToken current = presented != null ? repository.findByTokenHash(hash(presented)).orElse(null) : null;
+    if (current == null || !current.getExpiresAt().isAfter(now)) {
+      throw new InvalidCredentialsException("Invalid or expired refresh token");
+    }
+    if (current.getRevokedAt() != null) {
+      throw reused(current, now);
+    }
+    UserSyncRequest user = profiles.get(current.getSubject(), userService::currentUser);
+    if (!isActive(user)) {
+      logger.info("Refresh for {} rejected: user deleted or inactive; revoking session {}",
+        current.getSubject(), current.getFamilyId());
+      revokeFamily(current.getFamilyId(), now);
+      throw new InvalidCredentialsException("User is no longer active");
+    }
+    Tokens tokens = transactionTemplate.execute(status -> {
+      // Conditional: of two concurrent refreshes with the same token, one gets 0 here
+      if (repository.markUsed(current.getId(), now) == 0) {
+        return null;
+      }
+      RefreshToken next = new RefreshToken();
+      next.setFamilyId(current.getFamilyId());
+      next.setSubject(current.getSubject());
+      next.setEmail(current.getEmail());
+      copyClaims(user, next);
+      return issue(next, now);
+    });
+    if (tokens == null) {
+      throw reused(current, now);
+    }
+    return tokens;
+  }
+
+  /**
+   * End the session the refresh token belongs to. Unknown tokens are ignored.
+   */
+  @Transactional
+  public void revoke(String presented) {
+    if (presented == null) {
+      return;
+    }
+    repository.findByTokenHash(hash(presented))
+      .ifPresent(token -> revokeFamily(token.getFamilyId(), OffsetDateTime.now(ZoneOffset.UTC)));
+  }
+
+  @Scheduled(fixedDelayString = "${jwt.refresh.cleanup-interval-ms:3600000}")
+  public void deleteExpired() {
+    int deleted = repository.deleteExpired(OffsetDateTime.now(ZoneOffset.UTC));
+    if (deleted > 0) {
+      logger.info("Deleted {} expired refresh tokens", deleted);
+    }
+  }
+
+  private Tokens issue(RefreshToken token, OffsetDateTime now) {
+    TokenEngine engine = signingKeys.engine();
+    TokenEngine.Issued access = engine.issue(token.getSubject(), token.getUserId(), token.getEmail(),
+      token.getRole(), token.getTenantId());
+    byte[] bytes = new byte[TOKEN_BYTES];
+    random.nextBytes(bytes);
+    String value = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+
+    token.setTokenHash(hash(value));
+    token.setAccessTokenId(access.id());
+    token.setAccessExpiresAt(access.expiresAt().atOffset(ZoneOffset.UTC));
+    token.setCreatedAt(now);
+    token.setExpiresAt(now.plus(properties.getRefresh().getTtl()));
+    repository.save(token);
+    return new Tokens(access.token(), value, engine.getExpirationSeconds(), token);
+  }
+
+  private InvalidCredentialsException reused(RefreshToken token, OffsetDateTime now) {
+    logger.warn("Refresh token reused for {}; revoking session {}", token.getSubject(), token.getFamilyId());
+    revokeFamily(token.getFamilyId(), now);
+    return new InvalidCredentialsException("Refresh token has already been used");
+  }
+
+  private static boolean isActive(UserSyncRequest user) {
+    return user != null && (user.getStatus() == null || "active".equalsIgnoreCase(user.getStatus()));
+  }
+
+  private static void copyClaims(UserSyncRequest user, RefreshToken token) {
+    token.setUserId(user.getUserId() != null ? user.getUserId().toString() : null);
+    token.setRole(user.getRole());
+    token.setTenantId(user.getTenantId() != null ? user.getTenantId().toString() : null);
+  }
+
+  private void revokeFamily(UUID familyId, OffsetDateTime now) {
+    transactionTemplate.executeWithoutResult(status -> {
+      repository.revokeFamily(familyId, now);
+      for (RefreshToken token : repository.findByFamilyId(familyId)) {
+        if (token.getAccessExpiresAt() != null && token.getAccessExpiresAt().isAfter(now)) {
+          revocations.revoke(token.getAccessTokenId(), token.getAccessExpiresAt().toInstant());
+        }
+      }
+    });
+  }
+
+  private static String hash(String value) {
+    try {
+      byte[] digest = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.US_ASCII));
+      return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+    } catch (GeneralSecurityException e) {
+      throw new IllegalStateException("SHA-256 not available", e);
+    }
+  }
+
+  /**
+   * @param expiresIn access token lifetime in seconds
+   * @param claims what the access token was minted for
+   */
+  public record Tokens(String accessToken, String refreshToken, long expiresIn, RefreshToken claims) {
+  }
+}
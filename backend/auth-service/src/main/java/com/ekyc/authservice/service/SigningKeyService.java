@@ -0,0 +1,279 @@
+package com.ekyc.authservice.service;
+
+import com.ekyc.authservice.config.JwtProperties;
+import com.ekyc.authservice.entity.SigningKey;
+import com.ekyc.authservice.repository.SigningKeyRepository;
+import com.ekyc.authservice.util.TokenEngine;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Jwks;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.MessageDigest;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.SecureRandom;
+import java.security.interfaces.ECPublicKey;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Owns the token signing keys and the TokenEngine built from them.
+ *
+ * In ES256 mode key pairs live in auth.signing_keys, shared by all auth-service instances. A
+ * scheduled check reloads them (picking up keys created by other instances), creates the next
+ * key publishAhead before the current one is due for rotation, and drops keys whose tokens have
+ * all expired. Key ids are derived from the activation time, so instances racing to create the
+ * same key conflict on the primary key and the loser just reloads.
+ */
+@Service
+public class SigningKeyService {
+  private static final Logger logger = LoggerFactory.getLogger(SigningKeyService.class);
+  private static final String ES256 = "ES256";
+  private static final int GCM_IV_BYTES = 12;
+
+  private final JwtProperties properties;
+  private final SigningKeyRepository repository;
+  private final ObjectMapper objectMapper;
+  private final SecureRandom random = new SecureRandom();
+  private final SecretKeySpec encryptionKey;
+
+  private volatile KeySet keySet;
+  private boolean acceptingLegacy;
+
+  public SigningKeyService(JwtProperties properties, SigningKeyRepository repository, ObjectMapper objectMapper) {
+    this.properties = properties;
+    this.repository = repository;
+    this.objectMapper = objectMapper;
+    this.encryptionKey = isAsymmetric() ? deriveEncryptionKey(properties.getKeyEncryptionSecret(), properties.getSecret()) : null;
+  }
+
+  @PostConstruct
+  public void init() {
+    if (isAsymmetric()) {
+      refresh();
+    } else {
+      TokenEngine engine = TokenEngine.hmac(properties.getKeyId(), properties.getSecret(), previousSecrets(),
+        properties.getIssuer(), properties.getExpiration());
+      keySet = new KeySet(engine, "{\"keys\":[]}", etag("{\"keys\":[]}"));
+    }
+  }
+
+  public TokenEngine engine() {
+    return keySet.engine();
+  }
+
+  /**
+   * Public keys as a JWK Set document, with its ETag.
+   */
+  public KeySet keySet() {
+    return keySet;
+  }
+
+  @Scheduled(fixedDelayString = "${jwt.rotation.check-interval-ms:60000}", initialDelayString = "${jwt.rotation.check-interval-ms:60000}")
+  public void refresh() {
+    if (!isAsymmetric()) {
+      return;
+    }
+    OffsetDateTime now = OffsetDateTime.now(ZoneOffset.UTC);
+    repository.deleteExpired(now);
+    List<SigningKey> keys = new ArrayList<>(repository.findAll());
+    keys.sort(Comparator.comparing(SigningKey::getActivatesAt));
+
+    SigningKey active = activeKey(keys, now);
+    if (active == null) {
+      create(keys, now.truncatedTo(ChronoUnit.HOURS), null);
+    } else if (keys.get(keys.size() - 1) == active) {
+      JwtProperties.Rotation rotation = properties.getRotation();
+      OffsetDateTime nextActivation = active.getActivatesAt().plus(rotation.getInterval());
+      if (!now.isBefore(nextActivation.minus(rotation.getPublishAhead()))) {
+        // Never activate a key before verifiers have had publishAhead to fetch it
+        OffsetDateTime earliest = now.plus(rotation.getPublishAhead());
+        create(keys, nextActivation.isBefore(earliest) ? earliest.truncatedTo(ChronoUnit.MINUTES) : nextActivation, active);
+      }
+    }
+    keySet = build(keys, now);
+  }
+
+  private void create(List<SigningKey> keys, OffsetDateTime activatesAt, SigningKey retiring) {
+    KeyPair pair = Jwts.SIG.ES256.keyPair().build();
+    SigningKey key = new SigningKey();
+    key.setKid("es256-" + Long.toString(activatesAt.toEpochSecond(), 36));
+    key.setAlgorithm(ES256);
+    key.setPublicKey(pair.getPublic().getEncoded());
+    key.setPrivateKey(encrypt(pair.getPrivate().getEncoded()));
+    key.setActivatesAt(activatesAt);
+    try {
+      repository.saveAndFlush(key);
+      logger.info("Created signing key {} activating at {}", key.getKid(), activatesAt);
+    } catch (DataIntegrityViolationException e) {
+      logger.info("Signing key {} was created by another instance", key.getKid());
+    }
+    if (retiring != null && retiring.getExpiresAt() == null) {
+      retiring.setExpiresAt(activatesAt.plusSeconds(properties.getExpiration()).plus(properties.getRotation().getGrace()));
+      repository.save(retiring);
+    }
+    keys.clear();
+    keys.addAll(repository.findAll());
+    keys.sort(Comparator.comparing(SigningKey::getActivatesAt));
+  }
+
+  private KeySet build(List<SigningKey> keys, OffsetDateTime now) {
+    SigningKey active = activeKey(keys, now);
+    Map<String, Key> verificationKeys = new HashMap<>();
+    List<Map<String, ?>> jwks = new ArrayList<>();
+    for (SigningKey key : keys) {
+      PublicKey publicKey = decodePublic(key.getPublicKey());
+      verificationKeys.put(key.getKid(), publicKey);
+      jwks.add(Jwks.builder().key((ECPublicKey) publicKey).id(key.getKid()).algorithm(ES256).publicKeyUse("sig").build());
+    }
+
+    // HMAC tokens minted before the switch to ES256 are accepted only while the operator opted in
+    OffsetDateTime legacyUntil = properties.getLegacyAcceptUntil();
+    Key legacyKey = null;
+    if (legacyUntil != null && now.isBefore(legacyUntil)
+      && properties.getSecret() != null && !properties.getSecret().isEmpty()) {
+      legacyKey = TokenEngine.hmacKey(properties.getSecret());
+      verificationKeys.putIfAbsent(properties.getKeyId(), legacyKey);
+      previousSecrets().forEach((id, secret) -> verificationKeys.putIfAbsent(id, TokenEngine.hmacKey(secret)));
+    }
+
+    TokenEngine engine = new TokenEngine(active.getKid(), decodePrivate(decrypt(active.getPrivateKey())),
+      verificationKeys, legacyKey, legacyUntil != null ? legacyUntil.toInstant() : Instant.EPOCH,
+      properties.getIssuer(), properties.getExpiration());
+    try {
+      String document = objectMapper.writeValueAsString(Map.of("keys", jwks));
+      KeySet previous = keySet;
+      if (previous == null || !previous.engine().getSigningKeyId().equals(active.getKid())) {
+        logger.info("Signing tokens with key {}; published keys {}", active.getKid(), verificationKeys.keySet());
+      }
+      if (acceptingLegacy != (legacyKey != null)) {
+        acceptingLegacy = legacyKey != null;
+        if (acceptingLegacy) {
+          logger.warn("Accepting legacy HMAC tokens signed with jwt.secret until {}", legacyUntil);
+        } else {
+          logger.info("No longer accepting legacy HMAC tokens (jwt.legacy-accept-until {} has passed)", legacyUntil);
+        }
+      }
+      return new KeySet(engine, document, etag(document));
+    } catch (JsonProcessingException e) {
+      throw new IllegalStateException("Cannot serialize JWKS", e);
+    }
+  }
+
+  private static SigningKey activeKey(List<SigningKey> keys, OffsetDateTime now) {
+    SigningKey active = null;
+    for (SigningKey key : keys) {
+      if (!key.getActivatesAt().isAfter(now)) {
+        active = key;
+      }
+    }
+    return active;
+  }
+
+  private boolean isAsymmetric() {
+    return ES256.equalsIgnoreCase(properties.getAlgorithm());
+  }
+
+  private Map<String, String> previousSecrets() {
+    Map<String, String> previous = new HashMap<>();
+    for (JwtProperties.Key key : properties.getPreviousKeys()) {
+      previous.put(key.getId(), key.getSecret());
+    }
+    return previous;
+  }
+
+  private byte[] encrypt(byte[] plain) {
+    try {
+      byte[] iv = new byte[GCM_IV_BYTES];
+      random.nextBytes(iv);
+      Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+      cipher.init(Cipher.ENCRYPT_MODE, encryptionKey, new GCMParameterSpec(128, iv));
+      byte[] sealed = cipher.doFinal(plain);
+      return ByteBuffer.allocate(iv.length + sealed.length).put(iv).put(sealed).array();
+    } catch (GeneralSecurityException e) {
+      throw new IllegalStateException("Cannot encrypt signing key", e);
+    }
+  }
+
+  private byte[] decrypt(byte[] stored) {
+    try {
+      Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+      cipher.init(Cipher.DECRYPT_MODE, encryptionKey, new GCMParameterSpec(128, stored, 0, GCM_IV_BYTES));
+      return cipher.doFinal(stored, GCM_IV_BYTES, stored.length - GCM_IV_BYTES);
+    } catch (GeneralSecurityException e) {
+      throw new IllegalStateException("Cannot decrypt signing key; check jwt.key-encryption-secret", e);
+    }
+  }
+
+  private static PublicKey decodePublic(byte[] encoded) {
+    try {
+      return KeyFactory.getInstance("EC").generatePublic(new X509EncodedKeySpec(encoded));
+    } catch (GeneralSecurityException e) {
+      throw new IllegalStateException("Invalid stored public key", e);
+    }
+  }
+
+  private static PrivateKey decodePrivate(byte[] encoded) {
+    try {
+      return KeyFactory.getInstance("EC").generatePrivate(new PKCS8EncodedKeySpec(encoded));
+    } catch (GeneralSecurityException e) {
+      throw new IllegalStateException("Invalid stored private key", e);
+    }
+  }
+
+  /**
+   * jwt.secret is shared with the gateway and has a committed default, so it can't double as the
+   * key that protects the private keys.
+   */
+  private static SecretKeySpec deriveEncryptionKey(String secret, String jwtSecret) {
+    if (secret == null || secret.isBlank()) {
+      throw new IllegalArgumentException("jwt.key-encryption-secret (JWT_KEY_ENCRYPTION_SECRET) must be set with ES256");
+    }
+    if (secret.equals(jwtSecret)) {
+      throw new IllegalArgumentException("jwt.key-encryption-secret must differ from jwt.secret");
+    }
+    return new SecretKeySpec(sha256(secret.getBytes(StandardCharsets.UTF_8)), "AES");
+  }
+
+  private static String etag(String document) {
+    return "\"" + Base64.getUrlEncoder().withoutPadding()
+      .encodeToString(sha256(document.getBytes(StandardCharsets.UTF_8))).substring(0, 22) + "\"";
+  }
+
+  private static byte[] sha256(byte[] input) {
+    try {
+      return MessageDigest.getInstance("SHA-256").digest(input);
+    } catch (GeneralSecurityException e) {
+      throw new IllegalStateException("SHA-256 not available", e);
+    }
+  }
+
+  public record KeySet(TokenEngine engine, String jwks, String etag) {
+  }
+}
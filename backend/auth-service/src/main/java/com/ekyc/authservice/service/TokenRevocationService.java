@@ -0,0 +1,96 @@
+package com.ekyc.authservice.service;
+
+import com.ekyc.authservice.config.JwtProperties;
+import com.ekyc.authservice.entity.RevokedToken;
+import com.ekyc.authservice.repository.RevokedTokenRepository;
+import com.ekyc.common.util.RevocationFilter;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+/**
+ * Revoked access tokens.
+ *
+ * Revocations are written to auth.revoked_tokens and kept in an in-memory RevocationFilter,
+ * which every instance fills by polling the table for new rows. Checking a token costs a filter
+ * lookup; only a filter hit (a revoked token, or a rare false positive) goes to the database.
+ * Rows are deleted once the token they revoke has expired.
+ */
+@Service
+public class TokenRevocationService {
+  private static final Logger logger = LoggerFactory.getLogger(TokenRevocationService.class);
+  // Rows committed by other instances shortly before our last poll may carry an earlier revoked_at
+  private static final Duration POLL_OVERLAP = Duration.ofSeconds(5);
+
+  private final RevokedTokenRepository repository;
+  private final RevocationFilter filter;
+  private final long tokenLifetimeSeconds;
+
+  private volatile OffsetDateTime cursor;
+
+  public TokenRevocationService(JwtProperties properties, RevokedTokenRepository repository) {
+    this.repository = repository;
+    this.tokenLifetimeSeconds = properties.getExpiration();
+    JwtProperties.Revocation sizing = properties.getRevocation();
+    this.filter = RevocationFilter.forLifetime(Duration.ofSeconds(properties.getExpiration()),
+      sizing.getPartitionsPerLifetime(), sizing.getExpectedPerPartition(), sizing.getFalsePositiveRate());
+  }
+
+  @PostConstruct
+  public void init() {
+    // A token still valid now was issued less than one lifetime ago, and so was its revocation
+    cursor = OffsetDateTime.now(ZoneOffset.UTC).minusSeconds(tokenLifetimeSeconds);
+    poll();
+  }
+
+  public void revoke(String tokenId, Instant expiresAt) {
+    if (tokenId == null || expiresAt == null || !expiresAt.isAfter(Instant.now())) {
+      return;
+    }
+    repository.save(new RevokedToken(tokenId, expiresAt.atOffset(ZoneOffset.UTC)));
+    filter.add(tokenId, expiresAt.toEpochMilli());
+  }
+
+  public boolean isRevoked(String tokenId, Instant expiresAt) {
+    if (tokenId == null || expiresAt == null || !filter.mightContain(tokenId, expiresAt.toEpochMilli())) {
+      return false;
+    }
+    return repository.existsById(tokenId);
+  }
+
+  /**
+   * Revocations made after since whose tokens have not expired yet.
+   */
+  public List<RevokedToken> revokedSince(OffsetDateTime since) {
+    return repository.findByRevokedAtAfterAndExpiresAtAfter(since.minus(POLL_OVERLAP), OffsetDateTime.now(ZoneOffset.UTC));
+  }
+
+  @Scheduled(fixedDelayString = "${jwt.revocation.poll-interval-ms:5000}", initialDelayString = "${jwt.revocation.poll-interval-ms:5000}")
+  public void poll() {
+    OffsetDateTime now = OffsetDateTime.now(ZoneOffset.UTC);
+    List<RevokedToken> revoked = revokedSince(cursor);
+    for (RevokedToken token : revoked) {
+      filter.add(token.getJti(), token.getExpiresAt().toInstant().toEpochMilli());
+    }
+    cursor = now;
+    if (!revoked.isEmpty()) {
+      logger.debug("Loaded {} token revocations; {} live", revoked.size(), filter.size());
+    }
+  }
+
+  @Scheduled(fixedDelayString = "${jwt.revocation.cleanup-interval-ms:600000}")
+  public void deleteExpired() {
+    int deleted = repository.deleteExpired(OffsetDateTime.now(ZoneOffset.UTC));
+    if (deleted > 0) {
+      logger.info("Deleted {} expired token revocations", deleted);
+    }
+  }
+}
@@ -4,6 +4,7 @@ import com.ekyc.common.dto.UserSyncRequest;
 import com.ekyc.authservice.dto.CreateUserRequest;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestTemplate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -59,33 +60,52 @@ public class UserServiceClient {
         }
     }
     
-    public boolean validateUserCredentials(String email, String password) {
+    /**
+     * The user's current profile, or null if user-service has no such user.
+     * Unlike findUserByEmail, an unreachable user-service is an error rather than an unknown user.
+     *
+     * @throws IllegalStateException if user-service can't be asked
+     */
+    public UserSyncRequest currentUser(String email) {
         try {
-            logger.info("Validating user credentials via user service: {}", email);
+            return restTemplate.getForObject(
+                userServiceUrl + "/api/users/email/" + email,
+                UserSyncRequest.class
+            );
+        } catch (HttpClientErrorException.NotFound e) {
+            return null;
+        } catch (Exception e) {
+            throw new IllegalStateException("User service unavailable: " + e.getMessage(), e);
+        }
+    }
+    
+    /**
+     * Verify credentials and fetch the profile in one call.
+     * Returns null if user-service doesn't accept the credentials (401) or can't be reached.
+     */
+    public UserSyncRequest authenticate(String email, String password) {
+        try {
+            logger.info("Authenticating user via user service: {}", email);
             
-            // Create headers
             HttpHeaders headers = new HttpHeaders();
             headers.setContentType(MediaType.APPLICATION_FORM_URLENCODED);
             
-            // Create form data
             MultiValueMap<String, String> formData = new LinkedMultiValueMap<>();
             formData.add("email", email);
             formData.add("password", password);
             
-            // Create request entity
-            HttpEntity<MultiValueMap<String, String>> request = new HttpEntity<>(formData, headers);
-            
-            Boolean result = restTemplate.postForObject(
-                userServiceUrl + "/api/users/validate-credentials",
-                request,
-                Boolean.class
+            return restTemplate.postForObject(
+                userServiceUrl + "/api/users/authenticate",
+                new HttpEntity<>(formData, headers),
+                UserSyncRequest.class
             );
             
-            return result != null && result;
-            
+        } catch (HttpClientErrorException.Unauthorized e) {
+            logger.info("User service rejected credentials for {}", email);
+            return null;
         } catch (Exception e) {
-            logger.error("Error validating credentials via user service: {}", e.getMessage(), e);
-            return false;
+            logger.error("Error authenticating via user service: {}", e.getMessage(), e);
+            return null;
         }
     }
 } 
\ No newline at end of file
@@ -1,63 +1,62 @@
 package com.ekyc.authservice.util;
 
 import com.ekyc.authservice.entity.User;
+import com.ekyc.authservice.service.SigningKeyService;
+import com.ekyc.authservice.service.TokenRevocationService;
 import com.ekyc.common.dto.UserSyncRequest;
-import io.jsonwebtoken.*;
-import io.jsonwebtoken.security.Keys;
-import org.springframework.beans.factory.annotation.Value;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
 import org.springframework.stereotype.Component;
 
-import javax.crypto.SecretKey;
-import java.util.*;
+import java.util.Optional;
 
 @Component
 public class JwtUtil {
-  @Value("${jwt.secret:secret}")
-  private String secret;
-  @Value("${jwt.expiration:86400}")
-  private Long expiration;
+  private final SigningKeyService signingKeys;
+  private final TokenRevocationService revocations;
 
-  private SecretKey getSigningKey() { return Keys.hmacShaKeyFor(secret.getBytes()); }
+  public JwtUtil(SigningKeyService signingKeys, TokenRevocationService revocations) {
+    this.signingKeys = signingKeys;
+    this.revocations = revocations;
+  }
 
   public String generateToken(User user) {
-    Map<String, Object> claims = new HashMap<>();
-    claims.put("userId", user.getId().toString());
-    claims.put("email", user.getEmail());
-    claims.put("role", user.getRole());
-    claims.put("tenantId", user.getTenantId() != null ? user.getTenantId().toString() : null);
-    return Jwts.builder().claims(claims).subject(user.getEmail())
-      .issuedAt(new Date(System.currentTimeMillis()))
-      .expiration(new Date(System.currentTimeMillis() + expiration*1000))
-      .signWith(getSigningKey()).compact();
+    return signingKeys.engine().mint(user.getEmail(), user.getId().toString(), user.getEmail(), user.getRole(),
+      user.getTenantId() != null ? user.getTenantId().toString() : null);
   }
 
   public String generateToken(UserSyncRequest userSyncRequest) {
-    Map<String, Object> claims = new HashMap<>();
-    claims.put("userId", userSyncRequest.getUserId() != null ? userSyncRequest.getUserId().toString() : null);
-    claims.put("email", userSyncRequest.getEmail());
-    claims.put("role", userSyncRequest.getRole());
-    claims.put("tenantId", userSyncRequest.getTenantId() != null ? userSyncRequest.getTenantId().toString() : null);
-    return Jwts.builder().claims(claims).subject(userSyncRequest.getEmail())
-      .issuedAt(new Date(System.currentTimeMillis()))
-      .expiration(new Date(System.currentTimeMillis() + expiration*1000))
-      .signWith(getSigningKey()).compact();
+    return signingKeys.engine().mint(userSyncRequest.getEmail(),
+      userSyncRequest.getUserId() != null ? userSyncRequest.getUserId().toString() : null,
+      userSyncRequest.getEmail(), userSyncRequest.getRole(),
+      userSyncRequest.getTenantId() != null ? userSyncRequest.getTenantId().toString() : null);
   }
 
-  public boolean validateToken(String token) {
-    try { 
-      Jwts.parser().verifyWith(getSigningKey()).build().parseSignedClaims(token); 
-      return true; 
-    }
-    catch (Exception e) { 
-      return false; 
+  /**
+   * Verify the token once and return its claims, or empty if it is invalid, expired or revoked.
+   * Prefer this over validateToken followed by getAllClaimsFromToken, which parses twice.
+   */
+  public Optional<Claims> verify(String token) {
+    try {
+      Claims claims = signingKeys.engine().verify(token);
+      if (claims.getExpiration() != null && revocations.isRevoked(claims.getId(), claims.getExpiration().toInstant())) {
+        return Optional.empty();
+      }
+      return Optional.of(claims);
+    } catch (JwtException | IllegalArgumentException e) {
+      return Optional.empty();
     }
   }
 
+  public boolean validateToken(String token) {
+    return verify(token).isPresent();
+  }
+
   public String getEmailFromToken(String token) {
     return getAllClaimsFromToken(token).getSubject();
   }
-  
+
   public Claims getAllClaimsFromToken(String token) {
-    return Jwts.parser().verifyWith(getSigningKey()).build().parseSignedClaims(token).getPayload();
+    return signingKeys.engine().verify(token);
   }
 }
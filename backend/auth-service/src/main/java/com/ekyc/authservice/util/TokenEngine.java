@@ -0,0 +1,143 @@
+package com.ekyc.authservice.util;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.LocatorAdapter;
+import io.jsonwebtoken.UnsupportedJwtException;
+import io.jsonwebtoken.security.Keys;
+
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.Key;
+import java.time.Instant;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Mints and verifies signed access tokens.
+ *
+ * Keys and the parser are built once and are immutable, so the engine is safe to share between
+ * threads; a key rotation builds a new engine. Tokens carry the signing key's id as their kid
+ * header and are verified with the key of that id, which lets several keys be valid during a
+ * rotation. Tokens without kid (minted before key ids were introduced) are verified with the
+ * legacy key, if one is given. Every token gets a random jti, so it can be revoked individually.
+ *
+ * An engine signing with a private key may still accept HMAC tokens minted before the switch;
+ * these are rejected from hmacAcceptedUntil on, whatever their own expiry.
+ */
+public final class TokenEngine {
+  private final String signingKeyId;
+  private final Key signingKey;
+  private final Map<String, Key> verificationKeys;
+  private final Key legacyKey;
+  private final Instant hmacAcceptedUntil;
+  private final String issuer;
+  private final long expirationMillis;
+  private final JwtParser parser;
+
+  /**
+   * @param signingKey private (ES256) or secret (HS*) key for new tokens
+   * @param verificationKeys public or secret keys by kid, including the signing key's
+   * @param legacyKey key for tokens without kid, or null to reject them
+   * @param hmacAcceptedUntil when tokens verified with a secret key stop being accepted, or null
+   *                          for no limit (an HMAC engine)
+   * @param issuer iss claim of new tokens, or null for none
+   */
+  public TokenEngine(String signingKeyId, Key signingKey, Map<String, ? extends Key> verificationKeys,
+                     Key legacyKey, Instant hmacAcceptedUntil, String issuer, long expirationSeconds) {
+    this.signingKeyId = signingKeyId;
+    this.signingKey = signingKey;
+    this.verificationKeys = Map.copyOf(verificationKeys);
+    this.legacyKey = legacyKey;
+    this.hmacAcceptedUntil = hmacAcceptedUntil;
+    this.issuer = issuer;
+    this.expirationMillis = expirationSeconds * 1000;
+    this.parser = Jwts.parser().keyLocator(new KeyLocator()).build();
+  }
+
+  /**
+   * HMAC engine signing with currentSecret; previousSecrets (by kid) are accepted for verification.
+   */
+  public static TokenEngine hmac(String currentKeyId, String currentSecret, Map<String, String> previousSecrets,
+                                 String issuer, long expirationSeconds) {
+    if (currentSecret == null || currentSecret.isEmpty()) {
+      throw new IllegalArgumentException("jwt.secret must be set");
+    }
+    SecretKey current = hmacKey(currentSecret);
+    Map<String, SecretKey> keys = new HashMap<>();
+    previousSecrets.forEach((id, secret) -> keys.put(id, hmacKey(secret)));
+    keys.put(currentKeyId, current);
+    return new TokenEngine(currentKeyId, current, keys, current, null, issuer, expirationSeconds);
+  }
+
+  public static SecretKey hmacKey(String secret) {
+    return Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+  }
+
+  public String mint(String subject, String userId, String email, String role, String tenantId) {
+    return issue(subject, userId, email, role, tenantId).token();
+  }
+
+  /**
+   * Mint a token and return it with its id and expiry, for callers that track issued tokens.
+   */
+  public Issued issue(String subject, String userId, String email, String role, String tenantId) {
+    long now = System.currentTimeMillis();
+    String id = UUID.randomUUID().toString();
+    Date expiresAt = new Date(now + expirationMillis);
+    String token = Jwts.builder()
+      .header().keyId(signingKeyId).and()
+      .id(id)
+      .issuer(issuer)
+      .subject(subject)
+      .claim("userId", userId)
+      .claim("email", email)
+      .claim("role", role)
+      .claim("tenantId", tenantId)
+      .issuedAt(new Date(now))
+      .expiration(expiresAt)
+      .signWith(signingKey)
+      .compact();
+    return new Issued(token, id, expiresAt.toInstant());
+  }
+
+  /**
+   * Verify signature and expiry and return the claims, in a single parse.
+   *
+   * @throws JwtException if the token is malformed, expired, has a bad signature or an unknown kid
+   */
+  public Claims verify(String token) {
+    return parser.parseSignedClaims(token).getPayload();
+  }
+
+  public String getSigningKeyId() {
+    return signingKeyId;
+  }
+
+  public long getExpirationSeconds() {
+    return expirationMillis / 1000;
+  }
+
+  public record Issued(String token, String id, Instant expiresAt) {
+  }
+
+  private final class KeyLocator extends LocatorAdapter<Key> {
+    @Override
+    protected Key locate(JwsHeader header) {
+      String kid = header.getKeyId();
+      Key key = kid != null ? verificationKeys.get(kid) : legacyKey;
+      if (key == null) {
+        throw new UnsupportedJwtException(kid != null ? "Unknown signing key id: " + kid : "Token has no key id");
+      }
+      if (hmacAcceptedUntil != null && key instanceof SecretKey && !Instant.now().isBefore(hmacAcceptedUntil)) {
+        throw new UnsupportedJwtException("HMAC tokens are no longer accepted");
+      }
+      return key;
+    }
+  }
+}
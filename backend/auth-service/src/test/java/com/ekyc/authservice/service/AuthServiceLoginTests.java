@@ -0,0 +1,134 @@
+package com.ekyc.authservice.service;
+
+import com.ekyc.authservice.config.LoginThrottleProperties;
+import com.ekyc.authservice.dto.LoginRequest;
+import com.ekyc.authservice.entity.RefreshToken;
+import com.ekyc.authservice.repository.UserRepository;
+import com.ekyc.authservice.util.JwtUtil;
+import com.ekyc.common.dto.UserSyncRequest;
+import com.ekyc.common.exception.InvalidCredentialsException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AuthServiceLoginTests {
+
+  private static final String EMAIL = "jane@example.com";
+  private static final String IP = "203.0.113.7";
+
+  private final RestTemplate keycloak = mock(RestTemplate.class);
+  private final UserServiceClient userService = mock(UserServiceClient.class);
+  private final RefreshTokenService refreshTokens = mock(RefreshTokenService.class);
+  private final LoginThrottleProperties throttleProperties = new LoginThrottleProperties();
+  private AuthService service;
+
+  @BeforeEach
+  void setUp() {
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    service = new AuthService(mock(UserRepository.class), mock(PasswordEncoder.class), mock(JwtUtil.class), userService,
+      new KeycloakAuthService(keycloak, mock(KeycloakTokenVerifier.class)), refreshTokens, mock(TokenRevocationService.class),
+      new LoginThrottle(throttleProperties, meterRegistry), new ProfileCache(Duration.ofSeconds(30), 100, meterRegistry),
+      mock(IntrospectionService.class));
+    when(refreshTokens.issue(any(UserSyncRequest.class)))
+      .thenReturn(new RefreshTokenService.Tokens("access", "refresh", 300, new RefreshToken()));
+  }
+
+  @Test
+  void rejectedPasswordsLockTheEmail() {
+    keycloakAnswers(HttpClientErrorException.create(HttpStatus.UNAUTHORIZED, "Unauthorized", HttpHeaders.EMPTY, null, null));
+
+    for (int i = 0; i < throttleProperties.getMaxFailuresPerEmail(); i++) {
+      assertThatThrownBy(this::login).isInstanceOf(InvalidCredentialsException.class);
+    }
+
+    assertThatThrownBy(this::login).isInstanceOf(LoginThrottledException.class);
+    // Refused before either credential store is asked
+    verify(userService, times(throttleProperties.getMaxFailuresPerEmail())).authenticate(anyString(), anyString());
+    verify(keycloak, times(throttleProperties.getMaxFailuresPerEmail()))
+      .postForEntity(anyString(), any(HttpEntity.class), eq(Map.class));
+  }
+
+  @Test
+  void unreachableKeycloakIsNotCounted() {
+    keycloakAnswers(new ResourceAccessException("Connection refused"));
+
+    // KeycloakAuthService turns anything but a 400/401 into a plain RuntimeException: not a failed password
+    for (int i = 0; i < 2 * throttleProperties.getMaxFailuresPerEmail(); i++) {
+      assertThatThrownBy(this::login)
+        .isInstanceOf(RuntimeException.class)
+        .isNotInstanceOf(InvalidCredentialsException.class)
+        .isNotInstanceOf(LoginThrottledException.class);
+    }
+  }
+
+  @Test
+  void keycloakServerErrorIsNotCounted() {
+    keycloakAnswers(HttpServerErrorException.create(HttpStatus.BAD_GATEWAY, "Bad Gateway", HttpHeaders.EMPTY, null, null));
+
+    for (int i = 0; i < 2 * throttleProperties.getMaxFailuresPerEmail(); i++) {
+      assertThatThrownBy(this::login).isNotInstanceOfAny(InvalidCredentialsException.class, LoginThrottledException.class);
+    }
+  }
+
+  @Test
+  void keycloakResponseWithoutTokenIsNotCounted() {
+    when(keycloak.postForEntity(anyString(), any(HttpEntity.class), eq(Map.class)))
+      .thenReturn(new ResponseEntity<>(Map.of(), HttpStatus.OK));
+
+    for (int i = 0; i < 2 * throttleProperties.getMaxFailuresPerEmail(); i++) {
+      assertThatThrownBy(this::login).isNotInstanceOfAny(InvalidCredentialsException.class, LoginThrottledException.class);
+    }
+  }
+
+  @Test
+  void successfulLoginClearsTheEmailsFailures() {
+    keycloakAnswers(HttpClientErrorException.create(HttpStatus.UNAUTHORIZED, "Unauthorized", HttpHeaders.EMPTY, null, null));
+    for (int i = 0; i < throttleProperties.getMaxFailuresPerEmail() - 1; i++) {
+      assertThatThrownBy(this::login).isInstanceOf(InvalidCredentialsException.class);
+    }
+
+    when(userService.authenticate(EMAIL, "right")).thenReturn(new UserSyncRequest(EMAIL, "Jane", "Doe", "TENANT_USER"));
+    service.login(request("right"), IP);
+
+    for (int i = 0; i < throttleProperties.getMaxFailuresPerEmail(); i++) {
+      assertThatThrownBy(this::login).isInstanceOf(InvalidCredentialsException.class);
+    }
+    assertThatThrownBy(this::login).isInstanceOf(LoginThrottledException.class);
+  }
+
+  private void keycloakAnswers(RuntimeException error) {
+    when(keycloak.postForEntity(anyString(), any(HttpEntity.class), eq(Map.class))).thenThrow(error);
+  }
+
+  private void login() {
+    service.login(request("wrong"), IP);
+  }
+
+  private static LoginRequest request(String password) {
+    LoginRequest request = new LoginRequest();
+    request.setEmail(EMAIL);
+    request.setPassword(password);
+    return request;
+  }
+}
@@ -0,0 +1,123 @@
+package com.ekyc.authservice.service;
+
+import com.ekyc.authservice.repository.UserRepository;
+import com.ekyc.authservice.util.JwtUtil;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class IntrospectionServiceTests {
+
+  private static final String TOKEN = "keycloak.access.token";
+  private static final String KEYCLOAK_ID = "kc-123";
+  private static final String EMAIL = "jane@example.com";
+  private static final UUID USER_ID = UUID.fromString("11111111-1111-1111-1111-111111111111");
+
+  private final JwtUtil jwtUtil = mock(JwtUtil.class);
+  private final KeycloakTokenVerifier keycloakTokenVerifier = mock(KeycloakTokenVerifier.class);
+  private final UserRepository users = mock(UserRepository.class);
+  private final TokenRevocationService revocations = mock(TokenRevocationService.class);
+
+  private String status;
+
+  @BeforeEach
+  void setUp() {
+    status = "active";
+    when(jwtUtil.verify(anyString())).thenReturn(Optional.empty());
+    Claims claims = Jwts.claims()
+      .subject(KEYCLOAK_ID)
+      .id("jti-1")
+      .expiration(Date.from(Instant.now().plusSeconds(3600)))
+      .build();
+    when(keycloakTokenVerifier.verify(TOKEN)).thenReturn(claims);
+    when(users.findPrincipalByKeycloakId(KEYCLOAK_ID)).thenAnswer(invocation -> Optional.of(principal(status)));
+  }
+
+  @Test
+  void keycloakResultIsCachedWithinTtl() {
+    IntrospectionService service = service(Duration.ofMinutes(5));
+
+    assertThat(service.introspect(TOKEN).isActive()).isTrue();
+    status = "inactive";
+
+    assertThat(service.introspect(TOKEN).getUserId()).isEqualTo(USER_ID);
+    verify(users, times(1)).findPrincipalByKeycloakId(KEYCLOAK_ID);
+  }
+
+  @Test
+  void deactivatedUserIsInactiveOnceTtlElapses() throws Exception {
+    IntrospectionService service = service(Duration.ofMillis(100));
+    assertThat(service.introspect(TOKEN).isActive()).isTrue();
+
+    status = "inactive";
+    Thread.sleep(200);
+
+    // Not kept until the token's exp, an hour away
+    assertThat(service.introspect(TOKEN).isActive()).isFalse();
+  }
+
+  @Test
+  void userChangeDropsKeycloakResultsAtOnce() {
+    IntrospectionService service = service(Duration.ofMinutes(5));
+    assertThat(service.introspect(TOKEN).isActive()).isTrue();
+
+    status = "inactive";
+    service.invalidateUser("JANE@example.com");
+
+    assertThat(service.introspect(TOKEN).isActive()).isFalse();
+  }
+
+  @Test
+  void ownTokensAreKeptUntilExpiryAndCheckedForRevocation() {
+    IntrospectionService service = service(Duration.ofMillis(1));
+    Instant expiresAt = Instant.now().plusSeconds(300);
+    Claims ours = Jwts.claims()
+      .subject(EMAIL)
+      .id("jti-ours")
+      .add("userId", USER_ID.toString())
+      .add("email", EMAIL)
+      .add("role", "TENANT_USER")
+      .expiration(Date.from(expiresAt))
+      .build();
+    when(jwtUtil.verify("our.access.token")).thenReturn(Optional.of(ours));
+
+    assertThat(service.introspect("our.access.token").getIssuer()).isEqualTo(IntrospectionService.ISSUER_AUTH_SERVICE);
+    service.invalidateUser(EMAIL);
+    assertThat(service.introspect("our.access.token").isActive()).isTrue();
+    verify(jwtUtil, times(1)).verify("our.access.token");
+
+    when(revocations.isRevoked(any(), any())).thenReturn(true);
+    assertThat(service.introspect("our.access.token").isActive()).isFalse();
+  }
+
+  private IntrospectionService service(Duration keycloakTtl) {
+    return new IntrospectionService(jwtUtil, keycloakTokenVerifier, users, revocations, 100, keycloakTtl,
+      new SimpleMeterRegistry());
+  }
+
+  private static UserRepository.PrincipalView principal(String status) {
+    return new UserRepository.PrincipalView() {
+      @Override public UUID getId() { return USER_ID; }
+      @Override public UUID getTenantId() { return null; }
+      @Override public String getRole() { return "TENANT_USER"; }
+      @Override public String getEmail() { return EMAIL; }
+      @Override public String getStatus() { return status; }
+    };
+  }
+}
@@ -0,0 +1,74 @@
+package com.ekyc.authservice.service;
+
+import com.ekyc.common.dto.UserSyncRequest;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class KeycloakAuthServiceTests {
+
+  private static final UUID USER_ID = UUID.fromString("11111111-1111-1111-1111-111111111111");
+  private static final UUID TENANT_ID = UUID.fromString("22222222-2222-2222-2222-222222222222");
+
+  @Test
+  void claimsAreMappedToTheUser() {
+    Claims claims = Jwts.claims()
+      .subject("kc-123")
+      .add("email", "jane@example.com")
+      .add("given_name", "Jane")
+      .add("family_name", "Doe")
+      .add("app_user_id", USER_ID.toString())
+      .add("tenantId", TENANT_ID.toString())
+      .add("realm_access", Map.of("roles", List.of("TENANT_ADMIN")))
+      .build();
+
+    UserSyncRequest user = KeycloakAuthService.toUserInfo(claims);
+
+    assertThat(user.getEmail()).isEqualTo("jane@example.com");
+    assertThat(user.getFirstName()).isEqualTo("Jane");
+    assertThat(user.getLastName()).isEqualTo("Doe");
+    assertThat(user.getKeycloakId()).isEqualTo("kc-123");
+    assertThat(user.getUserId()).isEqualTo(USER_ID);
+    assertThat(user.getTenantId()).isEqualTo(TENANT_ID);
+    assertThat(user.getRole()).isEqualTo("TENANT_ADMIN");
+    assertThat(user.getStatus()).isEqualTo("active");
+  }
+
+  @Test
+  void roleIsTheFirstNonDefaultRealmRole() {
+    Claims claims = Jwts.claims()
+      .add("realm_access", Map.of("roles",
+        List.of("default-roles-ekyc", "offline_access", "uma_authorization", "TENANT_USER", "PLATFORM_ADMIN")))
+      .build();
+
+    assertThat(KeycloakAuthService.toUserInfo(claims).getRole()).isEqualTo("TENANT_USER");
+  }
+
+  @Test
+  void onlyDefaultRolesMapToPlatformUser() {
+    Claims defaults = Jwts.claims()
+      .add("realm_access", Map.of("roles", List.of("default-roles-ekyc", "offline_access")))
+      .build();
+
+    assertThat(KeycloakAuthService.toUserInfo(defaults).getRole()).isEqualTo("PLATFORM_USER");
+    assertThat(KeycloakAuthService.toUserInfo(Jwts.claims().build()).getRole()).isEqualTo("PLATFORM_USER");
+  }
+
+  @Test
+  void missingOrMalformedIdsAreLeftUnset() {
+    Claims claims = Jwts.claims()
+      .add("tenantId", "not-a-uuid")
+      .build();
+
+    UserSyncRequest user = KeycloakAuthService.toUserInfo(claims);
+
+    assertThat(user.getTenantId()).isNull();
+    assertThat(user.getUserId()).isNull();
+  }
+}
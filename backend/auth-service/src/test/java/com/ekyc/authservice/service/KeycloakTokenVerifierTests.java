@@ -0,0 +1,85 @@
+package com.ekyc.authservice.service;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.UnsupportedJwtException;
+import io.jsonwebtoken.security.Jwks;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import java.security.KeyPair;
+import java.security.interfaces.ECPublicKey;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class KeycloakTokenVerifierTests {
+
+  private static final String CERTS_URL = "http://keycloak/realms/ekyc/protocol/openid-connect/certs";
+
+  private final KeyPair realmKey = Jwts.SIG.ES256.keyPair().build();
+  private final AtomicLong clock = new AtomicLong();
+  private final RestTemplate restTemplate = mock(RestTemplate.class);
+  private final KeycloakTokenVerifier verifier = new KeycloakTokenVerifier(restTemplate, "http://keycloak", "ekyc",
+    Duration.ofHours(1), Duration.ofSeconds(30), clock::get);
+
+  @Test
+  void tokenSignedWithARealmKeyIsVerified() {
+    when(restTemplate.getForObject(CERTS_URL, Map.class)).thenReturn(jwks());
+
+    assertThat(verifier.verify(token("https://sso.example.com/realms/ekyc")).getSubject()).isEqualTo("kc-123");
+  }
+
+  @Test
+  void tokenOfAnotherRealmIsRejected() {
+    when(restTemplate.getForObject(CERTS_URL, Map.class)).thenReturn(jwks());
+
+    assertThatThrownBy(() -> verifier.verify(token("https://sso.example.com/realms/master")))
+      .isInstanceOf(UnsupportedJwtException.class);
+  }
+
+  @Test
+  void unreachableKeycloakIsAskedAtMostOncePerInterval() {
+    when(restTemplate.getForObject(CERTS_URL, Map.class))
+      .thenThrow(new ResourceAccessException("Connect timed out"))
+      .thenReturn(jwks());
+    String token = token("http://keycloak/realms/ekyc");
+
+    for (int i = 0; i < 5; i++) {
+      assertThatThrownBy(() -> verifier.verify(token)).isInstanceOf(UnsupportedJwtException.class);
+    }
+    verify(restTemplate, times(1)).getForObject(CERTS_URL, Map.class);
+
+    // Due again, and Keycloak is back
+    clock.addAndGet(Duration.ofSeconds(30).toNanos());
+    assertThat(verifier.verify(token).getSubject()).isEqualTo("kc-123");
+    verify(restTemplate, times(2)).getForObject(CERTS_URL, Map.class);
+  }
+
+  private String token(String issuer) {
+    return Jwts.builder()
+      .header().keyId("k1").and()
+      .issuer(issuer)
+      .subject("kc-123")
+      .expiration(Date.from(Instant.now().plusSeconds(300)))
+      .signWith(realmKey.getPrivate())
+      .compact();
+  }
+
+  private Map<String, Object> jwks() {
+    Map<String, Object> jwk = new HashMap<>(Jwks.builder().key((ECPublicKey) realmKey.getPublic()).id("k1").build());
+    jwk.put("use", "sig");
+    return Map.of("keys", List.of(jwk));
+  }
+}
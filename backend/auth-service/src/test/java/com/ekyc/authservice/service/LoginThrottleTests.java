@@ -0,0 +1,138 @@
+package com.ekyc.authservice.service;
+
+import com.ekyc.authservice.config.LoginThrottleProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+
+class LoginThrottleTests {
+
+  private static final String EMAIL = "jane@example.com";
+  private static final String IP = "203.0.113.7";
+  // Aligned to a bucket boundary, so seconds below are bucket indexes
+  private static final long T0 = 1_700_000_000_000L;
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final LoginThrottle throttle = new LoginThrottle(properties(), meterRegistry);
+
+  @Test
+  void locksEmailOnceThresholdIsReached() {
+    fail(EMAIL, IP, 0, 1);
+    assertThatCode(() -> throttle.check(EMAIL, IP, at(1))).doesNotThrowAnyException();
+
+    fail(EMAIL, IP, 2);
+
+    assertThat(retryAfter(EMAIL, "198.51.100.1", 2)).isEqualTo(15);
+    assertThat(retryAfter("JANE@example.com ", "198.51.100.1", 2)).isEqualTo(15);
+    assertThatCode(() -> throttle.check("john@example.com", "198.51.100.1", at(2))).doesNotThrowAnyException();
+    assertThat(meterRegistry.get("auth.login.throttled").tag("key", "email").counter().count()).isEqualTo(2);
+  }
+
+  @Test
+  void failuresAgeOutOfTheWindow() {
+    fail(EMAIL, IP, 0, 0);
+
+    fail(EMAIL, IP, 10);
+
+    assertThatCode(() -> throttle.check(EMAIL, IP, at(10))).doesNotThrowAnyException();
+  }
+
+  @Test
+  void windowSlidesBucketByBucket() {
+    fail(EMAIL, IP, 5, 5);
+
+    // Bucket 5 is still inside the window ending at 14, though a fixed window would have reset at 10
+    fail(EMAIL, IP, 14);
+
+    assertThat(retryAfter(EMAIL, IP, 14)).isEqualTo(15);
+  }
+
+  @Test
+  void backoffDoublesUpToTheMaximum() {
+    fail(EMAIL, IP, 0, 0, 0);
+    assertThat(retryAfter(EMAIL, IP, 0)).isEqualTo(15);
+    assertThatCode(() -> throttle.check(EMAIL, IP, at(15))).doesNotThrowAnyException();
+
+    fail(EMAIL, IP, 15, 15, 15);
+    assertThat(retryAfter(EMAIL, IP, 15)).isEqualTo(30);
+
+    fail(EMAIL, IP, 45, 45, 45);
+    assertThat(retryAfter(EMAIL, IP, 45)).isEqualTo(60);
+
+    fail(EMAIL, IP, 105, 105, 105);
+    assertThat(retryAfter(EMAIL, IP, 105)).isEqualTo(60);
+  }
+
+  @Test
+  void cleanWindowForgivesEarlierLockouts() {
+    fail(EMAIL, IP, 0, 0, 0);
+    fail(EMAIL, IP, 15, 15, 15);
+
+    // Locked until 45; a full window without failures after that starts over at backoff-base
+    fail(EMAIL, IP, 55, 55, 55);
+
+    assertThat(retryAfter(EMAIL, IP, 55)).isEqualTo(15);
+  }
+
+  @Test
+  void successClearsTheEmailButNotTheAddress() {
+    fail(EMAIL, IP, 0, 0);
+    throttle.recordSuccess(EMAIL);
+    fail(EMAIL, IP, 0);
+    assertThatCode(() -> throttle.check(EMAIL, IP, at(0))).doesNotThrowAnyException();
+
+    // Spraying other accounts from the same address: five failures in all lock the address
+    fail("a@example.com", IP, 1);
+    fail("b@example.com", IP, 1);
+    throttle.recordSuccess(EMAIL);
+
+    assertThat(retryAfter("c@example.com", IP, 1)).isEqualTo(15);
+    assertThat(meterRegistry.get("auth.login.throttled").tag("key", "ip").counter().count()).isEqualTo(1);
+  }
+
+  @Test
+  void disabledThrottleNeverRefuses() {
+    LoginThrottleProperties properties = properties();
+    properties.setEnabled(false);
+    LoginThrottle disabled = new LoginThrottle(properties, meterRegistry);
+    for (int i = 0; i < 10; i++) {
+      disabled.recordFailure(EMAIL, IP, at(0));
+    }
+
+    assertThatCode(() -> disabled.check(EMAIL, IP, at(0))).doesNotThrowAnyException();
+  }
+
+  private void fail(String email, String ip, int... seconds) {
+    for (int second : seconds) {
+      throttle.recordFailure(email, ip, at(second));
+    }
+  }
+
+  private long retryAfter(String email, String ip, int second) {
+    try {
+      throttle.check(email, ip, at(second));
+    } catch (LoginThrottledException e) {
+      return e.getRetryAfterSeconds();
+    }
+    throw new AssertionError("Expected " + email + " / " + ip + " to be throttled at " + second + "s");
+  }
+
+  private static long at(int second) {
+    return T0 + second * 1000L;
+  }
+
+  private static LoginThrottleProperties properties() {
+    LoginThrottleProperties properties = new LoginThrottleProperties();
+    properties.setWindow(Duration.ofSeconds(10));
+    properties.setBuckets(10);
+    properties.setMaxFailuresPerEmail(3);
+    properties.setMaxFailuresPerIp(5);
+    properties.setBackoffBase(Duration.ofSeconds(15));
+    properties.setBackoffMax(Duration.ofSeconds(60));
+    return properties;
+  }
+}
@@ -0,0 +1,231 @@
+package com.ekyc.authservice.service;
+
+import com.ekyc.authservice.config.JwtProperties;
+import com.ekyc.authservice.entity.RefreshToken;
+import com.ekyc.authservice.entity.RevokedToken;
+import com.ekyc.authservice.repository.RefreshTokenRepository;
+import com.ekyc.authservice.repository.RevokedTokenRepository;
+import com.ekyc.authservice.repository.SigningKeyRepository;
+import com.ekyc.common.dto.UserSyncRequest;
+import com.ekyc.common.exception.InvalidCredentialsException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class RefreshTokenServiceTests {
+
+  private static final String EMAIL = "jane@example.com";
+
+  private final List<RefreshToken> stored = new ArrayList<>();
+  private final Set<String> revokedIds = new HashSet<>();
+  private final RefreshTokenRepository repository = mock(RefreshTokenRepository.class);
+  private final RevokedTokenRepository revokedRepository = mock(RevokedTokenRepository.class);
+  private final UserServiceClient userService = mock(UserServiceClient.class);
+  private final JwtProperties properties = new JwtProperties();
+  private final ProfileCache profiles = new ProfileCache(Duration.ofSeconds(30), 100, new SimpleMeterRegistry());
+  private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+  /** Transactions begun and not yet committed or rolled back */
+  private final AtomicInteger openTransactions = new AtomicInteger();
+
+  private TokenRevocationService revocations;
+  private RefreshTokenService service;
+  private UserSyncRequest user;
+
+  @BeforeEach
+  void setUp() {
+    properties.setAlgorithm("HS256");
+    properties.setSecret("mySuperSecretKeyWhichShouldBeOverridden");
+    SigningKeyService signingKeys = new SigningKeyService(properties, mock(SigningKeyRepository.class), new ObjectMapper());
+    signingKeys.init();
+    revocations = new TokenRevocationService(properties, revokedRepository);
+    service = new RefreshTokenService(repository, signingKeys, revocations, properties, profiles, userService,
+      transactionManager);
+
+    when(transactionManager.getTransaction(any())).thenAnswer(invocation -> {
+      openTransactions.incrementAndGet();
+      return mock(TransactionStatus.class);
+    });
+    doAnswer(invocation -> openTransactions.decrementAndGet()).when(transactionManager).commit(any());
+    doAnswer(invocation -> openTransactions.decrementAndGet()).when(transactionManager).rollback(any());
+
+    user = user("TENANT_USER", "active");
+    when(userService.currentUser(anyString())).thenAnswer(invocation -> user);
+    when(revokedRepository.save(any(RevokedToken.class))).thenAnswer(invocation -> {
+      revokedIds.add(invocation.<RevokedToken>getArgument(0).getJti());
+      return invocation.getArgument(0);
+    });
+    when(revokedRepository.existsById(anyString())).thenAnswer(invocation -> revokedIds.contains(invocation.<String>getArgument(0)));
+    when(repository.save(any(RefreshToken.class))).thenAnswer(invocation -> {
+      RefreshToken token = invocation.getArgument(0);
+      token.setId(UUID.randomUUID());
+      stored.add(token);
+      return token;
+    });
+    when(repository.findByTokenHash(anyString())).thenAnswer(invocation -> stored.stream()
+      .filter(token -> token.getTokenHash().equals(invocation.getArgument(0)))
+      .findFirst());
+    when(repository.findByFamilyId(any(UUID.class))).thenAnswer(invocation -> stored.stream()
+      .filter(token -> token.getFamilyId().equals(invocation.getArgument(0)))
+      .toList());
+    when(repository.markUsed(any(UUID.class), any(OffsetDateTime.class))).thenAnswer(invocation -> {
+      RefreshToken token = find(invocation.getArgument(0));
+      if (token.getRevokedAt() != null) {
+        return 0;
+      }
+      token.setRevokedAt(invocation.getArgument(1));
+      return 1;
+    });
+    when(repository.revokeFamily(any(UUID.class), any(OffsetDateTime.class))).thenAnswer(invocation -> {
+      int revoked = 0;
+      for (RefreshToken token : stored) {
+        if (token.getFamilyId().equals(invocation.getArgument(0)) && token.getRevokedAt() == null) {
+          token.setRevokedAt(invocation.getArgument(1));
+          revoked++;
+        }
+      }
+      return revoked;
+    });
+  }
+
+  @Test
+  void refreshRotatesTheToken() {
+    RefreshTokenService.Tokens first = service.issue(user);
+
+    RefreshTokenService.Tokens second = service.refresh(first.refreshToken());
+
+    assertThat(second.refreshToken()).isNotEqualTo(first.refreshToken());
+    assertThat(second.accessToken()).isNotEqualTo(first.accessToken());
+    assertThat(second.claims().getFamilyId()).isEqualTo(first.claims().getFamilyId());
+    assertThat(service.refresh(second.refreshToken()).claims().getEmail()).isEqualTo(EMAIL);
+  }
+
+  @Test
+  void reuseRevokesTheWholeFamily() {
+    RefreshTokenService.Tokens first = service.issue(user);
+    RefreshTokenService.Tokens second = service.refresh(first.refreshToken());
+
+    assertThatThrownBy(() -> service.refresh(first.refreshToken())).isInstanceOf(InvalidCredentialsException.class);
+
+    // The thief's (or the client's) newer token is dead too, and so are the access tokens issued
+    assertThatThrownBy(() -> service.refresh(second.refreshToken())).isInstanceOf(InvalidCredentialsException.class);
+    assertThat(isRevoked(first)).isTrue();
+    assertThat(isRevoked(second)).isTrue();
+  }
+
+  @Test
+  void logoutRevokesTheSession() {
+    RefreshTokenService.Tokens tokens = service.issue(user);
+
+    service.revoke(tokens.refreshToken());
+
+    assertThat(isRevoked(tokens)).isTrue();
+    assertThatThrownBy(() -> service.refresh(tokens.refreshToken())).isInstanceOf(InvalidCredentialsException.class);
+  }
+
+  @Test
+  void expiredTokenIsRejected() {
+    RefreshTokenService.Tokens tokens = service.issue(user);
+    tokens.claims().setExpiresAt(OffsetDateTime.now().minusSeconds(1));
+
+    assertThatThrownBy(() -> service.refresh(tokens.refreshToken())).isInstanceOf(InvalidCredentialsException.class);
+  }
+
+  @Test
+  void refreshMintsFromTheCurrentRole() {
+    RefreshTokenService.Tokens tokens = service.issue(user);
+
+    user = user("TENANT_ADMIN", "active");
+    profiles.invalidate(EMAIL);
+
+    assertThat(service.refresh(tokens.refreshToken()).claims().getRole()).isEqualTo("TENANT_ADMIN");
+  }
+
+  @Test
+  void deletedUserLosesTheSession() {
+    RefreshTokenService.Tokens tokens = service.issue(user);
+
+    user = null;
+    profiles.invalidate(EMAIL);
+
+    assertThatThrownBy(() -> service.refresh(tokens.refreshToken())).isInstanceOf(InvalidCredentialsException.class);
+    assertThat(isRevoked(tokens)).isTrue();
+  }
+
+  @Test
+  void deactivatedUserLosesTheSession() {
+    RefreshTokenService.Tokens tokens = service.issue(user);
+
+    user = user("TENANT_USER", "inactive");
+    profiles.invalidate(EMAIL);
+
+    assertThatThrownBy(() -> service.refresh(tokens.refreshToken())).isInstanceOf(InvalidCredentialsException.class);
+    assertThat(isRevoked(tokens)).isTrue();
+  }
+
+  @Test
+  void unreachableUserServiceKeepsTheTokenUsable() {
+    RefreshTokenService.Tokens tokens = service.issue(user);
+    profiles.invalidate(EMAIL);
+    when(userService.currentUser(anyString())).thenThrow(new IllegalStateException("User service unavailable"));
+
+    assertThatThrownBy(() -> service.refresh(tokens.refreshToken())).isInstanceOf(IllegalStateException.class);
+
+    doAnswer(invocation -> user).when(userService).currentUser(anyString());
+    assertThat(service.refresh(tokens.refreshToken()).claims().getEmail()).isEqualTo(EMAIL);
+  }
+
+  @Test
+  void userServiceIsAskedOutsideTheTransaction() {
+    RefreshTokenService.Tokens tokens = service.issue(user);
+    profiles.invalidate(EMAIL);
+    List<Integer> openDuringLookup = new ArrayList<>();
+    doAnswer(invocation -> {
+      openDuringLookup.add(openTransactions.get());
+      return user;
+    }).when(userService).currentUser(anyString());
+
+    service.refresh(tokens.refreshToken());
+
+    assertThat(openDuringLookup).containsExactly(0);
+    verify(transactionManager).commit(any());
+    assertThat(openTransactions).hasValue(0);
+  }
+
+  private boolean isRevoked(RefreshTokenService.Tokens tokens) {
+    return revocations.isRevoked(tokens.claims().getAccessTokenId(), tokens.claims().getAccessExpiresAt().toInstant());
+  }
+
+  private RefreshToken find(UUID id) {
+    return stored.stream().filter(token -> Objects.equals(token.getId(), id)).findFirst().orElseThrow();
+  }
+
+  private static UserSyncRequest user(String role, String status) {
+    UserSyncRequest user = new UserSyncRequest(EMAIL, "Jane", "Doe", role);
+    user.setUserId(UUID.fromString("11111111-1111-1111-1111-111111111111"));
+    user.setTenantId(UUID.fromString("22222222-2222-2222-2222-222222222222"));
+    user.setStatus(status);
+    return user;
+  }
+}
@@ -0,0 +1,117 @@
+package com.ekyc.authservice.service;
+
+import com.ekyc.authservice.config.JwtProperties;
+import com.ekyc.authservice.entity.SigningKey;
+import com.ekyc.authservice.repository.SigningKeyRepository;
+import com.ekyc.authservice.util.TokenEngine;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.jsonwebtoken.JwtException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SigningKeyServiceTests {
+
+  private static final String SECRET = "mySuperSecretKeyWhichShouldBeOverridden";
+
+  private final List<SigningKey> stored = new ArrayList<>();
+  private final SigningKeyRepository repository = mock(SigningKeyRepository.class);
+  private final JwtProperties properties = new JwtProperties();
+
+  @BeforeEach
+  void setUp() {
+    properties.setSecret(SECRET);
+    properties.setKeyEncryptionSecret("anotherSecretOnlyForThePrivateKeys");
+    when(repository.findAll()).thenAnswer(invocation -> new ArrayList<>(stored));
+    when(repository.saveAndFlush(any(SigningKey.class))).thenAnswer(invocation -> {
+      stored.add(invocation.getArgument(0));
+      return invocation.getArgument(0);
+    });
+  }
+
+  @Test
+  void signsWithEs256() {
+    TokenEngine engine = start().engine();
+
+    String token = engine.mint("jane@example.com", "u1", "jane@example.com", "TENANT_ADMIN", null);
+
+    assertThat(engine.getSigningKeyId()).startsWith("es256-");
+    assertThat(engine.verify(token).get("role")).isEqualTo("TENANT_ADMIN");
+  }
+
+  @Test
+  void legacyTokenIsRejectedWithoutOptIn() {
+    TokenEngine engine = start().engine();
+
+    assertThatThrownBy(() -> engine.verify(legacyToken())).isInstanceOf(JwtException.class);
+  }
+
+  @Test
+  void legacyTokenIsAcceptedUntilCutoff() throws Exception {
+    properties.setLegacyAcceptUntil(OffsetDateTime.now().plusSeconds(1));
+    TokenEngine engine = start().engine();
+    String token = legacyToken();
+
+    assertThat(engine.verify(token).getSubject()).isEqualTo("jane@example.com");
+
+    // Rejected once the window closes, even before the next key refresh and though the token is unexpired
+    Thread.sleep(1100);
+    assertThatThrownBy(() -> engine.verify(token)).isInstanceOf(JwtException.class);
+  }
+
+  @Test
+  void legacyTokenIsRejectedAfterCutoff() {
+    properties.setLegacyAcceptUntil(OffsetDateTime.now().minusSeconds(1));
+    TokenEngine engine = start().engine();
+
+    assertThatThrownBy(() -> engine.verify(legacyToken())).isInstanceOf(JwtException.class);
+  }
+
+  @Test
+  void es256RequiresAKeyEncryptionSecret() {
+    properties.setKeyEncryptionSecret(null);
+
+    assertThatThrownBy(this::start).isInstanceOf(IllegalArgumentException.class)
+      .hasMessageContaining("JWT_KEY_ENCRYPTION_SECRET");
+  }
+
+  @Test
+  void es256RejectsTheJwtSecretAsKeyEncryptionSecret() {
+    properties.setKeyEncryptionSecret(SECRET);
+
+    assertThatThrownBy(this::start).isInstanceOf(IllegalArgumentException.class)
+      .hasMessageContaining("must differ from jwt.secret");
+  }
+
+  @Test
+  void hs256NeedsNoKeyEncryptionSecret() {
+    properties.setAlgorithm("HS256");
+    properties.setKeyEncryptionSecret(null);
+
+    assertThat(start().engine().getSigningKeyId()).isEqualTo("k1");
+  }
+
+  private SigningKeyService start() {
+    SigningKeyService service = new SigningKeyService(properties, repository, new ObjectMapper());
+    service.init();
+    return service;
+  }
+
+  /**
+   * Minted with jwt.secret and key-id, as auth-service did before switching to ES256.
+   */
+  private String legacyToken() {
+    return TokenEngine.hmac(properties.getKeyId(), SECRET, Map.of(), properties.getIssuer(), 300)
+      .mint("jane@example.com", "u1", "jane@example.com", "PLATFORM_ADMIN", null);
+  }
+}
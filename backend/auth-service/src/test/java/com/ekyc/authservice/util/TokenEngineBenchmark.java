@@ -0,0 +1,71 @@
+package com.ekyc.authservice.util;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.security.KeyPair;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mint and verify throughput of TokenEngine, HMAC vs ECDSA. The benchmark profile runs with -prof gc, so
+ * gc.alloc.rate.norm gives the bytes allocated per token minted or verified.
+ *
+ * mvn -Pbenchmark test-compile exec:exec -Dbenchmark=TokenEngineBenchmark
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class TokenEngineBenchmark {
+
+  @Param({"HS256", "ES256"})
+  String algorithm;
+
+  TokenEngine engine;
+  String token;
+  String userId;
+  String tenantId;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    if ("ES256".equals(algorithm)) {
+      KeyPair pair = Jwts.SIG.ES256.keyPair().build();
+      engine = new TokenEngine("es256-1", pair.getPrivate(), Map.of("es256-1", pair.getPublic()), null, null,
+        "ekyc-auth-service", 86400);
+    } else {
+      engine = TokenEngine.hmac("k2", "mySuperSecretKeyWhichShouldBeOverridden",
+        Map.of("k1", "previousSecretKeyWhichIsStillAccepted!!"), "ekyc-auth-service", 86400);
+    }
+    userId = UUID.randomUUID().toString();
+    tenantId = UUID.randomUUID().toString();
+    token = engine.mint("jane@example.com", userId, "jane@example.com", "TENANT_ADMIN", tenantId);
+  }
+
+  @Benchmark
+  public String mint() {
+    return engine.mint("jane@example.com", userId, "jane@example.com", "TENANT_ADMIN", tenantId);
+  }
+
+  @Benchmark
+  public Claims verify() {
+    return engine.verify(token);
+  }
+}
@@ -0,0 +1,179 @@
+package com.ekyc.common.util;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Compact set of revoked token ids, partitioned by token expiry.
+ *
+ * Each partition is a Bloom filter for the tokens expiring within one partition width. A token is
+ * only ever looked up in the partition of its own expiry, so a check costs a few hashes and bit
+ * reads, and whole partitions are recycled once all of their tokens have expired: memory stays
+ * bounded by the revocations of one token lifetime, with nothing to prune. Adds and lookups are
+ * lock-free.
+ *
+ * Like any Bloom filter it can report a token that was never revoked; size the partitions with
+ * the expected revocations per partition and the acceptable false positive rate, or confirm
+ * positives against the authoritative store. It never misses a revoked token that has not
+ * expired. Tokens expiring beyond the partitioned window (longer-lived than the filter was built
+ * for) are kept in an exact overflow map instead.
+ */
+public final class RevocationFilter {
+
+    private final long partitionMillis;
+    private final int bitMask;
+    private final int hashes;
+    private final AtomicReferenceArray<Partition> partitions;
+    private final Map<String, Long> overflow = new ConcurrentHashMap<>();
+
+    /**
+     * @param partitionWidth expiry range covered by one partition
+     * @param partitionCount number of partitions; they cover partitionCount - 1 widths ahead of now
+     * @param expectedPerPartition revocations expected per partition
+     * @param falsePositiveRate false positive rate of a partition holding expectedPerPartition ids
+     */
+    public RevocationFilter(Duration partitionWidth, int partitionCount, int expectedPerPartition, double falsePositiveRate) {
+        if (partitionWidth.toMillis() <= 0 || partitionCount < 2 || expectedPerPartition < 1
+                || falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("Invalid revocation filter sizing");
+        }
+        this.partitionMillis = partitionWidth.toMillis();
+        double ln2 = Math.log(2);
+        long optimalBits = (long) Math.ceil(-expectedPerPartition * Math.log(falsePositiveRate) / (ln2 * ln2));
+        int bits = Integer.highestOneBit((int) Math.min(1 << 29, Math.max(64, optimalBits - 1))) << 1;
+        this.bitMask = bits - 1;
+        this.hashes = (int) Math.max(1, Math.min(16, Math.round((double) bits / expectedPerPartition * ln2)));
+        this.partitions = new AtomicReferenceArray<>(partitionCount);
+        for (int i = 0; i < partitionCount; i++) {
+            partitions.set(i, new Partition(Long.MIN_VALUE, 0));
+        }
+    }
+
+    /**
+     * Filter for tokens living at most maxLifetime: partitionsPerLifetime partitions span one
+     * lifetime, plus the partition being recycled and the one of tokens expiring right now.
+     */
+    public static RevocationFilter forLifetime(Duration maxLifetime, int partitionsPerLifetime,
+                                               int expectedPerPartition, double falsePositiveRate) {
+        Duration width = maxLifetime.dividedBy(partitionsPerLifetime);
+        return new RevocationFilter(width.isZero() ? Duration.ofSeconds(1) : width, partitionsPerLifetime + 2,
+                expectedPerPartition, falsePositiveRate);
+    }
+
+    /**
+     * Record a revoked token id. Ids of tokens that have already expired are ignored.
+     */
+    public void add(String tokenId, long expiresAtMillis) {
+        long now = System.currentTimeMillis();
+        if (expiresAtMillis <= now) {
+            return;
+        }
+        long bucket = Math.floorDiv(expiresAtMillis, partitionMillis);
+        if (bucket - Math.floorDiv(now, partitionMillis) >= partitions.length() - 1) {
+            overflow.values().removeIf(expiresAt -> expiresAt <= now);
+            overflow.put(tokenId, expiresAtMillis);
+            return;
+        }
+        int slot = (int) Math.floorMod(bucket, (long) partitions.length());
+        Partition partition = partitions.get(slot);
+        while (partition.bucket < bucket) {
+            // Everything in the old partition has expired: start the slot afresh for this bucket
+            Partition fresh = new Partition(bucket, bitMask + 1);
+            if (partitions.compareAndSet(slot, partition, fresh)) {
+                partition = fresh;
+            } else {
+                partition = partitions.get(slot);
+            }
+        }
+        if (partition.bucket == bucket) {
+            partition.add(hash(tokenId), bitMask, hashes);
+        }
+    }
+
+    /**
+     * Whether the token may have been revoked. False is definite; true may be a false positive.
+     */
+    public boolean mightContain(String tokenId, long expiresAtMillis) {
+        if (!overflow.isEmpty() && overflow.containsKey(tokenId)) {
+            return true;
+        }
+        long bucket = Math.floorDiv(expiresAtMillis, partitionMillis);
+        Partition partition = partitions.get((int) Math.floorMod(bucket, (long) partitions.length()));
+        return partition.bucket == bucket && partition.contains(hash(tokenId), bitMask, hashes);
+    }
+
+    /**
+     * Revoked ids recorded for tokens that have not expired yet (approximate).
+     */
+    public int size() {
+        long now = System.currentTimeMillis();
+        overflow.values().removeIf(expiresAt -> expiresAt <= now);
+        long current = Math.floorDiv(now, partitionMillis);
+        int size = overflow.size();
+        for (int i = 0; i < partitions.length(); i++) {
+            Partition partition = partitions.get(i);
+            if (partition.bucket >= current) {
+                size += partition.count.get();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * 64-bit FNV-1a over the id's chars, finished with the MurmurHash3 mixer.
+     */
+    private static long hash(String tokenId) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < tokenId.length(); i++) {
+            h = (h ^ tokenId.charAt(i)) * 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private static final class Partition {
+        private final long bucket;
+        private final AtomicLongArray words;
+        private final AtomicInteger count = new AtomicInteger();
+
+        Partition(long bucket, int bits) {
+            this.bucket = bucket;
+            this.words = new AtomicLongArray(Math.max(1, bits >>> 6));
+        }
+
+        void add(long hash, int mask, int hashes) {
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32) | 1;
+            for (int i = 0; i < hashes; i++) {
+                int bit = (h1 + i * h2) & mask;
+                long flag = 1L << bit;
+                int word = bit >>> 6;
+                long current = words.get(word);
+                while ((current & flag) == 0 && !words.compareAndSet(word, current, current | flag)) {
+                    current = words.get(word);
+                }
+            }
+            count.incrementAndGet();
+        }
+
+        boolean contains(long hash, int mask, int hashes) {
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32) | 1;
+            for (int i = 0; i < hashes; i++) {
+                int bit = (h1 + i * h2) & mask;
+                if ((words.get(bit >>> 6) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
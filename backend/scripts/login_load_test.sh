@@ -0,0 +1,70 @@
+#!/bin/bash
+
+# Login latency load test
+# Compares the old login path against user-service (validate-credentials, then email lookup)
+# with the single /api/users/authenticate call, and measures end-to-end /api/auth/login and
+# /api/auth/refresh (each refresh sample logs in first, untimed, to get a fresh refresh token).
+#
+# Usage: ./login_load_test.sh <email> <password> [requests] [concurrency]
+# Env:   USER_SERVICE_URL (default http://localhost:9082)
+#        AUTH_SERVICE_URL (default http://localhost:9081)
+
+EMAIL=${1:?usage: $0 <email> <password> [requests] [concurrency]}
+PASSWORD=${2:?usage: $0 <email> <password> [requests] [concurrency]}
+REQUESTS=${3:-500}
+CONCURRENCY=${4:-20}
+USER_SERVICE_URL=${USER_SERVICE_URL:-http://localhost:9082}
+AUTH_SERVICE_URL=${AUTH_SERVICE_URL:-http://localhost:9081}
+
+export EMAIL PASSWORD USER_SERVICE_URL AUTH_SERVICE_URL
+
+# One sample per line, in milliseconds
+before() {
+    local t1 t2
+    t1=$(curl -s -o /dev/null -w '%{time_total}' -X POST "$USER_SERVICE_URL/api/users/validate-credentials" \
+        --data-urlencode "email=$EMAIL" --data-urlencode "password=$PASSWORD")
+    t2=$(curl -s -o /dev/null -w '%{time_total}' "$USER_SERVICE_URL/api/users/email/$EMAIL")
+    echo "$t1 $t2" | awk '{ printf "%.1f\n", ($1 + $2) * 1000 }'
+}
+
+after() {
+    curl -s -o /dev/null -w '%{time_total}' -X POST "$USER_SERVICE_URL/api/users/authenticate" \
+        --data-urlencode "email=$EMAIL" --data-urlencode "password=$PASSWORD" | awk '{ printf "%.1f\n", $1 * 1000 }'
+}
+
+login() {
+    curl -s -o /dev/null -w '%{time_total}' -X POST "$AUTH_SERVICE_URL/api/auth/login" \
+        -H 'Content-Type: application/json' \
+        -d "{\"email\":\"$EMAIL\",\"password\":\"$PASSWORD\"}" | awk '{ printf "%.1f\n", $1 * 1000 }'
+}
+
+refresh() {
+    local token
+    token=$(curl -s -X POST "$AUTH_SERVICE_URL/api/auth/login" -H 'Content-Type: application/json' \
+        -d "{\"email\":\"$EMAIL\",\"password\":\"$PASSWORD\"}" | sed -n 's/.*"refreshToken":"\([^"]*\)".*/\1/p')
+    curl -s -o /dev/null -w '%{time_total}' -X POST "$AUTH_SERVICE_URL/api/auth/refresh" \
+        -H 'Content-Type: application/json' \
+        -d "{\"refreshToken\":\"$token\"}" | awk '{ printf "%.1f\n", $1 * 1000 }'
+}
+
+export -f before after login refresh
+
+run() {
+    local name=$1
+    # Warm up connection pools and JIT before measuring
+    seq 20 | xargs -P "$CONCURRENCY" -I{} bash -c "$name" > /dev/null
+    seq "$REQUESTS" | xargs -P "$CONCURRENCY" -I{} bash -c "$name" | sort -n | awk -v name="$name" '
+        function pct(p,   i) { i = int(NR * p); return v[i < 1 ? 1 : i] }
+        { v[NR] = $1 }
+        END {
+            if (NR == 0) { print name ": no samples"; exit }
+            printf "%-8s n=%d  p50=%.1fms  p90=%.1fms  p99=%.1fms  max=%.1fms\n", name, NR, pct(0.50), pct(0.90), pct(0.99), v[NR]
+        }'
+}
+
+echo "Login load test: $REQUESTS requests, concurrency $CONCURRENCY"
+echo "================================"
+run before
+run after
+run login
+run refresh
@@ -26,6 +26,11 @@ public class SubscriptionController {
     return ResponseEntity.ok(service.getAllSubscriptions());
   }
 
+  @GetMapping("/tenant/{tenantId}")
+  public ResponseEntity<List<SubscriptionDto>> getSubscriptionsByTenant(@PathVariable UUID tenantId) {
+    return ResponseEntity.ok(service.getByTenantId(tenantId));
+  }
+
   @GetMapping("/{id}")
   public ResponseEntity<SubscriptionDto> getSubscriptionById(@PathVariable UUID id) {
     return ResponseEntity.ok(service.getSubscriptionById(id));
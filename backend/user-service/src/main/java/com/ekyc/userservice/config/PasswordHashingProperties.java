@@ -0,0 +1,35 @@
+package com.ekyc.userservice.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Password hashing pool, bound from password-hashing.*.
+ *
+ * Hashes run on a pool of dedicated threads (default: one per CPU) with at most queue-capacity
+ * waiting; beyond that requests are rejected with 503 instead of piling up on request threads.
+ * strength is the BCrypt cost (log2 rounds): raising it rehashes users' passwords at their next
+ * successful login.
+ */
+@ConfigurationProperties(prefix = "password-hashing")
+public class PasswordHashingProperties {
+    private int strength = 10;
+    /** Worker threads; 0 means one per available processor */
+    private int threads = 0;
+    private int queueCapacity = 32;
+    /** Longest a request waits for its hash, queueing included */
+    private Duration timeout = Duration.ofSeconds(5);
+
+    public int getStrength() { return strength; }
+    public void setStrength(int strength) { this.strength = strength; }
+
+    public int getThreads() { return threads > 0 ? threads : Runtime.getRuntime().availableProcessors(); }
+    public void setThreads(int threads) { this.threads = threads; }
+
+    public int getQueueCapacity() { return queueCapacity; }
+    public void setQueueCapacity(int queueCapacity) { this.queueCapacity = queueCapacity; }
+
+    public Duration getTimeout() { return timeout; }
+    public void setTimeout(Duration timeout) { this.timeout = timeout; }
+}
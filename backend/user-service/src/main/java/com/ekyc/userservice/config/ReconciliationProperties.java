@@ -0,0 +1,40 @@
+package com.ekyc.userservice.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Database/Keycloak reconciliation, bound from user-sync.reconciliation.*.
+ *
+ * Both sides are read page-size users at a time, and at most concurrency tenant buckets are
+ * compared at once, so memory stays bounded whatever the number of users. The report keeps the
+ * first max-drifts drifted users; the counts cover all of them.
+ */
+@ConfigurationProperties(prefix = "user-sync.reconciliation")
+public class ReconciliationProperties {
+    private boolean enabled = true;
+    /** When the scheduled run starts (Spring cron) */
+    private String cron = "0 0 3 * * *";
+    private int pageSize = 100;
+    private int concurrency = 2;
+    private int maxDrifts = 1000;
+    /** database-first or report-only; see ConflictPolicy */
+    private String policy = "database-first";
+
+    public boolean isEnabled() { return enabled; }
+    public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+    public String getCron() { return cron; }
+    public void setCron(String cron) { this.cron = cron; }
+
+    public int getPageSize() { return pageSize; }
+    public void setPageSize(int pageSize) { this.pageSize = pageSize; }
+
+    public int getConcurrency() { return concurrency; }
+    public void setConcurrency(int concurrency) { this.concurrency = concurrency; }
+
+    public int getMaxDrifts() { return maxDrifts; }
+    public void setMaxDrifts(int maxDrifts) { this.maxDrifts = maxDrifts; }
+
+    public String getPolicy() { return policy; }
+    public void setPolicy(String policy) { this.policy = policy; }
+}
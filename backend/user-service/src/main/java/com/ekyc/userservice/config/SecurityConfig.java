@@ -10,8 +10,8 @@ import org.springframework.web.client.RestTemplate;
 public class SecurityConfig {
 
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(PasswordHashingProperties passwordHashing) {
+        return new BCryptPasswordEncoder(passwordHashing.getStrength());
     }
 
     @Bean
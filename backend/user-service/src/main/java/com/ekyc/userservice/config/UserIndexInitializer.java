@@ -0,0 +1,46 @@
+package com.ekyc.userservice.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Expression indexes on auth.users that ddl-auto can't declare.
+ *
+ * Reconciliation pages users by lower(email) COLLATE "C" (see UserRepository); these indexes let
+ * each page be an index range scan instead of a full scan and sort. They are built concurrently,
+ * so startup doesn't block writes to a large table, and only if missing.
+ */
+@Component
+public class UserIndexInitializer {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserIndexInitializer.class);
+
+    static final List<String> INDEXES = List.of(
+            "CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_users_email_order"
+                    + " ON auth.users ((lower(email) COLLATE \"C\"))",
+            "CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_users_tenant_email_order"
+                    + " ON auth.users (tenant_id, (lower(email) COLLATE \"C\"))");
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public UserIndexInitializer(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void createIndexes() {
+        for (String index : INDEXES) {
+            try {
+                jdbcTemplate.execute(index);
+            } catch (Exception e) {
+                logger.warn("Could not create index on auth.users, reconciliation pages will scan the table: {}", e.getMessage());
+            }
+        }
+    }
+}
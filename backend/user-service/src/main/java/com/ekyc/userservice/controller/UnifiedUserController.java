@@ -1,8 +1,13 @@
 package com.ekyc.userservice.controller;
 
 import com.ekyc.common.dto.UserSyncRequest;
+import com.ekyc.userservice.dto.ReconciliationReport;
+import com.ekyc.userservice.service.PasswordHashingRejectedException;
 import com.ekyc.userservice.service.UnifiedUserService;
+import com.ekyc.userservice.service.UserReconciliationService;
 import jakarta.validation.Valid;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -13,9 +18,11 @@ import java.util.UUID;
 public class UnifiedUserController {
     
     private final UnifiedUserService unifiedUserService;
+    private final UserReconciliationService reconciliationService;
     
-    public UnifiedUserController(UnifiedUserService unifiedUserService) {
+    public UnifiedUserController(UnifiedUserService unifiedUserService, UserReconciliationService reconciliationService) {
         this.unifiedUserService = unifiedUserService;
+        this.reconciliationService = reconciliationService;
     }
     
     @PostMapping("/signup")
@@ -43,15 +50,33 @@ public class UnifiedUserController {
         return ResponseEntity.ok(user);
     }
     
+    /**
+     * Profile of a user by email, from the database (no password hash). Read only: use
+     * POST /sync/{email} to reconcile the user with Keycloak.
+     * 
+     * @return 200 with the profile, 404 if there is no such user in the database
+     */
     @GetMapping("/email/{email}")
     public ResponseEntity<UserSyncRequest> getUserByEmail(@PathVariable String email) {
-        // Check if user exists in either system
-        if (unifiedUserService.userExists(email)) {
-            // Try to sync user data
-            UserSyncRequest user = unifiedUserService.syncUser(email);
-            return ResponseEntity.ok(user);
+        UserSyncRequest user = unifiedUserService.getProfile(email);
+        if (user == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(user);
+    }
+    
+    /**
+     * Verify credentials and return the profile in one call (form parameters email, password).
+     * 
+     * @return 200 with the profile (no password hash), 401 if the credentials don't match a local user
+     */
+    @PostMapping("/authenticate")
+    public ResponseEntity<UserSyncRequest> authenticate(@RequestParam String email, @RequestParam String password) {
+        UserSyncRequest user = unifiedUserService.authenticate(email, password);
+        if (user == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         }
-        return ResponseEntity.notFound().build();
+        return ResponseEntity.ok(user);
     }
     
     @PostMapping("/validate-credentials")
@@ -123,4 +148,33 @@ public class UnifiedUserController {
         UserSyncRequest syncedUser = unifiedUserService.syncUser(email);
         return ResponseEntity.ok(syncedUser);
     }
-} 
\ No newline at end of file
+    
+    /**
+     * Drift report of the last database/Keycloak reconciliation
+     * 
+     * @return 200 with the report, 404 if none has run since startup
+     */
+    @GetMapping("/reconciliation")
+    public ResponseEntity<ReconciliationReport> getReconciliationReport() {
+        return ResponseEntity.of(reconciliationService.lastReport());
+    }
+    
+    /**
+     * Reconcile the database with Keycloak now
+     * 
+     * @return 200 with the drift report, 409 if a reconciliation is already running
+     */
+    @PostMapping("/reconciliation")
+    public ResponseEntity<ReconciliationReport> reconcile() {
+        return reconciliationService.run()
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.CONFLICT).build());
+    }
+
+    @ExceptionHandler(PasswordHashingRejectedException.class)
+    public ResponseEntity<String> handlePasswordHashingRejected(PasswordHashingRejectedException ex) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(ex.getMessage());
+    }
+}
@@ -2,8 +2,11 @@ package com.ekyc.userservice.controller;
 
 import com.ekyc.userservice.dto.CreateUserRequest;
 import com.ekyc.userservice.dto.UserDto;
+import com.ekyc.userservice.service.PasswordHashingRejectedException;
 import com.ekyc.userservice.service.UserService;
 import jakarta.validation.Valid;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -30,4 +33,11 @@ public class UserController {
   public ResponseEntity<UserDto> getUserById(@PathVariable UUID id) {
     return ResponseEntity.ok(service.getUserById(id));
   }
+
+  @ExceptionHandler(PasswordHashingRejectedException.class)
+  public ResponseEntity<String> handlePasswordHashingRejected(PasswordHashingRejectedException ex) {
+    return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+        .header(HttpHeaders.RETRY_AFTER, "1")
+        .body(ex.getMessage());
+  }
 }
@@ -0,0 +1,42 @@
+package com.ekyc.userservice.dto;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+
+/**
+ * Outcome of one database/Keycloak reconciliation run. drifts lists at most
+ * user-sync.reconciliation.max-drifts users (truncated says whether more were found);
+ * bucketsFailed counts tenant buckets that could not be compared to the end.
+ */
+public record ReconciliationReport(
+        OffsetDateTime startedAt,
+        OffsetDateTime finishedAt,
+        String policy,
+        long databaseUsers,
+        long keycloakUsers,
+        int buckets,
+        int bucketsDiffered,
+        int bucketsFailed,
+        long missingInKeycloak,
+        long missingInDatabase,
+        long mismatched,
+        long fixed,
+        long failed,
+        List<Drift> drifts,
+        boolean truncated
+) {
+
+    public enum Type { MISSING_IN_KEYCLOAK, MISSING_IN_DATABASE, MISMATCH }
+
+    /**
+     * One drifted user: what differs, the actions applied and, if they failed, why.
+     */
+    public record Drift(
+            String email,
+            String tenantId,
+            Type type,
+            List<String> fields,
+            List<String> actions,
+            String error
+    ) {}
+}
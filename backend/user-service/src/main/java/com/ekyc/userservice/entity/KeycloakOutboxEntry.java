@@ -0,0 +1,81 @@
+package com.ekyc.userservice.entity;
+
+import jakarta.persistence.*;
+
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+/**
+ * A user change still to be applied to Keycloak, written in the same transaction as the change
+ * itself and removed once KeycloakOutboxDispatcher has applied it.
+ */
+@Entity
+@Table(name = "keycloak_outbox", schema = "auth",
+        indexes = @Index(name = "idx_keycloak_outbox_next_attempt", columnList = "next_attempt_at, id"))
+public class KeycloakOutboxEntry {
+
+    public enum Operation { UPDATE, DELETE }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private UUID userId;
+
+    @Column(nullable = false)
+    private String email;
+
+    @Column(name = "keycloak_id")
+    private String keycloakId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Operation operation;
+
+    // Role before an update; the dispatcher removes it in Keycloak if the role changed
+    @Column(name = "previous_role")
+    private String previousRole;
+
+    @Column(nullable = false)
+    private int attempts;
+
+    @Column(name = "next_attempt_at", nullable = false)
+    private OffsetDateTime nextAttemptAt = OffsetDateTime.now();
+
+    @Column(name = "created_at", nullable = false)
+    private OffsetDateTime createdAt = OffsetDateTime.now();
+
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public UUID getUserId() { return userId; }
+    public void setUserId(UUID userId) { this.userId = userId; }
+
+    public String getEmail() { return email; }
+    public void setEmail(String email) { this.email = email; }
+
+    public String getKeycloakId() { return keycloakId; }
+    public void setKeycloakId(String keycloakId) { this.keycloakId = keycloakId; }
+
+    public Operation getOperation() { return operation; }
+    public void setOperation(Operation operation) { this.operation = operation; }
+
+    public String getPreviousRole() { return previousRole; }
+    public void setPreviousRole(String previousRole) { this.previousRole = previousRole; }
+
+    public int getAttempts() { return attempts; }
+    public void setAttempts(int attempts) { this.attempts = attempts; }
+
+    public OffsetDateTime getNextAttemptAt() { return nextAttemptAt; }
+    public void setNextAttemptAt(OffsetDateTime nextAttemptAt) { this.nextAttemptAt = nextAttemptAt; }
+
+    public OffsetDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(OffsetDateTime createdAt) { this.createdAt = createdAt; }
+
+    public String getLastError() { return lastError; }
+    public void setLastError(String lastError) { this.lastError = lastError; }
+}
@@ -0,0 +1,23 @@
+package com.ekyc.userservice.repository;
+
+import com.ekyc.userservice.entity.KeycloakOutboxEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Optional;
+
+public interface KeycloakOutboxRepository extends JpaRepository<KeycloakOutboxEntry, Long> {
+
+    /**
+     * Due entries, oldest first, locked for the current transaction. Entries locked by another
+     * dispatcher are skipped rather than waited for.
+     */
+    @Query(value = "SELECT * FROM auth.keycloak_outbox WHERE next_attempt_at <= :now ORDER BY id LIMIT :limit FOR UPDATE SKIP LOCKED",
+            nativeQuery = true)
+    List<KeycloakOutboxEntry> lockDue(@Param("now") OffsetDateTime now, @Param("limit") int limit);
+
+    Optional<KeycloakOutboxEntry> findFirstByOrderByIdAsc();
+}
@@ -2,6 +2,8 @@ package com.ekyc.userservice.repository;
 
 import com.ekyc.userservice.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.util.List;
 import java.util.Optional;
@@ -11,4 +13,20 @@ public interface UserRepository extends JpaRepository<User, UUID> {
     Optional<User> findByEmail(String email);
 
     List<User> findAllByTenantId(UUID tenantId);
+
+    // Keyset pages by lower-cased email, for reconciliation with Keycloak (which lower-cases usernames).
+    // COLLATE "C" orders by code point, as the reconciliation's merge-join does, whatever the database
+    // collation, and matches the expression indexes of UserIndexInitializer.
+
+    @Query(value = "SELECT * FROM auth.users WHERE lower(email) COLLATE \"C\" > :after"
+            + " ORDER BY lower(email) COLLATE \"C\" LIMIT :limit", nativeQuery = true)
+    List<User> findPageAfter(@Param("after") String afterEmail, @Param("limit") int limit);
+
+    @Query(value = "SELECT * FROM auth.users WHERE tenant_id = :tenantId AND lower(email) COLLATE \"C\" > :after"
+            + " ORDER BY lower(email) COLLATE \"C\" LIMIT :limit", nativeQuery = true)
+    List<User> findTenantPageAfter(@Param("tenantId") UUID tenantId, @Param("after") String afterEmail, @Param("limit") int limit);
+
+    @Query(value = "SELECT * FROM auth.users WHERE tenant_id IS NULL AND lower(email) COLLATE \"C\" > :after"
+            + " ORDER BY lower(email) COLLATE \"C\" LIMIT :limit", nativeQuery = true)
+    List<User> findUntenantedPageAfter(@Param("after") String afterEmail, @Param("limit") int limit);
 }
@@ -0,0 +1,32 @@
+package com.ekyc.userservice.service;
+
+import com.ekyc.common.dto.UserSyncRequest;
+
+import java.util.List;
+
+/**
+ * Decides how a user that differs between the database and Keycloak is fixed.
+ *
+ * The implementation in use is chosen with user-sync.reconciliation.policy (database-first or
+ * report-only); set it to anything else and declare a ConflictPolicy bean to plug in another.
+ */
+public interface ConflictPolicy {
+
+    enum Action {
+        /** Create the database user in Keycloak (without a password) and link the two */
+        CREATE_IN_KEYCLOAK,
+        /** Store the Keycloak user's ID on the database user */
+        LINK_KEYCLOAK_ID,
+        /** Queue an update of the Keycloak user from the database row */
+        PUSH_TO_KEYCLOAK
+    }
+
+    /**
+     * The actions to apply, in order; none leaves the drift reported but unfixed.
+     *
+     * @param dbUser the database user, or null if there is none
+     * @param keycloakUser the Keycloak user, or null if there is none
+     * @param differences names of the fields that differ (empty when one side is missing)
+     */
+    List<Action> resolve(UserSyncRequest dbUser, UserSyncRequest keycloakUser, List<String> differences);
+}
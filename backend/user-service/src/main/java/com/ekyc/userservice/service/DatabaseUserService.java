@@ -1,6 +1,7 @@
 package com.ekyc.userservice.service;
 
 import com.ekyc.common.dto.UserSyncRequest;
+import java.util.List;
 import java.util.UUID;
 
 /**
@@ -28,6 +29,17 @@ public interface DatabaseUserService {
      */
     UserSyncRequest findById(UUID userId);
     
+    /**
+     * Up to size users whose lower-cased email sorts after afterEmail (use "" for the first
+     * page), in that order
+     */
+    List<UserSyncRequest> findPage(String afterEmail, int size);
+    
+    /**
+     * Like findPage, restricted to one tenant; a null tenantId selects users without a tenant
+     */
+    List<UserSyncRequest> findTenantPage(UUID tenantId, String afterEmail, int size);
+    
     /**
      * Update user information
      */
@@ -38,6 +50,13 @@ public interface DatabaseUserService {
      */
     void updateKeycloakId(UUID userId, String keycloakId);
     
+    /**
+     * Verify email and password against the database in a single read.
+     * Returns the user's profile without password hash, or null if the user is unknown,
+     * has no local password, or the password doesn't match.
+     */
+    UserSyncRequest authenticate(String email, String password);
+    
     /**
      * Validate password for a user
      */
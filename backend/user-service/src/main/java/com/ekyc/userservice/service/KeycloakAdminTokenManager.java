@@ -0,0 +1,218 @@
+package com.ekyc.userservice.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Keycloak admin API access token, shared by all admin calls.
+ *
+ * The token from the master realm password grant is cached and renewed with its refresh token
+ * once it is within keycloak.admin.token-refresh-skew of expiry; the password grant is only
+ * repeated when there is no usable refresh token. One caller renews at a time: while the old
+ * token is still valid the others keep using it, once it has expired they wait for the renewal.
+ * A call rejected with 401 (token revoked, Keycloak restarted) is retried once with a new token.
+ */
+@Service
+public class KeycloakAdminTokenManager {
+
+    private static final Logger logger = LoggerFactory.getLogger(KeycloakAdminTokenManager.class);
+
+    private final RestTemplate restTemplate;
+    private final String tokenUrl;
+    private final String username;
+    private final String password;
+    private final long refreshSkewNanos;
+    private final LongSupplier nanoTime;
+    private final ReentrantLock renewLock = new ReentrantLock();
+    private final AtomicReference<AdminToken> current = new AtomicReference<>();
+    private final Counter passwordGrants;
+    private final Counter refreshGrants;
+    private final Counter retries;
+
+    public KeycloakAdminTokenManager(RestTemplate restTemplate,
+                                     @Value("${keycloak.auth-server-url:http://localhost:8080}") String keycloakUrl,
+                                     @Value("${keycloak.admin.username:admin}") String username,
+                                     @Value("${keycloak.admin.password:admin123}") String password,
+                                     @Value("${keycloak.admin.token-refresh-skew:15s}") Duration refreshSkew,
+                                     MeterRegistry meterRegistry) {
+        this(restTemplate, keycloakUrl, username, password, refreshSkew, meterRegistry, System::nanoTime);
+    }
+
+    KeycloakAdminTokenManager(RestTemplate restTemplate, String keycloakUrl, String username, String password,
+                              Duration refreshSkew, MeterRegistry meterRegistry, LongSupplier nanoTime) {
+        this.restTemplate = restTemplate;
+        this.tokenUrl = keycloakUrl + "/realms/master/protocol/openid-connect/token";
+        this.username = username;
+        this.password = password;
+        this.refreshSkewNanos = refreshSkew.toNanos();
+        this.nanoTime = nanoTime;
+        this.passwordGrants = grants(meterRegistry, "password");
+        this.refreshGrants = grants(meterRegistry, "refresh_token");
+        this.retries = Counter.builder("keycloak.admin.token.retries")
+                .description("Admin calls retried with a new token after a 401")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Run an admin call with the current token, retrying it once with a new token on 401.
+     * The call should be a single request, so that retrying it is safe.
+     */
+    public <T> T execute(Function<String, T> call) {
+        String token = token();
+        try {
+            return call.apply(token);
+        } catch (RuntimeException e) {
+            if (!isUnauthorized(e)) {
+                throw e;
+            }
+            logger.info("Keycloak rejected the admin token, retrying with a new one");
+            retries.increment();
+            expire(token);
+            return call.apply(token());
+        }
+    }
+
+    public void run(Consumer<String> call) {
+        execute(token -> {
+            call.accept(token);
+            return null;
+        });
+    }
+
+    /**
+     * A valid admin access token, renewed ahead of expiry.
+     */
+    public String token() {
+        AdminToken token = current.get();
+        long now = nanoTime.getAsLong();
+        if (token != null && now - token.renewAt < 0) {
+            return token.accessToken;
+        }
+        if (token != null && now - token.expiresAt < 0) {
+            // Still valid: one caller renews it early, the others carry on with it
+            if (renewLock.tryLock()) {
+                try {
+                    if (current.get() == token) {
+                        current.set(grant(token));
+                    }
+                } catch (RuntimeException e) {
+                    logger.warn("Could not renew Keycloak admin token ahead of expiry: {}", e.getMessage());
+                } finally {
+                    renewLock.unlock();
+                }
+            }
+            return current.get().accessToken;
+        }
+        renewLock.lock();
+        try {
+            token = current.get();
+            if (token == null || nanoTime.getAsLong() - token.expiresAt >= 0) {
+                token = grant(token);
+                current.set(token);
+            }
+            return token.accessToken;
+        } finally {
+            renewLock.unlock();
+        }
+    }
+
+    /**
+     * Treat the token as expired, keeping its refresh token for the renewal.
+     */
+    private void expire(String accessToken) {
+        AdminToken token = current.get();
+        if (token != null && token.accessToken.equals(accessToken)) {
+            long now = nanoTime.getAsLong();
+            current.compareAndSet(token, new AdminToken(token.accessToken, now, now, token.refreshToken, token.refreshExpiresAt));
+        }
+    }
+
+    private AdminToken grant(AdminToken previous) {
+        if (previous != null && previous.refreshToken != null && nanoTime.getAsLong() - previous.refreshExpiresAt < 0) {
+            try {
+                MultiValueMap<String, String> body = new LinkedMultiValueMap<>();
+                body.add("grant_type", "refresh_token");
+                body.add("client_id", "admin-cli");
+                body.add("refresh_token", previous.refreshToken);
+                AdminToken renewed = request(body);
+                refreshGrants.increment();
+                return renewed;
+            } catch (HttpClientErrorException e) {
+                // Session ended on the Keycloak side: log in again
+                logger.debug("Keycloak admin refresh token rejected ({}), using the password grant", e.getStatusCode());
+            }
+        }
+        MultiValueMap<String, String> body = new LinkedMultiValueMap<>();
+        body.add("grant_type", "password");
+        body.add("client_id", "admin-cli");
+        body.add("username", username);
+        body.add("password", password);
+        AdminToken token = request(body);
+        passwordGrants.increment();
+        return token;
+    }
+
+    private AdminToken request(MultiValueMap<String, String> body) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_FORM_URLENCODED);
+        long requestedAt = nanoTime.getAsLong();
+        Map<?, ?> response = restTemplate.postForObject(tokenUrl, new HttpEntity<>(body, headers), Map.class);
+        if (response == null || !(response.get("access_token") instanceof String accessToken)) {
+            throw new IllegalStateException("No access token in Keycloak admin token response");
+        }
+        long expiresIn = seconds(response.get("expires_in"), 60);
+        long refreshExpiresIn = seconds(response.get("refresh_expires_in"), 0);
+        long expiresAt = requestedAt + Duration.ofSeconds(expiresIn).toNanos();
+        // Short-lived tokens are renewed halfway through rather than not at all
+        long renewAt = expiresAt - Math.min(refreshSkewNanos, Duration.ofSeconds(expiresIn).toNanos() / 2);
+        String refreshToken = response.get("refresh_token") instanceof String value ? value : null;
+        logger.debug("Obtained Keycloak admin token valid for {}s", expiresIn);
+        return new AdminToken(accessToken, renewAt, expiresAt, refreshToken,
+                requestedAt + Duration.ofSeconds(refreshExpiresIn).toNanos());
+    }
+
+    private static long seconds(Object value, long defaultValue) {
+        return value instanceof Number number ? number.longValue() : defaultValue;
+    }
+
+    private static boolean isUnauthorized(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof HttpClientErrorException.Unauthorized) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Counter grants(MeterRegistry meterRegistry, String grantType) {
+        return Counter.builder("keycloak.admin.token.grants")
+                .description("Keycloak admin tokens obtained by grant type")
+                .tag("grant", grantType)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Times are nanoTime values.
+     */
+    private record AdminToken(String accessToken, long renewAt, long expiresAt, String refreshToken, long refreshExpiresAt) {
+    }
+}
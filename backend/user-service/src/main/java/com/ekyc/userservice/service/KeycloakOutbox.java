@@ -0,0 +1,121 @@
+package com.ekyc.userservice.service;
+
+import com.ekyc.common.dto.UserSyncRequest;
+import com.ekyc.userservice.entity.KeycloakOutboxEntry;
+import com.ekyc.userservice.repository.KeycloakOutboxRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Outbox of user changes still to be applied to Keycloak.
+ *
+ * Changes are recorded in the caller's transaction, so they reach Keycloak if and only if they
+ * commit, and no Keycloak call holds a database connection. KeycloakOutboxDispatcher claims due
+ * entries, applies them and removes them; a claim is a lease (keycloak.outbox.lease), so entries
+ * of a dispatcher that died are picked up again once it runs out.
+ */
+@Service
+public class KeycloakOutbox {
+
+    private final KeycloakOutboxRepository repository;
+    private final Duration lease;
+    private final Duration backoffBase;
+    private final Duration backoffMax;
+
+    public KeycloakOutbox(KeycloakOutboxRepository repository,
+                          @Value("${keycloak.outbox.lease:60s}") Duration lease,
+                          @Value("${keycloak.outbox.backoff-base:1s}") Duration backoffBase,
+                          @Value("${keycloak.outbox.backoff-max:5m}") Duration backoffMax) {
+        this.repository = repository;
+        this.lease = lease;
+        this.backoffBase = backoffBase;
+        this.backoffMax = backoffMax;
+    }
+
+    /**
+     * Record that the user changed; the dispatcher pushes the user's current row to Keycloak.
+     *
+     * @param before the user as it was before the change, for its email, Keycloak ID and role
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void userUpdated(UserSyncRequest before) {
+        KeycloakOutboxEntry entry = entry(KeycloakOutboxEntry.Operation.UPDATE, before.getUserId(), before.getEmail(), before.getKeycloakId());
+        entry.setPreviousRole(before.getRole());
+        repository.save(entry);
+    }
+
+    /**
+     * Record that the user was deleted. Without a Keycloak ID the user is looked up by email at
+     * dispatch, unless the email is in the database again by then.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void userDeleted(UUID userId, String email, String keycloakId) {
+        repository.save(entry(KeycloakOutboxEntry.Operation.DELETE, userId, email, keycloakId));
+    }
+
+    /**
+     * Claim up to limit due entries, oldest first, skipping those another dispatcher holds.
+     */
+    @Transactional
+    public List<KeycloakOutboxEntry> claim(int limit) {
+        return claim(limit, OffsetDateTime.now());
+    }
+
+    List<KeycloakOutboxEntry> claim(int limit, OffsetDateTime now) {
+        List<KeycloakOutboxEntry> due = repository.lockDue(now, limit);
+        OffsetDateTime leasedUntil = now.plus(lease);
+        due.forEach(entry -> entry.setNextAttemptAt(leasedUntil));
+        return due;
+    }
+
+    @Transactional
+    public void applied(Collection<Long> ids) {
+        repository.deleteAllByIdInBatch(ids);
+    }
+
+    /**
+     * Schedule the entries for another attempt, backing off exponentially with their attempts.
+     */
+    @Transactional
+    public void failed(Collection<Long> ids, String error) {
+        failed(ids, error, OffsetDateTime.now());
+    }
+
+    void failed(Collection<Long> ids, String error, OffsetDateTime now) {
+        for (KeycloakOutboxEntry entry : repository.findAllById(ids)) {
+            int attempts = entry.getAttempts() + 1;
+            long backoff = backoffBase.toMillis() << Math.min(attempts - 1, 20);
+            entry.setAttempts(attempts);
+            entry.setNextAttemptAt(now.plus(Duration.ofMillis(Math.min(backoff, backoffMax.toMillis()))));
+            entry.setLastError(error != null && error.length() > 1000 ? error.substring(0, 1000) : error);
+        }
+    }
+
+    public long backlog() {
+        return repository.count();
+    }
+
+    /**
+     * When the oldest pending entry was recorded, or null if the outbox is empty.
+     */
+    public OffsetDateTime oldest() {
+        return repository.findFirstByOrderByIdAsc().map(KeycloakOutboxEntry::getCreatedAt).orElse(null);
+    }
+
+    private static KeycloakOutboxEntry entry(KeycloakOutboxEntry.Operation operation, UUID userId, String email, String keycloakId) {
+        KeycloakOutboxEntry entry = new KeycloakOutboxEntry();
+        entry.setOperation(operation);
+        entry.setUserId(userId);
+        entry.setEmail(email);
+        entry.setKeycloakId(keycloakId);
+        return entry;
+    }
+}
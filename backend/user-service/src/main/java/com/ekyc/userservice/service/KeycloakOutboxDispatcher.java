@@ -0,0 +1,219 @@
+package com.ekyc.userservice.service;
+
+import com.ekyc.common.dto.UserSyncRequest;
+import com.ekyc.userservice.entity.KeycloakOutboxEntry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Drains the Keycloak outbox in the background.
+ *
+ * Every keycloak.outbox.poll-interval-ms it claims batches of batch-size due entries until the
+ * outbox has no more. A batch is applied per user: any number of pending updates become one PUT
+ * of the user's current row (plus a role swap if the role changed), and a delete supersedes
+ * them. A user whose change fails is retried with backoff, without holding up the others.
+ *
+ * Metrics: keycloak.outbox.backlog (pending entries), keycloak.outbox.oldest.age (seconds the
+ * oldest has waited), keycloak.outbox.lag (recorded to applied), keycloak.outbox.applied
+ * {operation}, keycloak.outbox.collapsed and keycloak.outbox.failures.
+ */
+@Service
+public class KeycloakOutboxDispatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(KeycloakOutboxDispatcher.class);
+
+    private final KeycloakOutbox outbox;
+    private final DatabaseUserService databaseUserService;
+    private final KeycloakUserService keycloakUserService;
+    private final int batchSize;
+    private final AtomicLong backlog = new AtomicLong();
+    private final AtomicLong oldestAgeSeconds = new AtomicLong();
+    private final Timer lag;
+    private final Counter updates;
+    private final Counter deletes;
+    private final Counter collapsed;
+    private final Counter failures;
+
+    public KeycloakOutboxDispatcher(KeycloakOutbox outbox, DatabaseUserService databaseUserService,
+                                    KeycloakUserService keycloakUserService,
+                                    @Value("${keycloak.outbox.batch-size:100}") int batchSize,
+                                    MeterRegistry meterRegistry) {
+        this.outbox = outbox;
+        this.databaseUserService = databaseUserService;
+        this.keycloakUserService = keycloakUserService;
+        this.batchSize = batchSize;
+        Gauge.builder("keycloak.outbox.backlog", backlog, AtomicLong::get)
+                .description("User changes waiting to be applied to Keycloak")
+                .register(meterRegistry);
+        Gauge.builder("keycloak.outbox.oldest.age", oldestAgeSeconds, AtomicLong::get)
+                .description("Seconds the oldest pending Keycloak change has waited")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        this.lag = Timer.builder("keycloak.outbox.lag")
+                .description("Time from a user change to its application in Keycloak")
+                .register(meterRegistry);
+        this.updates = applied(meterRegistry, "update");
+        this.deletes = applied(meterRegistry, "delete");
+        this.collapsed = Counter.builder("keycloak.outbox.collapsed")
+                .description("Outbox entries merged into another change of the same user")
+                .register(meterRegistry);
+        this.failures = Counter.builder("keycloak.outbox.failures")
+                .description("User changes that failed in Keycloak and will be retried")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${keycloak.outbox.poll-interval-ms:1000}")
+    public void dispatch() {
+        try {
+            List<KeycloakOutboxEntry> batch;
+            do {
+                batch = outbox.claim(batchSize);
+                dispatch(batch);
+            } while (batch.size() == batchSize);
+        } catch (Exception e) {
+            logger.warn("Keycloak outbox dispatch interrupted: {}", e.getMessage());
+        } finally {
+            updateBacklog();
+        }
+    }
+
+    private void dispatch(List<KeycloakOutboxEntry> batch) {
+        Map<UUID, List<KeycloakOutboxEntry>> byUser = new LinkedHashMap<>();
+        for (KeycloakOutboxEntry entry : batch) {
+            byUser.computeIfAbsent(entry.getUserId(), id -> new ArrayList<>()).add(entry);
+        }
+        collapsed.increment(batch.size() - byUser.size());
+        List<Long> done = new ArrayList<>();
+        for (Map.Entry<UUID, List<KeycloakOutboxEntry>> user : byUser.entrySet()) {
+            List<KeycloakOutboxEntry> entries = user.getValue();
+            try {
+                apply(user.getKey(), entries);
+                entries.forEach(entry -> done.add(entry.getId()));
+                lag.record(Duration.between(entries.get(0).getCreatedAt(), OffsetDateTime.now()));
+            } catch (Exception e) {
+                logger.warn("Could not apply {} outbox entries of user {} to Keycloak: {}", entries.size(), user.getKey(), e.getMessage());
+                failures.increment();
+                outbox.failed(entries.stream().map(KeycloakOutboxEntry::getId).toList(), e.getMessage());
+            }
+        }
+        if (!done.isEmpty()) {
+            outbox.applied(done);
+        }
+    }
+
+    private void apply(UUID userId, List<KeycloakOutboxEntry> entries) {
+        String keycloakId = null;
+        boolean deleted = false;
+        Set<String> previousRoles = new LinkedHashSet<>();
+        for (KeycloakOutboxEntry entry : entries) {
+            keycloakId = entry.getKeycloakId() != null ? entry.getKeycloakId() : keycloakId;
+            deleted |= entry.getOperation() == KeycloakOutboxEntry.Operation.DELETE;
+            if (entry.getPreviousRole() != null) {
+                previousRoles.add(entry.getPreviousRole());
+            }
+        }
+        String email = entries.get(entries.size() - 1).getEmail();
+
+        if (deleted) {
+            if (keycloakId == null) {
+                // Not resolved when the delete was recorded: the email's Keycloak user now is
+                // only the deleted one's if the email hasn't signed up again since
+                if (databaseUserService.findByEmail(email) != null) {
+                    logger.warn("User {} is in the database again, leaving its Keycloak user alone", email);
+                    deletes.increment();
+                    return;
+                }
+                keycloakId = keycloakUserService.findIdByEmail(email);
+            }
+            if (keycloakId != null) {
+                keycloakUserService.deleteUser(keycloakId);
+            }
+            deletes.increment();
+            return;
+        }
+
+        UserSyncRequest current = databaseUserService.findById(userId);
+        if (current == null) {
+            // Deleted since; the delete has its own entry
+            return;
+        }
+        if (current.getKeycloakId() != null) {
+            keycloakId = current.getKeycloakId();
+        }
+        if (keycloakId == null) {
+            keycloakId = keycloakUserService.findIdByEmail(current.getEmail());
+        }
+        if (keycloakId == null) {
+            logger.warn("User {} has no Keycloak account, skipping its update", current.getEmail());
+            return;
+        }
+        try {
+            // Keycloak's side of UserSyncRequest carries the Keycloak ID as userId
+            UserSyncRequest keycloakUser = new UserSyncRequest();
+            keycloakUser.setUserId(UUID.fromString(keycloakId));
+            keycloakUser.setEmail(current.getEmail());
+            keycloakUser.setFirstName(current.getFirstName());
+            keycloakUser.setLastName(current.getLastName());
+            keycloakUserService.updateUser(keycloakUser);
+
+            previousRoles.remove(current.getRole());
+            if (!previousRoles.isEmpty() && current.getRole() != null) {
+                keycloakUserService.assignRole(keycloakId, current.getRole());
+                for (String role : previousRoles) {
+                    keycloakUserService.removeRole(keycloakId, role);
+                }
+            }
+        } catch (RuntimeException e) {
+            if (!isNotFound(e)) {
+                throw e;
+            }
+            logger.warn("User {} is no longer in Keycloak, skipping its update", current.getEmail());
+        }
+        updates.increment();
+    }
+
+    private void updateBacklog() {
+        try {
+            backlog.set(outbox.backlog());
+            OffsetDateTime oldest = outbox.oldest();
+            oldestAgeSeconds.set(oldest != null ? Math.max(0, Duration.between(oldest, OffsetDateTime.now()).toSeconds()) : 0);
+        } catch (Exception e) {
+            logger.debug("Could not read Keycloak outbox backlog: {}", e.getMessage());
+        }
+    }
+
+    private static boolean isNotFound(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof HttpClientErrorException.NotFound) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Counter applied(MeterRegistry meterRegistry, String operation) {
+        return Counter.builder("keycloak.outbox.applied")
+                .description("User changes applied to Keycloak by operation")
+                .tag("operation", operation)
+                .register(meterRegistry);
+    }
+}
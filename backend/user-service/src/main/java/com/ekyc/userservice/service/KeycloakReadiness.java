@@ -0,0 +1,77 @@
+package com.ekyc.userservice.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Keycloak readiness, probed in the background instead of before every user operation.
+ *
+ * /health/ready is polled every keycloak.readiness.interval-ms and the last result is reported as
+ * the "keycloak" component of /actuator/health. Provisioning doesn't wait on it: a request made
+ * while Keycloak is down fails on its own first call.
+ */
+@Component("keycloak")
+public class KeycloakReadiness implements HealthIndicator {
+
+    private static final Logger logger = LoggerFactory.getLogger(KeycloakReadiness.class);
+
+    private final RestTemplate restTemplate;
+    private final String healthUrl;
+
+    private volatile Boolean ready;
+    private volatile String lastError;
+    private volatile Instant checkedAt;
+
+    public KeycloakReadiness(RestTemplateBuilder restTemplateBuilder,
+                             @Value("${keycloak.auth-server-url:http://localhost:8080}") String keycloakUrl,
+                             @Value("${keycloak.readiness.timeout:2s}") Duration timeout) {
+        this.restTemplate = restTemplateBuilder.connectTimeout(timeout).readTimeout(timeout).build();
+        this.healthUrl = keycloakUrl + "/health/ready";
+    }
+
+    @Scheduled(fixedDelayString = "${keycloak.readiness.interval-ms:10000}")
+    public void probe() {
+        boolean nowReady;
+        String error = null;
+        try {
+            nowReady = restTemplate.getForEntity(healthUrl, String.class).getStatusCode().is2xxSuccessful();
+        } catch (Exception e) {
+            nowReady = false;
+            error = e.getMessage();
+        }
+        Boolean previous = ready;
+        ready = nowReady;
+        lastError = error;
+        checkedAt = Instant.now();
+        if (previous == null || previous != nowReady) {
+            if (nowReady) {
+                logger.info("Keycloak is ready");
+            } else {
+                logger.warn("Keycloak is not ready: {}", error != null ? error : "not ready");
+            }
+        }
+    }
+
+    @Override
+    public Health health() {
+        if (ready == null) {
+            return Health.unknown().build();
+        }
+        Health.Builder health = ready ? Health.up() : Health.down();
+        health.withDetail("checkedAt", checkedAt.toString());
+        if (lastError != null) {
+            health.withDetail("error", lastError);
+        }
+        return health.build();
+    }
+}
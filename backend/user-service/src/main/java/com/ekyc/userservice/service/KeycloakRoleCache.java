@@ -0,0 +1,135 @@
+package com.ekyc.userservice.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Keycloak realm roles by name, so resolving a role for a role mapping is a map lookup instead of
+ * listing every realm role.
+ *
+ * All realm roles are loaded once at startup. A name that isn't cached is fetched on its own
+ * (GET /roles/{name}); names Keycloak doesn't know are remembered as missing for
+ * keycloak.roles.negative-ttl, so a role created meanwhile (by another instance) shows up soon.
+ * Roles created here are cached as soon as they exist.
+ */
+@Service
+public class KeycloakRoleCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(KeycloakRoleCache.class);
+
+    private final RestTemplate restTemplate;
+    private final KeycloakAdminTokenManager adminTokens;
+    private final String rolesUrl;
+    private final Cache<String, Optional<Role>> roles;
+
+    public KeycloakRoleCache(RestTemplate restTemplate, KeycloakAdminTokenManager adminTokens,
+                             @Value("${keycloak.auth-server-url:http://localhost:8080}") String keycloakUrl,
+                             @Value("${keycloak.realm:ekyc}") String realm,
+                             @Value("${keycloak.roles.ttl:1h}") Duration ttl,
+                             @Value("${keycloak.roles.negative-ttl:30s}") Duration negativeTtl,
+                             @Value("${keycloak.roles.max-size:10000}") long maxSize,
+                             MeterRegistry meterRegistry) {
+        this.restTemplate = restTemplate;
+        this.adminTokens = adminTokens;
+        this.rolesUrl = keycloakUrl + "/admin/realms/" + realm + "/roles";
+        this.roles = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new PositiveOrNegativeTtl(ttl.toNanos(), negativeTtl.toNanos()))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, roles, "keycloak.roles");
+    }
+
+    /**
+     * The realm role with this name, or empty if Keycloak has none.
+     *
+     * @throws RuntimeException if Keycloak can't be asked
+     */
+    public Optional<Role> find(String name) {
+        return roles.get(name, this::load);
+    }
+
+    /**
+     * Record a role that was just created, replacing a cached miss.
+     */
+    public Optional<Role> created(String name) {
+        Optional<Role> role = load(name);
+        roles.put(name, role);
+        return role;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warm() {
+        try {
+            Map<?, ?>[] all = adminTokens.execute(adminToken -> restTemplate.exchange(rolesUrl, HttpMethod.GET,
+                    new HttpEntity<>(bearer(adminToken)), Map[].class).getBody());
+            if (all != null) {
+                for (Map<?, ?> representation : all) {
+                    Role role = Role.of(representation);
+                    roles.put(role.name(), Optional.of(role));
+                }
+                logger.info("Cached {} Keycloak realm roles", all.length);
+            }
+        } catch (Exception e) {
+            logger.warn("Could not load Keycloak realm roles, resolving them on demand: {}", e.getMessage());
+        }
+    }
+
+    private Optional<Role> load(String name) {
+        try {
+            Map<?, ?> representation = adminTokens.execute(adminToken -> restTemplate.exchange(rolesUrl + "/{name}",
+                    HttpMethod.GET, new HttpEntity<>(bearer(adminToken)), Map.class, name).getBody());
+            return representation != null ? Optional.of(Role.of(representation)) : Optional.empty();
+        } catch (HttpClientErrorException.NotFound e) {
+            logger.debug("Keycloak realm role {} does not exist", name);
+            return Optional.empty();
+        }
+    }
+
+    private static HttpHeaders bearer(String adminToken) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth(adminToken);
+        return headers;
+    }
+
+    public record Role(String id, String name) {
+        static Role of(Map<?, ?> representation) {
+            return new Role((String) representation.get("id"), (String) representation.get("name"));
+        }
+    }
+
+    private record PositiveOrNegativeTtl(long ttlNanos, long negativeTtlNanos) implements Expiry<String, Optional<Role>> {
+        @Override
+        public long expireAfterCreate(String name, Optional<Role> role, long currentTime) {
+            return role.isPresent() ? ttlNanos : negativeTtlNanos;
+        }
+
+        @Override
+        public long expireAfterUpdate(String name, Optional<Role> role, long currentTime, long currentDuration) {
+            return expireAfterCreate(name, role, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String name, Optional<Role> role, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.ekyc.userservice.service;
 
 import com.ekyc.common.dto.UserSyncRequest;
+import java.util.List;
 import java.util.UUID;
 
 /**
@@ -23,6 +24,19 @@ public interface KeycloakUserService {
      */
     UserSyncRequest findByEmail(String email);
     
+    /**
+     * Keycloak ID of the user with exactly this email, or null if there is none.
+     * Unlike findByEmail, throws if Keycloak can't be asked.
+     */
+    String findIdByEmail(String email);
+    
+    /**
+     * A page of realm users (first, max) in Keycloak's order, by username, with their tenantId
+     * and role attributes; userId and keycloakId both hold the Keycloak ID. With a tenantId,
+     * only that tenant's users. Throws if Keycloak can't be asked.
+     */
+    List<UserSyncRequest> listUsers(UUID tenantId, int first, int max);
+    
     /**
      * Find user by social provider and social user ID
      */
@@ -64,12 +78,12 @@ public interface KeycloakUserService {
     boolean existsById(String keycloakUserId);
     
     /**
-     * Assign role to user
+     * Assign role to user (throws if Keycloak rejects it)
      */
     void assignRole(String keycloakUserId, String role);
     
     /**
-     * Remove role from user
+     * Remove role from user (throws if Keycloak rejects it; a role Keycloak doesn't know is ignored)
      */
     void removeRole(String keycloakUserId, String role);
 } 
\ No newline at end of file
@@ -0,0 +1,14 @@
+package com.ekyc.userservice.service;
+
+import com.ekyc.common.constants.MessageCodes;
+import com.ekyc.common.exception.SaaSPlatformException;
+
+/**
+ * The password hashing pool is saturated; the caller should retry shortly.
+ */
+public class PasswordHashingRejectedException extends SaaSPlatformException {
+
+    public PasswordHashingRejectedException(String message) {
+        super(MessageCodes.ERROR_SERVICE_UNAVAILABLE, message);
+    }
+}
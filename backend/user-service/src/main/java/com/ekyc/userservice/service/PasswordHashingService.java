@@ -0,0 +1,171 @@
+package com.ekyc.userservice.service;
+
+import com.ekyc.userservice.config.PasswordHashingProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+/**
+ * BCrypt hashing and verification on a dedicated, bounded pool.
+ *
+ * Hashing is CPU-bound and deliberately slow, so it doesn't run on request threads: at most
+ * one hash per pool thread runs at a time, a bounded queue absorbs short bursts, and anything
+ * beyond that is rejected at once with PasswordHashingRejectedException (503) rather than
+ * starving the endpoints that don't hash.
+ *
+ * verify also reports when a stored password should be replaced: BCrypt hashes below the
+ * configured strength, and legacy rows holding the password itself rather than a hash. The new
+ * hash is computed in the same task, while the password is at hand.
+ */
+@Service
+public class PasswordHashingService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PasswordHashingService.class);
+    private static final Pattern BCRYPT = Pattern.compile("^\\$2[aby]?\\$\\d\\d\\$[./0-9A-Za-z]{53}$");
+
+    private final BCryptPasswordEncoder encoder;
+    private final ThreadPoolExecutor executor;
+    private final long timeoutMillis;
+    private final Timer hashTimer;
+    private final Timer verifyTimer;
+    private final Timer waitTimer;
+    private final Counter rejected;
+    private final Counter upgraded;
+
+    public PasswordHashingService(PasswordHashingProperties properties, MeterRegistry meterRegistry) {
+        this.encoder = new BCryptPasswordEncoder(properties.getStrength());
+        this.timeoutMillis = properties.getTimeout().toMillis();
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(properties.getThreads(), properties.getThreads(), 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(properties.getQueueCapacity()), runnable -> {
+                    Thread thread = new Thread(runnable, "password-hash-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+
+        this.hashTimer = operationTimer(meterRegistry, "hash");
+        this.verifyTimer = operationTimer(meterRegistry, "verify");
+        this.waitTimer = Timer.builder("user.password.hashing.wait")
+                .description("Time password hashing tasks spend queued")
+                .register(meterRegistry);
+        this.rejected = Counter.builder("user.password.hashing.rejected")
+                .description("Hashing requests rejected because the pool was saturated")
+                .register(meterRegistry);
+        this.upgraded = Counter.builder("user.password.hashing.upgraded")
+                .description("Stored passwords rehashed at login (legacy or below the configured strength)")
+                .register(meterRegistry);
+        Gauge.builder("user.password.hashing.queue", executor, pool -> pool.getQueue().size())
+                .description("Hashing tasks waiting for a thread")
+                .register(meterRegistry);
+        Gauge.builder("user.password.hashing.active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("Hashing tasks running")
+                .register(meterRegistry);
+        logger.info("Password hashing: BCrypt strength {}, {} threads, queue {}", properties.getStrength(),
+                properties.getThreads(), properties.getQueueCapacity());
+    }
+
+    public String hash(String rawPassword) {
+        return submit(() -> hashTimer.record(() -> encoder.encode(rawPassword)));
+    }
+
+    /**
+     * Check a password against the stored value.
+     *
+     * @return whether it matches and, if so, a replacement hash when the stored value is outdated
+     */
+    public Verification verify(String rawPassword, String stored) {
+        if (rawPassword == null || stored == null) {
+            return Verification.NO_MATCH;
+        }
+        return submit(() -> verifyTimer.record(() -> {
+            if (!isHash(stored)) {
+                // Legacy row holding the password itself
+                boolean matches = MessageDigest.isEqual(rawPassword.getBytes(StandardCharsets.UTF_8),
+                        stored.getBytes(StandardCharsets.UTF_8));
+                return matches ? upgrade(rawPassword) : Verification.NO_MATCH;
+            }
+            if (!encoder.matches(rawPassword, stored)) {
+                return Verification.NO_MATCH;
+            }
+            return encoder.upgradeEncoding(stored) ? upgrade(rawPassword) : Verification.MATCH;
+        }));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private static boolean isHash(String value) {
+        return value != null && BCRYPT.matcher(value).matches();
+    }
+
+    private Verification upgrade(String rawPassword) {
+        upgraded.increment();
+        return new Verification(true, hashTimer.record(() -> encoder.encode(rawPassword)));
+    }
+
+    /**
+     * Run a task on the pool and wait for it; package-private so tests can occupy the pool.
+     */
+    <T> T submit(Supplier<T> task) {
+        long queuedAt = System.nanoTime();
+        Future<T> result;
+        try {
+            result = executor.submit(() -> {
+                waitTimer.record(System.nanoTime() - queuedAt, TimeUnit.NANOSECONDS);
+                return task.get();
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new PasswordHashingRejectedException("Password hashing is saturated, retry shortly");
+        }
+        try {
+            return result.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // A cancelled task that is still queued is skipped when it reaches a thread
+            result.cancel(false);
+            rejected.increment();
+            throw new PasswordHashingRejectedException("Password hashing timed out, retry shortly");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while hashing", e);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException runtime ? runtime : new IllegalStateException(e.getCause());
+        }
+    }
+
+    private static Timer operationTimer(MeterRegistry meterRegistry, String operation) {
+        return Timer.builder("user.password.hashing")
+                .description("BCrypt work, excluding time queued")
+                .tag("operation", operation)
+                .register(meterRegistry);
+    }
+
+    /**
+     * @param rehashed new hash to store in place of the outdated one, or null
+     */
+    public record Verification(boolean matches, String rehashed) {
+        static final Verification MATCH = new Verification(true, null);
+        static final Verification NO_MATCH = new Verification(false, null);
+    }
+}
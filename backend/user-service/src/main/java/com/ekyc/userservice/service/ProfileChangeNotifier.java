@@ -0,0 +1,62 @@
+package com.ekyc.userservice.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Duration;
+
+/**
+ * Drops the cached profile of a user that changed, here and in auth-service.
+ *
+ * Inside a transaction this happens after commit, so neither cache reloads the old row. The
+ * auth-service call is best effort: if auth-service can't be reached its entry simply lives out
+ * its (short) TTL.
+ */
+@Service
+public class ProfileChangeNotifier {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProfileChangeNotifier.class);
+
+    private final RestTemplate restTemplate;
+    private final String authServiceUrl;
+    private final UserProfileCache userProfileCache;
+
+    public ProfileChangeNotifier(UserProfileCache userProfileCache, RestTemplateBuilder restTemplateBuilder,
+                                 @Value("${auth.service.url:http://localhost:9081}") String authServiceUrl,
+                                 @Value("${auth.service.timeout:1s}") Duration timeout) {
+        this.restTemplate = restTemplateBuilder.connectTimeout(timeout).readTimeout(timeout).build();
+        this.authServiceUrl = authServiceUrl;
+        this.userProfileCache = userProfileCache;
+    }
+
+    public void profileChanged(String email) {
+        if (email == null) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidate(email);
+                }
+            });
+        } else {
+            invalidate(email);
+        }
+    }
+
+    private void invalidate(String email) {
+        userProfileCache.invalidate(email);
+        try {
+            restTemplate.delete(authServiceUrl + "/api/auth/profile/{email}/cache", email);
+        } catch (Exception e) {
+            logger.warn("Could not invalidate auth-service profile cache for {}: {}", email, e.getMessage());
+        }
+    }
+}
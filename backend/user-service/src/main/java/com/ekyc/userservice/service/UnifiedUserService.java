@@ -8,6 +8,7 @@ import org.springframework.transaction.annotation.Transactional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.nio.charset.StandardCharsets;
 import java.time.OffsetDateTime;
 import java.util.UUID;
 
@@ -23,13 +24,22 @@ public class UnifiedUserService {
     private final DatabaseUserService databaseUserService;
     private final KeycloakUserService keycloakUserService;
     private final UserSyncService userSyncService;
+    private final ProfileChangeNotifier profileChangeNotifier;
+    private final UserProfileCache userProfileCache;
+    private final KeycloakOutbox keycloakOutbox;
     
     public UnifiedUserService(DatabaseUserService databaseUserService, 
                             KeycloakUserService keycloakUserService,
-                            UserSyncService userSyncService) {
+                            UserSyncService userSyncService,
+                            ProfileChangeNotifier profileChangeNotifier,
+                            UserProfileCache userProfileCache,
+                            KeycloakOutbox keycloakOutbox) {
         this.databaseUserService = databaseUserService;
         this.keycloakUserService = keycloakUserService;
         this.userSyncService = userSyncService;
+        this.profileChangeNotifier = profileChangeNotifier;
+        this.userProfileCache = userProfileCache;
+        this.keycloakOutbox = keycloakOutbox;
     }
     
     /**
@@ -44,11 +54,13 @@ public class UnifiedUserService {
             request.setCreatedAt(OffsetDateTime.now());
             request.setUpdatedAt(OffsetDateTime.now());
             
-            // Step 1: Create user in database
+            // Step 1: Create user in database (stores a hash of the password)
             UserSyncRequest dbUser = databaseUserService.createUser(request);
             
-            // Step 2: Sync to Keycloak
+            // Step 2: Sync to Keycloak, which needs the password itself
+            dbUser.setPasswordHash(request.getPasswordHash());
             UserSyncRequest keycloakUser = keycloakUserService.createUser(dbUser);
+            dbUser.setPasswordHash(null);
             
             // Step 3: Update database with Keycloak ID
             if (keycloakUser.getUserId() != null) {
@@ -57,6 +69,9 @@ public class UnifiedUserService {
             
             return dbUser;
             
+        } catch (PasswordHashingRejectedException e) {
+            // Nothing was created yet; let the caller retry
+            throw e;
         } catch (Exception e) {
             // Rollback database creation if Keycloak sync fails
             if (request.getUserId() != null) {
@@ -122,6 +137,22 @@ public class UnifiedUserService {
         throw new SaaSPlatformException(MessageCodes.ERROR_INVALID_CREDENTIALS);
     }
     
+    /**
+     * Authenticate against the database only and return the profile, in one DB read and no
+     * Keycloak calls. Users without a local password are left to the caller's Keycloak login.
+     */
+    public UserSyncRequest authenticate(String email, String password) {
+        return databaseUserService.authenticate(email, password);
+    }
+    
+    /**
+     * The database profile for an email (no password hash), or null if there is none. A plain
+     * read through the near cache: it neither calls Keycloak nor syncs the two systems.
+     */
+    public UserSyncRequest getProfile(String email) {
+        return userProfileCache.get(email, databaseUserService::findByEmail);
+    }
+    
     /**
      * Handle social login
      */
@@ -142,62 +173,39 @@ public class UnifiedUserService {
     }
     
     /**
-     * Update user information
+     * Update user information. Keycloak is updated in the background from the outbox.
      */
     @Transactional
     public UserSyncRequest updateUser(UserSyncRequest request) {
+        UserSyncRequest before = databaseUserService.findByEmail(request.getEmail());
+        
         // Update in database
         UserSyncRequest updatedDbUser = databaseUserService.updateUser(request);
         
-        // Update in Keycloak
-        UserSyncRequest updatedKeycloakUser = keycloakUserService.updateUser(request);
+        // Queue the Keycloak update in the same transaction (updateUser fails if there was no user)
+        keycloakOutbox.userUpdated(before);
         
+        profileChangeNotifier.profileChanged(updatedDbUser.getEmail());
         return updatedDbUser;
     }
     
     /**
-     * Delete user from both systems by ID
+     * Delete user by ID. The database row goes now; the Keycloak user is deleted in the
+     * background from the outbox, by the Keycloak ID it has now.
      */
     @Transactional
     public void deleteUser(UUID userId) {
         try {
-            // First, try to get user info to get Keycloak ID
             UserSyncRequest dbUser = databaseUserService.findById(userId);
-            String keycloakId = null;
-            
-            if (dbUser != null && dbUser.getKeycloakId() != null) {
-                keycloakId = dbUser.getKeycloakId();
-            } else {
-                // Try to find user in Keycloak by email
-                if (dbUser != null) {
-                    UserSyncRequest keycloakUser = keycloakUserService.findByEmail(dbUser.getEmail());
-                    if (keycloakUser != null) {
-                        keycloakId = keycloakUser.getUserId().toString();
-                    }
-                }
-            }
-            
-            // Delete from database first
-            try {
-                databaseUserService.deleteUser(userId);
-                logger.info("Successfully deleted user {} from database", userId);
-            } catch (Exception e) {
-                logger.warn("Failed to delete user {} from database: {}", userId, e.getMessage());
-                // Continue with Keycloak deletion even if database deletion fails
+            if (dbUser == null) {
+                logger.warn("User {} not found in database, nothing to delete", userId);
+                return;
             }
             
-            // Delete from Keycloak
-            if (keycloakId != null) {
-                try {
-                    keycloakUserService.deleteUser(keycloakId);
-                    logger.info("Successfully deleted user {} from Keycloak", keycloakId);
-                } catch (Exception e) {
-                    logger.warn("Failed to delete user {} from Keycloak: {}", keycloakId, e.getMessage());
-                    // Don't throw exception, consider partial deletion acceptable
-                }
-            } else {
-                logger.warn("No Keycloak ID found for user {}, skipping Keycloak deletion", userId);
-            }
+            databaseUserService.deleteUser(userId);
+            keycloakOutbox.userDeleted(userId, dbUser.getEmail(), keycloakIdOf(dbUser.getEmail(), dbUser.getKeycloakId()));
+            logger.info("Deleted user {} from database, Keycloak deletion queued", userId);
+            profileChangeNotifier.profileChanged(dbUser.getEmail());
             
         } catch (Exception e) {
             logger.error("Error during user deletion process for user {}: {}", userId, e.getMessage(), e);
@@ -207,53 +215,22 @@ public class UnifiedUserService {
     }
     
     /**
-     * Delete user from both systems by email
+     * Delete user by email. The database row goes now; the Keycloak user (looked up by email
+     * now if the row has no Keycloak ID, or there is no row) is deleted in the background.
      */
     @Transactional
     public void deleteUserByEmail(String email) {
         try {
-            // Find user in database
             UserSyncRequest dbUser = databaseUserService.findByEmail(email);
-            String keycloakId = null;
-            UUID userId = null;
-            
             if (dbUser != null) {
-                userId = dbUser.getUserId();
-                if (dbUser.getKeycloakId() != null) {
-                    keycloakId = dbUser.getKeycloakId();
-                }
-            }
-            
-            // Find user in Keycloak if not found in database
-            if (keycloakId == null) {
-                UserSyncRequest keycloakUser = keycloakUserService.findByEmail(email);
-                if (keycloakUser != null) {
-                    keycloakId = keycloakUser.getUserId().toString();
-                }
-            }
-            
-            // Delete from database
-            if (userId != null) {
-                try {
-                    databaseUserService.deleteUser(userId);
-                    logger.info("Successfully deleted user {} from database", userId);
-                } catch (Exception e) {
-                    logger.warn("Failed to delete user {} from database: {}", userId, e.getMessage());
-                }
-            }
-            
-            // Delete from Keycloak
-            if (keycloakId != null) {
-                try {
-                    keycloakUserService.deleteUser(keycloakId);
-                    logger.info("Successfully deleted user {} from Keycloak", keycloakId);
-                } catch (Exception e) {
-                    logger.warn("Failed to delete user {} from Keycloak: {}", keycloakId, e.getMessage());
-                }
-            }
-            
-            if (userId == null && keycloakId == null) {
-                logger.warn("User with email {} not found in either system", email);
+                databaseUserService.deleteUser(dbUser.getUserId());
+                keycloakOutbox.userDeleted(dbUser.getUserId(), email, keycloakIdOf(email, dbUser.getKeycloakId()));
+                logger.info("Deleted user {} from database, Keycloak deletion queued", dbUser.getUserId());
+                profileChangeNotifier.profileChanged(email);
+            } else {
+                // Only in Keycloak, if anywhere: the entry needs some user ID to group by
+                keycloakOutbox.userDeleted(UUID.nameUUIDFromBytes(email.getBytes(StandardCharsets.UTF_8)), email, keycloakIdOf(email, null));
+                logger.info("User with email {} not in database, Keycloak deletion queued", email);
             }
             
         } catch (Exception e) {
@@ -263,6 +240,24 @@ public class UnifiedUserService {
         }
     }
     
+    /**
+     * The Keycloak ID to delete with the user: the linked one, or else the one the email has
+     * in Keycloak now. Resolved when the delete is recorded, since by the time it is dispatched
+     * the email may belong to a new account. Null if Keycloak can't be asked; the dispatcher
+     * then looks the email up itself, but leaves alone an account that is in the database again.
+     */
+    private String keycloakIdOf(String email, String linkedKeycloakId) {
+        if (linkedKeycloakId != null) {
+            return linkedKeycloakId;
+        }
+        try {
+            return keycloakUserService.findIdByEmail(email);
+        } catch (Exception e) {
+            logger.warn("Could not look up Keycloak user {}, resolving it at dispatch: {}", email, e.getMessage());
+            return null;
+        }
+    }
+    
     /**
      * Check if user exists in either system by email
      */
@@ -280,7 +275,8 @@ public class UnifiedUserService {
     }
     
     /**
-     * Sync user between systems (for data consistency)
+     * Sync user between systems (for data consistency). The whole user base is reconciled in the
+     * background by UserReconciliationService.
      */
     @Transactional
     public UserSyncRequest syncUser(String email) {
@@ -289,13 +285,16 @@ public class UnifiedUserService {
         
         if (dbUser != null && keycloakUser == null) {
             // User exists in DB but not in Keycloak
-            return handleApplicationSignup(dbUser);
+            return userSyncService.syncDbToKeycloak(dbUser);
         } else if (dbUser == null && keycloakUser != null) {
             // User exists in Keycloak but not in DB
-            return handleSocialSignup(keycloakUser);
+            return userSyncService.syncKeycloakToDb(keycloakUser);
         } else if (dbUser != null && keycloakUser != null) {
-            // User exists in both, sync data
-            return userSyncService.syncUserData(dbUser, keycloakUser);
+            // User exists in both, sync data (findByEmail only has the ID: compare the full user)
+            UserSyncRequest fullKeycloakUser = keycloakUserService.findById(keycloakUser.getUserId().toString());
+            UserSyncRequest synced = userSyncService.syncUserData(dbUser, fullKeycloakUser != null ? fullKeycloakUser : keycloakUser);
+            profileChangeNotifier.profileChanged(email);
+            return synced;
         }
         
         throw new SaaSPlatformException(MessageCodes.ERROR_USER_NOT_FOUND);
@@ -0,0 +1,59 @@
+package com.ekyc.userservice.service;
+
+import com.ekyc.common.dto.UserSyncRequest;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+/**
+ * Near cache of database profiles by email, for GET /api/users/email/{email}.
+ *
+ * Entries expire after user.profile-cache.ttl and are dropped by ProfileChangeNotifier once a
+ * change to the user commits; other instances see the change when their entry expires. Keys are
+ * the email as given, matching the repository's exact lookup. Unknown emails are not cached.
+ * Hits, misses and evictions are published as the cache.* meters tagged cache=users.profiles.
+ */
+@Service
+public class UserProfileCache {
+
+    private final Cache<String, UserSyncRequest> profiles;
+
+    public UserProfileCache(@Value("${user.profile-cache.ttl:30s}") Duration ttl,
+                            @Value("${user.profile-cache.max-size:10000}") long maxSize,
+                            MeterRegistry meterRegistry) {
+        this.profiles = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumSize(maxSize)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, profiles, "users.profiles");
+    }
+
+    /**
+     * The cached profile, or the one loaded (concurrent misses for an email share one load).
+     * Returns null, uncached, when the loader finds no user. The result is shared: don't modify it.
+     */
+    public UserSyncRequest get(String email, Function<String, UserSyncRequest> loader) {
+        return profiles.get(email, key -> strip(loader.apply(key)));
+    }
+
+    public void invalidate(String email) {
+        profiles.invalidate(email);
+    }
+
+    /**
+     * Never keep credentials around: the profile endpoint doesn't return them.
+     */
+    private static UserSyncRequest strip(UserSyncRequest profile) {
+        if (profile != null) {
+            profile.setPasswordHash(null);
+        }
+        return profile;
+    }
+}
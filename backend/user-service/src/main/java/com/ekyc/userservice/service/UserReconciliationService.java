@@ -0,0 +1,435 @@
+package com.ekyc.userservice.service;
+
+import com.ekyc.common.dto.UserSyncRequest;
+import com.ekyc.userservice.config.ReconciliationProperties;
+import com.ekyc.userservice.dto.ReconciliationReport;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Reconciles auth.users with the Keycloak realm's users.
+ *
+ * The first pass streams both sides, page-size users at a time (the database by keyset on the
+ * lower-cased email, Keycloak by first/max), and folds each user's UserSyncService digest into
+ * a count and sum per tenant bucket. Only buckets whose digests differ get a second pass, which
+ * walks both sides of the bucket in email order and compares them user by user; users found on
+ * one side only are looked up on the other by Keycloak ID or email before they are reported
+ * missing, which also pairs users whose tenant or Keycloak username no longer matches. Drift is
+ * fixed as the ConflictPolicy decides, through UserSyncService.reconcile.
+ *
+ * Memory is bounded by the number of tenants plus concurrency buckets' pages, whatever the
+ * number of users. Runs on user-sync.reconciliation.cron and on demand, one at a time across
+ * the cluster: a run holds a Postgres advisory lock, and an instance that can't take it skips.
+ */
+@Service
+public class UserReconciliationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserReconciliationService.class);
+
+    // Bucket of users without a tenant
+    private static final String NO_TENANT = "";
+
+    // Advisory lock key of reconciliation runs, shared by every instance ("userSync")
+    static final long LOCK_KEY = 0x7573657253796e63L;
+
+    private final DatabaseUserService databaseUserService;
+    private final KeycloakUserService keycloakUserService;
+    private final UserSyncService userSyncService;
+    private final ReconciliationProperties properties;
+    private final DataSource dataSource;
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final Timer duration;
+
+    private volatile ReconciliationReport lastReport;
+
+    public UserReconciliationService(DatabaseUserService databaseUserService, KeycloakUserService keycloakUserService,
+                                     UserSyncService userSyncService, ReconciliationProperties properties,
+                                     DataSource dataSource, MeterRegistry meterRegistry) {
+        this.databaseUserService = databaseUserService;
+        this.keycloakUserService = keycloakUserService;
+        this.userSyncService = userSyncService;
+        this.properties = properties;
+        this.dataSource = dataSource;
+        this.duration = Timer.builder("user.reconciliation")
+                .description("Database/Keycloak reconciliation runs")
+                .register(meterRegistry);
+        Gauge.builder("user.reconciliation.drifts", this, service -> service.lastReport == null ? 0
+                        : service.lastReport.missingInKeycloak() + service.lastReport.missingInDatabase() + service.lastReport.mismatched())
+                .description("Users that differed between the database and Keycloak in the last reconciliation")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(cron = "${user-sync.reconciliation.cron:0 0 3 * * *}")
+    public void scheduledRun() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        try {
+            run();
+        } catch (Exception e) {
+            logger.error("User reconciliation failed: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Reconcile now; empty if a run is already in progress, here or on another instance.
+     */
+    public Optional<ReconciliationReport> run() {
+        if (!running.compareAndSet(false, true)) {
+            return Optional.empty();
+        }
+        // The lock is held by a transaction on its own connection, so it goes with the
+        // transaction however the run ends, even if the connection is lost
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                if (!tryLock(connection)) {
+                    logger.info("User reconciliation is running on another instance, skipping");
+                    return Optional.empty();
+                }
+                return Optional.of(duration.recordCallable(this::reconcile));
+            } finally {
+                connection.rollback();
+            }
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException("User reconciliation failed: " + e.getMessage(), e);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private static boolean tryLock(Connection connection) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT pg_try_advisory_xact_lock(?)")) {
+            statement.setLong(1, LOCK_KEY);
+            try (ResultSet result = statement.executeQuery()) {
+                return result.next() && result.getBoolean(1);
+            }
+        }
+    }
+
+    public Optional<ReconciliationReport> lastReport() {
+        return Optional.ofNullable(lastReport);
+    }
+
+    private ReconciliationReport reconcile() throws InterruptedException, ExecutionException {
+        OffsetDateTime startedAt = OffsetDateTime.now();
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, properties.getConcurrency()));
+        try {
+            // Pass 1: digests per tenant bucket, both sides side by side
+            Future<Map<String, BucketDigest>> databaseDigests = pool.submit(this::digestDatabase);
+            Future<Map<String, BucketDigest>> keycloakDigests = pool.submit(this::digestKeycloak);
+            Map<String, BucketDigest> database = databaseDigests.get();
+            Map<String, BucketDigest> keycloak = keycloakDigests.get();
+
+            Set<String> buckets = new HashSet<>(database.keySet());
+            buckets.addAll(keycloak.keySet());
+            List<String> differing = buckets.stream()
+                    .filter(bucket -> !Objects.equals(database.get(bucket), keycloak.get(bucket)))
+                    .sorted()
+                    .toList();
+
+            // Pass 2: user by user, in the buckets that differ
+            ReportBuilder report = new ReportBuilder(properties.getMaxDrifts());
+            List<Future<?>> comparisons = new ArrayList<>();
+            for (String bucket : differing) {
+                comparisons.add(pool.submit(() -> compareBucket(bucket, report)));
+            }
+            int bucketsFailed = 0;
+            for (int i = 0; i < comparisons.size(); i++) {
+                try {
+                    comparisons.get(i).get();
+                } catch (ExecutionException e) {
+                    bucketsFailed++;
+                    logger.warn("Could not reconcile tenant bucket '{}': {}", differing.get(i), e.getCause().getMessage());
+                }
+            }
+
+            ReconciliationReport result = report.build(startedAt, properties.getPolicy(), total(database), total(keycloak),
+                    buckets.size(), differing.size(), bucketsFailed);
+            lastReport = result;
+            logger.info("User reconciliation: {} database and {} Keycloak users, {} of {} tenant buckets differed; "
+                            + "{} missing in Keycloak, {} missing in database, {} mismatched, {} fixed, {} failed",
+                    result.databaseUsers(), result.keycloakUsers(), result.bucketsDiffered(), result.buckets(),
+                    result.missingInKeycloak(), result.missingInDatabase(), result.mismatched(), result.fixed(), result.failed());
+            return result;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private Map<String, BucketDigest> digestDatabase() {
+        Map<String, BucketDigest> digests = new HashMap<>();
+        Cursor users = databaseCursor(null, false);
+        for (UserSyncRequest user = users.next(); user != null; user = users.next()) {
+            digests.merge(bucket(user.getTenantId()), BucketDigest.of(userSyncService.digest(user)), BucketDigest::plus);
+        }
+        return digests;
+    }
+
+    private Map<String, BucketDigest> digestKeycloak() {
+        Map<String, BucketDigest> digests = new HashMap<>();
+        Cursor users = keycloakCursor(null, false);
+        for (UserSyncRequest user = users.next(); user != null; user = users.next()) {
+            digests.merge(bucket(user.getTenantId()), BucketDigest.of(userSyncService.digest(user)), BucketDigest::plus);
+        }
+        return digests;
+    }
+
+    /**
+     * Merge-join both sides of one bucket by lower-cased email, in code point order: the order of
+     * the database pages (COLLATE "C") and, with a C-collated Keycloak database, of Keycloak's.
+     * A user out of that order is not lost, only looked up on the other side.
+     */
+    private void compareBucket(String bucket, ReportBuilder report) {
+        UUID tenantId = bucket.equals(NO_TENANT) ? null : UUID.fromString(bucket);
+        Cursor database = databaseCursor(tenantId, true);
+        Cursor keycloak = keycloakCursor(tenantId, true);
+        UserSyncRequest dbUser = database.next();
+        UserSyncRequest keycloakUser = keycloak.next();
+        while (dbUser != null || keycloakUser != null) {
+            int order = dbUser == null ? 1 : keycloakUser == null ? -1 : compareEmails(email(dbUser), email(keycloakUser));
+            if (order == 0) {
+                compare(dbUser, keycloakUser, report);
+                dbUser = database.next();
+                keycloakUser = keycloak.next();
+            } else if (order < 0) {
+                onlyInDatabase(dbUser, report);
+                dbUser = database.next();
+            } else {
+                onlyInKeycloak(keycloakUser, report);
+                keycloakUser = keycloak.next();
+            }
+        }
+    }
+
+    private void compare(UserSyncRequest dbUser, UserSyncRequest keycloakUser, ReportBuilder report) {
+        List<String> differences = userSyncService.findDifferences(dbUser, keycloakUser);
+        if (!differences.isEmpty()) {
+            fix(ReconciliationReport.Type.MISMATCH, dbUser, keycloakUser, differences, report);
+        }
+    }
+
+    private void onlyInDatabase(UserSyncRequest dbUser, ReportBuilder report) {
+        UserSyncRequest keycloakUser;
+        try {
+            keycloakUser = dbUser.getKeycloakId() != null ? keycloakUserService.findById(dbUser.getKeycloakId()) : null;
+            if (keycloakUser == null) {
+                String keycloakId = keycloakUserService.findIdByEmail(dbUser.getEmail());
+                keycloakUser = keycloakId != null ? keycloakUserService.findById(keycloakId) : null;
+            }
+        } catch (Exception e) {
+            report.add(drift(ReconciliationReport.Type.MISSING_IN_KEYCLOAK, dbUser, List.of(), List.of(), e.getMessage()));
+            return;
+        }
+        if (keycloakUser != null) {
+            // Listed elsewhere: another tenant, or a username that no longer matches the email
+            compare(dbUser, keycloakUser, report);
+        } else {
+            fix(ReconciliationReport.Type.MISSING_IN_KEYCLOAK, dbUser, null, List.of(), report);
+        }
+    }
+
+    private void onlyInKeycloak(UserSyncRequest keycloakUser, ReportBuilder report) {
+        if (databaseUserService.findByEmail(keycloakUser.getEmail()) != null) {
+            // The database side of this user is compared where it is listed
+            return;
+        }
+        fix(ReconciliationReport.Type.MISSING_IN_DATABASE, null, keycloakUser, List.of(), report);
+    }
+
+    private void fix(ReconciliationReport.Type type, UserSyncRequest dbUser, UserSyncRequest keycloakUser,
+                     List<String> differences, ReportBuilder report) {
+        UserSyncRequest user = dbUser != null ? dbUser : keycloakUser;
+        try {
+            List<String> actions = userSyncService.reconcile(dbUser, keycloakUser).stream().map(Enum::name).toList();
+            report.add(drift(type, user, differences, actions, null));
+        } catch (Exception e) {
+            logger.warn("Could not fix {} drift of {}: {}", type, user.getEmail(), e.getMessage());
+            report.add(drift(type, user, differences, List.of(), e.getMessage()));
+        }
+    }
+
+    private static ReconciliationReport.Drift drift(ReconciliationReport.Type type, UserSyncRequest user,
+                                                    List<String> fields, List<String> actions, String error) {
+        return new ReconciliationReport.Drift(user.getEmail(), bucket(user.getTenantId()), type, fields, actions, error);
+    }
+
+    /**
+     * Database users in lower-cased email order, all or one tenant's.
+     */
+    private Cursor databaseCursor(UUID tenantId, boolean tenantOnly) {
+        int size = properties.getPageSize();
+        return new Cursor() {
+            private String after = "";
+
+            @Override
+            List<UserSyncRequest> fetch() {
+                List<UserSyncRequest> page = tenantOnly
+                        ? databaseUserService.findTenantPage(tenantId, after, size)
+                        : databaseUserService.findPage(after, size);
+                if (!page.isEmpty()) {
+                    after = email(page.get(page.size() - 1));
+                }
+                exhausted = page.size() < size;
+                return page;
+            }
+        };
+    }
+
+    /**
+     * Keycloak users with an email (service accounts have none), in Keycloak's order, all or one
+     * tenant's. Keycloak can't select users without a tenant, so that bucket filters the full list.
+     */
+    private Cursor keycloakCursor(UUID tenantId, boolean tenantOnly) {
+        int size = properties.getPageSize();
+        return new Cursor() {
+            private int first;
+
+            @Override
+            List<UserSyncRequest> fetch() {
+                List<UserSyncRequest> page = keycloakUserService.listUsers(tenantId, first, size);
+                first += page.size();
+                exhausted = page.size() < size;
+                return page.stream()
+                        .filter(user -> user.getEmail() != null)
+                        .filter(user -> !tenantOnly || tenantId != null || user.getTenantId() == null)
+                        .toList();
+            }
+        };
+    }
+
+    /**
+     * Code point order, as Postgres' "C" collation orders UTF-8 text (String.compareTo orders by
+     * UTF-16 unit, which differs above U+FFFF).
+     */
+    static int compareEmails(String a, String b) {
+        int i = 0;
+        int j = 0;
+        while (i < a.length() && j < b.length()) {
+            int ca = a.codePointAt(i);
+            int cb = b.codePointAt(j);
+            if (ca != cb) {
+                return Integer.compare(ca, cb);
+            }
+            i += Character.charCount(ca);
+            j += Character.charCount(cb);
+        }
+        return Integer.compare(a.length() - i, b.length() - j);
+    }
+
+    private static String email(UserSyncRequest user) {
+        return user.getEmail() != null ? user.getEmail().trim().toLowerCase(Locale.ROOT) : "";
+    }
+
+    private static String bucket(UUID tenantId) {
+        return tenantId != null ? tenantId.toString() : NO_TENANT;
+    }
+
+    private static long total(Map<String, BucketDigest> digests) {
+        return digests.values().stream().mapToLong(BucketDigest::count).sum();
+    }
+
+    /**
+     * Order-independent digest of a bucket: its user count and the wrapping sum of their digests.
+     */
+    private record BucketDigest(long count, long sum) {
+        static BucketDigest of(long digest) {
+            return new BucketDigest(1, digest);
+        }
+
+        BucketDigest plus(BucketDigest other) {
+            return new BucketDigest(count + other.count, sum + other.sum);
+        }
+    }
+
+    /**
+     * Users one page at a time; next() returns null once the pages run out.
+     */
+    private abstract static class Cursor {
+        private List<UserSyncRequest> page = List.of();
+        private int index;
+        boolean exhausted;
+
+        abstract List<UserSyncRequest> fetch();
+
+        UserSyncRequest next() {
+            while (index == page.size()) {
+                if (exhausted) {
+                    return null;
+                }
+                page = fetch();
+                index = 0;
+            }
+            return page.get(index++);
+        }
+    }
+
+    /**
+     * Drift counts and the first maxDrifts drifts, shared by the bucket comparisons.
+     */
+    private static final class ReportBuilder {
+        private final int maxDrifts;
+        private final List<ReconciliationReport.Drift> drifts = new ArrayList<>();
+        private final Map<ReconciliationReport.Type, Long> counts = new HashMap<>();
+        private long fixed;
+        private long failed;
+        private boolean truncated;
+
+        ReportBuilder(int maxDrifts) {
+            this.maxDrifts = maxDrifts;
+        }
+
+        synchronized void add(ReconciliationReport.Drift drift) {
+            counts.merge(drift.type(), 1L, Long::sum);
+            if (drift.error() != null) {
+                failed++;
+            } else if (!drift.actions().isEmpty()) {
+                fixed++;
+            }
+            if (drifts.size() < maxDrifts) {
+                drifts.add(drift);
+            } else {
+                truncated = true;
+            }
+        }
+
+        synchronized ReconciliationReport build(OffsetDateTime startedAt, String policy, long databaseUsers, long keycloakUsers,
+                                                int buckets, int bucketsDiffered, int bucketsFailed) {
+            return new ReconciliationReport(startedAt, OffsetDateTime.now(), policy, databaseUsers, keycloakUsers,
+                    buckets, bucketsDiffered, bucketsFailed,
+                    counts.getOrDefault(ReconciliationReport.Type.MISSING_IN_KEYCLOAK, 0L),
+                    counts.getOrDefault(ReconciliationReport.Type.MISSING_IN_DATABASE, 0L),
+                    counts.getOrDefault(ReconciliationReport.Type.MISMATCH, 0L),
+                    fixed, failed, List.copyOf(drifts), truncated);
+        }
+    }
+}
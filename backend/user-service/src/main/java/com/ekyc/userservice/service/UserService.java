@@ -4,7 +4,6 @@ import com.ekyc.userservice.dto.CreateUserRequest;
 import com.ekyc.userservice.dto.UserDto;
 import com.ekyc.userservice.entity.User;
 import com.ekyc.userservice.repository.UserRepository;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
@@ -19,11 +18,11 @@ import java.util.stream.Collectors;
 public class UserService {
 
     private final UserRepository repository;
-    private final PasswordEncoder passwordEncoder;
+    private final PasswordHashingService passwordHashing;
 
-    public UserService(UserRepository repository, PasswordEncoder passwordEncoder) {
+    public UserService(UserRepository repository, PasswordHashingService passwordHashing) {
         this.repository = repository;
-        this.passwordEncoder = passwordEncoder;
+        this.passwordHashing = passwordHashing;
     }
 
     /**
@@ -50,7 +49,7 @@ public class UserService {
     public UserDto createUser(CreateUserRequest request) {
         User user = new User();
         user.setEmail(request.getEmail());
-        user.setPasswordHash(passwordEncoder.encode(request.getPassword()));
+        user.setPasswordHash(passwordHashing.hash(request.getPassword()));
         user.setFirstname(request.getName()); // Using name as firstname for backward compatibility
         user.setRole(request.getRole());
         user.setTenantId(request.getTenantId());
@@ -2,6 +2,8 @@ package com.ekyc.userservice.service;
 
 import com.ekyc.common.dto.UserSyncRequest;
 
+import java.util.List;
+
 /**
  * Service interface for user data synchronization between database and Keycloak
  */
@@ -36,4 +38,21 @@ public interface UserSyncService {
      * Resolve conflicts between database and Keycloak user data
      */
     UserSyncRequest resolveConflicts(UserSyncRequest dbUser, UserSyncRequest keycloakUser);
-} 
\ No newline at end of file
+    
+    /**
+     * Names of the compared fields (email, firstName, lastName, tenantId, keycloakId) that
+     * differ between the database and the Keycloak user
+     */
+    List<String> findDifferences(UserSyncRequest dbUser, UserSyncRequest keycloakUser);
+    
+    /**
+     * Digest of the compared fields; consistent database and Keycloak users have equal digests
+     */
+    long digest(UserSyncRequest user);
+    
+    /**
+     * Apply the conflict policy's fixes to a drifted user, either side of which may be null.
+     * Returns the actions applied; throws if one of them fails.
+     */
+    List<ConflictPolicy.Action> reconcile(UserSyncRequest dbUser, UserSyncRequest keycloakUser);
+}
@@ -0,0 +1,41 @@
+package com.ekyc.userservice.service.impl;
+
+import com.ekyc.common.dto.UserSyncRequest;
+import com.ekyc.userservice.service.ConflictPolicy;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The database is the source of truth for profiles.
+ *
+ * Database users missing from Keycloak are created there; profile fields Keycloak holds (email,
+ * names) are overwritten from the database, and the database learns the Keycloak ID. Keycloak
+ * users without a database row are only reported: they may be signups still in progress, and
+ * Keycloak lacks the profile fields a row needs. A differing tenant is only reported too, as
+ * neither side's update path changes it.
+ */
+@Component
+@ConditionalOnProperty(name = "user-sync.reconciliation.policy", havingValue = "database-first", matchIfMissing = true)
+public class DatabaseFirstConflictPolicy implements ConflictPolicy {
+
+    @Override
+    public List<Action> resolve(UserSyncRequest dbUser, UserSyncRequest keycloakUser, List<String> differences) {
+        if (dbUser == null) {
+            return List.of();
+        }
+        if (keycloakUser == null) {
+            return List.of(Action.CREATE_IN_KEYCLOAK);
+        }
+        List<Action> actions = new ArrayList<>();
+        if (differences.contains("keycloakId")) {
+            actions.add(Action.LINK_KEYCLOAK_ID);
+        }
+        if (differences.contains("email") || differences.contains("firstName") || differences.contains("lastName")) {
+            actions.add(Action.PUSH_TO_KEYCLOAK);
+        }
+        return actions;
+    }
+}
@@ -4,21 +4,22 @@ import com.ekyc.common.dto.UserSyncRequest;
 import com.ekyc.userservice.entity.User;
 import com.ekyc.userservice.repository.UserRepository;
 import com.ekyc.userservice.service.DatabaseUserService;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import com.ekyc.userservice.service.PasswordHashingService;
 import org.springframework.stereotype.Service;
 
 import java.time.OffsetDateTime;
+import java.util.List;
 import java.util.UUID;
 
 @Service
 public class DatabaseUserServiceImpl implements DatabaseUserService {
 
     private final UserRepository repository;
-    private final PasswordEncoder passwordEncoder;
+    private final PasswordHashingService passwordHashing;
 
-    public DatabaseUserServiceImpl(UserRepository repository, PasswordEncoder passwordEncoder) {
+    public DatabaseUserServiceImpl(UserRepository repository, PasswordHashingService passwordHashing) {
         this.repository = repository;
-        this.passwordEncoder = passwordEncoder;
+        this.passwordHashing = passwordHashing;
     }
 
     @Override
@@ -30,7 +31,9 @@ public class DatabaseUserServiceImpl implements DatabaseUserService {
         user.setDateOfBirth(request.getDateOfBirth());
         user.setCountry(request.getCountry());
         user.setPhone(request.getPhone());
-        user.setPasswordHash(request.getPasswordHash());
+        // Signup passes the password itself in passwordHash; always hash it, even if it looks like a hash
+        String password = request.getPasswordHash();
+        user.setPasswordHash(password != null ? passwordHashing.hash(password) : null);
         user.setRole(request.getRole());
         user.setTenantId(request.getTenantId());
         user.setStatus(request.getStatus());
@@ -76,6 +79,23 @@ public class DatabaseUserServiceImpl implements DatabaseUserService {
                 .orElse(null);
     }
 
+    @Override
+    public List<UserSyncRequest> findPage(String afterEmail, int size) {
+        return repository.findPageAfter(afterEmail, size).stream()
+                .map(this::convertToUserSyncRequest)
+                .toList();
+    }
+
+    @Override
+    public List<UserSyncRequest> findTenantPage(UUID tenantId, String afterEmail, int size) {
+        List<User> page = tenantId != null
+                ? repository.findTenantPageAfter(tenantId, afterEmail, size)
+                : repository.findUntenantedPageAfter(afterEmail, size);
+        return page.stream()
+                .map(this::convertToUserSyncRequest)
+                .toList();
+    }
+
     @Override
     public UserSyncRequest updateUser(UserSyncRequest request) {
         User user = repository.findByEmail(request.getEmail())
@@ -106,16 +126,40 @@ public class DatabaseUserServiceImpl implements DatabaseUserService {
         repository.save(user);
     }
 
+    @Override
+    public UserSyncRequest authenticate(String email, String password) {
+        return repository.findByEmail(email)
+                .filter(user -> checkPassword(user, password))
+                .map(user -> {
+                    UserSyncRequest profile = convertToUserSyncRequest(user);
+                    profile.setPasswordHash(null);
+                    return profile;
+                })
+                .orElse(null);
+    }
+
     @Override
     public boolean validatePassword(UserSyncRequest user, String password) {
         User dbUser = repository.findByEmail(user.getEmail())
                 .orElse(null);
         
-        if (dbUser == null || dbUser.getPasswordHash() == null) {
+        if (dbUser == null) {
             return false;
         }
         
-        return passwordEncoder.matches(password, dbUser.getPasswordHash());
+        return checkPassword(dbUser, password);
+    }
+
+    /**
+     * Verify the password and, on success, replace an outdated stored hash.
+     */
+    private boolean checkPassword(User user, String password) {
+        PasswordHashingService.Verification verification = passwordHashing.verify(password, user.getPasswordHash());
+        if (verification.matches() && verification.rehashed() != null) {
+            user.setPasswordHash(verification.rehashed());
+            repository.save(user);
+        }
+        return verification.matches();
     }
 
     @Override
@@ -146,6 +190,7 @@ public class DatabaseUserServiceImpl implements DatabaseUserService {
         request.setRole(user.getRole());
         request.setTenantId(user.getTenantId());
         request.setStatus(user.getStatus());
+        request.setKeycloakId(user.getKeycloakId());
         request.setCreatedAt(user.getCreatedAt());
         request.setUpdatedAt(user.getUpdatedAt());
         return request;
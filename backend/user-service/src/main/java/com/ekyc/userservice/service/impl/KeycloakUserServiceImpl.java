@@ -1,6 +1,8 @@
 package com.ekyc.userservice.service.impl;
 
 import com.ekyc.common.dto.UserSyncRequest;
+import com.ekyc.userservice.service.KeycloakAdminTokenManager;
+import com.ekyc.userservice.service.KeycloakRoleCache;
 import com.ekyc.userservice.service.KeycloakUserService;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.*;
@@ -15,7 +17,9 @@ import org.slf4j.LoggerFactory;
 import java.time.OffsetDateTime;
 import java.util.UUID;
 import java.util.Map;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 
 @Service
 public class KeycloakUserServiceImpl implements KeycloakUserService {
@@ -23,6 +27,8 @@ public class KeycloakUserServiceImpl implements KeycloakUserService {
     private static final Logger logger = LoggerFactory.getLogger(KeycloakUserServiceImpl.class);
     
     private final RestTemplate restTemplate;
+    private final KeycloakAdminTokenManager adminTokens;
+    private final KeycloakRoleCache roleCache;
     
     @Value("${keycloak.auth-server-url:http://localhost:8080}")
     private String keycloakUrl;
@@ -36,14 +42,11 @@ public class KeycloakUserServiceImpl implements KeycloakUserService {
     @Value("${keycloak.credentials.secret:emT3O4n4T5sfjuxM1cScYM8RS6bZZoE7}")
     private String clientSecret;
     
-    @Value("${keycloak.admin.username:admin}")
-    private String adminUsername;
-    
-    @Value("${keycloak.admin.password:admin123}")
-    private String adminPassword;
-
-    public KeycloakUserServiceImpl(RestTemplate restTemplate) {
+    public KeycloakUserServiceImpl(RestTemplate restTemplate, KeycloakAdminTokenManager adminTokens,
+                                   KeycloakRoleCache roleCache) {
         this.restTemplate = restTemplate;
+        this.adminTokens = adminTokens;
+        this.roleCache = roleCache;
     }
 
     @Override
@@ -51,30 +54,23 @@ public class KeycloakUserServiceImpl implements KeycloakUserService {
         try {
             logger.info("Creating user in Keycloak: {}", request.getEmail());
             
-            // Check Keycloak connection first
-            checkKeycloakConnection();
-            
-            // Get admin access token
-            String adminToken = getAdminAccessToken();
-            
-            // Ensure the role exists before creating user
-            ensureRoleExists(request.getRole(), adminToken);
+            // Readiness is probed in the background (KeycloakReadiness); each admin call runs with
+            // the cached admin token (retried once on 401)
+            // Ensure the role exists before creating user: a cache lookup unless the role is new
+            adminTokens.run(adminToken -> ensureRoleExists(request.getRole(), adminToken));
             
-            // Create user in Keycloak
-            String keycloakUserId = createKeycloakUser(request, adminToken);
+            // Create user in Keycloak, password included
+            String keycloakUserId = adminTokens.execute(adminToken -> createKeycloakUser(request, adminToken));
             logger.info("Created Keycloak user with ID: {}", keycloakUserId);
             
-            // Assign role to user
+            // Assign role to user: one role-mapping POST with the cached role id
             try {
-                assignRoleToUser(keycloakUserId, request.getRole(), adminToken);
+                adminTokens.run(adminToken -> assignRoleToUser(keycloakUserId, request.getRole(), adminToken));
             } catch (Exception e) {
                 logger.warn("Failed to assign role to user, but continuing with user creation: {}", e.getMessage());
                 // Continue with user creation even if role assignment fails
             }
             
-            // Set password for user
-            setUserPassword(keycloakUserId, request.getPasswordHash(), adminToken);
-            
             // Create response with Keycloak user ID
             UserSyncRequest keycloakUser = new UserSyncRequest();
             keycloakUser.setUserId(UUID.fromString(keycloakUserId));
@@ -108,8 +104,7 @@ public class KeycloakUserServiceImpl implements KeycloakUserService {
     @Override
     public UserSyncRequest findByEmail(String email) {
         try {
-            String adminToken = getAdminAccessToken();
-            String keycloakUserId = findKeycloakUserByEmail(email, adminToken);
+            String keycloakUserId = adminTokens.execute(adminToken -> findKeycloakUserByEmail(email, adminToken));
             
             if (keycloakUserId != null) {
                 UserSyncRequest user = new UserSyncRequest();
@@ -124,6 +119,16 @@ public class KeycloakUserServiceImpl implements KeycloakUserService {
         }
     }
 
+    @Override
+    public String findIdByEmail(String email) {
+        return adminTokens.execute(adminToken -> findKeycloakUserByEmail(email, adminToken));
+    }
+
+    @Override
+    public List<UserSyncRequest> listUsers(UUID tenantId, int first, int max) {
+        return adminTokens.execute(adminToken -> listKeycloakUsers(tenantId, first, max, adminToken));
+    }
+
     @Override
     public UserSyncRequest findBySocialProvider(String socialProvider, String socialUserId) {
         // TODO: Implement social provider lookup
@@ -133,8 +138,7 @@ public class KeycloakUserServiceImpl implements KeycloakUserService {
     @Override
     public UserSyncRequest findById(String keycloakUserId) {
         try {
-            String adminToken = getAdminAccessToken();
-            return getKeycloakUserById(keycloakUserId, adminToken);
+            return adminTokens.execute(adminToken -> getKeycloakUserById(keycloakUserId, adminToken));
         } catch (Exception e) {
             logger.error("Error finding user by ID in Keycloak: {}", e.getMessage(), e);
             return null;
@@ -144,21 +148,19 @@ public class KeycloakUserServiceImpl implements KeycloakUserService {
     @Override
     public UserSyncRequest updateUser(UserSyncRequest request) {
         try {
-            String adminToken = getAdminAccessToken();
-            updateKeycloakUser(request, adminToken);
+            adminTokens.run(adminToken -> updateKeycloakUser(request, adminToken));
             request.setUpdatedAt(OffsetDateTime.now());
             return request;
         } catch (Exception e) {
             logger.error("Error updating user in Keycloak: {}", e.getMessage(), e);
-            throw new RuntimeException("Failed to update user in Keycloak: " + e.getMessage());
+            throw new RuntimeException("Failed to update user in Keycloak: " + e.getMessage(), e);
         }
     }
 
     @Override
     public void updateAppUserId(String keycloakUserId, UUID appUserId) {
         try {
-            String adminToken = getAdminAccessToken();
-            updateUserAttribute(keycloakUserId, "app_user_id", appUserId.toString(), adminToken);
+            adminTokens.run(adminToken -> updateUserAttribute(keycloakUserId, "app_user_id", appUserId.toString(), adminToken));
         } catch (Exception e) {
             logger.error("Error updating app user ID in Keycloak: {}", e.getMessage(), e);
         }
@@ -178,11 +180,10 @@ public class KeycloakUserServiceImpl implements KeycloakUserService {
     @Override
     public void deleteUser(String keycloakUserId) {
         try {
-            String adminToken = getAdminAccessToken();
-            deleteKeycloakUser(keycloakUserId, adminToken);
+            adminTokens.run(adminToken -> deleteKeycloakUser(keycloakUserId, adminToken));
         } catch (Exception e) {
             logger.error("Error deleting user from Keycloak: {}", e.getMessage(), e);
-            throw new RuntimeException("Failed to delete user from Keycloak: " + e.getMessage());
+            throw new RuntimeException("Failed to delete user from Keycloak: " + e.getMessage(), e);
         }
     }
 
@@ -199,84 +200,29 @@ public class KeycloakUserServiceImpl implements KeycloakUserService {
     @Override
     public void assignRole(String keycloakUserId, String role) {
         try {
-            String adminToken = getAdminAccessToken();
-            
             // First, ensure the role exists
-            ensureRoleExists(role, adminToken);
+            adminTokens.run(adminToken -> ensureRoleExists(role, adminToken));
             
             // Then assign the role to the user
-            assignRoleToUser(keycloakUserId, role, adminToken);
+            adminTokens.run(adminToken -> assignRoleToUser(keycloakUserId, role, adminToken));
         } catch (Exception e) {
             logger.error("Error assigning role in Keycloak: {}", e.getMessage(), e);
+            throw new RuntimeException("Failed to assign role in Keycloak: " + e.getMessage(), e);
         }
     }
 
     @Override
     public void removeRole(String keycloakUserId, String role) {
         try {
-            String adminToken = getAdminAccessToken();
-            removeRoleFromUser(keycloakUserId, role, adminToken);
+            adminTokens.run(adminToken -> removeRoleFromUser(keycloakUserId, role, adminToken));
         } catch (Exception e) {
             logger.error("Error removing role from Keycloak: {}", e.getMessage(), e);
+            throw new RuntimeException("Failed to remove role from Keycloak: " + e.getMessage(), e);
         }
     }
 
     // Helper methods for Keycloak API calls
 
-    private void checkKeycloakConnection() {
-        try {
-            String healthUrl = keycloakUrl + "/health/ready";
-            ResponseEntity<String> response = restTemplate.getForEntity(healthUrl, String.class);
-            if (response.getStatusCode() != HttpStatus.OK) {
-                logger.error("Keycloak is not ready. Status: {}", response.getStatusCode());
-                throw new RuntimeException("Keycloak is not ready");
-            }
-            logger.info("Keycloak is ready");
-        } catch (Exception e) {
-            logger.error("Cannot connect to Keycloak: {}", e.getMessage());
-            throw new RuntimeException("Cannot connect to Keycloak: " + e.getMessage());
-        }
-    }
-
-    private String getAdminAccessToken() {
-        try {
-            String tokenUrl = keycloakUrl + "/realms/master/protocol/openid-connect/token";
-            
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_FORM_URLENCODED);
-            
-            MultiValueMap<String, String> body = new LinkedMultiValueMap<>();
-            body.add("grant_type", "password");
-            body.add("client_id", "admin-cli");
-            body.add("username", adminUsername);
-            body.add("password", adminPassword);
-            
-            HttpEntity<MultiValueMap<String, String>> request = new HttpEntity<>(body, headers);
-            
-            logger.debug("Requesting admin access token from: {}", tokenUrl);
-            
-            ResponseEntity<Map> response = restTemplate.postForEntity(tokenUrl, request, Map.class);
-            
-            if (response.getStatusCode() == HttpStatus.OK && response.getBody() != null) {
-                String accessToken = (String) response.getBody().get("access_token");
-                if (accessToken != null) {
-                    logger.debug("Successfully obtained admin access token");
-                    return accessToken;
-                } else {
-                    logger.error("Access token not found in response");
-                }
-            } else {
-                logger.error("Failed to get admin access token. Status: {}", response.getStatusCode());
-            }
-            
-            throw new RuntimeException("Failed to get admin access token. Status: " + response.getStatusCode());
-            
-        } catch (Exception e) {
-            logger.error("Error getting admin access token: {}", e.getMessage(), e);
-            throw new RuntimeException("Failed to get admin access token: " + e.getMessage());
-        }
-    }
-
     private String createKeycloakUser(UserSyncRequest request, String adminToken) {
         try {
             String usersUrl = keycloakUrl + "/admin/realms/" + realm + "/users";
@@ -304,10 +250,19 @@ public class KeycloakUserServiceImpl implements KeycloakUserService {
             }
             userRepresentation.put("attributes", attributes);
             
-            HttpEntity<Map<String, Object>> requestEntity = new HttpEntity<>(userRepresentation, headers);
-            
             logger.debug("Creating user in Keycloak with data: {}", userRepresentation);
             
+            // Password inline, instead of a reset-password call after the user exists
+            if (request.getPasswordHash() != null) {
+                Map<String, Object> credential = new HashMap<>();
+                credential.put("type", "password");
+                credential.put("value", request.getPasswordHash());
+                credential.put("temporary", false);
+                userRepresentation.put("credentials", List.of(credential));
+            }
+            
+            HttpEntity<Map<String, Object>> requestEntity = new HttpEntity<>(userRepresentation, headers);
+            
             ResponseEntity<Void> response = restTemplate.postForEntity(usersUrl, requestEntity, Void.class);
             
             if (response.getStatusCode() == HttpStatus.CREATED) {
@@ -326,7 +281,7 @@ public class KeycloakUserServiceImpl implements KeycloakUserService {
             
         } catch (HttpClientErrorException e) {
             logger.error("HTTP error creating user in Keycloak: {}", e.getMessage());
-            throw new RuntimeException("Failed to create user in Keycloak: " + e.getMessage());
+            throw new RuntimeException("Failed to create user in Keycloak: " + e.getMessage(), e);
         } catch (Exception e) {
             logger.error("Error creating user in Keycloak: {}", e.getMessage(), e);
             throw new RuntimeException("Failed to create user in Keycloak: " + e.getMessage());
@@ -336,15 +291,10 @@ public class KeycloakUserServiceImpl implements KeycloakUserService {
     private void assignRoleToUser(String keycloakUserId, String role, String adminToken) {
         try {
             // First, get the role ID
-            String roleId = getRoleId(role, adminToken);
+            String roleId = getRoleId(role);
             
-            // Check if user already has this role
-            if (userHasRole(keycloakUserId, role, adminToken)) {
-                logger.info("User {} already has role {}, skipping assignment", keycloakUserId, role);
-                return;
-            }
-            
-            // Then assign the role to the user
+            // Then assign the role to the user; Keycloak accepts a mapping the user already has,
+            // so there is no need to read the user's roles first
             String roleMappingUrl = keycloakUrl + "/admin/realms/" + realm + "/users/" + keycloakUserId + "/role-mappings/realm";
             
             HttpHeaders headers = new HttpHeaders();
@@ -388,72 +338,22 @@ public class KeycloakUserServiceImpl implements KeycloakUserService {
                 throw new RuntimeException("Failed to assign role to user (Bad Request): " + e.getMessage());
             }
             logger.error("HTTP error assigning role {} to user {}: {}", role, keycloakUserId, e.getMessage(), e);
-            throw new RuntimeException("Failed to assign role to user: " + e.getMessage());
+            throw new RuntimeException("Failed to assign role to user: " + e.getMessage(), e);
         } catch (Exception e) {
             logger.error("Error assigning role {} to user {}: {}", role, keycloakUserId, e.getMessage(), e);
             throw new RuntimeException("Failed to assign role to user: " + e.getMessage());
         }
     }
 
-    private String getRoleId(String roleName, String adminToken) {
-        try {
-            String rolesUrl = keycloakUrl + "/admin/realms/" + realm + "/roles";
-            
-            HttpHeaders headers = new HttpHeaders();
-            headers.setBearerAuth(adminToken);
-            
-            HttpEntity<Void> requestEntity = new HttpEntity<>(headers);
-            
-            ResponseEntity<Map[]> response = restTemplate.exchange(rolesUrl, HttpMethod.GET, requestEntity, Map[].class);
-            
-            if (response.getStatusCode() == HttpStatus.OK && response.getBody() != null) {
-                logger.info("Found {} roles in Keycloak", response.getBody().length);
-                for (Map role : response.getBody()) {
-                    String name = (String) role.get("name");
-                    String id = (String) role.get("id");
-                    logger.debug("Role: {} (ID: {})", name, id);
-                    if (roleName.equals(name)) {
-                        logger.info("Found role {} with ID {}", roleName, id);
-                        return id;
-                    }
-                }
-                
-                // Log all available roles for debugging
-                logger.error("Role '{}' not found. Available roles:", roleName);
-                for (Map role : response.getBody()) {
-                    logger.error("  - {}", role.get("name"));
-                }
-            } else {
-                logger.error("Failed to get roles from Keycloak. Status: {}", response.getStatusCode());
-            }
-            
-            throw new RuntimeException("Role not found: " + roleName);
-            
-        } catch (Exception e) {
-            logger.error("Error getting role ID for role '{}': {}", roleName, e.getMessage(), e);
-            throw new RuntimeException("Failed to get role ID for role: " + roleName + ". Error: " + e.getMessage());
-        }
-    }
-
-    private void setUserPassword(String keycloakUserId, String password, String adminToken) {
-        String passwordUrl = keycloakUrl + "/admin/realms/" + realm + "/users/" + keycloakUserId + "/reset-password";
-        
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_JSON);
-        headers.setBearerAuth(adminToken);
-        
-        Map<String, Object> passwordRepresentation = new HashMap<>();
-        passwordRepresentation.put("type", "password");
-        passwordRepresentation.put("value", password);
-        passwordRepresentation.put("temporary", false);
-        
-        HttpEntity<Map<String, Object>> requestEntity = new HttpEntity<>(passwordRepresentation, headers);
-        
-        restTemplate.put(passwordUrl, requestEntity);
+    private String getRoleId(String roleName) {
+        return roleCache.find(roleName)
+                .map(KeycloakRoleCache.Role::id)
+                .orElseThrow(() -> new RuntimeException("Role not found: " + roleName));
     }
 
     private String findKeycloakUserByEmail(String email, String adminToken) {
-        String usersUrl = keycloakUrl + "/admin/realms/" + realm + "/users?email=" + email;
+        // Without exact=true Keycloak matches emails by substring
+        String usersUrl = keycloakUrl + "/admin/realms/" + realm + "/users?email=" + email + "&exact=true";
         
         HttpHeaders headers = new HttpHeaders();
         headers.setBearerAuth(adminToken);
@@ -480,18 +380,62 @@ public class KeycloakUserServiceImpl implements KeycloakUserService {
         ResponseEntity<Map> response = restTemplate.exchange(userUrl, HttpMethod.GET, requestEntity, Map.class);
         
         if (response.getStatusCode() == HttpStatus.OK && response.getBody() != null) {
-            Map userData = response.getBody();
-            UserSyncRequest user = new UserSyncRequest();
-            user.setUserId(UUID.fromString(keycloakUserId));
-            user.setEmail((String) userData.get("email"));
-            user.setFirstName((String) userData.get("firstName"));
-            user.setLastName((String) userData.get("lastName"));
-            return user;
+            return toUserSyncRequest(response.getBody());
         }
         
         return null;
     }
 
+    private List<UserSyncRequest> listKeycloakUsers(UUID tenantId, int first, int max, String adminToken) {
+        String usersUrl = keycloakUrl + "/admin/realms/" + realm + "/users?briefRepresentation=false&first=" + first + "&max=" + max
+                + (tenantId != null ? "&q=tenantId:" + tenantId : "");
+        
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth(adminToken);
+        
+        ResponseEntity<Map[]> response = restTemplate.exchange(usersUrl, HttpMethod.GET, new HttpEntity<>(headers), Map[].class);
+        
+        List<UserSyncRequest> users = new ArrayList<>();
+        if (response.getBody() != null) {
+            for (Map<?, ?> userData : response.getBody()) {
+                users.add(toUserSyncRequest(userData));
+            }
+        }
+        return users;
+    }
+
+    private static UserSyncRequest toUserSyncRequest(Map<?, ?> userData) {
+        String keycloakUserId = (String) userData.get("id");
+        UserSyncRequest user = new UserSyncRequest();
+        user.setUserId(UUID.fromString(keycloakUserId));
+        user.setKeycloakId(keycloakUserId);
+        user.setEmail((String) userData.get("email"));
+        user.setFirstName((String) userData.get("firstName"));
+        user.setLastName((String) userData.get("lastName"));
+        user.setStatus(Boolean.FALSE.equals(userData.get("enabled")) ? "disabled" : "active");
+        if (userData.get("attributes") instanceof Map<?, ?> attributes) {
+            String tenantId = attribute(attributes, "tenantId");
+            try {
+                user.setTenantId(tenantId != null ? UUID.fromString(tenantId) : null);
+            } catch (IllegalArgumentException e) {
+                logger.debug("Ignoring malformed tenantId attribute of Keycloak user {}: {}", keycloakUserId, tenantId);
+            }
+            user.setRole(attribute(attributes, "role"));
+        }
+        return user;
+    }
+
+    /**
+     * First value of a Keycloak user attribute (attributes are lists of strings).
+     */
+    private static String attribute(Map<?, ?> attributes, String name) {
+        Object value = attributes.get(name);
+        if (value instanceof List<?> values) {
+            value = values.isEmpty() ? null : values.get(0);
+        }
+        return value != null ? value.toString() : null;
+    }
+
     private void updateKeycloakUser(UserSyncRequest request, String adminToken) {
         String userUrl = keycloakUrl + "/admin/realms/" + realm + "/users/" + request.getUserId();
         
@@ -575,7 +519,7 @@ public class KeycloakUserServiceImpl implements KeycloakUserService {
                 return; // Consider this a success if user doesn't exist
             }
             logger.error("HTTP error deleting user from Keycloak: {}", e.getMessage());
-            throw new RuntimeException("Failed to delete user from Keycloak: " + e.getMessage());
+            throw new RuntimeException("Failed to delete user from Keycloak: " + e.getMessage(), e);
         } catch (Exception e) {
             logger.error("Error deleting user from Keycloak: {}", e.getMessage(), e);
             throw new RuntimeException("Failed to delete user from Keycloak: " + e.getMessage());
@@ -583,12 +527,7 @@ public class KeycloakUserServiceImpl implements KeycloakUserService {
     }
 
     private void ensureRoleExists(String roleName, String adminToken) {
-        try {
-            // Try to get the role ID - if it exists, we're good
-            getRoleId(roleName, adminToken);
-            logger.info("Role '{}' already exists", roleName);
-        } catch (Exception e) {
-            // Role doesn't exist, create it
+        if (roleCache.find(roleName).isEmpty()) {
             logger.info("Role '{}' does not exist, creating it", roleName);
             createRole(roleName, adminToken);
         }
@@ -641,19 +580,28 @@ public class KeycloakUserServiceImpl implements KeycloakUserService {
             
             if (response.getStatusCode() == HttpStatus.CREATED) {
                 logger.info("Successfully created role: {}", roleName);
+                roleCache.created(roleName);
             } else {
                 logger.error("Failed to create role {}. Status: {}", roleName, response.getStatusCode());
                 throw new RuntimeException("Failed to create role: " + roleName);
             }
             
+        } catch (HttpClientErrorException.Conflict e) {
+            // Created meanwhile by another request or instance
+            logger.info("Role '{}' already exists", roleName);
+            roleCache.created(roleName);
         } catch (Exception e) {
             logger.error("Error creating role '{}': {}", roleName, e.getMessage(), e);
-            throw new RuntimeException("Failed to create role: " + roleName + ". Error: " + e.getMessage());
+            throw new RuntimeException("Failed to create role: " + roleName + ". Error: " + e.getMessage(), e);
         }
     }
     
     private void removeRoleFromUser(String keycloakUserId, String role, String adminToken) {
-        String roleId = getRoleId(role, adminToken);
+        KeycloakRoleCache.Role realmRole = roleCache.find(role).orElse(null);
+        if (realmRole == null) {
+            // A role Keycloak doesn't have can't be mapped to the user either
+            return;
+        }
         String roleMappingUrl = keycloakUrl + "/admin/realms/" + realm + "/users/" + keycloakUserId + "/role-mappings/realm";
         
         HttpHeaders headers = new HttpHeaders();
@@ -661,10 +609,11 @@ public class KeycloakUserServiceImpl implements KeycloakUserService {
         headers.setBearerAuth(adminToken);
         
         Map<String, Object> roleMapping = new HashMap<>();
-        roleMapping.put("id", roleId);
+        roleMapping.put("id", realmRole.id());
         roleMapping.put("name", role);
         
-        HttpEntity<Map<String, Object>> requestEntity = new HttpEntity<>(roleMapping, headers);
+        // Keycloak expects an array of roles
+        HttpEntity<List<Map<String, Object>>> requestEntity = new HttpEntity<>(List.of(roleMapping), headers);
         
         restTemplate.exchange(roleMappingUrl, HttpMethod.DELETE, requestEntity, Void.class);
     }
@@ -0,0 +1,21 @@
+package com.ekyc.userservice.service.impl;
+
+import com.ekyc.common.dto.UserSyncRequest;
+import com.ekyc.userservice.service.ConflictPolicy;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Fixes nothing: reconciliation only reports drift.
+ */
+@Component
+@ConditionalOnProperty(name = "user-sync.reconciliation.policy", havingValue = "report-only")
+public class ReportOnlyConflictPolicy implements ConflictPolicy {
+
+    @Override
+    public List<Action> resolve(UserSyncRequest dbUser, UserSyncRequest keycloakUser, List<String> differences) {
+        return List.of();
+    }
+}
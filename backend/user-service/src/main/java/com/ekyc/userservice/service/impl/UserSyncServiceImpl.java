@@ -1,57 +1,203 @@
 package com.ekyc.userservice.service.impl;
 
 import com.ekyc.common.dto.UserSyncRequest;
+import com.ekyc.userservice.service.ConflictPolicy;
+import com.ekyc.userservice.service.DatabaseUserService;
+import com.ekyc.userservice.service.KeycloakOutbox;
+import com.ekyc.userservice.service.KeycloakUserService;
+import com.ekyc.userservice.service.ProfileChangeNotifier;
 import com.ekyc.userservice.service.UserSyncService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
 
+/**
+ * Compares database and Keycloak users on the fields both hold (email, names, tenant, Keycloak
+ * ID) and fixes drift as the ConflictPolicy decides. Keycloak updates go through the outbox;
+ * creating a missing Keycloak user and linking IDs happen directly.
+ */
 @Service
 public class UserSyncServiceImpl implements UserSyncService {
 
+    private static final Logger logger = LoggerFactory.getLogger(UserSyncServiceImpl.class);
+
+    private final DatabaseUserService databaseUserService;
+    private final KeycloakUserService keycloakUserService;
+    private final KeycloakOutbox keycloakOutbox;
+    private final ProfileChangeNotifier profileChangeNotifier;
+    private final ConflictPolicy conflictPolicy;
+    private final TransactionTemplate transactionTemplate;
+
+    public UserSyncServiceImpl(DatabaseUserService databaseUserService, KeycloakUserService keycloakUserService,
+                               KeycloakOutbox keycloakOutbox, ProfileChangeNotifier profileChangeNotifier,
+                               ConflictPolicy conflictPolicy, PlatformTransactionManager transactionManager) {
+        this.databaseUserService = databaseUserService;
+        this.keycloakUserService = keycloakUserService;
+        this.keycloakOutbox = keycloakOutbox;
+        this.profileChangeNotifier = profileChangeNotifier;
+        this.conflictPolicy = conflictPolicy;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
     @Override
     public UserSyncRequest syncUserData(UserSyncRequest dbUser, UserSyncRequest keycloakUser) {
-        // TODO: Implement actual user data synchronization logic
-        // For now, return the database user as the source of truth
-        
-        // Update timestamps
-        dbUser.setUpdatedAt(OffsetDateTime.now());
-        
-        return dbUser;
+        UserSyncRequest synced = resolveConflicts(dbUser, keycloakUser);
+        synced.setUpdatedAt(OffsetDateTime.now());
+        return synced;
     }
 
     @Override
     public UserSyncRequest syncDbToKeycloak(UserSyncRequest dbUser) {
-        // TODO: Implement actual sync from database to Keycloak
-        // For now, return the database user
+        createInKeycloak(dbUser);
         return dbUser;
     }
 
     @Override
     public UserSyncRequest syncKeycloakToDb(UserSyncRequest keycloakUser) {
-        // TODO: Implement actual sync from Keycloak to database
-        // For now, return the Keycloak user
-        return keycloakUser;
+        UserSyncRequest dbUser = databaseUserService.createSocialUser(keycloakUser);
+        String keycloakId = keycloakUser.getKeycloakId() != null ? keycloakUser.getKeycloakId() : String.valueOf(keycloakUser.getUserId());
+        databaseUserService.updateKeycloakId(dbUser.getUserId(), keycloakId);
+        dbUser.setKeycloakId(keycloakId);
+        return dbUser;
     }
 
     @Override
     public boolean validateUserConsistency(UserSyncRequest dbUser, UserSyncRequest keycloakUser) {
-        // TODO: Implement actual user data validation
-        // For now, return true (assume consistent)
-        return true;
+        return findDifferences(dbUser, keycloakUser).isEmpty();
     }
 
+    /**
+     * The database user, with fields it lacks taken from Keycloak.
+     */
     @Override
     public UserSyncRequest mergeUserData(UserSyncRequest dbUser, UserSyncRequest keycloakUser) {
-        // TODO: Implement actual user data merging
-        // For now, return the database user as source of truth
-        return dbUser;
+        UserSyncRequest merged = copyOf(dbUser);
+        if (keycloakUser != null) {
+            merged.setFirstName(merged.getFirstName() != null ? merged.getFirstName() : keycloakUser.getFirstName());
+            merged.setLastName(merged.getLastName() != null ? merged.getLastName() : keycloakUser.getLastName());
+            merged.setTenantId(merged.getTenantId() != null ? merged.getTenantId() : keycloakUser.getTenantId());
+            merged.setKeycloakId(keycloakUser.getKeycloakId() != null ? keycloakUser.getKeycloakId() : merged.getKeycloakId());
+        }
+        return merged;
     }
 
     @Override
     public UserSyncRequest resolveConflicts(UserSyncRequest dbUser, UserSyncRequest keycloakUser) {
-        // TODO: Implement actual conflict resolution logic
-        // For now, return the database user as source of truth
-        return dbUser;
+        reconcile(dbUser, keycloakUser);
+        return mergeUserData(dbUser, keycloakUser);
+    }
+
+    @Override
+    public List<String> findDifferences(UserSyncRequest dbUser, UserSyncRequest keycloakUser) {
+        List<String> differences = new ArrayList<>();
+        if (!Objects.equals(email(dbUser.getEmail()), email(keycloakUser.getEmail()))) {
+            differences.add("email");
+        }
+        if (!Objects.equals(text(dbUser.getFirstName()), text(keycloakUser.getFirstName()))) {
+            differences.add("firstName");
+        }
+        if (!Objects.equals(text(dbUser.getLastName()), text(keycloakUser.getLastName()))) {
+            differences.add("lastName");
+        }
+        if (!Objects.equals(dbUser.getTenantId(), keycloakUser.getTenantId())) {
+            differences.add("tenantId");
+        }
+        if (!Objects.equals(dbUser.getKeycloakId(), keycloakUser.getKeycloakId())) {
+            differences.add("keycloakId");
+        }
+        return differences;
+    }
+
+    @Override
+    public long digest(UserSyncRequest user) {
+        String normalized = String.join("\u0000", email(user.getEmail()), text(user.getFirstName()), text(user.getLastName()),
+                Objects.toString(user.getTenantId(), ""), Objects.toString(user.getKeycloakId(), ""));
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(normalized.getBytes(StandardCharsets.UTF_8));
+            return ByteBuffer.wrap(hash).getLong();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public List<ConflictPolicy.Action> reconcile(UserSyncRequest dbUser, UserSyncRequest keycloakUser) {
+        List<String> differences = dbUser != null && keycloakUser != null ? findDifferences(dbUser, keycloakUser) : List.of();
+        List<ConflictPolicy.Action> actions = conflictPolicy.resolve(dbUser, keycloakUser, differences);
+        for (ConflictPolicy.Action action : actions) {
+            switch (action) {
+                case CREATE_IN_KEYCLOAK -> createInKeycloak(dbUser);
+                case LINK_KEYCLOAK_ID -> link(dbUser, keycloakUser.getKeycloakId());
+                case PUSH_TO_KEYCLOAK -> push(dbUser, keycloakUser.getKeycloakId());
+            }
+        }
+        return actions;
+    }
+
+    /**
+     * Create the user in Keycloak without a password (the database only has its hash) and link it.
+     */
+    private void createInKeycloak(UserSyncRequest dbUser) {
+        UserSyncRequest request = copyOf(dbUser);
+        request.setPasswordHash(null);
+        UserSyncRequest keycloakUser = keycloakUserService.createUser(request);
+        link(dbUser, keycloakUser.getUserId().toString());
+        logger.info("Created missing Keycloak user for {}", dbUser.getEmail());
+    }
+
+    private void link(UserSyncRequest dbUser, String keycloakId) {
+        databaseUserService.updateKeycloakId(dbUser.getUserId(), keycloakId);
+        dbUser.setKeycloakId(keycloakId);
+        profileChangeNotifier.profileChanged(dbUser.getEmail());
+    }
+
+    /**
+     * Queue an update of the Keycloak user from the database row. The role is left as it is.
+     */
+    private void push(UserSyncRequest dbUser, String keycloakId) {
+        UserSyncRequest before = copyOf(dbUser);
+        before.setKeycloakId(keycloakId);
+        transactionTemplate.executeWithoutResult(status -> keycloakOutbox.userUpdated(before));
+    }
+
+    private static String email(String email) {
+        return email != null ? email.trim().toLowerCase(Locale.ROOT) : "";
+    }
+
+    /**
+     * Keycloak drops empty names, so missing and blank compare equal.
+     */
+    private static String text(String value) {
+        return value != null ? value.trim() : "";
+    }
+
+    private static UserSyncRequest copyOf(UserSyncRequest user) {
+        UserSyncRequest copy = new UserSyncRequest();
+        copy.setUserId(user.getUserId());
+        copy.setEmail(user.getEmail());
+        copy.setFirstName(user.getFirstName());
+        copy.setLastName(user.getLastName());
+        copy.setDateOfBirth(user.getDateOfBirth());
+        copy.setCountry(user.getCountry());
+        copy.setPhone(user.getPhone());
+        copy.setRole(user.getRole());
+        copy.setTenantId(user.getTenantId());
+        copy.setStatus(user.getStatus());
+        copy.setKeycloakId(user.getKeycloakId());
+        copy.setCreatedAt(user.getCreatedAt());
+        copy.setUpdatedAt(user.getUpdatedAt());
+        return copy;
     }
-} 
\ No newline at end of file
+}
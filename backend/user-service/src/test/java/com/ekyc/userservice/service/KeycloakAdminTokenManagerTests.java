@@ -0,0 +1,211 @@
+package com.ekyc.userservice.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpStatus;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class KeycloakAdminTokenManagerTests {
+
+    private final AtomicLong clock = new AtomicLong();
+    private final RestTemplate restTemplate = mock(RestTemplate.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final KeycloakAdminTokenManager manager = new KeycloakAdminTokenManager(restTemplate,
+            "http://keycloak", "admin", "secret", Duration.ofSeconds(15), meterRegistry, clock::get);
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    /** Grant types in the order Keycloak received them. */
+    private final List<String> grants = Collections.synchronizedList(new ArrayList<>());
+    private volatile CountDownLatch entered;
+    private volatile CountDownLatch release;
+    private volatile boolean rejectRefresh;
+    private volatile RuntimeException unavailable;
+
+    KeycloakAdminTokenManagerTests() {
+        // Tokens valid for 60s, renewed from 45s on; refresh tokens valid for 30 minutes
+        AtomicInteger issued = new AtomicInteger();
+        when(restTemplate.postForObject(anyString(), any(HttpEntity.class), eq(Map.class))).thenAnswer(invocation -> {
+            HttpEntity<MultiValueMap<String, String>> request = invocation.getArgument(1);
+            String grantType = request.getBody().getFirst("grant_type");
+            grants.add(grantType);
+            if (entered != null) {
+                entered.countDown();
+                release.await(5, TimeUnit.SECONDS);
+            }
+            if (unavailable != null) {
+                throw unavailable;
+            }
+            if (rejectRefresh && grantType.equals("refresh_token")) {
+                throw new HttpClientErrorException(HttpStatus.BAD_REQUEST, "invalid_grant");
+            }
+            int n = issued.incrementAndGet();
+            return Map.of("access_token", "access-" + n, "expires_in", 60,
+                    "refresh_token", "refresh-" + n, "refresh_expires_in", 1800);
+        });
+    }
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void tokenIsReusedUntilItIsDueForRenewal() {
+        assertThat(manager.token()).isEqualTo("access-1");
+        clock.set(seconds(44));
+
+        assertThat(manager.token()).isEqualTo("access-1");
+        assertThat(grants).containsExactly("password");
+    }
+
+    @Test
+    void concurrentCallersAtExpiryShareOneGrant() throws Exception {
+        manager.token();
+        clock.set(seconds(61));
+        holdGrants();
+
+        List<Future<String>> callers = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            callers.add(executor.submit(manager::token));
+        }
+        assertThat(entered.await(5, TimeUnit.SECONDS)).isTrue();
+        // Let the other callers queue up behind the renewal
+        Thread.sleep(100);
+        release.countDown();
+
+        for (Future<String> caller : callers) {
+            assertThat(caller.get(5, TimeUnit.SECONDS)).isEqualTo("access-2");
+        }
+        assertThat(grants).containsExactly("password", "refresh_token");
+        assertThat(meterRegistry.get("keycloak.admin.token.grants").tag("grant", "refresh_token").counter().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void earlyRenewalKeepsServingTheOldToken() throws Exception {
+        manager.token();
+        clock.set(seconds(50));
+        holdGrants();
+
+        Future<String> renewer = executor.submit(manager::token);
+        assertThat(entered.await(5, TimeUnit.SECONDS)).isTrue();
+        // The renewal is in flight: other callers don't wait for it
+        assertThat(manager.token()).isEqualTo("access-1");
+        release.countDown();
+
+        assertThat(renewer.get(5, TimeUnit.SECONDS)).isEqualTo("access-2");
+        assertThat(manager.token()).isEqualTo("access-2");
+        assertThat(grants).containsExactly("password", "refresh_token");
+    }
+
+    @Test
+    void failedEarlyRenewalKeepsTheOldToken() {
+        manager.token();
+        clock.set(seconds(50));
+        unavailable = new IllegalStateException("Keycloak unavailable");
+
+        assertThat(manager.token()).isEqualTo("access-1");
+        assertThat(manager.token()).isEqualTo("access-1");
+    }
+
+    @Test
+    void rejectedRefreshTokenFallsBackToThePasswordGrant() {
+        manager.token();
+        clock.set(seconds(61));
+        rejectRefresh = true;
+
+        assertThat(manager.token()).isEqualTo("access-2");
+        assertThat(grants).containsExactly("password", "refresh_token", "password");
+    }
+
+    @Test
+    void expiredRefreshTokenIsNotTried() {
+        manager.token();
+        clock.set(seconds(1801));
+
+        assertThat(manager.token()).isEqualTo("access-2");
+        assertThat(grants).containsExactly("password", "password");
+    }
+
+    @Test
+    void unauthorizedCallIsRetriedOnceWithANewToken() {
+        List<String> tokens = new ArrayList<>();
+
+        String result = manager.execute(token -> {
+            tokens.add(token);
+            if (token.equals("access-1")) {
+                throw unauthorized();
+            }
+            return "ok";
+        });
+
+        assertThat(result).isEqualTo("ok");
+        assertThat(tokens).containsExactly("access-1", "access-2");
+        assertThat(grants).containsExactly("password", "refresh_token");
+        assertThat(meterRegistry.get("keycloak.admin.token.retries").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void secondUnauthorizedIsPropagated() {
+        List<String> tokens = new ArrayList<>();
+
+        assertThatThrownBy(() -> manager.execute(token -> {
+            tokens.add(token);
+            throw unauthorized();
+        })).isInstanceOf(HttpClientErrorException.Unauthorized.class);
+
+        assertThat(tokens).containsExactly("access-1", "access-2");
+        assertThat(meterRegistry.get("keycloak.admin.token.retries").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void otherFailuresAreNotRetried() {
+        AtomicInteger calls = new AtomicInteger();
+
+        assertThatThrownBy(() -> manager.execute(token -> {
+            calls.incrementAndGet();
+            throw new HttpClientErrorException(HttpStatus.FORBIDDEN);
+        })).isInstanceOf(HttpClientErrorException.class);
+
+        assertThat(calls).hasValue(1);
+        assertThat(grants).containsExactly("password");
+    }
+
+    private void holdGrants() {
+        entered = new CountDownLatch(1);
+        release = new CountDownLatch(1);
+    }
+
+    private static HttpClientErrorException unauthorized() {
+        return HttpClientErrorException.create(HttpStatus.UNAUTHORIZED, "Unauthorized", null, null, null);
+    }
+
+    private static long seconds(long seconds) {
+        return Duration.ofSeconds(seconds).toNanos();
+    }
+}
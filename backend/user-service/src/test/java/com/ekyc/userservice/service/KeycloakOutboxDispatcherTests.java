@@ -0,0 +1,157 @@
+package com.ekyc.userservice.service;
+
+import com.ekyc.common.dto.UserSyncRequest;
+import com.ekyc.userservice.entity.KeycloakOutboxEntry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class KeycloakOutboxDispatcherTests {
+
+    private static final String EMAIL = "jane@example.com";
+    private static final UUID USER_ID = UUID.fromString("11111111-1111-1111-1111-111111111111");
+    private static final String KEYCLOAK_ID = "22222222-2222-2222-2222-222222222222";
+
+    private final List<KeycloakOutboxEntry> rows = new ArrayList<>();
+    private final KeycloakOutbox outbox = new KeycloakOutbox(KeycloakOutboxTests.repository(rows),
+            Duration.ofSeconds(60), Duration.ofSeconds(1), Duration.ofSeconds(10));
+    private final DatabaseUserService databaseUserService = mock(DatabaseUserService.class);
+    private final KeycloakUserService keycloakUserService = mock(KeycloakUserService.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final KeycloakOutboxDispatcher dispatcher = new KeycloakOutboxDispatcher(outbox, databaseUserService,
+            keycloakUserService, 100, meterRegistry);
+
+    @Test
+    void updatesOfAUserCollapseIntoOnePut() {
+        outbox.userUpdated(user(USER_ID, EMAIL, KEYCLOAK_ID, "TENANT_USER"));
+        outbox.userUpdated(user(USER_ID, EMAIL, KEYCLOAK_ID, "TENANT_ADMIN"));
+        outbox.userUpdated(user(USER_ID, EMAIL, KEYCLOAK_ID, "TENANT_ADMIN"));
+        when(databaseUserService.findById(USER_ID)).thenReturn(user(USER_ID, EMAIL, KEYCLOAK_ID, "TENANT_ADMIN"));
+
+        dispatcher.dispatch();
+
+        verify(keycloakUserService, times(1)).updateUser(any(UserSyncRequest.class));
+        verify(keycloakUserService).assignRole(KEYCLOAK_ID, "TENANT_ADMIN");
+        verify(keycloakUserService).removeRole(KEYCLOAK_ID, "TENANT_USER");
+        verify(keycloakUserService, never()).removeRole(KEYCLOAK_ID, "TENANT_ADMIN");
+        assertThat(rows).isEmpty();
+        assertThat(meterRegistry.get("keycloak.outbox.collapsed").counter().count()).isEqualTo(2);
+    }
+
+    @Test
+    void deleteSupersedesPendingUpdates() {
+        outbox.userUpdated(user(USER_ID, EMAIL, KEYCLOAK_ID, "TENANT_USER"));
+        outbox.userDeleted(USER_ID, EMAIL, KEYCLOAK_ID);
+
+        dispatcher.dispatch();
+
+        verify(keycloakUserService).deleteUser(KEYCLOAK_ID);
+        verify(keycloakUserService, never()).updateUser(any(UserSyncRequest.class));
+        verify(keycloakUserService, never()).findIdByEmail(anyString());
+        assertThat(rows).isEmpty();
+    }
+
+    @Test
+    void failedUserIsRetriedWithoutHoldingUpOthers() {
+        UUID otherId = UUID.randomUUID();
+        outbox.userUpdated(user(USER_ID, EMAIL, KEYCLOAK_ID, "TENANT_USER"));
+        outbox.userDeleted(otherId, "john@example.com", "33333333-3333-3333-3333-333333333333");
+        when(databaseUserService.findById(USER_ID)).thenReturn(user(USER_ID, EMAIL, KEYCLOAK_ID, "TENANT_USER"));
+        when(keycloakUserService.updateUser(any(UserSyncRequest.class))).thenThrow(new IllegalStateException("Keycloak unavailable"));
+
+        OffsetDateTime before = OffsetDateTime.now();
+        dispatcher.dispatch();
+
+        verify(keycloakUserService).deleteUser("33333333-3333-3333-3333-333333333333");
+        assertThat(rows).singleElement().satisfies(entry -> {
+            assertThat(entry.getUserId()).isEqualTo(USER_ID);
+            assertThat(entry.getAttempts()).isEqualTo(1);
+            assertThat(entry.getLastError()).isEqualTo("Keycloak unavailable");
+            assertThat(entry.getNextAttemptAt()).isAfter(before);
+        });
+        assertThat(meterRegistry.get("keycloak.outbox.failures").counter().count()).isEqualTo(1);
+
+        // Backing off: the next poll leaves it alone
+        dispatcher.dispatch();
+        verify(keycloakUserService, times(1)).updateUser(any(UserSyncRequest.class));
+    }
+
+    @Test
+    void deleteWithoutKeycloakIdLooksUpTheEmail() {
+        outbox.userDeleted(USER_ID, EMAIL, null);
+        when(keycloakUserService.findIdByEmail(EMAIL)).thenReturn(KEYCLOAK_ID);
+
+        dispatcher.dispatch();
+
+        verify(keycloakUserService).deleteUser(KEYCLOAK_ID);
+        assertThat(rows).isEmpty();
+    }
+
+    @Test
+    void deleteWithoutKeycloakIdLeavesAReRegisteredEmailAlone() {
+        outbox.userDeleted(USER_ID, EMAIL, null);
+        when(databaseUserService.findByEmail(EMAIL)).thenReturn(user(UUID.randomUUID(), EMAIL, null, "TENANT_USER"));
+        when(keycloakUserService.findIdByEmail(EMAIL)).thenReturn("44444444-4444-4444-4444-444444444444");
+
+        dispatcher.dispatch();
+
+        verify(keycloakUserService, never()).deleteUser(anyString());
+        assertThat(rows).isEmpty();
+    }
+
+    @Test
+    void deleteRecordedBeforeReRegistrationRemovesOnlyTheOldKeycloakUser() {
+        UnifiedUserService users = new UnifiedUserService(databaseUserService, keycloakUserService,
+                mock(UserSyncService.class), mock(ProfileChangeNotifier.class), mock(UserProfileCache.class), outbox);
+        // Deleted before its Keycloak ID was linked
+        when(databaseUserService.findByEmail(EMAIL)).thenReturn(user(USER_ID, EMAIL, null, "TENANT_USER"));
+        when(keycloakUserService.findIdByEmail(EMAIL)).thenReturn(KEYCLOAK_ID);
+        users.deleteUserByEmail(EMAIL);
+
+        // The email signs up again before the outbox is drained
+        String newKeycloakId = "55555555-5555-5555-5555-555555555555";
+        when(databaseUserService.findByEmail(EMAIL)).thenReturn(user(UUID.randomUUID(), EMAIL, newKeycloakId, "TENANT_USER"));
+        when(keycloakUserService.findIdByEmail(EMAIL)).thenReturn(newKeycloakId);
+        dispatcher.dispatch();
+
+        verify(keycloakUserService).deleteUser(KEYCLOAK_ID);
+        verify(keycloakUserService, never()).deleteUser(newKeycloakId);
+    }
+
+    @Test
+    void deleteIsRecordedWhenKeycloakCannotBeAsked() {
+        UnifiedUserService users = new UnifiedUserService(databaseUserService, keycloakUserService,
+                mock(UserSyncService.class), mock(ProfileChangeNotifier.class), mock(UserProfileCache.class), outbox);
+        when(databaseUserService.findByEmail(EMAIL)).thenReturn(user(USER_ID, EMAIL, null, "TENANT_USER"));
+        when(keycloakUserService.findIdByEmail(EMAIL)).thenThrow(new IllegalStateException("Keycloak unavailable"));
+
+        users.deleteUserByEmail(EMAIL);
+
+        verify(databaseUserService).deleteUser(USER_ID);
+        assertThat(rows).singleElement().satisfies(entry -> {
+            assertThat(entry.getOperation()).isEqualTo(KeycloakOutboxEntry.Operation.DELETE);
+            assertThat(entry.getKeycloakId()).isNull();
+        });
+    }
+
+    private static UserSyncRequest user(UUID userId, String email, String keycloakId, String role) {
+        UserSyncRequest user = new UserSyncRequest(email, "Jane", "Doe", role);
+        user.setUserId(userId);
+        user.setKeycloakId(keycloakId);
+        return user;
+    }
+}
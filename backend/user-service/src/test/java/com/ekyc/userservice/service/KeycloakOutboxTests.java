@@ -0,0 +1,142 @@
+package com.ekyc.userservice.service;
+
+import com.ekyc.common.dto.UserSyncRequest;
+import com.ekyc.userservice.entity.KeycloakOutboxEntry;
+import com.ekyc.userservice.repository.KeycloakOutboxRepository;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class KeycloakOutboxTests {
+
+    private static final OffsetDateTime T0 = OffsetDateTime.parse("2026-01-01T00:00:00Z");
+
+    private final List<KeycloakOutboxEntry> rows = new ArrayList<>();
+    private final KeycloakOutbox outbox = new KeycloakOutbox(repository(rows),
+            Duration.ofSeconds(60), Duration.ofSeconds(1), Duration.ofSeconds(10));
+
+    @Test
+    void claimTakesDueEntriesOldestFirstAndLeasesThem() {
+        KeycloakOutboxEntry first = record("a@example.com");
+        KeycloakOutboxEntry second = record("b@example.com");
+        KeycloakOutboxEntry notDue = record("c@example.com");
+        notDue.setNextAttemptAt(T0.plusMinutes(5));
+
+        assertThat(outbox.claim(10, T0)).containsExactly(first, second);
+
+        assertThat(first.getNextAttemptAt()).isEqualTo(T0.plusSeconds(60));
+        // Held by the claim: another dispatcher gets nothing
+        assertThat(outbox.claim(10, T0.plusSeconds(30))).isEmpty();
+    }
+
+    @Test
+    void claimHonoursTheLimit() {
+        KeycloakOutboxEntry first = record("a@example.com");
+        record("b@example.com");
+
+        assertThat(outbox.claim(1, T0)).containsExactly(first);
+    }
+
+    @Test
+    void expiredLeaseIsClaimedAgain() {
+        KeycloakOutboxEntry entry = record("a@example.com");
+        outbox.claim(10, T0);
+
+        // The dispatcher that claimed it died without applying it or recording a failure
+        assertThat(outbox.claim(10, T0.plusSeconds(59))).isEmpty();
+        assertThat(outbox.claim(10, T0.plusSeconds(60))).containsExactly(entry);
+    }
+
+    @Test
+    void failuresBackOffExponentiallyUpToTheMaximum() {
+        KeycloakOutboxEntry entry = record("a@example.com");
+
+        List<Long> backoffs = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            outbox.failed(List.of(entry.getId()), "Keycloak unavailable", T0);
+            backoffs.add(Duration.between(T0, entry.getNextAttemptAt()).toSeconds());
+        }
+
+        assertThat(backoffs).containsExactly(1L, 2L, 4L, 8L, 10L, 10L);
+        assertThat(entry.getAttempts()).isEqualTo(6);
+        assertThat(entry.getLastError()).isEqualTo("Keycloak unavailable");
+        assertThat(outbox.claim(10, T0.plusSeconds(9))).isEmpty();
+        assertThat(outbox.claim(10, T0.plusSeconds(10))).containsExactly(entry);
+    }
+
+    @Test
+    void longErrorIsTruncated() {
+        KeycloakOutboxEntry entry = record("a@example.com");
+
+        outbox.failed(List.of(entry.getId()), "x".repeat(5000), T0);
+
+        assertThat(entry.getLastError()).hasSize(1000);
+    }
+
+    @Test
+    void appliedEntriesAreRemoved() {
+        KeycloakOutboxEntry applied = record("a@example.com");
+        KeycloakOutboxEntry pending = record("b@example.com");
+
+        outbox.applied(List.of(applied.getId()));
+
+        assertThat(rows).containsExactly(pending);
+        assertThat(outbox.backlog()).isEqualTo(1);
+    }
+
+    private KeycloakOutboxEntry record(String email) {
+        UserSyncRequest before = new UserSyncRequest(email, "Jane", "Doe", "TENANT_USER");
+        before.setUserId(UUID.randomUUID());
+        outbox.userUpdated(before);
+        KeycloakOutboxEntry entry = rows.get(rows.size() - 1);
+        entry.setNextAttemptAt(T0);
+        return entry;
+    }
+
+    /**
+     * A repository over a list, with lockDue's WHERE, ORDER BY and LIMIT. Locks aren't modelled:
+     * a claimed entry is held by its lease, as it is once the claiming transaction commits.
+     */
+    static KeycloakOutboxRepository repository(List<KeycloakOutboxEntry> rows) {
+        KeycloakOutboxRepository repository = mock(KeycloakOutboxRepository.class);
+        when(repository.save(any(KeycloakOutboxEntry.class))).thenAnswer(invocation -> {
+            KeycloakOutboxEntry entry = invocation.getArgument(0);
+            entry.setId(rows.stream().mapToLong(KeycloakOutboxEntry::getId).max().orElse(0) + 1);
+            rows.add(entry);
+            return entry;
+        });
+        when(repository.lockDue(any(OffsetDateTime.class), anyInt())).thenAnswer(invocation -> {
+            OffsetDateTime now = invocation.getArgument(0);
+            int limit = invocation.getArgument(1);
+            return rows.stream()
+                    .filter(entry -> !entry.getNextAttemptAt().isAfter(now))
+                    .sorted(Comparator.comparing(KeycloakOutboxEntry::getId))
+                    .limit(limit)
+                    .toList();
+        });
+        when(repository.findAllById(any())).thenAnswer(invocation -> {
+            Collection<Long> ids = invocation.getArgument(0);
+            return rows.stream().filter(entry -> ids.contains(entry.getId())).toList();
+        });
+        doAnswer(invocation -> {
+            Collection<Long> ids = invocation.getArgument(0);
+            rows.removeIf(entry -> ids.contains(entry.getId()));
+            return null;
+        }).when(repository).deleteAllByIdInBatch(any());
+        when(repository.count()).thenAnswer(invocation -> (long) rows.size());
+        return repository;
+    }
+}
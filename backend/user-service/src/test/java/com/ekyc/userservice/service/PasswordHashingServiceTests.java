@@ -0,0 +1,118 @@
+package com.ekyc.userservice.service;
+
+import com.ekyc.userservice.config.PasswordHashingProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PasswordHashingServiceTests {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private PasswordHashingService service;
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        service.shutdown();
+    }
+
+    @Test
+    void hashVerifiesWithoutUpgrade() {
+        service = service(5, 1, 1, Duration.ofSeconds(5));
+
+        String hash = service.hash("s3cret-Passw0rd");
+
+        assertThat(hash).startsWith("$2a$05$");
+        assertThat(service.verify("s3cret-Passw0rd", hash)).isEqualTo(new PasswordHashingService.Verification(true, null));
+        assertThat(service.verify("wrong", hash).matches()).isFalse();
+    }
+
+    @Test
+    void saturatedPoolRejectsAtOnce() throws Exception {
+        service = service(4, 1, 1, Duration.ofSeconds(5));
+        CompletableFuture<Object> running = CompletableFuture.supplyAsync(() -> service.submit(this::blockUntilReleased));
+        awaitGauge("user.password.hashing.active", 1);
+        CompletableFuture<Object> queued = CompletableFuture.supplyAsync(() -> service.submit(this::blockUntilReleased));
+        awaitGauge("user.password.hashing.queue", 1);
+
+        assertThatThrownBy(() -> service.hash("s3cret-Passw0rd")).isInstanceOf(PasswordHashingRejectedException.class);
+        assertThat(meterRegistry.get("user.password.hashing.rejected").counter().count()).isEqualTo(1);
+
+        // Work already admitted still completes
+        release.countDown();
+        assertThat(running.get(5, TimeUnit.SECONDS)).isNull();
+        assertThat(queued.get(5, TimeUnit.SECONDS)).isNull();
+    }
+
+    @Test
+    void queuedHashTimesOut() throws Exception {
+        service = service(4, 1, 4, Duration.ofMillis(100));
+        CompletableFuture.runAsync(() -> service.submit(this::blockUntilReleased));
+        awaitGauge("user.password.hashing.active", 1);
+
+        assertThatThrownBy(() -> service.hash("s3cret-Passw0rd"))
+                .isInstanceOf(PasswordHashingRejectedException.class)
+                .hasMessageContaining("timed out");
+    }
+
+    @Test
+    void weakHashIsUpgradedOnMatch() {
+        service = service(5, 1, 1, Duration.ofSeconds(5));
+        String weak = new BCryptPasswordEncoder(4).encode("s3cret-Passw0rd");
+
+        PasswordHashingService.Verification verification = service.verify("s3cret-Passw0rd", weak);
+
+        assertThat(verification.matches()).isTrue();
+        assertThat(verification.rehashed()).startsWith("$2a$05$");
+        assertThat(service.verify("s3cret-Passw0rd", verification.rehashed()).rehashed()).isNull();
+        assertThat(service.verify("wrong", weak).rehashed()).isNull();
+    }
+
+    @Test
+    void legacyPlainPasswordIsUpgradedOnMatch() {
+        service = service(4, 1, 1, Duration.ofSeconds(5));
+
+        PasswordHashingService.Verification verification = service.verify("s3cret-Passw0rd", "s3cret-Passw0rd");
+
+        assertThat(verification.matches()).isTrue();
+        assertThat(service.verify("s3cret-Passw0rd", verification.rehashed()).matches()).isTrue();
+        assertThat(service.verify("wrong", "s3cret-Passw0rd").matches()).isFalse();
+        assertThat(meterRegistry.get("user.password.hashing.upgraded").counter().count()).isEqualTo(1);
+    }
+
+    private PasswordHashingService service(int strength, int threads, int queueCapacity, Duration timeout) {
+        PasswordHashingProperties properties = new PasswordHashingProperties();
+        properties.setStrength(strength);
+        properties.setThreads(threads);
+        properties.setQueueCapacity(queueCapacity);
+        properties.setTimeout(timeout);
+        return new PasswordHashingService(properties, meterRegistry);
+    }
+
+    private Object blockUntilReleased() {
+        try {
+            release.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return null;
+    }
+
+    private void awaitGauge(String name, double value) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (meterRegistry.get(name).gauge().value() != value) {
+            assertThat(System.nanoTime()).as("waiting for %s = %s", name, value).isLessThan(deadline);
+            Thread.sleep(5);
+        }
+    }
+}
@@ -0,0 +1,299 @@
+package com.ekyc.userservice.service;
+
+import com.ekyc.common.dto.UserSyncRequest;
+import com.ekyc.userservice.config.ReconciliationProperties;
+import com.ekyc.userservice.dto.ReconciliationReport;
+import com.ekyc.userservice.service.impl.DatabaseFirstConflictPolicy;
+import com.ekyc.userservice.service.impl.UserSyncServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UserReconciliationServiceTests {
+
+    private static final UUID TENANT_A = UUID.fromString("aaaaaaaa-aaaa-aaaa-aaaa-aaaaaaaaaaaa");
+    private static final UUID TENANT_B = UUID.fromString("bbbbbbbb-bbbb-bbbb-bbbb-bbbbbbbbbbbb");
+
+    private final List<UserSyncRequest> databaseUsers = new ArrayList<>();
+    private final List<UserSyncRequest> keycloakUsers = new ArrayList<>();
+    private final DatabaseUserService databaseUserService = mock(DatabaseUserService.class);
+    private final KeycloakUserService keycloakUserService = mock(KeycloakUserService.class);
+    private final KeycloakOutbox keycloakOutbox = mock(KeycloakOutbox.class);
+    private final ReconciliationProperties properties = new ReconciliationProperties();
+    private final Connection connection = mock(Connection.class);
+    private final ResultSet lock = mock(ResultSet.class);
+    private final PreparedStatement lockStatement = mock(PreparedStatement.class);
+    private UserReconciliationService service;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        properties.setPageSize(2);
+        UserSyncService userSyncService = new UserSyncServiceImpl(databaseUserService, keycloakUserService, keycloakOutbox,
+                mock(ProfileChangeNotifier.class), new DatabaseFirstConflictPolicy(), mock(PlatformTransactionManager.class));
+        DataSource dataSource = mock(DataSource.class);
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.prepareStatement(anyString())).thenReturn(lockStatement);
+        when(lockStatement.executeQuery()).thenReturn(lock);
+        when(lock.next()).thenReturn(true);
+        when(lock.getBoolean(1)).thenReturn(true);
+        service = new UserReconciliationService(databaseUserService, keycloakUserService, userSyncService, properties,
+                dataSource, new SimpleMeterRegistry());
+
+        when(databaseUserService.findPage(anyString(), anyInt())).thenAnswer(invocation ->
+                databasePage(null, false, invocation.getArgument(0), invocation.getArgument(1)));
+        when(databaseUserService.findTenantPage(any(), anyString(), anyInt())).thenAnswer(invocation ->
+                databasePage(invocation.getArgument(0), true, invocation.getArgument(1), invocation.getArgument(2)));
+        when(databaseUserService.findByEmail(anyString())).thenAnswer(invocation -> databaseUsers.stream()
+                .filter(user -> user.getEmail().equals(invocation.getArgument(0))).findFirst().orElse(null));
+        when(keycloakUserService.listUsers(any(), anyInt(), anyInt())).thenAnswer(invocation -> {
+            UUID tenantId = invocation.getArgument(0);
+            int first = invocation.getArgument(1);
+            int max = invocation.getArgument(2);
+            return keycloakUsers.stream()
+                    .filter(user -> tenantId == null || tenantId.equals(user.getTenantId()))
+                    .skip(first)
+                    .limit(max)
+                    .toList();
+        });
+        when(keycloakUserService.findById(anyString())).thenAnswer(invocation -> keycloakUsers.stream()
+                .filter(user -> user.getKeycloakId().equals(invocation.getArgument(0))).findFirst().orElse(null));
+        when(keycloakUserService.findIdByEmail(anyString())).thenAnswer(invocation -> keycloakUsers.stream()
+                .filter(user -> user.getEmail().equals(invocation.getArgument(0))).findFirst()
+                .map(UserSyncRequest::getKeycloakId).orElse(null));
+    }
+
+    @Test
+    void matchingBucketsAreNotComparedUserByUser() {
+        for (int i = 0; i < 5; i++) {
+            both("user" + i + "@example.com", i % 2 == 0 ? TENANT_A : TENANT_B);
+        }
+        both("admin@example.com", null);
+
+        ReconciliationReport report = run();
+
+        assertThat(report.databaseUsers()).isEqualTo(6);
+        assertThat(report.keycloakUsers()).isEqualTo(6);
+        assertThat(report.buckets()).isEqualTo(3);
+        assertThat(report.bucketsDiffered()).isZero();
+        assertThat(report.drifts()).isEmpty();
+        verify(databaseUserService, never()).findTenantPage(any(), anyString(), anyInt());
+    }
+
+    @Test
+    void onlyDriftedBucketIsComparedAndFixed() {
+        both("a1@example.com", TENANT_A);
+        both("a2@example.com", TENANT_A);
+        both("a3@example.com", TENANT_A).setFirstName("Janet");
+        both("b1@example.com", TENANT_B);
+        // Case and surrounding blanks aren't drift
+        both("b2@example.com", TENANT_B).setEmail(" B2@Example.com");
+
+        ReconciliationReport report = run();
+
+        assertThat(report.bucketsDiffered()).isEqualTo(1);
+        assertThat(report.mismatched()).isEqualTo(1);
+        assertThat(report.fixed()).isEqualTo(1);
+        assertThat(report.drifts()).singleElement().satisfies(drift -> {
+            assertThat(drift.email()).isEqualTo("a3@example.com");
+            assertThat(drift.fields()).containsExactly("firstName");
+            assertThat(drift.actions()).containsExactly("PUSH_TO_KEYCLOAK");
+        });
+        verify(keycloakOutbox).userUpdated(any(UserSyncRequest.class));
+        verify(databaseUserService, never()).findTenantPage(eq(TENANT_B), anyString(), anyInt());
+    }
+
+    @Test
+    void userListedUnderAnotherTenantIsPairedByKeycloakId() {
+        both("a1@example.com", TENANT_A);
+        both("moved@example.com", TENANT_A).setTenantId(TENANT_B);
+
+        ReconciliationReport report = run();
+
+        // Compared once, from the database side; the Keycloak side finds the row and leaves it
+        assertThat(report.bucketsDiffered()).isEqualTo(2);
+        assertThat(report.missingInKeycloak()).isZero();
+        assertThat(report.missingInDatabase()).isZero();
+        assertThat(report.drifts()).singleElement().satisfies(drift -> {
+            assertThat(drift.type()).isEqualTo(ReconciliationReport.Type.MISMATCH);
+            assertThat(drift.fields()).containsExactly("tenantId");
+            // Tenants are only reported
+            assertThat(drift.actions()).isEmpty();
+        });
+        verify(keycloakUserService).findById("kc-moved@example.com");
+    }
+
+    @Test
+    void unlinkedUserIsPairedByEmail() {
+        both("unlinked@example.com", TENANT_A).setTenantId(TENANT_B);
+        database("unlinked@example.com").setKeycloakId(null);
+
+        ReconciliationReport report = run();
+
+        assertThat(report.drifts()).singleElement().satisfies(drift -> {
+            assertThat(drift.type()).isEqualTo(ReconciliationReport.Type.MISMATCH);
+            assertThat(drift.fields()).containsExactly("tenantId", "keycloakId");
+            assertThat(drift.actions()).containsExactly("LINK_KEYCLOAK_ID");
+        });
+        verify(databaseUserService).updateKeycloakId(database("unlinked@example.com").getUserId(), "kc-unlinked@example.com");
+    }
+
+    @Test
+    void bothSidesAreWalkedInCodePointOrder() {
+        // Punctuation sorts apart under en_US collation, and U+1F600 before U+FF41 in UTF-16 order
+        for (String email : List.of("ab@example.com", "a.b@example.com", "a_b@example.com", "a-b@example.com",
+                "a+b@example.com", "\uD83D\uDE00@example.com")) {
+            both(email, TENANT_A);
+        }
+        databaseUsers.add(databaseUser("\uFF41@example.com", TENANT_A));
+
+        ReconciliationReport report = run();
+
+        assertThat(report.missingInKeycloak()).isEqualTo(1);
+        assertThat(report.missingInDatabase()).isZero();
+        assertThat(report.mismatched()).isZero();
+        // Only the user missing in Keycloak is looked up; everyone else was paired in the walk
+        verify(keycloakUserService).findById("kc-\uFF41@example.com");
+        verify(keycloakUserService, never()).findById("kc-\uD83D\uDE00@example.com");
+        verify(databaseUserService, never()).findByEmail(anyString());
+    }
+
+    @Test
+    void emailsCompareByCodePoint() {
+        assertThat(UserReconciliationService.compareEmails("a+b@x", "a-b@x")).isNegative();
+        assertThat(UserReconciliationService.compareEmails("\uFF41@x", "\uD83D\uDE00@x")).isNegative();
+        assertThat(UserReconciliationService.compareEmails("ab@x", "ab@x")).isZero();
+        assertThat(UserReconciliationService.compareEmails("ab", "ab@x")).isNegative();
+    }
+
+    @Test
+    void missingUsersAreCreatedInKeycloakOrReported() {
+        databaseUsers.add(databaseUser("dbonly@example.com", TENANT_A));
+        keycloakUsers.add(keycloakUser("kconly@example.com", TENANT_A));
+        UserSyncRequest created = new UserSyncRequest();
+        created.setUserId(UUID.randomUUID());
+        when(keycloakUserService.createUser(any(UserSyncRequest.class))).thenReturn(created);
+
+        ReconciliationReport report = run();
+
+        assertThat(report.missingInKeycloak()).isEqualTo(1);
+        assertThat(report.missingInDatabase()).isEqualTo(1);
+        assertThat(report.fixed()).isEqualTo(1);
+        assertThat(report.drifts()).extracting(ReconciliationReport.Drift::email, ReconciliationReport.Drift::actions)
+                .containsExactlyInAnyOrder(
+                        tuple("dbonly@example.com", List.of("CREATE_IN_KEYCLOAK")),
+                        tuple("kconly@example.com", List.of()));
+        verify(databaseUserService).updateKeycloakId(database("dbonly@example.com").getUserId(), created.getUserId().toString());
+        verify(databaseUserService, never()).createSocialUser(any());
+    }
+
+    @Test
+    void reportKeepsTheFirstMaxDriftsButCountsAll() {
+        properties.setMaxDrifts(2);
+        for (int i = 0; i < 3; i++) {
+            databaseUsers.add(databaseUser("user" + i + "@example.com", null));
+        }
+        when(keycloakUserService.createUser(any(UserSyncRequest.class))).thenThrow(new IllegalStateException("Keycloak unavailable"));
+
+        ReconciliationReport report = run();
+
+        assertThat(report.missingInKeycloak()).isEqualTo(3);
+        assertThat(report.failed()).isEqualTo(3);
+        assertThat(report.drifts()).hasSize(2).allSatisfy(drift -> assertThat(drift.error()).isEqualTo("Keycloak unavailable"));
+        assertThat(report.truncated()).isTrue();
+    }
+
+    @Test
+    void runIsSkippedWhileAnotherInstanceHoldsTheLock() throws Exception {
+        when(lock.getBoolean(1)).thenReturn(false);
+
+        assertThat(service.run()).isEmpty();
+
+        verify(keycloakUserService, never()).listUsers(any(), anyInt(), anyInt());
+        verify(connection).rollback();
+        verify(connection).close();
+        assertThat(service.lastReport()).isEmpty();
+    }
+
+    @Test
+    void runHoldsTheClusterLockUntilItEnds() throws Exception {
+        both("a1@example.com", TENANT_A);
+
+        assertThat(service.run()).isPresent();
+
+        verify(connection).setAutoCommit(false);
+        verify(lockStatement).setLong(1, UserReconciliationService.LOCK_KEY);
+        // Rolling back ends the transaction that holds the lock
+        verify(connection).rollback();
+        verify(connection).close();
+    }
+
+    private ReconciliationReport run() {
+        return service.run().orElseThrow();
+    }
+
+    /**
+     * The same user on both sides; returns the Keycloak side, to be changed into drift.
+     */
+    private UserSyncRequest both(String email, UUID tenantId) {
+        databaseUsers.add(databaseUser(email, tenantId));
+        UserSyncRequest keycloakUser = keycloakUser(email, tenantId);
+        keycloakUsers.add(keycloakUser);
+        keycloakUsers.sort(Comparator.comparing(UserReconciliationServiceTests::email, UserReconciliationService::compareEmails));
+        return keycloakUser;
+    }
+
+    private UserSyncRequest database(String email) {
+        return databaseUsers.stream().filter(user -> user.getEmail().equals(email)).findFirst().orElseThrow();
+    }
+
+    private List<UserSyncRequest> databasePage(UUID tenantId, boolean tenantOnly, String after, int size) {
+        return databaseUsers.stream()
+                .filter(user -> !tenantOnly || Objects.equals(tenantId, user.getTenantId()))
+                .filter(user -> UserReconciliationService.compareEmails(email(user), after) > 0)
+                .sorted(Comparator.comparing(UserReconciliationServiceTests::email, UserReconciliationService::compareEmails))
+                .limit(size)
+                .toList();
+    }
+
+    private static UserSyncRequest databaseUser(String email, UUID tenantId) {
+        UserSyncRequest user = new UserSyncRequest(email, "Jane", "Doe", "TENANT_USER");
+        user.setUserId(UUID.randomUUID());
+        user.setTenantId(tenantId);
+        user.setKeycloakId("kc-" + email);
+        return user;
+    }
+
+    private static UserSyncRequest keycloakUser(String email, UUID tenantId) {
+        UserSyncRequest user = new UserSyncRequest(email, "Jane", "Doe", "TENANT_USER");
+        user.setTenantId(tenantId);
+        user.setKeycloakId("kc-" + email);
+        return user;
+    }
+
+    private static String email(UserSyncRequest user) {
+        return user.getEmail().trim().toLowerCase(Locale.ROOT);
+    }
+}
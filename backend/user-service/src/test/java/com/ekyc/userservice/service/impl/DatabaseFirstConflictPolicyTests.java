@@ -0,0 +1,39 @@
+package com.ekyc.userservice.service.impl;
+
+import com.ekyc.common.dto.UserSyncRequest;
+import com.ekyc.userservice.service.ConflictPolicy.Action;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DatabaseFirstConflictPolicyTests {
+
+    private final DatabaseFirstConflictPolicy policy = new DatabaseFirstConflictPolicy();
+    private final UserSyncRequest dbUser = new UserSyncRequest("jane@example.com", "Jane", "Doe", "TENANT_USER");
+    private final UserSyncRequest keycloakUser = new UserSyncRequest("jane@example.com", "Jane", "Doe", "TENANT_USER");
+
+    @Test
+    void userMissingInKeycloakIsCreated() {
+        assertThat(policy.resolve(dbUser, null, List.of())).containsExactly(Action.CREATE_IN_KEYCLOAK);
+    }
+
+    @Test
+    void userMissingInDatabaseIsOnlyReported() {
+        assertThat(policy.resolve(null, keycloakUser, List.of())).isEmpty();
+    }
+
+    @Test
+    void profileFieldsArePushedAndKeycloakIdLinkedFirst() {
+        assertThat(policy.resolve(dbUser, keycloakUser, List.of("email", "keycloakId")))
+                .containsExactly(Action.LINK_KEYCLOAK_ID, Action.PUSH_TO_KEYCLOAK);
+        assertThat(policy.resolve(dbUser, keycloakUser, List.of("firstName"))).containsExactly(Action.PUSH_TO_KEYCLOAK);
+        assertThat(policy.resolve(dbUser, keycloakUser, List.of("lastName"))).containsExactly(Action.PUSH_TO_KEYCLOAK);
+    }
+
+    @Test
+    void tenantDifferenceIsOnlyReported() {
+        assertThat(policy.resolve(dbUser, keycloakUser, List.of("tenantId"))).isEmpty();
+    }
+}
@@ -0,0 +1,100 @@
+package com.ekyc.userservice.service.impl;
+
+import com.ekyc.common.dto.UserSyncRequest;
+import com.ekyc.userservice.config.PasswordHashingProperties;
+import com.ekyc.userservice.entity.User;
+import com.ekyc.userservice.repository.UserRepository;
+import com.ekyc.userservice.service.PasswordHashingService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class DatabaseUserServiceImplTests {
+
+    private static final String EMAIL = "jane@example.com";
+    private static final String PASSWORD = "s3cret-Passw0rd";
+
+    private final UserRepository repository = mock(UserRepository.class);
+    private PasswordHashingService passwordHashing;
+    private DatabaseUserServiceImpl service;
+
+    @BeforeEach
+    void setUp() {
+        PasswordHashingProperties properties = new PasswordHashingProperties();
+        properties.setStrength(5);
+        properties.setThreads(1);
+        passwordHashing = new PasswordHashingService(properties, new SimpleMeterRegistry());
+        service = new DatabaseUserServiceImpl(repository, passwordHashing);
+        when(repository.save(any(User.class))).thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    @AfterEach
+    void tearDown() {
+        passwordHashing.shutdown();
+    }
+
+    @Test
+    void signupHashesPasswordThatLooksLikeAHash() {
+        // A client-chosen "hash" must not become the stored credential
+        String lookalike = new BCryptPasswordEncoder(4).encode("something-else");
+        UserSyncRequest request = new UserSyncRequest(EMAIL, "Jane", "Doe", "TENANT_USER");
+        request.setPasswordHash(lookalike);
+
+        String stored = service.createUser(request).getPasswordHash();
+
+        assertThat(stored).isNotEqualTo(lookalike).startsWith("$2a$05$");
+        assertThat(passwordHashing.verify(lookalike, stored).matches()).isTrue();
+        assertThat(passwordHashing.verify("something-else", stored).matches()).isFalse();
+    }
+
+    @Test
+    void loginUpgradesLegacyPassword() {
+        User user = user(PASSWORD);
+
+        assertThat(service.authenticate(EMAIL, PASSWORD)).isNotNull();
+
+        assertThat(user.getPasswordHash()).startsWith("$2a$05$");
+        verify(repository).save(user);
+        assertThat(service.authenticate(EMAIL, PASSWORD)).isNotNull();
+    }
+
+    @Test
+    void loginUpgradesWeakHash() {
+        User user = user(new BCryptPasswordEncoder(4).encode(PASSWORD));
+
+        assertThat(service.authenticate(EMAIL, PASSWORD).getPasswordHash()).isNull();
+
+        assertThat(user.getPasswordHash()).startsWith("$2a$05$");
+        verify(repository).save(user);
+    }
+
+    @Test
+    void failedLoginKeepsStoredHash() {
+        String weak = new BCryptPasswordEncoder(4).encode(PASSWORD);
+        User user = user(weak);
+
+        assertThat(service.authenticate(EMAIL, "wrong")).isNull();
+
+        assertThat(user.getPasswordHash()).isEqualTo(weak);
+        verify(repository, never()).save(any(User.class));
+    }
+
+    private User user(String storedPassword) {
+        User user = new User();
+        user.setEmail(EMAIL);
+        user.setPasswordHash(storedPassword);
+        when(repository.findByEmail(EMAIL)).thenReturn(Optional.of(user));
+        return user;
+    }
+}
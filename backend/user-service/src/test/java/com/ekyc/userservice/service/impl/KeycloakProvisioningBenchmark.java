@@ -0,0 +1,223 @@
+package com.ekyc.userservice.service.impl;
+
+import ch.qos.logback.classic.Level;
+import com.ekyc.common.dto.UserSyncRequest;
+import com.ekyc.userservice.service.KeycloakAdminTokenManager;
+import com.ekyc.userservice.service.KeycloakRoleCache;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keycloak user provisioning against an in-process stand-in for the Keycloak HTTP API that
+ * answers every call after a fixed latency, so the time per user tracks the number of calls made.
+ *
+ * legacy replays the sequence createUser used to make (readiness check, admin token, role lookup,
+ * user POST, role lookup, role-mapping read, role-mapping POST, reset-password PUT); current runs
+ * KeycloakUserServiceImpl.createUser with its cached admin token and role ids. Calls per user are
+ * printed at the end of each trial.
+ *
+ * mvn -Pbenchmark test-compile exec:exec -Dbenchmark=KeycloakProvisioningBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class KeycloakProvisioningBenchmark {
+
+    private static final String REALM = "ekyc";
+    private static final String ROLE = "PLATFORM_USER";
+    private static final String ROLE_ID = UUID.randomUUID().toString();
+
+    /**
+     * Latency of every Keycloak call, in milliseconds.
+     */
+    @Param({"0", "2"})
+    int latencyMs;
+
+    HttpServer server;
+    ExecutorService executor;
+    RestTemplate restTemplate;
+    KeycloakUserServiceImpl service;
+    String baseUrl;
+    final AtomicLong calls = new AtomicLong();
+    final AtomicLong users = new AtomicLong();
+
+    @Setup
+    public void setUp() throws IOException, ReflectiveOperationException {
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN);
+        // Without TCP_NODELAY, responses with a body sit out the client's delayed ACK (~40ms)
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", this::handle);
+        executor = Executors.newFixedThreadPool(8);
+        server.setExecutor(executor);
+        server.start();
+        baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+
+        restTemplate = new RestTemplate();
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        KeycloakAdminTokenManager adminTokens = new KeycloakAdminTokenManager(restTemplate, baseUrl, "admin", "admin",
+                Duration.ofSeconds(15), meterRegistry);
+        KeycloakRoleCache roleCache = new KeycloakRoleCache(restTemplate, adminTokens, baseUrl, REALM,
+                Duration.ofHours(1), Duration.ofSeconds(30), 10000, meterRegistry);
+        service = new KeycloakUserServiceImpl(restTemplate, adminTokens, roleCache);
+        // @Value fields, normally injected by Spring
+        set("keycloakUrl", baseUrl);
+        set("realm", REALM);
+        set("clientId", "ekyc-platform-client");
+        set("clientSecret", "secret");
+        // As at application startup
+        roleCache.warm();
+        calls.set(0);
+    }
+
+    @TearDown
+    public void tearDown() {
+        server.stop(0);
+        executor.shutdownNow();
+        System.out.printf("%n%d Keycloak calls for %d users (%.2f per user)%n",
+                calls.get(), users.get(), users.get() > 0 ? (double) calls.get() / users.get() : 0.0);
+    }
+
+    @Benchmark
+    public String legacy() {
+        users.incrementAndGet();
+        String admin = baseUrl + "/admin/realms/" + REALM;
+        restTemplate.getForEntity(baseUrl + "/health/ready", String.class);
+
+        MultiValueMap<String, String> form = new LinkedMultiValueMap<>();
+        form.add("grant_type", "password");
+        form.add("client_id", "admin-cli");
+        form.add("username", "admin");
+        form.add("password", "admin");
+        HttpHeaders formHeaders = new HttpHeaders();
+        formHeaders.setContentType(MediaType.APPLICATION_FORM_URLENCODED);
+        Map<?, ?> token = restTemplate.postForObject(baseUrl + "/realms/master/protocol/openid-connect/token",
+                new HttpEntity<>(form, formHeaders), Map.class);
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.setBearerAuth((String) token.get("access_token"));
+        HttpEntity<Void> get = new HttpEntity<>(headers);
+        restTemplate.exchange(admin + "/roles", HttpMethod.GET, get, Map[].class);
+        String location = restTemplate.postForEntity(admin + "/users", new HttpEntity<>(user(), headers), Void.class)
+                .getHeaders().getFirst("Location");
+        String userId = location.substring(location.lastIndexOf('/') + 1);
+        restTemplate.exchange(admin + "/roles", HttpMethod.GET, get, Map[].class);
+        restTemplate.exchange(admin + "/users/" + userId + "/role-mappings/realm", HttpMethod.GET, get, Map[].class);
+        restTemplate.postForEntity(admin + "/users/" + userId + "/role-mappings/realm",
+                new HttpEntity<>(List.of(Map.of("id", ROLE_ID, "name", ROLE)), headers), Void.class);
+        restTemplate.put(admin + "/users/" + userId + "/reset-password",
+                new HttpEntity<>(Map.of("type", "password", "value", "Secret123!", "temporary", false), headers));
+        return userId;
+    }
+
+    @Benchmark
+    public UserSyncRequest current() {
+        users.incrementAndGet();
+        UserSyncRequest request = new UserSyncRequest();
+        request.setEmail(UUID.randomUUID() + "@example.com");
+        request.setFirstName("Jane");
+        request.setLastName("Doe");
+        request.setRole(ROLE);
+        request.setTenantId(UUID.randomUUID());
+        request.setStatus("active");
+        request.setPasswordHash("Secret123!");
+        return service.createUser(request);
+    }
+
+    private static Map<String, Object> user() {
+        String email = UUID.randomUUID() + "@example.com";
+        return Map.of("username", email, "email", email, "firstName", "Jane", "lastName", "Doe", "enabled", true);
+    }
+
+    private void set(String name, String value) throws ReflectiveOperationException {
+        Field field = KeycloakUserServiceImpl.class.getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(service, value);
+    }
+
+    /**
+     * The few Keycloak endpoints provisioning touches, with canned answers.
+     */
+    private void handle(HttpExchange exchange) throws IOException {
+        calls.incrementAndGet();
+        if (latencyMs > 0) {
+            try {
+                Thread.sleep(latencyMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        exchange.getRequestBody().readAllBytes();
+        String path = exchange.getRequestURI().getPath();
+        String method = exchange.getRequestMethod();
+        String role = "{\"id\":\"" + ROLE_ID + "\",\"name\":\"" + ROLE + "\"}";
+        if (path.endsWith("/openid-connect/token")) {
+            respond(exchange, 200, "{\"access_token\":\"" + UUID.randomUUID() + "\",\"expires_in\":300,"
+                    + "\"refresh_token\":\"" + UUID.randomUUID() + "\",\"refresh_expires_in\":1800}");
+        } else if (path.equals("/health/ready")) {
+            respond(exchange, 200, "{\"status\":\"UP\"}");
+        } else if (path.endsWith("/roles")) {
+            respond(exchange, 200, "[" + role + "]");
+        } else if (path.endsWith("/roles/" + ROLE)) {
+            respond(exchange, 200, role);
+        } else if (path.endsWith("/users") && method.equals("POST")) {
+            exchange.getResponseHeaders().add("Location", baseUrl + path + "/" + UUID.randomUUID());
+            respond(exchange, 201, null);
+        } else if (path.endsWith("/role-mappings/realm") && method.equals("GET")) {
+            respond(exchange, 200, "[]");
+        } else {
+            // role-mapping POST, reset-password PUT
+            respond(exchange, 204, null);
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, String json) throws IOException {
+        if (json == null) {
+            exchange.sendResponseHeaders(status, -1);
+        } else {
+            byte[] body = json.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(status, body.length);
+            exchange.getResponseBody().write(body);
+        }
+        exchange.close();
+    }
+}
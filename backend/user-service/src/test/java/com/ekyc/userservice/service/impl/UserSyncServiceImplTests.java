@@ -0,0 +1,79 @@
+package com.ekyc.userservice.service.impl;
+
+import com.ekyc.common.dto.UserSyncRequest;
+import com.ekyc.userservice.service.ConflictPolicy;
+import com.ekyc.userservice.service.DatabaseUserService;
+import com.ekyc.userservice.service.KeycloakOutbox;
+import com.ekyc.userservice.service.KeycloakUserService;
+import com.ekyc.userservice.service.ProfileChangeNotifier;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+class UserSyncServiceImplTests {
+
+    private final DatabaseUserService databaseUserService = mock(DatabaseUserService.class);
+    private final KeycloakOutbox keycloakOutbox = mock(KeycloakOutbox.class);
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    private final UserSyncServiceImpl service = new UserSyncServiceImpl(databaseUserService, mock(KeycloakUserService.class),
+            keycloakOutbox, mock(ProfileChangeNotifier.class), new DatabaseFirstConflictPolicy(), transactionManager);
+
+    @Test
+    void digestCoversComparedFieldsOnly() {
+        UserSyncRequest user = user("jane@example.com", "Jane");
+        long digest = service.digest(user);
+
+        assertThat(service.digest(user(" Jane@Example.COM", "Jane "))).isEqualTo(digest);
+        UserSyncRequest otherRole = user("jane@example.com", "Jane");
+        otherRole.setRole("TENANT_ADMIN");
+        assertThat(service.digest(otherRole)).isEqualTo(digest);
+
+        assertThat(service.digest(user("jane@example.com", "Janet"))).isNotEqualTo(digest);
+        UserSyncRequest otherTenant = user("jane@example.com", "Jane");
+        otherTenant.setTenantId(UUID.randomUUID());
+        assertThat(service.digest(otherTenant)).isNotEqualTo(digest);
+        UserSyncRequest unlinked = user("jane@example.com", "Jane");
+        unlinked.setKeycloakId(null);
+        assertThat(service.digest(unlinked)).isNotEqualTo(digest);
+    }
+
+    @Test
+    void blankAndMissingNamesAreEqual() {
+        UserSyncRequest dbUser = user("jane@example.com", "");
+        UserSyncRequest keycloakUser = user("jane@example.com", null);
+
+        assertThat(service.findDifferences(dbUser, keycloakUser)).isEmpty();
+        assertThat(service.digest(dbUser)).isEqualTo(service.digest(keycloakUser));
+    }
+
+    @Test
+    void pushQueuesTheDatabaseRowInItsOwnTransaction() {
+        UserSyncRequest dbUser = user("jane@example.com", "Jane");
+        dbUser.setKeycloakId(null);
+        UserSyncRequest keycloakUser = user("jane@example.com", "Janet");
+
+        assertThat(service.reconcile(dbUser, keycloakUser))
+                .containsExactly(ConflictPolicy.Action.LINK_KEYCLOAK_ID, ConflictPolicy.Action.PUSH_TO_KEYCLOAK);
+
+        verify(databaseUserService).updateKeycloakId(dbUser.getUserId(), "kc-1");
+        ArgumentCaptor<UserSyncRequest> queued = ArgumentCaptor.forClass(UserSyncRequest.class);
+        verify(keycloakOutbox).userUpdated(queued.capture());
+        assertThat(queued.getValue().getFirstName()).isEqualTo("Jane");
+        assertThat(queued.getValue().getKeycloakId()).isEqualTo("kc-1");
+        verify(transactionManager).commit(any());
+    }
+
+    private static UserSyncRequest user(String email, String firstName) {
+        UserSyncRequest user = new UserSyncRequest(email, firstName, "Doe", "TENANT_USER");
+        user.setUserId(UUID.fromString("11111111-1111-1111-1111-111111111111"));
+        user.setKeycloakId("kc-1");
+        return user;
+    }
+}